@@ -0,0 +1,271 @@
+package bench;
+
+import media.AutomaticGainControl;
+import media.CapturePipeline;
+import media.ClockDriftCompensator;
+import media.EchoCanceller;
+import media.Codecs;
+import media.FrameRing;
+import media.JitterBuffer;
+import media.Limiter;
+import media.MediaLoops;
+import media.MediaTransport;
+import media.MemorySink;
+import media.MemorySource;
+import media.NoiseSuppressor;
+import media.PacketLossConcealer;
+import media.PacketReceiver;
+import media.PlayoutPipeline;
+import media.RtcpPacket;
+import media.SequenceTracker;
+import model.AudioModel;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * 媒体线程内存分配回归检查：按通话时的线程划分（采集 / 发送 / 接收 / 播放），每个线程循环调用通话中
+ * 同样使用的 MediaLoops 逐帧处理，线程之间经 FrameRing 传递，实时运行 CapturePipeline、PacketReceiver、PlayoutPipeline
+ * （含回声消除、降噪、自动增益、限幅与漂移补偿），经本机回环上的两个 MediaTransport 收发，采集与播放设备为按实时速率节拍的内存设备，
+ * 预热后分几个窗口统计每个线程每帧分配的字节数（取最少的窗口），超过门限时以非零退出码结束。
+ * 构建时由 media.MediaLoopsAllocationTest 以较短的时长调用 measure() 执行同样的检查，这里的长时间运行用于复核。
+ *
+ * 合成输入交替出现语音段和静音段，并人为丢包、切换冗余等级、穿插闭麦与 SR，
+ * 使 DTX/SID、舒适噪声、PLC、冗余恢复、重采样等路径都被执行到。
+ *
+ * 媒体通道锁定对端后走 connect 之后的 read/write，同样不分配。门限按线程给出，默认 2 字节/帧：
+ * 一个对象至少 16 字节，平均值低于该门限说明没有逐帧分配，只剩 JIT 去优化之类的零星分配。
+ *
+ * 运行: java -cp out bench.AllocationBenchmark [采集 发送 接收 播放 每帧允许的字节数]
+ * 依赖 HotSpot 的 com.sun.management.ThreadMXBean
+ */
+public class AllocationBenchmark {
+
+    private static final int WARMUP_MS = 5000;
+    private static final int MEASURE_MS = 5000;
+    // 统计分为若干个窗口，每个线程取分配最少的窗口：每帧都分配的代码在每个窗口都会出现，
+    // 而 JIT 编译、去优化等一次性的少量分配只落在个别窗口里，不应判为失败
+    private static final int MEASURE_WINDOWS = 3;
+    private static final int JITTER_CAPACITY = 64;
+    // 每隔多少帧丢一个包
+    private static final int DROP_INTERVAL = 23;
+    // 每隔多少帧发送一次 SR
+    private static final int REPORT_FRAMES = 50;
+
+    // 测试配置：编码，以及对应的设备采样率、线上采样率、打包间隔
+    public static final String[] CODECS = {"PCMU", "DVI4", "L16"};
+    public static final int[][] CONFIGS = {
+            {48000, 8000, 20},
+            {16000, 16000, 10},
+            {44100, 16000, 20},
+    };
+
+    private static final int CAPTURE_RING_FRAMES = 8;
+    private static final int PACKET_RING_SLOTS = 32;
+
+    // 默认门限（字节/帧）：采集、发送、接收、播放
+    public static final double[] LIMITS = {2, 2, 2, 2};
+
+    private static volatile boolean running;
+
+    public static void main(String[] args) throws Exception {
+        double[] limits = LIMITS.clone();
+        for (int i = 0; i < args.length && i < limits.length; i++) {
+            limits[i] = Double.parseDouble(args[i]);
+        }
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        System.out.printf("预热 %d ms, 统计 %d × %d ms（取最少的窗口）, 门限 采集 %.1f / 发送 %.1f / 接收 %.1f / 播放 %.1f 字节/帧%n",
+                WARMUP_MS, MEASURE_WINDOWS, MEASURE_MS, limits[0], limits[1], limits[2], limits[3]);
+        System.out.printf("%-18s %12s %12s %12s %12s%n", "配置", "采集 B/帧", "发送 B/帧", "接收 B/帧", "播放 B/帧");
+
+        boolean failed = false;
+        for (int c = 0; c < CODECS.length; c++) {
+            int[] config = CONFIGS[c];
+            double[] perFrame = measure(threads, CODECS[c], config[0], config[1], config[2],
+                    WARMUP_MS, MEASURE_MS, MEASURE_WINDOWS);
+            String name = CODECS[c] + " " + config[0] / 1000 + "k/" + config[1] / 1000 + "k " + config[2] + "ms";
+            System.out.printf("%-18s %12.1f %12.1f %12.1f %12.1f%n", name, perFrame[0], perFrame[1], perFrame[2], perFrame[3]);
+            for (int i = 0; i < perFrame.length; i++) {
+                if (perFrame[i] > limits[i]) failed = true;
+            }
+        }
+
+        if (failed) {
+            System.out.println("失败: 媒体线程稳态下仍在分配内存");
+            System.exit(1);
+        }
+        System.out.println("通过");
+    }
+
+    /**
+     * 按给定配置实时运行一通回环通话的四个媒体线程，预热后分 windows 个窗口统计
+     *
+     * @return 采集、发送、接收、播放线程在分配最少的窗口内每帧分配的字节数
+     */
+    public static double[] measure(com.sun.management.ThreadMXBean threads, String codec,
+                                   int deviceRate, int wireRate, int frameMs,
+                                   int warmupMs, int measureMs, int windows) throws Exception {
+        int frameSamples = wireRate * frameMs / 1000;
+        int deviceFrameSamples = deviceRate * frameMs / 1000;
+        long ssrc = 0x12345678L;
+
+        JitterBuffer jitterBuffer = new JitterBuffer(JITTER_CAPACITY, Codecs.create(codec).getEncodedSize(frameSamples),
+                wireRate, 20, 300);
+        CapturePipeline capture = new CapturePipeline(codec, deviceRate, wireRate, frameMs, ssrc, true);
+        PacketReceiver receiver = new PacketReceiver(codec, frameSamples, jitterBuffer, new SequenceTracker(),
+                true, true, ssrc);
+        PlayoutPipeline playout = new PlayoutPipeline(codec, jitterBuffer, wireRate, deviceRate, frameMs,
+                PacketLossConcealer.Strategy.PITCH);
+        EchoCanceller echoCanceller = new EchoCanceller(wireRate, frameSamples);
+        capture.setEchoCanceller(echoCanceller);
+        playout.setEchoCanceller(echoCanceller);
+        capture.setNoiseSuppressor(new NoiseSuppressor(wireRate));
+        capture.setGainControl(new AutomaticGainControl(frameMs));
+        playout.setLimiter(new Limiter(frameMs));
+        playout.setDriftCompensator(new ClockDriftCompensator(frameMs));
+
+        // 接收端的对端地址先填一个占位，互发一个探测包后双方都锁定对端，与通话中的稳态一致
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        MediaTransport recvChannel = MediaTransport.open(0, new InetSocketAddress(loopback, 9));
+        MediaTransport sendChannel = MediaTransport.open(0, new InetSocketAddress(loopback, recvChannel.getLocalPort()));
+        handshake(sendChannel, recvChannel);
+
+        AudioFormat format = AudioModel.createPcmFormat(deviceRate);
+        MemorySource source = new MemorySource(synthesize(deviceRate, deviceFrameSamples), deviceRate, true, true);
+        source.open(format);
+        MemorySink sink = new MemorySink(0, true);
+        sink.open(format, deviceFrameSamples * 2);
+
+        FrameRing captureRing = new FrameRing(CAPTURE_RING_FRAMES, deviceFrameSamples * 2);
+        FrameRing packetRing = new FrameRing(PACKET_RING_SLOTS, receiver.getMaxPacketSize());
+        MediaLoops.Capture captureLoop = new MediaLoops.Capture(source, captureRing, deviceFrameSamples * 2);
+        MediaLoops.Send sendLoop = new MediaLoops.Send(capture, captureRing, sendChannel, deviceFrameSamples * 2,
+                frameMs, format.isBigEndian(), false);
+        MediaLoops.Receive receiveLoop = new MediaLoops.Receive(receiver, packetRing, recvChannel);
+        MediaLoops.Playout playoutLoop = new MediaLoops.Playout(playout, receiver, packetRing, jitterBuffer,
+                format.isBigEndian());
+
+        running = true;
+        Thread cap = new Thread(() -> {
+            try {
+                while (running && captureLoop.captureFrame()) {
+                    // 设备按实时速率节拍
+                }
+            } catch (Exception e) {
+                if (running) e.printStackTrace();
+            }
+        }, "AudioCaptureThread");
+
+        Thread send = new Thread(() -> {
+            try {
+                for (int i = 0; running; i++) {
+                    boolean muted = i % 400 >= 390;
+                    int level = (i / 100) % 3;
+                    // 人为丢包：编码照常进行，只是不发出
+                    if (sendLoop.encodeFrame(muted, level) >= 0 && i % DROP_INTERVAL != 0) {
+                        sendLoop.transmit();
+                    }
+                    if (i % REPORT_FRAMES == 0) {
+                        sendLoop.sendReport(RtcpPacket.writeSenderReport(sendLoop.getReportBuffer(), 0, ssrc,
+                                System.currentTimeMillis(), capture.getTimestamp(), i, i, false));
+                    }
+                }
+            } catch (Exception e) {
+                if (running) e.printStackTrace();
+            }
+        }, "AudioSendThread");
+
+        Thread recv = new Thread(() -> {
+            try {
+                while (running) {
+                    receiveLoop.receive();
+                }
+            } catch (Exception e) {
+                if (running) e.printStackTrace();
+            }
+        }, "AudioRecvThread");
+
+        Thread play = new Thread(() -> {
+            try {
+                while (running) {
+                    playoutLoop.playFrame(sink);
+                }
+            } catch (Exception e) {
+                if (running) e.printStackTrace();
+            }
+        }, "AudioPlayoutThread");
+
+        Thread[] media = {cap, send, recv, play};
+        for (Thread t : media) t.start();
+
+        Thread.sleep(warmupMs);
+        long[] least = new long[media.length];
+        java.util.Arrays.fill(least, Long.MAX_VALUE);
+        for (int w = 0; w < windows; w++) {
+            long[] before = new long[media.length];
+            for (int i = 0; i < media.length; i++) before[i] = threads.getThreadAllocatedBytes(media[i].getId());
+            Thread.sleep(measureMs);
+            for (int i = 0; i < media.length; i++) {
+                least[i] = Math.min(least[i], threads.getThreadAllocatedBytes(media[i].getId()) - before[i]);
+            }
+        }
+
+        running = false;
+        recvChannel.close();
+        sendChannel.close();
+        for (Thread t : media) t.join();
+        source.close();
+        sink.close();
+        sendLoop.release();
+        receiveLoop.release();
+
+        double frames = (double) measureMs / frameMs;
+        double[] perFrame = new double[media.length];
+        for (int i = 0; i < media.length; i++) perFrame[i] = least[i] / frames;
+        return perFrame;
+    }
+
+    private static void handshake(MediaTransport a, MediaTransport b) throws IOException {
+        ByteBuffer probe = ByteBuffer.allocateDirect(1);
+        a.send(probe);
+        b.receive(probe);
+        b.latch();
+        probe.clear();
+        b.send(probe);
+        a.receive(probe);
+        a.latch();
+    }
+
+    // 8 秒 16bit PCM：200ms~1s 的谐波语音段与同样长度的低噪声静音段交替
+    private static short[] synthesize(int sampleRate, int frameSamples) {
+        Random random = new Random(7);
+        int total = sampleRate * 8 / frameSamples * frameSamples;
+        short[] samples = new short[total];
+        int pos = 0;
+        double phase = 0;
+        boolean speech = true;
+        while (pos < total) {
+            int len = sampleRate * (200 + random.nextInt(800)) / 1000;
+            double f0 = 100 + random.nextDouble() * 120;
+            for (int i = 0; i < len && pos < total; i++, pos++) {
+                double v = random.nextGaussian() * 40;
+                if (speech) {
+                    phase += 2 * Math.PI * f0 / sampleRate;
+                    double envelope = Math.sin(Math.PI * i / len);
+                    for (int k = 1; k <= 8; k++) v += 6000 * envelope * Math.sin(k * phase) / k;
+                }
+                samples[pos] = (short) Math.max(-32768, Math.min(32767, v));
+            }
+            speech = !speech;
+        }
+        return samples;
+    }
+}
@@ -0,0 +1,63 @@
+package bench;
+
+import media.AudioCodec;
+import media.Codecs;
+
+/**
+ * 编解码吞吐量测试：对 20ms 帧反复编码+解码，输出每帧耗时与相对帧预算的占比
+ *
+ * 运行: java -cp out bench.CodecBenchmark [采样率]
+ */
+public class CodecBenchmark {
+
+    private static final int FRAME_MS = 20;
+    private static final int WARMUP_FRAMES = 200_000;
+    private static final int MEASURE_FRAMES = 1_000_000;
+
+    public static void main(String[] args) {
+        int sampleRate = args.length > 0 ? Integer.parseInt(args[0]) : 8000;
+        int samples = sampleRate * FRAME_MS / 1000;
+
+        // 440Hz 正弦加少量噪声，接近真实语音的幅度分布
+        short[] input = new short[samples];
+        java.util.Random random = new java.util.Random(42);
+        for (int i = 0; i < samples; i++) {
+            input[i] = (short) (8000 * Math.sin(2 * Math.PI * 440 * i / sampleRate) + random.nextGaussian() * 300);
+        }
+
+        System.out.printf("帧长 %d ms, 采样率 %d Hz, 每帧 %d 采样%n", FRAME_MS, sampleRate, samples);
+        System.out.printf("%-6s %10s %12s %12s %10s%n", "编码", "字节/帧", "编码 ns/帧", "解码 ns/帧", "帧预算占比");
+
+        for (String name : Codecs.SUPPORTED) {
+            AudioCodec encoder = Codecs.create(name);
+            AudioCodec decoder = Codecs.create(name);
+            byte[] encoded = new byte[encoder.getEncodedSize(samples)];
+            short[] decoded = new short[samples];
+
+            long sink = 0;
+            for (int i = 0; i < WARMUP_FRAMES; i++) {
+                sink += encoder.encode(input, 0, samples, encoded, 0);
+                sink += decoder.decode(encoded, 0, encoded.length, decoded, 0);
+            }
+
+            long t0 = System.nanoTime();
+            int len = 0;
+            for (int i = 0; i < MEASURE_FRAMES; i++) {
+                len = encoder.encode(input, 0, samples, encoded, 0);
+                sink += encoded[i % len];
+            }
+            long t1 = System.nanoTime();
+            for (int i = 0; i < MEASURE_FRAMES; i++) {
+                sink += decoder.decode(encoded, 0, len, decoded, 0);
+                sink += decoded[i % samples];
+            }
+            long t2 = System.nanoTime();
+
+            double encNs = (double) (t1 - t0) / MEASURE_FRAMES;
+            double decNs = (double) (t2 - t1) / MEASURE_FRAMES;
+            double budgetNs = FRAME_MS * 1_000_000.0;
+            System.out.printf("%-6s %10d %12.1f %12.1f %9.4f%%   (sink=%d)%n",
+                    name, len, encNs, decNs, (encNs + decNs) / budgetNs * 100, sink & 0xF);
+        }
+    }
+}
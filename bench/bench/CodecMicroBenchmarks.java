@@ -0,0 +1,121 @@
+package bench;
+
+import media.AudioCodec;
+import media.CapturePipeline;
+import media.Codecs;
+import media.JitterBuffer;
+import media.PacketLossConcealer;
+import media.PacketReceiver;
+import media.PlayoutPipeline;
+import media.SequenceTracker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 编解码与逐帧处理微基准，每种编码各跑一遍（运行见 run.sh），每次调用为一帧
+ * - encode / decode: 16kHz 20ms 帧的编码、解码
+ * - captureFrame: CapturePipeline 处理一帧（格式转换、编码、组 RTP 包；不含回声消除等可选模块）
+ * - playoutFrame: 接收端完整的一帧：PacketReceiver 处理一包（由另一个 CapturePipeline 生成，含其编码）入缓冲，
+ *   PlayoutPipeline 取帧解码输出
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CodecMicroBenchmarks {
+
+    private static final int RATE = 16000;
+    private static final int FRAME_MS = 20;
+    private static final long SSRC = 0x12345678L;
+
+    @Param({"PCMU", "PCMA", "DVI4", "L16"})
+    private String codec;
+
+    private final int samples = RATE * FRAME_MS / 1000;
+    private short[] pcm;
+    private short[] decoded;
+    private byte[] encoded;
+    private byte[] capture;
+    private byte[] packet;
+    private byte[] frame;
+    private AudioCodec encoder;
+    private AudioCodec decoder;
+    private int encodedLength;
+
+    private CapturePipeline capturePipeline;
+    private PacketReceiver receiver;
+    private PlayoutPipeline playoutPipeline;
+    private CapturePipeline sender;
+    private byte[] received;
+    private long now = 0;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        pcm = new short[samples];
+        capture = new byte[samples * 2];
+        for (int i = 0; i < samples; i++) {
+            pcm[i] = (short) (8000 * Math.sin(2 * Math.PI * 440 * i / RATE) + random.nextGaussian() * 300);
+            capture[2 * i] = (byte) (pcm[i] >> 8);
+            capture[2 * i + 1] = (byte) pcm[i];
+        }
+        encoder = Codecs.create(codec);
+        decoder = Codecs.create(codec);
+        encoded = new byte[encoder.getEncodedSize(samples)];
+        decoded = new short[samples];
+        encodedLength = encoder.encode(pcm, 0, samples, encoded, 0);
+
+        capturePipeline = new CapturePipeline(codec, RATE, RATE, FRAME_MS, SSRC, false);
+        packet = new byte[capturePipeline.getMaxPacketSize()];
+
+        JitterBuffer jitterBuffer = new JitterBuffer(64, encoder.getEncodedSize(samples), RATE, 20, 300);
+        receiver = new PacketReceiver(codec, samples, jitterBuffer, new SequenceTracker(), false, false, SSRC);
+        playoutPipeline = new PlayoutPipeline(codec, jitterBuffer, RATE, RATE, FRAME_MS,
+                PacketLossConcealer.Strategy.PITCH);
+        sender = new CapturePipeline(codec, RATE, RATE, FRAME_MS, SSRC, false);
+        received = new byte[receiver.getMaxPacketSize()];
+        frame = new byte[playoutPipeline.getMaxFrameBytes()];
+    }
+
+    @Benchmark
+    public void encode(Blackhole bh) {
+        bh.consume(encoder.encode(pcm, 0, samples, encoded, 0));
+        bh.consume(encoded);
+    }
+
+    @Benchmark
+    public void decode(Blackhole bh) {
+        bh.consume(decoder.decode(encoded, 0, encodedLength, decoded, 0));
+        bh.consume(decoded);
+    }
+
+    @Benchmark
+    public void captureFrame(Blackhole bh) {
+        bh.consume(capturePipeline.process(capture, 0, capture.length, true, false, 0, packet, 0));
+        bh.consume(packet);
+    }
+
+    @Benchmark
+    public void playoutFrame(Blackhole bh) {
+        int len = sender.process(capture, 0, capture.length, true, false, 0, received, 0);
+        now += FRAME_MS;
+        bh.consume(receiver.handle(received, len, now));
+        bh.consume(playoutPipeline.next(frame, 0, true));
+        bh.consume(frame);
+    }
+}
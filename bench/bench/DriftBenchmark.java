@@ -0,0 +1,124 @@
+package bench;
+
+import media.AudioCodec;
+import media.ClockDriftCompensator;
+import media.Codecs;
+import media.JitterBuffer;
+import media.PacketLossConcealer;
+import media.PlayoutPipeline;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * 时钟漂移补偿离线评估：在模拟时间上运行一通长通话，对端按偏快/偏慢若干 ppm 的时钟发包，
+ * 经带抖动的网络进入 JitterBuffer，由 PlayoutPipeline 按本端播放时钟取帧，分别关闭和开启 ClockDriftCompensator，比较
+ * - 缓冲深度：开头 1 分钟与最后 1 分钟的平均抖动缓冲深度（ms），即接收端引入的延迟，应保持不变
+ * - 欠载、静音丢弃：对端偏慢时缓冲区周期性被取空，偏快时只能靠丢弃静音帧回落
+ * - 估计漂移：通话结束时补偿器估计的 ppm，应接近设定值
+ *
+ * 运行: java -cp out bench.DriftBenchmark
+ * 不开启 DTX（对端连续发包），否则每个语音段都重新预缓冲，漂移不会跨段累积
+ */
+public class DriftBenchmark {
+
+    private static final String CODEC = "L16";
+    private static final int RATE = 16000;
+    private static final int FRAME_MS = 20;
+    private static final int MINUTES = 30;
+    private static final double[] DRIFT_PPM = {-300, -100, 100, 300};
+    private static final double NETWORK_DELAY_MS = 40;
+    private static final double JITTER_MS = 15;
+    private static final long SEED = 20240901L;
+
+    public static void main(String[] args) {
+        int frameSamples = RATE * FRAME_MS / 1000;
+        short[] speech = NoiseBenchmark.conversation(RATE);
+        System.out.printf("模拟通话 %d 分钟, %s %d Hz, 帧长 %d ms, 网络延迟 %.0f ms + 抖动 0~%.0f ms%n%n",
+                MINUTES, CODEC, RATE, FRAME_MS, NETWORK_DELAY_MS, JITTER_MS);
+        System.out.printf("%-10s %-6s %18s %8s %10s %10s %16s%n",
+                "对端时钟", "补偿", "深度 首/末 分钟 ms", "欠载", "静音丢弃", "估计漂移", "插入/删除 采样");
+        for (double ppm : DRIFT_PPM) {
+            for (boolean compensate : new boolean[]{false, true}) {
+                Result r = run(speech, frameSamples, ppm, compensate);
+                System.out.printf("%+7.0f ppm %-6s %9.0f/%6.0f %10d %10d %10s %16s%n",
+                        ppm, compensate ? "开" : "关", r.firstDepthMs, r.lastDepthMs, r.underruns, r.drained,
+                        compensate ? String.format("%+.0f ppm", r.estimatedPpm) : "--",
+                        compensate ? r.inserted + "/" + r.deleted : "--");
+            }
+        }
+    }
+
+    private static Result run(short[] speech, int frameSamples, double ppm, boolean compensate) {
+        AudioCodec encoder = Codecs.create(CODEC);
+        int maxPayload = encoder.getEncodedSize(frameSamples);
+        JitterBuffer jitterBuffer = new JitterBuffer(64, maxPayload, RATE, 20, 300);
+        PlayoutPipeline pipeline = new PlayoutPipeline(CODEC, jitterBuffer, RATE, RATE, FRAME_MS,
+                PacketLossConcealer.Strategy.PITCH);
+        ClockDriftCompensator drift = compensate ? new ClockDriftCompensator(FRAME_MS) : null;
+        pipeline.setDriftCompensator(drift);
+
+        // 对端按自己的时钟每 FRAME_MS 发一包，换算到本端时间轴上周期为 FRAME_MS / (1 + ppm)
+        double durationMs = MINUTES * 60_000.0;
+        double period = FRAME_MS / (1 + ppm * 1e-6);
+        int packets = (int) (durationMs / period) + 1;
+        Random random = new Random(SEED);
+        double[] arrival = new double[packets];
+        Integer[] order = new Integer[packets];
+        for (int k = 0; k < packets; k++) {
+            arrival[k] = k * period + NETWORK_DELAY_MS + random.nextDouble() * JITTER_MS;
+            order[k] = k;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(k -> arrival[k]));
+
+        byte[] payload = new byte[maxPayload];
+        byte[] frame = new byte[pipeline.getMaxFrameBytes()];
+        Result r = new Result();
+        double firstSum = 0, lastSum = 0;
+        int firstCount = 0, lastCount = 0;
+        double now = 0;
+        int next = 0;
+        while (now < durationMs) {
+            while (next < packets && arrival[order[next]] <= now) {
+                int k = order[next++];
+                int off = (int) ((long) k * frameSamples % (speech.length - frameSamples));
+                int len = encoder.encode(speech, off, frameSamples, payload, 0);
+                jitterBuffer.put(k, (long) k * frameSamples, payload, 0, len, (long) arrival[k]);
+            }
+            int bytes = pipeline.next(frame, 0, false);
+            if (bytes == 0) continue;
+            now += bytes / 2 * 1000.0 / RATE;
+
+            // 开头 1 分钟跳过前 10 秒（抖动估计收敛）
+            int depthMs = jitterBuffer.getDepthMs();
+            if (now >= 10_000 && now < 60_000) {
+                firstSum += depthMs;
+                firstCount++;
+            } else if (now >= durationMs - 60_000) {
+                lastSum += depthMs;
+                lastCount++;
+            }
+        }
+        r.firstDepthMs = firstSum / Math.max(1, firstCount);
+        r.lastDepthMs = lastSum / Math.max(1, lastCount);
+        r.underruns = jitterBuffer.getUnderruns();
+        r.drained = jitterBuffer.getDrained();
+        if (drift != null) {
+            r.estimatedPpm = drift.getDriftPpm();
+            r.inserted = drift.getInserted();
+            r.deleted = drift.getDeleted();
+        }
+        return r;
+    }
+
+    private static class Result {
+        double firstDepthMs;
+        double lastDepthMs;
+        long underruns;
+        long drained;
+        double estimatedPpm;
+        long inserted;
+        long deleted;
+    }
+}
@@ -0,0 +1,204 @@
+package bench;
+
+import media.EchoCanceller;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.File;
+import java.util.Random;
+
+/**
+ * 回声消除离线评估：逐帧送入远端（播放）信号和近端（麦克风）信号，输出每帧耗时和回声消除效果
+ * - ns/帧、帧预算占比：process() 的平均耗时（含 render()），p99 为单帧耗时的 99 分位
+ * - ERLE：远端有声、近端无人说话的帧上，麦克风信号能量 / 输出能量（dB），越大越好
+ * - 双讲 SNR：近端说话期间，近端语音相对于残余回声与失真的信噪比，分别给出处理前后
+ *
+ * 运行: java -cp out bench.EchoBenchmark [远端.wav 麦克风.wav]
+ * 指定录音时两个文件须采样率相同、从同一时刻开始（麦克风录音中含远端的回声），只输出耗时、延迟和 ERLE；
+ * 不指定时用合成语音经模拟房间冲激响应生成回声，时间线为：
+ * 0~12s 单讲，12s 回声路径突变（模拟移动笔记本），18~24s 双讲，24~30s 单讲
+ */
+public class EchoBenchmark {
+
+    private static final int FRAME_MS = 20;
+    private static final int SECONDS = 30;
+    private static final int ECHO_DELAY_MS = 150;
+    private static final int PATH_CHANGE_S = 12;
+    private static final int DOUBLE_TALK_START_S = 18;
+    private static final int DOUBLE_TALK_END_S = 24;
+    private static final double NOISE_RMS = 20;
+    // 远端帧 RMS 高于此值才计入 ERLE
+    private static final double ACTIVE_RMS = 300;
+    private static final long SEED = 20240601L;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 2) {
+            runRecorded(new File(args[0]), new File(args[1]));
+            return;
+        }
+
+        System.out.printf("合成语音 %d s, 帧长 %d ms, 回声延迟 %d ms, %ds 回声路径突变, %d~%ds 双讲%n%n",
+                SECONDS, FRAME_MS, ECHO_DELAY_MS, PATH_CHANGE_S, DOUBLE_TALK_START_S, DOUBLE_TALK_END_S);
+        System.out.printf("%-8s %10s %8s %10s %10s %10s %24s %18s%n", "采样率", "ns/帧", "预算占比", "p99 ns/帧",
+                "估计延迟", "收敛 ms", "ERLE dB (0-12/14-18/24-30)", "双讲 SNR 前/后 dB");
+        for (int rate : new int[]{8000, 16000, 48000}) {
+            Scenario s = new Scenario(rate);
+            // 第一遍预热 JIT，第二遍计时
+            run(s.far, s.mic, rate);
+            Result r = run(s.far, s.mic, rate);
+
+            double[] erle = {
+                    erle(s.far, s.mic, r.out, rate, 2, PATH_CHANGE_S),
+                    erle(s.far, s.mic, r.out, rate, PATH_CHANGE_S + 2, DOUBLE_TALK_START_S),
+                    erle(s.far, s.mic, r.out, rate, DOUBLE_TALK_END_S, SECONDS),
+            };
+            int from = rate * DOUBLE_TALK_START_S, to = rate * DOUBLE_TALK_END_S;
+            double before = 0, after = 0, speech = 0;
+            for (int i = from; i < to; i++) {
+                double echo = s.mic[i] - s.near[i] - s.noise[i];
+                double residual = r.out[i] - s.near[i] - s.noise[i];
+                speech += (double) s.near[i] * s.near[i];
+                before += echo * echo;
+                after += residual * residual;
+            }
+            System.out.printf("%-8d %10.0f %7.2f%% %10d %7d ms %10s %8.1f/%5.1f/%5.1f %10.1f/%5.1f%n",
+                    rate, r.meanNs, r.meanNs / (FRAME_MS * 1e6) * 100, r.p99Ns,
+                    r.delayMs, r.convergedMs >= 0 ? String.valueOf(r.convergedMs) : "--",
+                    erle[0], erle[1], erle[2],
+                    10 * Math.log10(speech / before), 10 * Math.log10(speech / after));
+        }
+    }
+
+    private static void runRecorded(File farFile, File micFile) throws Exception {
+        AudioInputStream farIn = AudioSystem.getAudioInputStream(farFile);
+        int rate = (int) farIn.getFormat().getSampleRate();
+        AudioFormat format = new AudioFormat(rate, 16, 1, true, true);
+        short[] far = PlcBenchmark.readPcm(AudioSystem.getAudioInputStream(format, farIn));
+        AudioInputStream micIn = AudioSystem.getAudioInputStream(micFile);
+        if ((int) micIn.getFormat().getSampleRate() != rate) {
+            throw new IllegalArgumentException("两个文件的采样率不同");
+        }
+        short[] mic = PlcBenchmark.readPcm(AudioSystem.getAudioInputStream(format, micIn));
+        int n = Math.min(far.length, mic.length);
+        far = java.util.Arrays.copyOf(far, n);
+        mic = java.util.Arrays.copyOf(mic, n);
+
+        run(far, mic, rate);
+        Result r = run(far, mic, rate);
+        int seconds = n / rate;
+        System.out.printf("输入: %s / %s, 采样率 %d Hz, %d s%n", farFile.getName(), micFile.getName(), rate, seconds);
+        System.out.printf("ns/帧 %.0f (预算占比 %.2f%%, p99 %d), 估计延迟 %d ms, 收敛 %s ms, ERLE %.1f dB（2s 之后，含双讲帧）%n",
+                r.meanNs, r.meanNs / (FRAME_MS * 1e6) * 100, r.p99Ns, r.delayMs,
+                r.convergedMs >= 0 ? String.valueOf(r.convergedMs) : "--", erle(far, mic, r.out, rate, 2, seconds));
+    }
+
+    private static Result run(short[] far, short[] mic, int rate) {
+        int frame = rate * FRAME_MS / 1000;
+        int frames = far.length / frame;
+        EchoCanceller aec = new EchoCanceller(rate, frame);
+        Result r = new Result();
+        r.out = new short[frames * frame];
+        long[] times = new long[frames];
+        long total = 0;
+
+        for (int f = 0; f < frames; f++) {
+            int off = f * frame;
+            System.arraycopy(mic, off, r.out, off, frame);
+            long t0 = System.nanoTime();
+            aec.render(far, off, frame);
+            aec.process(r.out, off, frame);
+            times[f] = System.nanoTime() - t0;
+            total += times[f];
+            if (r.convergedMs < 0 && aec.getErleDb() >= 10) {
+                r.convergedMs = (f + 1) * FRAME_MS;
+            }
+        }
+        java.util.Arrays.sort(times);
+        r.meanNs = (double) total / frames;
+        r.p99Ns = times[(int) (frames * 0.99)];
+        r.delayMs = aec.getDelayMs();
+        return r;
+    }
+
+    // 指定时间段内远端有声的帧上的 ERLE；合成场景只在单讲段调用
+    private static double erle(short[] far, short[] mic, short[] out, int rate, int fromS, int toS) {
+        int frame = rate * FRAME_MS / 1000;
+        double in = 0, res = 0;
+        for (int off = rate * fromS; off + frame <= Math.min(rate * toS, out.length); off += frame) {
+            double farEnergy = 0;
+            for (int i = off; i < off + frame; i++) farEnergy += (double) far[i] * far[i];
+            if (Math.sqrt(farEnergy / frame) < ACTIVE_RMS) continue;
+            for (int i = off; i < off + frame; i++) {
+                in += (double) mic[i] * mic[i];
+                res += (double) out[i] * out[i];
+            }
+        }
+        return res > 0 ? 10 * Math.log10(in / res) : 0;
+    }
+
+    private static class Result {
+        short[] out;
+        double meanNs;
+        long p99Ns;
+        int delayMs;
+        int convergedMs = -1;
+    }
+
+    // 合成的远端语音、近端语音（只在双讲段有）、背景噪声，以及麦克风信号 = 回声 + 近端语音 + 噪声
+    private static class Scenario {
+        final short[] far;
+        final short[] near;
+        final short[] noise;
+        final short[] mic;
+
+        Scenario(int rate) {
+            int n = rate * SECONDS;
+            far = PlcBenchmark.synthesizeSpeech(rate, SECONDS, SEED);
+            near = new short[n];
+            short[] talk = PlcBenchmark.synthesizeSpeech(rate, DOUBLE_TALK_END_S - DOUBLE_TALK_START_S, SEED + 1);
+            for (int i = 0; i < talk.length; i++) {
+                near[rate * DOUBLE_TALK_START_S + i] = (short) (talk[i] * 0.7);
+            }
+
+            Random random = new Random(SEED);
+            noise = new short[n];
+            for (int i = 0; i < n; i++) {
+                noise[i] = (short) (random.nextGaussian() * NOISE_RMS);
+            }
+
+            double[] before = roomResponse(rate, new Random(SEED + 2));
+            double[] after = roomResponse(rate, new Random(SEED + 3));
+            int delay = rate * ECHO_DELAY_MS / 1000;
+            mic = new short[n];
+            for (int i = 0; i < n; i++) {
+                double[] h = i < rate * PATH_CHANGE_S ? before : after;
+                double echo = 0;
+                for (int t = 0; t < h.length; t++) {
+                    int j = i - delay - t;
+                    if (j >= 0) echo += h[t] * far[j];
+                }
+                int v = (int) Math.round(echo + near[i] + noise[i]);
+                mic[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, v));
+            }
+        }
+
+        // 直达声（约 1ms 处，-6dB）加指数衰减（时间常数 5ms）的随机反射，反射总能量 -10dB，总长 24ms
+        private static double[] roomResponse(int rate, Random random) {
+            double[] h = new double[rate * 24 / 1000];
+            int direct = rate / 1000;
+            h[direct] = 0.5;
+            double decay = rate * 0.005;
+            double energy = 0;
+            for (int t = direct + 1; t < h.length; t++) {
+                h[t] = random.nextGaussian() * Math.exp(-(t - direct) / decay);
+                energy += h[t] * h[t];
+            }
+            double scale = Math.sqrt(0.1 / energy);
+            for (int t = direct + 1; t < h.length; t++) {
+                h[t] *= scale;
+            }
+            return h;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package bench;
+
+import media.AutomaticGainControl;
+import media.VoiceActivityDetector;
+
+import java.util.Random;
+
+/**
+ * 自动增益离线评估：同一段合成通话按不同的麦克风电平输入，依次经 VAD、AutomaticGainControl（与 CapturePipeline 相同），比较
+ * - 语音电平：说话帧的平均 RMS（dBFS），输入相差 30dB 时输出应收敛到相近的电平
+ * - 停顿电平：不说话帧的平均 RMS（dBFS），增益不应把底噪越推越高
+ * - 削波：输出中达到 16bit 满幅的采样数
+ * - ns/帧：AGC 每 20ms 帧的平均耗时
+ *
+ * 运行: java -cp out bench.GainBenchmark
+ * 只统计后一半时间，前一半留给增益收敛
+ */
+public class GainBenchmark {
+
+    private static final int FRAME_MS = 20;
+    private static final int RATE = 16000;
+    private static final double[] MIC_DB = {-24, -12, 0, 6, 12};
+    // 干净语音帧 RMS 高于此值视为语音帧（按 0dB 电平的语音计）
+    private static final double SPEECH_RMS = 300;
+    private static final double NOISE_RMS = 10;
+    private static final long SEED = 20240801L;
+
+    public static void main(String[] args) {
+        short[] clean = NoiseBenchmark.conversation(RATE);
+        int frame = RATE * FRAME_MS / 1000;
+        boolean[] talking = new boolean[clean.length / frame];
+        for (int f = 0; f < talking.length; f++) {
+            talking[f] = rms(clean, f * frame, frame) >= SPEECH_RMS;
+        }
+
+        System.out.printf("合成通话 %d s, %d Hz, 帧长 %d ms, 统计后一半%n%n", clean.length / RATE, RATE, FRAME_MS);
+        System.out.printf("%-10s %10s %16s %16s %8s %10s%n",
+                "麦克风", "ns/帧", "语音 前/后 dBFS", "停顿 前/后 dBFS", "削波", "最终增益");
+        for (double db : MIC_DB) {
+            short[] in = scale(clean, db);
+            short[] out = in.clone();
+            // 第一遍预热 JIT，第二遍计时
+            run(in.clone(), frame);
+            long t0 = System.nanoTime();
+            AutomaticGainControl agc = run(out, frame);
+            double ns = (double) (System.nanoTime() - t0) / talking.length;
+
+            int clipped = 0;
+            for (int i = clean.length / 2; i < out.length; i++) {
+                if (out[i] == Short.MAX_VALUE || out[i] == Short.MIN_VALUE) clipped++;
+            }
+            System.out.printf("%+7.0f dB %10.0f %9.1f/%6.1f %9.1f/%6.1f %8d %+7.1f dB%n", db, ns,
+                    level(in, talking, frame, true), level(out, talking, frame, true),
+                    level(in, talking, frame, false), level(out, talking, frame, false),
+                    clipped, agc.getGainDb());
+        }
+    }
+
+    private static AutomaticGainControl run(short[] pcm, int frame) {
+        VoiceActivityDetector vad = new VoiceActivityDetector(FRAME_MS);
+        AutomaticGainControl agc = new AutomaticGainControl(FRAME_MS);
+        for (int off = 0; off + frame <= pcm.length; off += frame) {
+            vad.process(pcm, off, frame);
+            agc.process(pcm, off, frame, vad.isActive());
+        }
+        return agc;
+    }
+
+    // 按麦克风电平缩放并叠加底噪，超出 16bit 的部分削波（模拟过响的麦克风）
+    private static short[] scale(short[] clean, double db) {
+        double gain = Math.pow(10, db / 20);
+        Random random = new Random(SEED);
+        short[] out = new short[clean.length];
+        for (int i = 0; i < out.length; i++) {
+            double v = (clean[i] + random.nextGaussian() * NOISE_RMS) * gain;
+            out[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(v)));
+        }
+        return out;
+    }
+
+    // 后一半时间内说话帧（或停顿帧）的平均 RMS，dBFS
+    private static double level(short[] pcm, boolean[] talking, int frame, boolean speech) {
+        double sum = 0;
+        int count = 0;
+        for (int f = talking.length / 2; f < talking.length; f++) {
+            if (talking[f] != speech) continue;
+            double r = rms(pcm, f * frame, frame);
+            sum += r * r;
+            count++;
+        }
+        return 10 * Math.log10(sum / Math.max(1, count) / (32768.0 * 32768.0) + 1e-12);
+    }
+
+    private static double rms(short[] pcm, int off, int count) {
+        double sum = 0;
+        for (int i = off; i < off + count; i++) sum += (double) pcm[i] * pcm[i];
+        return Math.sqrt(sum / count);
+    }
+}
@@ -0,0 +1,38 @@
+package bench;
+
+import java.io.*;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 压测结果的机器可读输出：每条结果一行 JSON，追加到结果文件，便于跨版本对比
+ * 只支持扁平的键值（字符串、数字、布尔），小数保留两位
+ */
+final class JsonLines {
+
+    private JsonLines() {}
+
+    static String format(Map<String, Object> record) {
+        StringBuilder sb = new StringBuilder("{");
+        for (Map.Entry<String, Object> e : record.entrySet()) {
+            if (sb.length() > 1) sb.append(',');
+            sb.append('"').append(e.getKey()).append("\":");
+            Object v = e.getValue();
+            if (v instanceof Double || v instanceof Float) {
+                sb.append(String.format(Locale.ROOT, "%.2f", ((Number) v).doubleValue()));
+            } else if (v instanceof Number || v instanceof Boolean) {
+                sb.append(v);
+            } else {
+                sb.append('"').append(String.valueOf(v).replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+            }
+        }
+        return sb.append('}').toString();
+    }
+
+    static void append(File file, Map<String, Object> record) throws IOException {
+        try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(file, true), "UTF-8"))) {
+            writer.println(format(record));
+        }
+    }
+}
@@ -0,0 +1,575 @@
+package bench;
+
+import controller.AudioController;
+import controller.CallSignaling;
+import controller.ServerController;
+import media.AudioDevices;
+import media.AudioSink;
+import media.AudioSource;
+import media.JitterBuffer;
+import model.AudioModel;
+import model.CallModel;
+import model.MediaDescription;
+import model.NetworkModel;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 端到端通话压测：同一 JVM 内启动两部完整的电话（ServerController 信令与自动接听、CallSignaling 拨号/挂断、
+ * AudioController 媒体），不启动界面，经 127.0.0.1 互相拨打若干通电话。
+ * 采集设备为底噪上每秒一段标记音（加窗线性扫频）的合成信号，播放设备把收到的 PCM 连同播放时刻录下来，逐通测量
+ * - 呼叫建立：拨号（TCP 连接）到收到 DIAL_ACCEPT、到主叫首次检测到对端声音的时间（ms）
+ * - 口到耳延迟：标记音在播放输出中的互相关峰对应的播放时刻，减去它进入采集设备的时刻，两个方向分别统计
+ *   中位数 / P95（不含真实声卡的缓冲，含采集帧长、编码、网络、抖动缓冲与播放处理）
+ * - CPU：两部电话媒体线程（采集、发送、接收、播放）每通话秒的 CPU 时间，以及整个进程的 CPU 占用
+ * - 包率：两部电话每秒发送 / 接收的语音包数（含 DTX 期间的 SID）
+ *
+ * 运行: java -cp out bench.LoopbackCallBenchmark [每通秒数 [通话次数 [结果文件]]]
+ * 每通电话的结果以一行 JSON 追加到结果文件（默认 loopback_call.jsonl），便于跨版本跟踪；
+ * 两部电话使用各自的信令/媒体端口（媒体端口随信令中的 port= 交换），不占用默认的 8081/9091
+ */
+public class LoopbackCallBenchmark {
+
+    private static final String HOST = "127.0.0.1";
+    private static final int[] TCP_PORTS = {18081, 18091};
+    private static final int[] UDP_PORTS = {19091, 19093};
+    private static final String[] NAMES = {"A", "B"};
+    private static final int DEFAULT_SECONDS = 20;
+    private static final int DEFAULT_CALLS = 3;
+    private static final String DEFAULT_RESULT_FILE = "loopback_call.jsonl";
+
+    // 标记音：每秒一段，0.5~3 kHz 线性扫频，Hann 窗
+    private static final int MARKER_PERIOD_MS = 1000;
+    private static final int MARKER_MS = 40;
+    private static final double MARKER_F0 = 500;
+    private static final double MARKER_F1 = 3000;
+    private static final double MARKER_DBFS = -12;
+    private static final double NOISE_DBFS = -60;
+    // 在标记音发出后多长时间内的播放输出中查找，以及认定找到的最小归一化相关系数
+    private static final int SEARCH_MS = 800;
+    private static final double MIN_CORRELATION = 0.5;
+    // 对端挂断后等待其释放端口的最长时间
+    private static final int HANGUP_WAIT_MS = 5000;
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SECONDS;
+        int calls = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_CALLS;
+        File resultFile = new File(args.length > 2 ? args[2] : DEFAULT_RESULT_FILE);
+
+        Phone[] phones = new Phone[2];
+        for (int i = 0; i < 2; i++) {
+            phones[i] = new Phone(NAMES[i], TCP_PORTS[i], UDP_PORTS[i], seconds);
+        }
+        Phone caller = phones[0];
+        Phone callee = phones[1];
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        try {
+            for (int call = 1; call <= calls; call++) {
+                Map<String, Object> r = runCall(caller, callee, call, seconds);
+                if (r == null) {
+                    System.err.println("第 " + call + " 通电话未接通，压测中止");
+                    System.exit(1);
+                }
+                results.add(r);
+                JsonLines.append(resultFile, r);
+            }
+        } finally {
+            for (Phone phone : phones) phone.server.stopServer();
+        }
+
+        System.out.println();
+        System.out.printf("%-4s %-10s %10s %10s %16s %16s %12s %10s %16s%n", "通话", "编码", "接通 ms", "首声 ms",
+                "A→B 中位/P95 ms", "B→A 中位/P95 ms", "CPU ms/s", "进程 CPU", "包率 A/B 发送");
+        for (Map<String, Object> r : results) {
+            System.out.printf("%-4s %-10s %10.1f %10.1f %8.1f/%7.1f %8.1f/%7.1f %12.1f %9.1f%% %7.1f/%8.1f%n",
+                    r.get("call"), r.get("codec") + "/" + (int) r.get("sample_rate") / 1000 + "k",
+                    r.get("setup_ms"), r.get("first_audio_ms"),
+                    r.get("latency_ab_median_ms"), r.get("latency_ab_p95_ms"),
+                    r.get("latency_ba_median_ms"), r.get("latency_ba_p95_ms"),
+                    r.get("media_cpu_ms_per_s"), r.get("process_cpu_percent"),
+                    r.get("a_sent_pps"), r.get("b_sent_pps"));
+        }
+        System.out.println("结果已追加到 " + resultFile.getAbsolutePath());
+        System.exit(0);
+    }
+
+    private static Map<String, Object> runCall(Phone caller, Phone callee, int call, int seconds) throws Exception {
+        System.out.println("===== 第 " + call + " 通 =====");
+        caller.prepare();
+        callee.prepare();
+
+        long dialStart = System.nanoTime();
+        CallSignaling.DialResult dial = caller.dial(HOST, callee.tcpPort);
+        long accepted = System.nanoTime();
+        if (!dial.isAccepted()) return null;
+
+        // 从双方都开始收发算起，测满 seconds 秒
+        long deadline = accepted + seconds * 1_000_000_000L;
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long processCpu0 = processCpuNanos();
+        long wall0 = System.nanoTime();
+        while (System.nanoTime() < deadline) {
+            Thread.sleep(100);
+        }
+        long mediaCpu = mediaThreadCpuNanos(threads);
+        long processCpu = processCpuNanos() - processCpu0;
+        long wall = System.nanoTime() - wall0;
+
+        Map<String, Object> r = new LinkedHashMap<>();
+        r.put("benchmark", "loopback_call");
+        r.put("time", new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss").format(new Date()));
+        r.put("java", System.getProperty("java.version"));
+        r.put("call", call);
+        r.put("duration_s", seconds);
+        AudioController a = caller.audio;
+        AudioController b = callee.audio;
+        r.put("codec", a.getCodecName());
+        r.put("sample_rate", a.getSampleRate());
+        r.put("frame_ms", a.getFrameMs());
+        r.put("dtx", a.isDtxEnabled());
+        r.put("setup_ms", (accepted - dialStart) / 1e6);
+        long firstAudio = caller.firstAudioNanos;
+        r.put("first_audio_ms", firstAudio > 0 ? (firstAudio - dialStart) / 1e6 : -1.0);
+        putLatency(r, "ab", caller.probe, callee.probe);
+        putLatency(r, "ba", callee.probe, caller.probe);
+        r.put("media_cpu_ms_per_s", mediaCpu / 1e6 / (wall / 1e9));
+        r.put("process_cpu_percent", processCpu >= 0 ? processCpu * 100.0 / wall : -1.0);
+        r.put("a_sent_pps", a.getSendPacketRate());
+        r.put("a_received_pps", a.getReceivePacketRate());
+        r.put("b_sent_pps", b.getSendPacketRate());
+        r.put("b_received_pps", b.getReceivePacketRate());
+        r.put("a_lost", a.getSequenceTracker().getLost());
+        r.put("b_lost", b.getSequenceTracker().getLost());
+        r.put("a_underruns", underruns(a.getJitterBuffer()));
+        r.put("b_underruns", underruns(b.getJitterBuffer()));
+
+        caller.hangup();
+        long waitUntil = System.nanoTime() + HANGUP_WAIT_MS * 1_000_000L;
+        while (callee.callModel.isCalling() && System.nanoTime() < waitUntil) {
+            Thread.sleep(10);
+        }
+        if (callee.callModel.isCalling()) {
+            System.err.println("被叫未收到 CALL_END，强制结束");
+            callee.end();
+        }
+        System.out.println("结果: " + JsonLines.format(r));
+        return r;
+    }
+
+    private static long underruns(JitterBuffer jitterBuffer) {
+        return jitterBuffer != null ? jitterBuffer.getUnderruns() : 0;
+    }
+
+    /**
+     * 一个方向的口到耳延迟：from 的采集设备发出的每段标记音，在 to 的播放输出中找互相关峰
+     */
+    private static void putLatency(Map<String, Object> r, String key, Probe from, Probe to) {
+        List<Double> latencies = new ArrayList<>();
+        int expected = 0;
+        if (from.sourceStart > 0 && to.sinkRate > 0) {
+            short[] pcm = to.received;
+            int length = to.receivedCount;
+            double[] template = marker(to.sinkRate);
+            double templateEnergy = 0;
+            for (double v : template) templateEnergy += v * v;
+            int searchSamples = to.sinkRate * SEARCH_MS / 1000;
+
+            // 标记音进入采集设备的时刻 -> 该时刻在播放输出中对应的采样位置，向后查找
+            long lastSpoken = from.sourceStart + from.sourceSamples * 1_000_000_000L / from.sourceRate;
+            for (long mouth = from.sourceStart; mouth + (long) MARKER_MS * 1_000_000 < lastSpoken;
+                 mouth += MARKER_PERIOD_MS * 1_000_000L) {
+                int start = to.sampleAt(mouth);
+                if (start < 0 || start + searchSamples + template.length > length) continue;
+                expected++;
+                int peak = correlationPeak(pcm, start, searchSamples, template, templateEnergy);
+                if (peak < 0) continue;
+                latencies.add((to.playTimeOf(peak) - mouth) / 1e6);
+            }
+        }
+        Collections.sort(latencies);
+        r.put("latency_" + key + "_median_ms", percentile(latencies, 50));
+        r.put("latency_" + key + "_p95_ms", percentile(latencies, 95));
+        r.put("latency_" + key + "_min_ms", percentile(latencies, 0));
+        r.put("latency_" + key + "_max_ms", percentile(latencies, 100));
+        r.put("latency_" + key + "_markers", latencies.size());
+        r.put("latency_" + key + "_expected", expected);
+    }
+
+    // 在 [start, start + span) 内找归一化互相关最大的位置：先隔 4 个采样粗查，再在峰附近逐点细查
+    private static int correlationPeak(short[] pcm, int start, int span, double[] template, double templateEnergy) {
+        int best = -1;
+        double bestScore = 0;
+        for (int lag = start; lag < start + span; lag += 4) {
+            double score = correlation(pcm, lag, template, templateEnergy);
+            if (score > bestScore) {
+                bestScore = score;
+                best = lag;
+            }
+        }
+        if (best < 0) return -1;
+        int coarse = best;
+        for (int lag = Math.max(start, coarse - 3); lag <= coarse + 3; lag++) {
+            double score = correlation(pcm, lag, template, templateEnergy);
+            if (score > bestScore) {
+                bestScore = score;
+                best = lag;
+            }
+        }
+        return bestScore >= MIN_CORRELATION ? best : -1;
+    }
+
+    private static double correlation(short[] pcm, int lag, double[] template, double templateEnergy) {
+        double dot = 0, energy = 0;
+        for (int i = 0; i < template.length; i++) {
+            double v = pcm[lag + i];
+            dot += v * template[i];
+            energy += v * v;
+        }
+        return energy > 0 ? dot / Math.sqrt(energy * templateEnergy) : 0;
+    }
+
+    private static double percentile(List<Double> sorted, int p) {
+        if (sorted.isEmpty()) return -1;
+        int i = (int) Math.round((sorted.size() - 1) * p / 100.0);
+        return sorted.get(i);
+    }
+
+    // 标记音波形（未缩放）
+    private static double[] marker(int rate) {
+        int n = rate * MARKER_MS / 1000;
+        double[] out = new double[n];
+        double duration = (double) n / rate;
+        for (int i = 0; i < n; i++) {
+            double t = (double) i / rate;
+            double phase = 2 * Math.PI * (MARKER_F0 * t + (MARKER_F1 - MARKER_F0) * t * t / (2 * duration));
+            double window = 0.5 - 0.5 * Math.cos(2 * Math.PI * i / (n - 1));
+            out[i] = window * Math.sin(phase);
+        }
+        return out;
+    }
+
+    // 两部电话的媒体线程（按 AudioController 中的线程名）累计 CPU 时间；每通电话的线程都是新建的
+    private static long mediaThreadCpuNanos(ThreadMXBean threads) {
+        long total = 0;
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            String name = t.getName();
+            if (name.equals("AudioCaptureThread") || name.equals("AudioSendThread")
+                    || name.equals("AudioRecvThread") || name.equals("AudioPlayoutThread")) {
+                long cpu = threads.getThreadCpuTime(t.getId());
+                if (cpu > 0) total += cpu;
+            }
+        }
+        return total;
+    }
+
+    private static long processCpuNanos() {
+        java.lang.management.OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        }
+        return -1;
+    }
+
+    /**
+     * 一部无界面的电话：与 CallController 相同的信令流程，来电自动接听
+     */
+    private static class Phone implements ServerController.CallHandler {
+        final int tcpPort;
+        final int udpPort;
+        final CallModel callModel = new CallModel();
+        final AudioController audio;
+        final ServerController server;
+        final Probe probe;
+        volatile Socket signalling;
+        volatile long firstAudioNanos;
+
+        Phone(String name, int tcpPort, int udpPort, int seconds) {
+            this.tcpPort = tcpPort;
+            this.udpPort = udpPort;
+            probe = new Probe(seconds);
+            callModel.setTcpPort(tcpPort);
+            callModel.setUdpPort(udpPort);
+
+            AudioDevices.registerSource("bench-" + name, () -> new MarkerSource(probe));
+            AudioDevices.registerSink("bench-" + name, () -> new RecordingSink(probe));
+            AudioModel audioModel = new AudioModel();
+            audioModel.setCaptureDevice("bench-" + name);
+            audioModel.setPlaybackDevice("bench-" + name);
+
+            NetworkModel networkModel = new NetworkModel();
+            audio = new AudioController(audioModel, networkModel);
+            audio.setAudioDetectionListener((ip, timestamp) -> firstAudioNanos = System.nanoTime());
+            server = new ServerController(networkModel, callModel, audio);
+            server.setCallHandler(this);
+            server.setAutoAnswer(true);
+            if (!server.startServer(tcpPort)) {
+                throw new IllegalStateException("电话 " + name + " 信令端口 " + tcpPort + " 被占用");
+            }
+        }
+
+        void prepare() {
+            firstAudioNanos = 0;
+            audio.resetAudioDetection();
+        }
+
+        CallSignaling.DialResult dial(String host, int port) throws IOException {
+            Socket socket = new Socket();
+            socket.connect(new InetSocketAddress(host, port), 8000);
+            socket.setSoTimeout(20000);
+
+            MediaDescription localMedia = audio.createOffer();
+            localMedia.setPort(udpPort);
+            callModel.setLocalMedia(localMedia);
+            CallSignaling.DialResult result = CallSignaling.dial(socket, localMedia);
+            if (!result.isAccepted()) {
+                socket.close();
+                return result;
+            }
+            callModel.setRemoteMedia(result.getRemoteMedia());
+            start(socket, host);
+            return result;
+        }
+
+        @Override
+        public void handleIncomingCallAccepted(Socket socket, String remoteIP) {
+            start(socket, remoteIP);
+        }
+
+        private void start(Socket socket, String remoteIP) {
+            signalling = socket;
+            callModel.setCalling(true);
+            audio.startAudioStreaming(remoteIP, udpPort, callModel.getLocalMedia(), callModel.getRemoteMedia());
+
+            // 与 CallController 的 TCP 监听线程相同：收到 CALL_END 或连接断开即结束通话
+            Thread listener = new Thread(() -> {
+                try {
+                    socket.setSoTimeout(0);
+                    BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+                    String line;
+                    while ((line = in.readLine()) != null && !"CALL_END".equals(line.trim())) {
+                        System.out.println("收到TCP信号: " + line);
+                    }
+                } catch (IOException ignored) {
+                }
+                end();
+            }, "TCP-Listener-Thread");
+            listener.setDaemon(true);
+            listener.start();
+        }
+
+        void hangup() {
+            CallSignaling.sendCallEnd(signalling);
+            end();
+        }
+
+        synchronized void end() {
+            if (!callModel.isCalling()) return;
+            callModel.setCalling(false);
+            audio.stopAudio();
+            try {
+                signalling.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * 一部电话的采集 / 播放记录：采集设备的时间轴，播放设备的输出 PCM 及每段输出的播放时刻
+     */
+    private static class Probe {
+        private static final int MAX_BLOCKS = 1 << 16;
+
+        final int seconds;
+        volatile int sourceRate;
+        volatile long sourceStart;
+        volatile long sourceSamples;
+
+        volatile int sinkRate;
+        short[] received = new short[0];
+        volatile int receivedCount;
+        // 每次 write() 的第一个采样在 received 中的位置和它的播放时刻
+        final int[] blockStart = new int[MAX_BLOCKS];
+        final long[] blockTime = new long[MAX_BLOCKS];
+        volatile int blocks;
+
+        Probe(int seconds) {
+            this.seconds = seconds;
+        }
+
+        void openSink(int rate) {
+            sinkRate = rate;
+            // 多留几秒：接通前后的播放与挂断时的尾巴
+            received = new short[rate * (seconds + 10)];
+            receivedCount = 0;
+            blocks = 0;
+        }
+
+        /** 播放时刻最接近 time 的输出采样位置，早于第一次输出时返回 -1 */
+        int sampleAt(long time) {
+            int n = blocks;
+            if (n == 0 || time < blockTime[0]) return -1;
+            int i = Arrays.binarySearch(blockTime, 0, n, time);
+            if (i < 0) i = -i - 2;
+            return blockStart[i] + (int) ((time - blockTime[i]) * sinkRate / 1_000_000_000L);
+        }
+
+        /** 输出采样的播放时刻 */
+        long playTimeOf(int sample) {
+            int n = blocks;
+            int i = Arrays.binarySearch(blockStart, 0, n, sample);
+            if (i < 0) i = -i - 2;
+            return blockTime[i] + (long) (sample - blockStart[i]) * 1_000_000_000L / sinkRate;
+        }
+    }
+
+    /**
+     * 采集设备：底噪上每 MARKER_PERIOD_MS 一段标记音，按真实声卡的节奏交付
+     * （read() 在所读的最后一个采样“说出”之后才返回）
+     */
+    private static class MarkerSource implements AudioSource {
+        private final Probe probe;
+        private final Random random = new Random(7);
+        private double[] marker;
+        private int rate;
+        private int period;
+        private double amplitude;
+        private double noise;
+        private boolean bigEndian;
+        private long position;
+        private long start;
+        private volatile boolean open;
+
+        MarkerSource(Probe probe) {
+            this.probe = probe;
+        }
+
+        @Override
+        public String getName() { return "marker"; }
+
+        @Override
+        public boolean isFormatSupported(AudioFormat format) {
+            return format.getSampleSizeInBits() == 16 && format.getChannels() == 1;
+        }
+
+        @Override
+        public void open(AudioFormat format) throws IOException {
+            rate = (int) format.getSampleRate();
+            marker = marker(rate);
+            period = rate * MARKER_PERIOD_MS / 1000;
+            amplitude = 32767 * Math.pow(10, MARKER_DBFS / 20);
+            noise = 32767 * Math.pow(10, NOISE_DBFS / 20);
+            bigEndian = format.isBigEndian();
+            position = 0;
+            start = 0;
+            open = true;
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) {
+            if (!open) return -1;
+            if (start == 0) {
+                start = System.nanoTime();
+                probe.sourceRate = rate;
+                probe.sourceSamples = 0;
+                probe.sourceStart = start;
+            }
+            int n = len / 2;
+            for (int i = 0; i < n; i++) {
+                int p = (int) ((position + i) % period);
+                double v = random.nextGaussian() * noise;
+                if (p < marker.length) v += marker[p] * amplitude;
+                int s = (int) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(v)));
+                int b = off + i * 2;
+                buf[b + (bigEndian ? 0 : 1)] = (byte) (s >> 8);
+                buf[b + (bigEndian ? 1 : 0)] = (byte) s;
+            }
+            position += n;
+            probe.sourceSamples = position;
+            long due = start + position * 1_000_000_000L / rate;
+            while (open && due - System.nanoTime() > 0) {
+                LockSupport.parkNanos(due - System.nanoTime());
+            }
+            return open ? n * 2 : -1;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+    }
+
+    /**
+     * 播放设备：按实时速率消费并记录输出；写入晚于播放进度时视为欠载，从写入时刻起继续播放
+     */
+    private static class RecordingSink implements AudioSink {
+        private final Probe probe;
+        private int rate;
+        private boolean bigEndian;
+        private long next;
+        private volatile boolean open;
+
+        RecordingSink(Probe probe) {
+            this.probe = probe;
+        }
+
+        @Override
+        public String getName() { return "recorder"; }
+
+        @Override
+        public boolean isFormatSupported(AudioFormat format) {
+            return format.getSampleSizeInBits() == 16 && format.getChannels() == 1;
+        }
+
+        @Override
+        public void open(AudioFormat format, int bufferBytes) {
+            rate = (int) format.getSampleRate();
+            bigEndian = format.isBigEndian();
+            probe.openSink(rate);
+            next = 0;
+            open = true;
+        }
+
+        @Override
+        public void write(byte[] buf, int off, int len) throws IOException {
+            if (!open) throw new IOException("播放设备已关闭");
+            int n = len / 2;
+            long now = System.nanoTime();
+            if (next - now < 0) next = now;
+
+            short[] pcm = probe.received;
+            int count = probe.receivedCount;
+            int blocks = probe.blocks;
+            if (blocks < Probe.MAX_BLOCKS && count + n <= pcm.length) {
+                probe.blockStart[blocks] = count;
+                probe.blockTime[blocks] = next;
+                for (int i = 0; i < n; i++) {
+                    int b = off + i * 2;
+                    int hi = buf[b + (bigEndian ? 0 : 1)];
+                    int lo = buf[b + (bigEndian ? 1 : 0)] & 0xFF;
+                    pcm[count + i] = (short) (hi << 8 | lo);
+                }
+                probe.receivedCount = count + n;
+                probe.blocks = blocks + 1;
+            }
+
+            next += (long) n * 1_000_000_000L / rate;
+            while (open && next - System.nanoTime() > 0) {
+                LockSupport.parkNanos(next - System.nanoTime());
+            }
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+    }
+}
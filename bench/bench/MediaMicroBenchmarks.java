@@ -0,0 +1,141 @@
+package bench;
+
+import media.JitterBuffer;
+import media.PacketReceiver;
+import media.PlayoutPipeline;
+import media.RedPayload;
+import media.RtcpPacket;
+import media.RtpPacket;
+import media.SequenceTracker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 媒体热路径微基准（运行见 run.sh），每次调用为一帧或一包
+ * - level: 音频检测用的电平计算（PlayoutPipeline.averageLevel），48kHz 20ms 帧
+ * - rtpHeader / rtcpSenderReport / redParse: 包头与负载的组包、解析
+ * - jitterBuffer: 抖动缓冲区稳态下放入一帧、取出一帧
+ * - receivePacket: PacketReceiver 处理一个语音包（校验、过滤、入抖动缓冲区）并取出一帧
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MediaMicroBenchmarks {
+
+    private static final int FRAME_SAMPLES = 960;
+    private static final int PAYLOAD_BYTES = 160;
+    private static final long SSRC = 0x12345678L;
+
+    private final short[] pcm = new short[FRAME_SAMPLES];
+    private final byte[] packet = new byte[RtpPacket.HEADER_SIZE + PAYLOAD_BYTES];
+    private final byte[] red = new byte[RedPayload.getMaxSize(PAYLOAD_BYTES)];
+    private final byte[] report = new byte[RtcpPacket.MAX_SIZE];
+    private final byte[] frame = new byte[PAYLOAD_BYTES];
+    private final RedPayload redPayload = new RedPayload();
+    private int redLength;
+
+    private JitterBuffer jitterBuffer;
+    private JitterBuffer receiverBuffer;
+    private PacketReceiver receiver;
+    private long seq = 0;
+    private long receiveSeq = 0;
+    private int rtpSeq = 0;
+    private int reportCount = 0;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        for (int i = 0; i < pcm.length; i++) {
+            pcm[i] = (short) (8000 * Math.sin(2 * Math.PI * 440 * i / 48000) + random.nextGaussian() * 300);
+        }
+        random.nextBytes(frame);
+
+        // 两个冗余块加主块
+        int pos = 0;
+        pos += RedPayload.writeRedundantHeader(red, pos, 0, 320, PAYLOAD_BYTES);
+        pos += RedPayload.writeRedundantHeader(red, pos, 0, 160, PAYLOAD_BYTES);
+        pos += RedPayload.writePrimaryHeader(red, pos, 0);
+        for (int i = 0; i < 3; i++) {
+            System.arraycopy(frame, 0, red, pos, PAYLOAD_BYTES);
+            pos += PAYLOAD_BYTES;
+        }
+        redLength = pos;
+
+        jitterBuffer = new JitterBuffer(64, PAYLOAD_BYTES, 8000, 20, 300);
+        receiverBuffer = new JitterBuffer(64, PAYLOAD_BYTES, 8000, 20, 300);
+        receiver = new PacketReceiver("PCMU", PAYLOAD_BYTES, receiverBuffer, new SequenceTracker(),
+                false, false, SSRC);
+    }
+
+    @Benchmark
+    public double level() {
+        return PlayoutPipeline.averageLevel(pcm, FRAME_SAMPLES);
+    }
+
+    @Benchmark
+    public void rtpHeader(Blackhole bh) {
+        int i = rtpSeq++ & 0xFFFF;
+        int len = RtpPacket.writeHeader(packet, 0, 0, i == 0, i, i * 160L, SSRC) + PAYLOAD_BYTES;
+        bh.consume(RtpPacket.isValid(packet, 0, len));
+        bh.consume(RtpPacket.getSequence(packet, 0));
+        bh.consume(RtpPacket.getTimestamp(packet, 0));
+        bh.consume(RtpPacket.getSsrc(packet, 0));
+        bh.consume(RtpPacket.getPayloadType(packet, 0));
+        bh.consume(RtpPacket.getHeaderLength(packet, 0));
+    }
+
+    @Benchmark
+    public void rtcpSenderReport(Blackhole bh) {
+        int i = reportCount++;
+        int len = RtcpPacket.writeSenderReport(report, 0, SSRC, 1_700_000_000_000L + i * 5000L, i * 40000L,
+                i, i * 160L, true);
+        int block = RtcpPacket.getReportBlockOffset(report, 0, len);
+        RtcpPacket.writeReportBlock(report, block, SSRC + 1, 12, i, 65536 + i, 80, 0, 0);
+        bh.consume(RtcpPacket.isRtcp(report, 0, len) && RtcpPacket.isSenderReport(report, 0, len));
+        bh.consume(RtcpPacket.getSenderNtpMiddle(report, 0));
+        bh.consume(RtcpPacket.getReportFractionLost(report, block));
+        bh.consume(RtcpPacket.getReportCumulativeLost(report, block));
+        bh.consume(RtcpPacket.getReportJitter(report, block));
+    }
+
+    @Benchmark
+    public void redParse(Blackhole bh) {
+        int blocks = redPayload.parse(red, 0, redLength);
+        for (int b = 0; b < blocks; b++) {
+            bh.consume(redPayload.getOffset(b));
+            bh.consume(redPayload.getLength(b));
+            bh.consume(redPayload.getTimestampOffset(b));
+        }
+    }
+
+    @Benchmark
+    public int jitterBuffer() {
+        long s = seq++;
+        jitterBuffer.put(s, s * 160, frame, 0, PAYLOAD_BYTES, s * 20);
+        return jitterBuffer.poll(frame);
+    }
+
+    @Benchmark
+    public void receivePacket(Blackhole bh) {
+        long s = receiveSeq++;
+        RtpPacket.writeHeader(packet, 0, 0, false, (int) (s & 0xFFFF), s * 160, SSRC);
+        System.arraycopy(frame, 0, packet, RtpPacket.HEADER_SIZE, PAYLOAD_BYTES);
+        bh.consume(receiver.handle(packet, RtpPacket.HEADER_SIZE + PAYLOAD_BYTES, s * 20));
+        bh.consume(receiverBuffer.poll(frame));
+    }
+}
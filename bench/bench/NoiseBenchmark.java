@@ -0,0 +1,187 @@
+package bench;
+
+import media.NoiseSuppressor;
+import media.VoiceActivityDetector;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.File;
+import java.util.Random;
+
+/**
+ * 降噪离线评估：语音叠加办公室噪声后分别直接送入 VAD、以及先经 NoiseSuppressor 再送入 VAD，比较
+ * - SNRseg：语音帧的分段信噪比（相对于干净语音，输出按降噪延迟对齐），单位 dB，越大越好
+ * - 噪声衰减：语音停顿中输入/输出的能量比，单位 dB
+ * - VAD 误判率：以干净语音上的 VAD 判决为参照，带噪输入/降噪输出上判决不一致的帧比例；
+ *   漏判会切掉语音，误判会在停顿中继续发包（DTX 失效），越小越好
+ * - ns/帧：降噪每 20ms 帧的平均耗时
+ *
+ * 运行: java -cp out bench.NoiseBenchmark [语音.wav]
+ * 不指定文件时使用合成语音，按通话中的一方交替说话（1.5~3s）和聆听（1~3s）排列；
+ * 噪声为合成的办公室底噪：粉红噪声（空调/风扇）加低电平的多人交谈声，按 SNR 5dB 与语音混合
+ */
+public class NoiseBenchmark {
+
+    private static final int FRAME_MS = 20;
+    private static final int SECONDS = 20;
+    private static final double SNR_DB = 5;
+    // 交谈声相对底噪的能量比例
+    private static final double BABBLE_SHARE = 0.3;
+    // 干净语音帧 RMS 高于此值视为语音帧
+    private static final double SPEECH_RMS = 300;
+    private static final long SEED = 20240701L;
+
+    public static void main(String[] args) throws Exception {
+        int[] rates;
+        short[] file = null;
+        if (args.length > 0) {
+            AudioInputStream in = AudioSystem.getAudioInputStream(new File(args[0]));
+            int rate = (int) in.getFormat().getSampleRate();
+            file = PlcBenchmark.readPcm(AudioSystem.getAudioInputStream(new AudioFormat(rate, 16, 1, true, true), in));
+            rates = new int[]{rate};
+            System.out.println("输入: " + args[0]);
+        } else {
+            rates = new int[]{8000, 16000, 48000};
+            System.out.println("输入: 合成语音 " + SECONDS + " s");
+        }
+        System.out.printf("办公室噪声 SNR %.0f dB, 帧长 %d ms%n%n", SNR_DB, FRAME_MS);
+        System.out.printf("%-8s %10s %8s %16s %10s %22s%n",
+                "采样率", "ns/帧", "预算占比", "SNRseg 前/后 dB", "噪声衰减", "VAD 误判 前/后");
+
+        for (int rate : rates) {
+            short[] clean = file != null ? file : conversation(rate);
+            short[] noisy = mix(clean, officeNoise(rate, clean.length), SNR_DB);
+            int frame = rate * FRAME_MS / 1000;
+            int delay = rate * 20 / 1000;
+
+            // 第一遍预热 JIT，第二遍计时
+            suppress(noisy, rate, frame);
+            long t0 = System.nanoTime();
+            short[] out = suppress(noisy, rate, frame);
+            double ns = (double) (System.nanoTime() - t0) / (noisy.length / frame);
+
+            double[] before = score(clean, noisy, 0, frame);
+            double[] after = score(clean, out, delay, frame);
+            boolean[] reference = vad(clean, frame, 0);
+            System.out.printf("%-8d %10.0f %7.2f%% %9.1f/%5.1f %8.1f dB %9.1f%%/%4.1f%%%n",
+                    rate, ns, ns / (FRAME_MS * 1e6) * 100, before[0], after[0], after[1] - before[1],
+                    mismatch(reference, vad(noisy, frame, 0)) * 100, mismatch(reference, vad(out, frame, delay)) * 100);
+        }
+    }
+
+    // 说话段取自合成语音，聆听段为静音
+    static short[] conversation(int rate) {
+        short[] speech = PlcBenchmark.synthesizeSpeech(rate, SECONDS, SEED);
+        short[] out = new short[speech.length];
+        Random random = new Random(SEED);
+        int pos = 0;
+        while (pos < out.length) {
+            int talk = rate * (1500 + random.nextInt(1500)) / 1000;
+            int n = Math.min(talk, out.length - pos);
+            System.arraycopy(speech, pos, out, pos, n);
+            pos += n + rate * (1000 + random.nextInt(2000)) / 1000;
+        }
+        return out;
+    }
+
+    private static short[] suppress(short[] in, int rate, int frame) {
+        short[] out = in.clone();
+        NoiseSuppressor ns = new NoiseSuppressor(rate);
+        for (int off = 0; off + frame <= out.length; off += frame) {
+            ns.process(out, off, frame);
+        }
+        return out;
+    }
+
+    // [语音帧的平均 SNRseg, 停顿帧的输出能量（dB，取负值，越大表示越安静）]
+    private static double[] score(short[] clean, short[] out, int delay, int frame) {
+        double snrSum = 0, pause = 0, pauseIn = 0;
+        int count = 0;
+        for (int off = 0; off + frame + delay <= out.length; off += frame) {
+            double signal = 0, noise = 0, level = 0;
+            for (int i = off; i < off + frame; i++) {
+                double e = out[i + delay] - clean[i];
+                signal += (double) clean[i] * clean[i];
+                noise += e * e;
+                level += (double) out[i + delay] * out[i + delay];
+            }
+            if (Math.sqrt(signal / frame) >= SPEECH_RMS) {
+                double snr = 10 * Math.log10((signal + 1) / (noise + 1));
+                snrSum += Math.max(-10, Math.min(35, snr));
+                count++;
+            } else {
+                pause += level;
+                pauseIn++;
+            }
+        }
+        return new double[]{count > 0 ? snrSum / count : 0, -10 * Math.log10(pause / Math.max(1, pauseIn) + 1)};
+    }
+
+    // 与 CapturePipeline 相同的 VAD（含 hangover）逐帧判决，offset 为输出相对输入的延迟
+    private static boolean[] vad(short[] pcm, int frame, int offset) {
+        VoiceActivityDetector vad = new VoiceActivityDetector(FRAME_MS);
+        boolean[] speech = new boolean[(pcm.length - offset) / frame];
+        for (int f = 0; f < speech.length; f++) {
+            speech[f] = vad.process(pcm, offset + f * frame, frame);
+        }
+        return speech;
+    }
+
+    private static double mismatch(boolean[] reference, boolean[] speech) {
+        int n = Math.min(reference.length, speech.length), diff = 0;
+        for (int f = 0; f < n; f++) {
+            if (reference[f] != speech[f]) diff++;
+        }
+        return (double) diff / n;
+    }
+
+    private static short[] mix(short[] speech, double[] noise, double snrDb) {
+        double ps = 0, pn = 0;
+        for (int i = 0; i < speech.length; i++) {
+            ps += (double) speech[i] * speech[i];
+            pn += noise[i] * noise[i];
+        }
+        double scale = Math.sqrt(ps / pn / Math.pow(10, snrDb / 10));
+        short[] out = new short[speech.length];
+        for (int i = 0; i < out.length; i++) {
+            double v = speech[i] + noise[i] * scale;
+            out[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(v)));
+        }
+        return out;
+    }
+
+    // 粉红噪声（Paul Kellet 滤波器）+ 四路低电平合成语音叠加的交谈声，归一化为单位功率
+    private static double[] officeNoise(int rate, int n) {
+        Random random = new Random(SEED);
+        double[] pink = new double[n];
+        double b0 = 0, b1 = 0, b2 = 0;
+        for (int i = 0; i < n; i++) {
+            double w = random.nextGaussian();
+            b0 = 0.99765 * b0 + w * 0.0990460;
+            b1 = 0.96300 * b1 + w * 0.2965164;
+            b2 = 0.57000 * b2 + w * 1.0526913;
+            pink[i] = b0 + b1 + b2 + w * 0.1848;
+        }
+        double[] babble = new double[n];
+        int seconds = (n + rate - 1) / rate;
+        for (int talker = 1; talker <= 4; talker++) {
+            short[] voice = PlcBenchmark.synthesizeSpeech(rate, seconds, SEED + talker);
+            for (int i = 0; i < n; i++) babble[i] += voice[i];
+        }
+        normalize(pink);
+        normalize(babble);
+        double[] out = new double[n];
+        for (int i = 0; i < n; i++) {
+            out[i] = pink[i] * Math.sqrt(1 - BABBLE_SHARE) + babble[i] * Math.sqrt(BABBLE_SHARE);
+        }
+        return out;
+    }
+
+    private static void normalize(double[] x) {
+        double p = 0;
+        for (double v : x) p += v * v;
+        double scale = 1 / Math.sqrt(p / x.length);
+        for (int i = 0; i < x.length; i++) x[i] *= scale;
+    }
+}
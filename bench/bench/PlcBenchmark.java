@@ -0,0 +1,219 @@
+package bench;
+
+import media.PacketLossConcealer;
+import media.Pcm;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Random;
+
+/**
+ * 丢包隐藏离线评估：把语音按 20ms 分帧，套用不同的丢包模式，
+ * 分别用各种隐藏策略恢复，与原始信号比较后输出质量分数
+ * - LSD：受损帧（丢失帧及其后一帧）的对数谱距离，单位 dB，越小越好，主要指标
+ * - 电平误差：受损帧与原始信号的能量之差（绝对值），单位 dB，越小越好；与 LSD 一样不受相位影响，
+ *   反映隐藏信号的响度是否接近原声（静音隐藏在这一项上最差）
+ *
+ * 运行: java -cp out bench.PlcBenchmark [语音.wav]
+ * 不指定文件时使用合成的类语音信号（变化基音的谐波 + 音节包络 + 停顿）
+ */
+public class PlcBenchmark {
+
+    private static final int FRAME_MS = 20;
+    private static final int SYNTH_RATE = 8000;
+    private static final int SYNTH_SECONDS = 20;
+    private static final long SEED = 20240501L;
+
+    public static void main(String[] args) throws Exception {
+        int sampleRate;
+        short[] speech;
+        if (args.length > 0) {
+            File file = new File(args[0]);
+            AudioInputStream in = AudioSystem.getAudioInputStream(file);
+            sampleRate = (int) in.getFormat().getSampleRate();
+            speech = readPcm(AudioSystem.getAudioInputStream(
+                    new AudioFormat(sampleRate, 16, 1, true, true), in));
+            System.out.println("输入: " + file.getName());
+        } else {
+            sampleRate = SYNTH_RATE;
+            speech = synthesizeSpeech(sampleRate, SYNTH_SECONDS);
+            System.out.println("输入: 合成语音 " + SYNTH_SECONDS + " s");
+        }
+
+        int frame = sampleRate * FRAME_MS / 1000;
+        int frames = speech.length / frame;
+        System.out.printf("采样率 %d Hz, 帧长 %d ms, 共 %d 帧%n%n", sampleRate, FRAME_MS, frames);
+
+        String[] names = {"随机 2%", "随机 5%", "随机 10%", "突发 5%（平均 3 帧）"};
+        boolean[][] patterns = {
+                randomLoss(frames, 0.02),
+                randomLoss(frames, 0.05),
+                randomLoss(frames, 0.10),
+                burstLoss(frames, 0.05, 3),
+        };
+
+        System.out.printf("%-20s %-8s %8s %10s %10s%n", "丢包模式", "策略", "实际丢包", "LSD(dB)", "电平误差(dB)");
+        for (int p = 0; p < patterns.length; p++) {
+            for (PacketLossConcealer.Strategy strategy : PacketLossConcealer.Strategy.values()) {
+                short[] output = run(speech, frame, patterns[p], new PacketLossConcealer(strategy, sampleRate, frame));
+                double[] score = score(speech, output, frame, patterns[p]);
+                System.out.printf("%-20s %-8s %7.1f%% %10.2f %10.2f%n",
+                        names[p], strategy, lossRate(patterns[p]) * 100, score[0], score[1]);
+            }
+            System.out.println();
+        }
+    }
+
+    private static short[] run(short[] speech, int frame, boolean[] lost, PacketLossConcealer plc) {
+        short[] output = new short[lost.length * frame];
+        for (int f = 0; f < lost.length; f++) {
+            int off = f * frame;
+            if (lost[f]) {
+                plc.conceal(output, off, frame);
+            } else {
+                System.arraycopy(speech, off, output, off, frame);
+                plc.receive(output, off, frame);
+            }
+        }
+        return output;
+    }
+
+    // 只统计受损帧：丢失帧本身，以及恢复后做了交叉淡化的第一帧
+    private static double[] score(short[] ref, short[] out, int frame, boolean[] lost) {
+        double lsdSum = 0, levelSum = 0;
+        int count = 0;
+        double[] window = new double[frame];
+        for (int i = 0; i < frame; i++) {
+            window[i] = 0.5 - 0.5 * Math.cos(2 * Math.PI * i / (frame - 1));
+        }
+
+        for (int f = 0; f < lost.length; f++) {
+            boolean damaged = lost[f] || (f > 0 && lost[f - 1]);
+            if (!damaged) continue;
+            int off = f * frame;
+            lsdSum += logSpectralDistance(ref, out, off, frame, window);
+            levelSum += levelError(ref, out, off, frame);
+            count++;
+        }
+        return count == 0 ? new double[]{0, 0} : new double[]{lsdSum / count, levelSum / count};
+    }
+
+    private static double logSpectralDistance(short[] ref, short[] out, int off, int n, double[] window) {
+        double sum = 0;
+        int bins = n / 2;
+        for (int k = 1; k <= bins; k++) {
+            double pr = power(ref, off, n, k, window);
+            double po = power(out, off, n, k, window);
+            double d = 10 * Math.log10((pr + 1e-3) / (po + 1e-3));
+            // 静音段的谱极小，限幅避免个别频点主导结果
+            d = Math.max(-40, Math.min(40, d));
+            sum += d * d;
+        }
+        return Math.sqrt(sum / bins);
+    }
+
+    private static double power(short[] x, int off, int n, int k, double[] window) {
+        double re = 0, im = 0;
+        for (int i = 0; i < n; i++) {
+            double v = x[off + i] * window[i];
+            double a = 2 * Math.PI * k * i / n;
+            re += v * Math.cos(a);
+            im -= v * Math.sin(a);
+        }
+        return (re * re + im * im) / n;
+    }
+
+    // 只比较能量，不比较波形：隐藏信号与原声相位不同是正常的
+    private static double levelError(short[] ref, short[] out, int off, int n) {
+        double er = 0, eo = 0;
+        for (int i = off; i < off + n; i++) {
+            er += (double) ref[i] * ref[i];
+            eo += (double) out[i] * out[i];
+        }
+        // 每个采样加 1 的底噪，静音帧之间的差异不被放大
+        double d = Math.abs(10 * Math.log10((er + n) / (eo + n)));
+        return Math.min(40, d);
+    }
+
+    private static boolean[] randomLoss(int frames, double rate) {
+        Random random = new Random(SEED);
+        boolean[] lost = new boolean[frames];
+        for (int i = 0; i < frames; i++) {
+            lost[i] = random.nextDouble() < rate;
+        }
+        return lost;
+    }
+
+    // Gilbert 两状态模型：平均丢包率 rate，丢包段平均长度 meanBurst 帧
+    private static boolean[] burstLoss(int frames, double rate, double meanBurst) {
+        Random random = new Random(SEED);
+        double q = 1.0 / meanBurst;
+        double p = q * rate / (1 - rate);
+        boolean[] lost = new boolean[frames];
+        boolean bad = false;
+        for (int i = 0; i < frames; i++) {
+            bad = bad ? random.nextDouble() >= q : random.nextDouble() < p;
+            lost[i] = bad;
+        }
+        return lost;
+    }
+
+    private static double lossRate(boolean[] lost) {
+        int n = 0;
+        for (boolean l : lost) if (l) n++;
+        return (double) n / lost.length;
+    }
+
+    static short[] readPcm(AudioInputStream in) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int len;
+        while ((len = in.read(buf)) > 0) {
+            bytes.write(buf, 0, len);
+        }
+        in.close();
+        byte[] data = bytes.toByteArray();
+        short[] pcm = new short[data.length / 2];
+        Pcm.toShorts(data, 0, pcm.length * 2, true, pcm, 0);
+        return pcm;
+    }
+
+    private static short[] synthesizeSpeech(int sampleRate, int seconds) {
+        return synthesizeSpeech(sampleRate, seconds, SEED);
+    }
+
+    static short[] synthesizeSpeech(int sampleRate, int seconds, long seed) {
+        Random random = new Random(seed);
+        short[] out = new short[sampleRate * seconds];
+        int pos = 0;
+        double phase = 0;
+
+        while (pos < out.length) {
+            // 音节：基音在 100~220Hz 间滑动，谐波幅度按 1/k 递减
+            int syllable = sampleRate * (150 + random.nextInt(200)) / 1000;
+            double f0Start = 100 + random.nextDouble() * 120;
+            double f0End = f0Start * (0.8 + random.nextDouble() * 0.4);
+            double amplitude = 4000 + random.nextDouble() * 6000;
+            for (int i = 0; i < syllable && pos < out.length; i++, pos++) {
+                double t = (double) i / syllable;
+                double f0 = f0Start + (f0End - f0Start) * t;
+                phase += 2 * Math.PI * f0 / sampleRate;
+                double v = 0;
+                for (int k = 1; k * f0 < sampleRate / 2.0 && k <= 20; k++) {
+                    v += Math.sin(k * phase) / k;
+                }
+                double envelope = Math.sin(Math.PI * t);
+                out[pos] = (short) (v * amplitude * envelope * 0.5 + random.nextGaussian() * 30);
+            }
+            // 停顿
+            int pause = sampleRate * (30 + random.nextInt(150)) / 1000;
+            for (int i = 0; i < pause && pos < out.length; i++, pos++) {
+                out[pos] = (short) (random.nextGaussian() * 30);
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,65 @@
+package bench;
+
+import controller.CallSignaling;
+import media.Codecs;
+import model.MediaDescription;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 通话信令微基准（运行见 run.sh），每次调用为一行或一次协商
+ * - parseMediaLine: 被叫收到 DIAL_REQUEST 之后的媒体参数行的解析
+ * - formatOffer: 主叫生成信令行中的媒体参数
+ * - answer: 被叫按 offer 生成 answer，双方各自选出编码、采样率、打包间隔
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SignalingMicroBenchmarks {
+
+    private MediaDescription offer;
+    private String line;
+
+    @Setup
+    public void setup() {
+        offer = MediaDescription.createOffer(Codecs.SUPPORTED, Arrays.asList(16000, 8000, 48000), 20);
+        offer.setDtx(true);
+        offer.setRed(true);
+        offer.setPort(9091);
+        line = CallSignaling.MEDIA + " " + offer.format();
+    }
+
+    @Benchmark
+    public MediaDescription parseMediaLine() {
+        return CallSignaling.parseMediaLine(line);
+    }
+
+    @Benchmark
+    public String formatOffer() {
+        return offer.format();
+    }
+
+    @Benchmark
+    public void answer(Blackhole bh) {
+        MediaDescription answer = MediaDescription.createAnswer(offer, Codecs.SUPPORTED,
+                Arrays.asList(16000, 48000), Arrays.asList(16000, 8000, 48000), 20);
+        bh.consume(MediaDescription.selectCodec(answer, offer));
+        bh.consume(MediaDescription.selectSampleRate(answer, offer));
+        bh.consume(MediaDescription.selectFrameMs(answer, offer));
+    }
+}
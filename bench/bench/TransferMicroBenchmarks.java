@@ -0,0 +1,109 @@
+package bench;
+
+import controller.AudioController;
+import controller.ServerController;
+import media.L16Codec;
+import model.AudioModel;
+import model.CallModel;
+import model.NetworkModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 音频消息文件传输微基准（运行见 run.sh），每次调用为一个文件，吞吐量 = 文件大小 / 耗时
+ * - sendAudioMessage: 本机回环上发送一个 128KB 的 PCM 录音（不压缩、不限速），计时到接收端写完文件并回调为止
+ * - sendLongMessage: 同上，5 分钟 16kHz 的录音（约 9.4MB）
+ * 接收端为同进程内的 ServerController，收到的文件随即删除
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TransferMicroBenchmarks {
+
+    private static final int TCP_PORT = 18281;  // 音频消息端口为 +101
+    private static final int FILE_BYTES = 128 * 1024;
+    private static final int LONG_FILE_BYTES = 5 * 60 * 16000 * 2;
+
+    private final BlockingQueue<File> received = new LinkedBlockingQueue<>();
+    private ServerController server;
+    private AudioController audio;
+    private File message;
+    private File longMessage;
+
+    @Setup
+    public void setup() throws IOException {
+        AudioModel audioModel = new AudioModel();
+        audioModel.setTcpPort(TCP_PORT);
+        audioModel.setMessageCodec(L16Codec.NAME);
+        NetworkModel networkModel = new NetworkModel();
+        audio = new AudioController(audioModel, networkModel);
+
+        server = new ServerController(networkModel, new CallModel(), audio);
+        server.setAudioMessageListener((file, remoteIP) -> received.add(file));
+        if (!server.startServer(TCP_PORT)) {
+            throw new IllegalStateException("端口 " + TCP_PORT + " 被占用");
+        }
+
+        message = createFile(FILE_BYTES);
+        longMessage = createFile(LONG_FILE_BYTES);
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stopServer();
+        message.delete();
+        longMessage.delete();
+    }
+
+    @Benchmark
+    public long sendAudioMessage() throws InterruptedException {
+        return send(message);
+    }
+
+    @Benchmark
+    public long sendLongMessage() throws InterruptedException {
+        return send(longMessage);
+    }
+
+    private long send(File message) throws InterruptedException {
+        audio.sendAudioMessage("127.0.0.1", message);
+        File file = received.poll(30, TimeUnit.SECONDS);
+        if (file == null) throw new IllegalStateException("30 秒内未收到音频消息");
+        long length = file.length();
+        file.delete();
+        return length;
+    }
+
+    // 16kHz 的 PCM WAV（静音），数据部分为 bytes 字节
+    private static File createFile(int bytes) throws IOException {
+        File file = File.createTempFile("bench_message_", ".wav");
+        file.deleteOnExit();
+        AudioFormat format = AudioModel.createPcmFormat(16000);
+        AudioSystem.write(new AudioInputStream(new ByteArrayInputStream(new byte[bytes]), format,
+                bytes / format.getFrameSize()), AudioFileFormat.Type.WAVE, file);
+        return file;
+    }
+}
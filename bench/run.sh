@@ -0,0 +1,7 @@
+#!/bin/sh
+# 构建压测模块（JMH）后运行微基准，参数原样传给 JMH（如 sh bench/run.sh Codec -p codec=PCMU）；
+# 结果另存为 JSON（microbench.json），便于跨版本对比
+set -e
+cd "$(dirname "$0")"
+mvn -B -q package -DskipTests
+exec java -jar target/benchmarks.jar -rf json -rff ../microbench.json "$@"
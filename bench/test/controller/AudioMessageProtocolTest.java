@@ -0,0 +1,33 @@
+package controller;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 音频消息头的解析：头部声明的采样率超出范围时拒收，不把 0 或异常值交给解码与播放
+ */
+class AudioMessageProtocolTest {
+
+    @Test
+    void rejectsSampleRateOutOfRange() {
+        for (int rate : new int[]{0, -8000, 4000, 96000, Integer.MAX_VALUE}) {
+            ByteBuffer stream = AudioMessageProtocol.Header.stream("a.wav", "PCMU", rate).encode();
+            assertThrows(IOException.class, () -> AudioMessageProtocol.Header.decode(stream), "rate " + rate);
+            ByteBuffer file = new AudioMessageProtocol.Header("a.wav", "L16", rate, 1000, 16000, 0).encode();
+            assertThrows(IOException.class, () -> AudioMessageProtocol.Header.decode(file), "rate " + rate);
+        }
+    }
+
+    @Test
+    void acceptsSupportedSampleRates() throws IOException {
+        for (int rate : new int[]{8000, 16000, 48000}) {
+            ByteBuffer buf = AudioMessageProtocol.Header.stream("a.wav", "DVI4", rate).encode();
+            assertEquals(rate, AudioMessageProtocol.Header.decode(buf).getSampleRate());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package controller;
+
+import media.Codecs;
+import model.MediaDescription;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 通话信令与旧版本（只认整行 "DIAL_REQUEST" / "DIAL_ACCEPT"）的互通
+ */
+class CallSignalingTest {
+
+    private static MediaDescription offer() {
+        return MediaDescription.createOffer(Codecs.SUPPORTED, Arrays.asList(16000, 8000), 20);
+    }
+
+    @Test
+    void oldCalleeStillRecognizesDialRequest() throws Exception {
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            // 旧版本被叫：整行比较命令，接听时只回 DIAL_ACCEPT
+            CompletableFuture<String> callee = CompletableFuture.supplyAsync(() -> {
+                try (Socket s = server.accept()) {
+                    BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), "UTF-8"));
+                    String command = in.readLine();
+                    if ("DIAL_REQUEST".equals(command)) {
+                        PrintWriter out = new PrintWriter(s.getOutputStream(), true);
+                        out.println("DIAL_ACCEPT");
+                    }
+                    return command;
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            try (Socket socket = new Socket(server.getInetAddress(), server.getLocalPort())) {
+                socket.setSoTimeout(5000);
+                CallSignaling.DialResult result = CallSignaling.dial(socket, offer());
+                assertTrue(result.isAccepted());
+                assertNull(result.getRemoteMedia());
+            }
+            assertEquals("DIAL_REQUEST", callee.get());
+        }
+    }
+
+    @Test
+    void calleeReadsMediaLineFromNewCaller() throws Exception {
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+             Socket caller = new Socket(server.getInetAddress(), server.getLocalPort());
+             Socket callee = server.accept()) {
+            MediaDescription offer = offer();
+            PrintWriter out = new PrintWriter(caller.getOutputStream());
+            out.print(CallSignaling.DIAL_REQUEST + "\n" + CallSignaling.MEDIA + " " + offer.format() + "\n");
+            out.flush();
+            callee.setSoTimeout(5000);
+            BufferedReader in = new BufferedReader(new InputStreamReader(callee.getInputStream(), "UTF-8"));
+            String request = in.readLine();
+            assertTrue(CallSignaling.isDialRequest(request));
+            MediaDescription remote = CallSignaling.readDialMedia(request, callee, in);
+            assertNotNull(remote);
+            assertEquals(offer.format(), remote.format());
+        }
+    }
+
+    @Test
+    void calleeTreatsCallerWithoutMediaLineAsOld() throws Exception {
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+             Socket caller = new Socket(server.getInetAddress(), server.getLocalPort());
+             Socket callee = server.accept()) {
+            new PrintWriter(caller.getOutputStream(), true).println("DIAL_REQUEST");
+            callee.setSoTimeout(30000);
+            BufferedReader in = new BufferedReader(new InputStreamReader(callee.getInputStream(), "UTF-8"));
+            String request = in.readLine();
+            assertNull(CallSignaling.readDialMedia(request, callee, in));
+            // 等待结束后恢复原有的读超时
+            assertEquals(30000, callee.getSoTimeout());
+        }
+    }
+}
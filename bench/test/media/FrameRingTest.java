@@ -0,0 +1,37 @@
+package media;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * FrameRing 的欠载统计：轮询为空不算欠载，等待超时与消费者报告的缺帧才算
+ */
+class FrameRingTest {
+
+    @Test
+    void emptyPollIsNotAnUnderrun() {
+        FrameRing ring = new FrameRing(4, 8);
+        byte[] out = new byte[8];
+        for (int i = 0; i < 100; i++) {
+            assertEquals(-1, ring.poll(out, 0));
+        }
+        assertEquals(0, ring.getUnderruns());
+        assertEquals(100, ring.getEmptyPolls());
+
+        ring.offer(new byte[]{1, 2, 3}, 0, 3, 0);
+        assertEquals(3, ring.poll(out, 0));
+        assertEquals(100, ring.getEmptyPolls());
+    }
+
+    @Test
+    void timedOutTakeAndReportedGapAreUnderruns() {
+        FrameRing ring = new FrameRing(4, 8);
+        byte[] out = new byte[8];
+        assertEquals(-1, ring.take(out, 0, 1_000_000L));
+        assertEquals(1, ring.getUnderruns());
+        ring.countUnderrun();
+        assertEquals(2, ring.getUnderruns());
+        assertEquals(0, ring.getEmptyPolls());
+    }
+}
@@ -0,0 +1,46 @@
+package media;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * JitterBuffer 的抖动估计：32bit 时间戳在通话中回绕时不产生抖动尖峰
+ */
+class JitterBufferTest {
+
+    private static final int RATE = 8000;
+    private static final int FRAME_SAMPLES = 160;
+
+    @Test
+    void timestampWrapDoesNotRaiseJitter() {
+        JitterBuffer buffer = new JitterBuffer(64, FRAME_SAMPLES, RATE, 20, 300);
+        byte[] frame = new byte[FRAME_SAMPLES];
+        int initialTarget = buffer.getTargetDepth();
+        long start = 0x1_0000_0000L - 50L * FRAME_SAMPLES;
+        for (int i = 0; i < 100; i++) {
+            long timestamp = (start + (long) i * FRAME_SAMPLES) & 0xFFFFFFFFL;
+            buffer.put(i, timestamp, frame, 0, frame.length, i * 20L);
+            buffer.poll(frame);
+        }
+        assertEquals(0.0, buffer.getJitterMs(), 1e-9);
+        assertEquals(initialTarget, buffer.getTargetDepth());
+        assertEquals(0, buffer.getResyncs());
+    }
+
+    @Test
+    void measuresJitterAcrossWrap() {
+        JitterBuffer buffer = new JitterBuffer(64, FRAME_SAMPLES, RATE, 20, 300);
+        byte[] frame = new byte[FRAME_SAMPLES];
+        long start = 0x1_0000_0000L - 50L * FRAME_SAMPLES;
+        for (int i = 0; i < 100; i++) {
+            long timestamp = (start + (long) i * FRAME_SAMPLES) & 0xFFFFFFFFL;
+            // 偶数包准时，奇数包晚到 10 ms
+            buffer.put(i, timestamp, frame, 0, frame.length, i * 20L + (i % 2) * 10);
+            buffer.poll(frame);
+        }
+        // 相邻两包的传输时间差恒为 10 ms，估计值收敛到 10 ms 附近，不会被回绕拉到上限
+        assertTrue(buffer.getJitterMs() > 9 && buffer.getJitterMs() < 10.5, "jitter " + buffer.getJitterMs());
+    }
+}
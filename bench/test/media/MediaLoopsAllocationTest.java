@@ -0,0 +1,41 @@
+package media;
+
+import bench.AllocationBenchmark;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 媒体线程逐帧处理的内存分配回归：每个配置实时运行约两秒的回环通话（见 bench.AllocationBenchmark），
+ * 采集、发送、接收、播放线程每帧分配的字节数都不得超过门限
+ */
+class MediaLoopsAllocationTest {
+
+    private static final int WARMUP_MS = 1000;
+    private static final int MEASURE_MS = 500;
+    private static final int MEASURE_WINDOWS = 2;
+    private static final String[] THREADS = {"采集", "发送", "接收", "播放"};
+
+    @Test
+    void mediaLoopsDoNotAllocatePerFrame() throws Exception {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported(), "JVM 不支持按线程统计分配");
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        for (int c = 0; c < AllocationBenchmark.CODECS.length; c++) {
+            String codec = AllocationBenchmark.CODECS[c];
+            int[] config = AllocationBenchmark.CONFIGS[c];
+            double[] perFrame = AllocationBenchmark.measure(threads, codec, config[0], config[1], config[2],
+                    WARMUP_MS, MEASURE_MS, MEASURE_WINDOWS);
+            for (int i = 0; i < perFrame.length; i++) {
+                assertTrue(perFrame[i] <= AllocationBenchmark.LIMITS[i],
+                        codec + " " + config[0] + "/" + config[1] + " Hz " + config[2] + " ms " + THREADS[i]
+                                + "线程每帧分配 " + perFrame[i] + " 字节");
+            }
+        }
+    }
+}
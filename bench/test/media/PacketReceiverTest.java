@@ -0,0 +1,79 @@
+package media;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * 旧版本对端的裸 PCM：按帧切分后依次放入抖动缓冲区；媒体通道不锁定其来源地址
+ */
+class PacketReceiverTest {
+
+    private static final int RATE = 8000;
+    private static final int FRAME_SAMPLES = 160;
+
+    @Test
+    void splitsLegacyDatagramsIntoFrames() {
+        JitterBuffer buffer = new JitterBuffer(64, FRAME_SAMPLES * 2, RATE, 20, 300);
+        PacketReceiver receiver = PacketReceiver.legacy(FRAME_SAMPLES, buffer, new SequenceTracker());
+        // 旧版本按 1024 字节发送，与 320 字节的帧不对齐
+        byte[] stream = new byte[PacketReceiver.LEGACY_MAX_DATAGRAM * 5];
+        for (int i = 0; i < stream.length; i++) {
+            stream[i] = (byte) (i * 7);
+        }
+        for (int off = 0; off < stream.length; off += PacketReceiver.LEGACY_MAX_DATAGRAM) {
+            byte[] datagram = new byte[PacketReceiver.LEGACY_MAX_DATAGRAM];
+            System.arraycopy(stream, off, datagram, 0, datagram.length);
+            assertEquals(PacketReceiver.ACCEPTED, receiver.handle(datagram, datagram.length, off / 64));
+        }
+        int frames = stream.length / (FRAME_SAMPLES * 2);
+        assertEquals(frames, buffer.getDepth());
+        assertEquals(0, receiver.getInvalidPackets());
+        byte[] frame = new byte[FRAME_SAMPLES * 2];
+        for (int i = 0; i < frames; i++) {
+            buffer.poll(frame);
+            byte[] expected = new byte[frame.length];
+            System.arraycopy(stream, i * frame.length, expected, 0, frame.length);
+            assertArrayEquals(expected, frame, "frame " + i);
+        }
+    }
+
+    @Test
+    void legacySessionDoesNotLatch() throws Exception {
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        // 旧版本对端：在信令中的端口接收，从另一个临时端口发送
+        try (DatagramSocket listen = new DatagramSocket(0, loopback);
+             DatagramSocket sendFrom = new DatagramSocket(0, loopback);
+             MediaTransport channel = MediaTransport.open(0,
+                     new InetSocketAddress(loopback, listen.getLocalPort()))) {
+            listen.setSoTimeout(2000);
+            JitterBuffer buffer = new JitterBuffer(64, FRAME_SAMPLES * 2, RATE, 20, 300);
+            PacketReceiver receiver = PacketReceiver.legacy(FRAME_SAMPLES, buffer, new SequenceTracker());
+            MediaLoops.Receive receive = new MediaLoops.Receive(receiver,
+                    new FrameRing(8, receiver.getMaxPacketSize()), channel);
+
+            byte[] pcm = new byte[PacketReceiver.LEGACY_MAX_DATAGRAM];
+            sendFrom.send(new DatagramPacket(pcm, pcm.length, loopback, channel.getLocalPort()));
+            assertEquals(PacketReceiver.ACCEPTED, receive.receive());
+            assertFalse(receiver.accepts(receive.getPacket(), receive.getLength()));
+            assertFalse(receive.latchPeer());
+            assertFalse(channel.isLatched());
+            receive.release();
+
+            // 本端的声音仍发往信令中的端口
+            ByteBuffer out = ByteBuffer.wrap(new byte[] {1, 2, 3});
+            channel.send(out);
+            DatagramPacket in = new DatagramPacket(new byte[16], 16);
+            listen.receive(in);
+            assertEquals(3, in.getLength());
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package media;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * SequenceTracker 的序号扩展：回绕、单个迷途包、对端重新开始发送
+ */
+class SequenceTrackerTest {
+
+    @Test
+    void wrapsAround() {
+        SequenceTracker tracker = new SequenceTracker();
+        long first = tracker.extend(65530);
+        for (int i = 1; i < 12; i++) {
+            assertEquals(first + i, tracker.extend((65530 + i) & 0xFFFF));
+        }
+        assertEquals(12, tracker.getExpected());
+        assertEquals(0, tracker.getLost());
+    }
+
+    @Test
+    void ignoresSingleStrayPacket() {
+        SequenceTracker tracker = new SequenceTracker();
+        for (int seq = 1000; seq < 1100; seq++) {
+            assertEquals(seq, tracker.extend(seq));
+        }
+        // 上一通话残留或重复的旧包，序号远离当前流
+        assertEquals(SequenceTracker.REJECTED, tracker.extend(40000));
+        for (int seq = 1100; seq < 1200; seq++) {
+            assertEquals(seq, tracker.extend(seq));
+        }
+        assertEquals(0, tracker.getRestarts());
+        assertEquals(200, tracker.getExpected());
+        assertEquals(200, tracker.getReceived());
+        assertEquals(0, tracker.getLost());
+        assertEquals(1199, tracker.getExtendedHighest());
+    }
+
+    @Test
+    void restartsAfterTwoSequentialPackets() {
+        SequenceTracker tracker = new SequenceTracker();
+        for (int seq = 0; seq < 100; seq++) {
+            tracker.extend(seq);
+        }
+        assertEquals(SequenceTracker.REJECTED, tracker.extend(20000));
+        long restart = tracker.extend(20001);
+        assertTrue(restart > 99);
+        for (int i = 1; i < 50; i++) {
+            assertEquals(restart + i, tracker.extend(20001 + i));
+        }
+        assertEquals(1, tracker.getRestarts());
+        assertEquals(0, tracker.getLost());
+    }
+
+    @Test
+    void strayPacketsInterleavedWithStreamNeverRestart() {
+        SequenceTracker tracker = new SequenceTracker();
+        for (int seq = 0; seq < 100; seq++) {
+            tracker.extend(seq);
+        }
+        // 两个相邻的迷途包之间夹着正常的包，不构成连续的新流
+        assertEquals(SequenceTracker.REJECTED, tracker.extend(30000));
+        assertEquals(100, tracker.extend(100));
+        assertEquals(SequenceTracker.REJECTED, tracker.extend(30001));
+        assertEquals(101, tracker.extend(101));
+        assertEquals(0, tracker.getRestarts());
+    }
+}
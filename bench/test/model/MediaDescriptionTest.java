@@ -0,0 +1,67 @@
+package model;
+
+import controller.AudioController;
+import media.Codecs;
+import media.G711Codec;
+import media.ImaAdpcmCodec;
+import media.L16Codec;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 编码与采样率的协商：双方按同样的规则得到同一组合，且组合是该编码实际定义的采样率
+ */
+class MediaDescriptionTest {
+
+    private static AudioController controller() {
+        AudioModel model = new AudioModel();
+        model.setCaptureDevice("tone:440");
+        model.setPlaybackDevice("null");
+        return new AudioController(model, new NetworkModel());
+    }
+
+    @Test
+    void defaultPeersAgreeOnWidebandAdpcm() {
+        AudioController caller = controller();
+        AudioController callee = controller();
+        MediaDescription offer = caller.createOffer();
+        MediaDescription answer = callee.createAnswer(offer);
+
+        String codec = MediaDescription.selectCodec(offer, answer);
+        int rate = MediaDescription.selectSampleRate(offer, answer);
+        assertEquals(codec, MediaDescription.selectCodec(answer, offer));
+        assertEquals(rate, MediaDescription.selectSampleRate(answer, offer));
+        // 窄带或宽带的压缩编码，而不是 48kHz 或线性 PCM
+        assertTrue(rate <= 16000, "rate " + rate);
+        assertFalse(L16Codec.NAME.equals(codec));
+        assertTrue(Codecs.supportsSampleRate(codec, rate));
+        assertEquals(ImaAdpcmCodec.NAME, codec);
+        assertEquals(16000, rate);
+    }
+
+    @Test
+    void g711IsOnlyNegotiatedAtNarrowband() {
+        MediaDescription offer = MediaDescription.createOffer(
+                Arrays.asList(G711Codec.PCMU, L16Codec.NAME), Arrays.asList(48000, 16000, 8000), 20);
+        MediaDescription answer = MediaDescription.createAnswer(offer, Collections.singletonList(G711Codec.PCMU),
+                Arrays.asList(48000, 16000, 8000), Arrays.asList(48000, 16000, 8000), 20);
+        assertEquals(G711Codec.PCMU, MediaDescription.selectCodec(offer, answer));
+        assertEquals(8000, MediaDescription.selectSampleRate(offer, answer));
+    }
+
+    @Test
+    void offersWidebandRatesOnlyWithACodecForThem() {
+        MediaDescription offer = MediaDescription.createOffer(
+                Arrays.asList(G711Codec.PCMU, G711Codec.PCMA), Arrays.asList(16000, 8000, 48000), 20);
+        assertEquals(Collections.singletonList(8000), offer.getSampleRates());
+
+        offer = MediaDescription.createOffer(Codecs.SUPPORTED, Arrays.asList(16000, 8000, 48000), 20);
+        assertEquals(Arrays.asList(16000, 8000, 48000), offer.getSampleRates());
+    }
+}
@@ -1,11 +1,50 @@
 package controller;
 
+import media.AudioCodec;
+import media.AudioDevices;
+import media.AudioSink;
+import media.AudioSource;
+import media.AutomaticGainControl;
+import media.CapturePipeline;
+import media.ClockDriftCompensator;
+import media.Codecs;
+import media.EchoCanceller;
+import media.FrameRing;
+import media.ImaAdpcmCodec;
+import media.ImaAdpcmWav;
+import media.JitterBuffer;
+import media.L16Codec;
+import media.Limiter;
+import media.MediaLoops;
+import media.MediaTransport;
+import media.NoiseSuppressor;
+import media.PacketLossConcealer;
+import media.PacketReceiver;
+import media.PlayoutPipeline;
+import media.QualityMonitor;
+import media.RedundancyPolicy;
+import media.RtcpPacket;
+import media.RtpPacket;
+import media.SequenceTracker;
 import model.AudioModel;
+import model.MediaDescription;
 import model.NetworkModel;
 
 import javax.sound.sampled.*;
 import java.io.*;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
 
 /**
  * 最终修复版 AudioController：
@@ -24,16 +63,102 @@ public class AudioController {
     // ============================
     private volatile boolean isStreaming = false;
     private volatile boolean isMuted = false;
+    private Thread captureThread;
     private Thread sendThread;
     private Thread recvThread;
+    private Thread playoutThread;
+
+    // 播放线路内部缓冲的帧数：够用即可，其余延迟交给抖动缓冲区管理
+    private static final int PLAYOUT_LINE_FRAMES = 3;
+    // 播放线路缓冲的最小时长（帧很短时防止声卡断流）
+    private static final int PLAYOUT_LINE_MIN_MS = 40;
+    // 抖动缓冲区容量（帧）
+    private static final int JITTER_CAPACITY = 64;
+    // 线程间环形缓冲区容量：采集 -> 发送（帧），接收 -> 播放（包）
+    private static final int CAPTURE_RING_FRAMES = 8;
+    private static final int PACKET_RING_SLOTS = 32;
+    // 收发报告（RTCP SR/RR）的发送间隔：对端据此调整冗余等级，双方据此计算 RTT 与 MOS
+    private static final int REPORT_INTERVAL_MS = 1000;
+    // 每通电话的质量汇总追加写入该文件
+    private static final String QUALITY_LOG_FILE = "call_quality.log";
+    // 流式音频消息的帧长
+    private static final int STREAM_FRAME_MS = 20;
+    // 流式消息发送队列的上限（250 帧即 5 s）：网络长时间跟不上录音时放弃边录边发，录完后可重发
+    private static final int STREAM_QUEUE_FRAMES = 250;
+    // 边收边播流式消息时的播放缓冲（需容纳接收端的预缓冲）
+    private static final int MESSAGE_PLAYBACK_BUFFER_MS = 400;
+    // 音频消息发送失败（连接中断、对端校验失败等）时的最多尝试次数与重试间隔
+    private static final int MESSAGE_SEND_ATTEMPTS = 5;
+    private static final long MESSAGE_RETRY_DELAY_MS = 2000;
+
+    private JitterBuffer jitterBuffer;
+    // 本次通话的 UDP 媒体通道（收发共用，挂断时关闭）
+    private volatile MediaTransport transport;
+    // 三个媒体线程各自的逐帧处理（每通电话新建）
+    private volatile CapturePipeline capturePipeline;
+    private volatile PacketReceiver packetReceiver;
+    private volatile PlayoutPipeline playoutPipeline;
+    // 回声消除（播放线程送参考信号，发送线程消除回声），未启用时为 null
+    private volatile EchoCanceller echoCanceller;
+    private volatile NoiseSuppressor noiseSuppressor;
+    private volatile AutomaticGainControl gainControl;
+    private volatile Limiter playoutLimiter;
+    private volatile ClockDriftCompensator driftCompensator;
+    // 线程之间的无锁环：采集线程 -> 发送线程，接收线程 -> 播放线程（抖动缓冲区只由播放线程写入）
+    private volatile FrameRing captureRing;
+    private volatile FrameRing packetRing;
+
+    // 本次通话的打包间隔及由其推导的帧大小（线上采样率，UDP 负载按此编码）
+    private volatile int frameMs;
+    private int frameSamples;
+    private int frameBytes;
+
+    // 线上采样率（协商结果）与声卡实际使用的采样率，两者不同时在采集/播放端重采样
+    private volatile int wireRate = MediaDescription.DEFAULT_SAMPLE_RATE;
+    private volatile int deviceRate = MediaDescription.DEFAULT_SAMPLE_RATE;
+    private AudioFormat deviceFormat;
+    private int deviceFrameSamples;
+    private int deviceFrameBytes;
+
+    // 本次通话是否启用静音停发（DTX）
+    private volatile boolean dtxEnabled = false;
+
+    // 对端为旧版本（信令中没有媒体参数）：收发无包头的裸 PCM（8kHz L16），不发送 RTCP
+    private volatile boolean legacyMedia = false;
+
+    // 冗余帧（FEC）：是否启用，以及根据对端接收报告决定的冗余等级
+    private volatile boolean redEnabled = false;
+    private final RedundancyPolicy redundancyPolicy = new RedundancyPolicy();
+    private volatile long receiverReports = 0;
+
+    // 通话质量：本端/对端丢包、抖动、RTT 与 MOS 估计
+    private volatile QualityMonitor qualityMonitor;
+    // 最近收到的对端 SR（NTP 中间 32 位）及其到达时刻，用于在报告中回传 LSR/DLSR
+    private volatile long lastSrNtp = 0;
+    private volatile long lastSrArrival = 0;
+    private volatile long sentOctets = 0;
+    private volatile String callRemoteIP = "";
+
+    // 声卡原生支持的采样率（首次协商时探测并缓存）
+    private List<Integer> nativeSampleRates;
+
+    // 媒体流标识与接收统计
+    private MediaDescription localMedia;
+    private volatile String codecName = MediaDescription.DEFAULT_CODEC;
+    private final SequenceTracker sequenceTracker = new SequenceTracker();
+    private volatile long sentPackets = 0;
+    private volatile long streamStartTime = 0;
+    private volatile String remoteAudioIP = "";
 
     // ============================
     // 音频消息录制相关
     // ============================
     private boolean isRecording = false;
-    private TargetDataLine recordingLine;
+    private AudioSource recordingSource;
     private AudioInputStream recordingStream;
     private File currentRecordingFile;
+    // 最近一条流式消息的发送线程已失败（由发送线程写入）
+    private volatile boolean streamingMessageFailed = false;
     private boolean isMicrophoneAvailable = false;
 
     public AudioController(AudioModel audioModel, NetworkModel networkModel) {
@@ -52,68 +177,458 @@ public class AudioController {
         this.isMuted = muted;
     }
 
+    // ==========================================================
+    // 媒体协商：主叫生成 offer，被叫根据 offer 生成 answer
+    // ==========================================================
+    public MediaDescription createOffer() {
+        // 声卡原生支持的采样率排在前面，其余采样率需要重采样，作为兼容选项放在后面
+        List<Integer> rates = new ArrayList<>(getNativeSampleRates());
+        for (Integer rate : audioModel.getSampleRatePreference()) {
+            if (!rates.contains(rate)) rates.add(rate);
+        }
+        MediaDescription offer = MediaDescription.createOffer(audioModel.getCodecPreference(), rates, audioModel.getFrameMs());
+        offer.setDtx(audioModel.isDtxEnabled());
+        offer.setRed(audioModel.isFecEnabled());
+        return offer;
+    }
+
+    public MediaDescription createAnswer(MediaDescription offer) {
+        MediaDescription answer = MediaDescription.createAnswer(offer, audioModel.getCodecPreference(),
+                getNativeSampleRates(), audioModel.getSampleRatePreference(), audioModel.getFrameMs());
+        answer.setDtx(audioModel.isDtxEnabled());
+        answer.setRed(audioModel.isFecEnabled());
+        return answer;
+    }
+
+    /**
+     * 采集设备和播放设备都能直接打开的采样率（按 AudioModel 中的优先级排列）
+     */
+    public synchronized List<Integer> getNativeSampleRates() {
+        if (nativeSampleRates == null) {
+            nativeSampleRates = new ArrayList<>();
+            try {
+                AudioSource source = AudioDevices.createSource(audioModel.getCaptureDevice());
+                AudioSink sink = AudioDevices.createSink(audioModel.getPlaybackDevice());
+                for (Integer rate : audioModel.getSampleRatePreference()) {
+                    AudioFormat format = AudioModel.createPcmFormat(rate);
+                    try {
+                        if (source.isFormatSupported(format) && sink.isFormatSupported(format)) {
+                            nativeSampleRates.add(rate);
+                        }
+                    } catch (Exception e) {
+                        System.err.println("采样率检测失败 " + rate + " Hz: " + e.getMessage());
+                    }
+                }
+            } catch (Exception e) {
+                System.err.println("音频设备无效: " + e.getMessage());
+            }
+            System.out.println("音频设备 " + audioModel.getCaptureDevice() + " / " + audioModel.getPlaybackDevice()
+                    + " 支持的采样率: " + nativeSampleRates);
+        }
+        return nativeSampleRates;
+    }
+
+    /**
+     * 当前通话使用的编码名称
+     */
+    public String getCodecName() {
+        return codecName;
+    }
+
     // ==========================================================
     // 实时音频：启动 UDP 音频线程
     // ==========================================================
-    public void startAudioStreaming(String remoteIP, int udpPort) {
+    public void startAudioStreaming(String remoteIP, int udpPort,
+                                    MediaDescription localMedia, MediaDescription remoteMedia) {
         if (isStreaming) return;
 
         isStreaming = true;
 
-        sendThread = new Thread(() -> sendAudio(remoteIP, udpPort), "AudioSendThread");
+        this.localMedia = localMedia != null ? localMedia : createOffer();
+        legacyMedia = remoteMedia == null;
+        if (legacyMedia) System.out.println("对端为旧版本，使用裸 PCM 收发");
+        codecName = MediaDescription.selectCodec(this.localMedia, remoteMedia);
+        if (!Codecs.isSupported(codecName)) {
+            codecName = MediaDescription.DEFAULT_CODEC;
+        }
+
+        // 线上采样率取协商结果；声卡不支持时用最优的原生采样率打开设备，再做重采样
+        wireRate = MediaDescription.selectSampleRate(this.localMedia, remoteMedia);
+        List<Integer> nativeRates = getNativeSampleRates();
+        if (nativeRates.contains(wireRate) || nativeRates.isEmpty()) {
+            deviceRate = wireRate;
+        } else {
+            deviceRate = nativeRates.get(0);
+        }
+        deviceFormat = AudioModel.createPcmFormat(deviceRate);
+
+        frameMs = MediaDescription.selectFrameMs(this.localMedia, remoteMedia);
+        frameSamples = wireRate * frameMs / 1000;
+        frameBytes = frameSamples * 2;
+        deviceFrameSamples = deviceRate * frameMs / 1000;
+        deviceFrameBytes = deviceFrameSamples * deviceFormat.getFrameSize();
+        System.out.println("通话编码: " + codecName + ", 采样率: " + wireRate + " Hz"
+                + (deviceRate != wireRate ? " (声卡 " + deviceRate + " Hz, 重采样)" : "")
+                + ", 打包间隔: " + frameMs + " ms (" + frameBytes + " 字节 PCM/帧)");
+
+        dtxEnabled = MediaDescription.selectDtx(this.localMedia, remoteMedia);
+        System.out.println("静音停发: " + (dtxEnabled ? "启用" : "关闭"));
+        redEnabled = MediaDescription.selectRed(this.localMedia, remoteMedia);
+        redundancyPolicy.reset();
+        receiverReports = 0;
+        lastSrNtp = 0;
+        lastSrArrival = 0;
+        sentOctets = 0;
+        callRemoteIP = remoteIP;
+        qualityMonitor = new QualityMonitor(codecName, frameMs,
+                audioModel.getPlcStrategy() != PacketLossConcealer.Strategy.SILENCE);
+        System.out.println("冗余帧: " + (redEnabled ? "按丢包率自适应" : "关闭"));
+
+        sequenceTracker.reset();
+        sentPackets = 0;
+        streamStartTime = System.currentTimeMillis();
+
+        int maxPayload = Codecs.create(codecName).getEncodedSize(frameSamples);
+        jitterBuffer = new JitterBuffer(JITTER_CAPACITY, maxPayload, wireRate,
+                audioModel.getJitterMinDelayMs(), audioModel.getJitterMaxDelayMs());
+
+        // 对端未在信令中声明 SSRC 时，锁定首个到达的流
+        capturePipeline = new CapturePipeline(codecName, deviceRate, wireRate, frameMs,
+                this.localMedia.getSsrc(), dtxEnabled);
+        packetReceiver = legacyMedia ? PacketReceiver.legacy(frameSamples, jitterBuffer, sequenceTracker)
+                : new PacketReceiver(codecName, frameSamples, jitterBuffer, sequenceTracker,
+                        dtxEnabled, redEnabled, remoteMedia.getSsrc());
+        playoutPipeline = new PlayoutPipeline(codecName, jitterBuffer, wireRate, deviceRate, frameMs,
+                audioModel.getPlcStrategy());
+        echoCanceller = audioModel.isEchoCancellationEnabled() ? new EchoCanceller(wireRate, frameSamples) : null;
+        capturePipeline.setEchoCanceller(echoCanceller);
+        playoutPipeline.setEchoCanceller(echoCanceller);
+        System.out.println("回声消除: " + (echoCanceller != null ? "启用" : "关闭"));
+        noiseSuppressor = audioModel.isNoiseSuppressionEnabled() ? new NoiseSuppressor(wireRate) : null;
+        capturePipeline.setNoiseSuppressor(noiseSuppressor);
+        System.out.println("降噪: " + (noiseSuppressor != null ? "启用" : "关闭"));
+        gainControl = audioModel.isGainControlEnabled() ? new AutomaticGainControl(frameMs) : null;
+        capturePipeline.setGainControl(gainControl);
+        playoutLimiter = audioModel.isPlayoutLimiterEnabled() ? new Limiter(frameMs) : null;
+        playoutPipeline.setLimiter(playoutLimiter);
+        System.out.println("自动增益: " + (gainControl != null ? "启用" : "关闭")
+                + ", 播放限幅: " + (playoutLimiter != null ? "启用" : "关闭"));
+        driftCompensator = audioModel.isDriftCompensationEnabled() ? new ClockDriftCompensator(frameMs) : null;
+        playoutPipeline.setDriftCompensator(driftCompensator);
+        System.out.println("时钟漂移补偿: " + (driftCompensator != null ? "启用" : "关闭"));
+
+        // 从本端接收端口发送，NAT 后的对端也能收到回包；对端未声明媒体端口时与本端相同
+        int remotePort = remoteMedia != null && remoteMedia.getPort() > 0 ? remoteMedia.getPort() : udpPort;
+        try {
+            transport = MediaTransport.open(udpPort, new InetSocketAddress(remoteIP, remotePort));
+        } catch (IOException e) {
+            System.err.println("打开音频通道失败（UDP " + udpPort + "）: " + e.getMessage());
+            isStreaming = false;
+            return;
+        }
+        remoteAudioIP = remoteIP;
+
+        captureRing = new FrameRing(CAPTURE_RING_FRAMES, deviceFrameBytes);
+        packetRing = new FrameRing(PACKET_RING_SLOTS, packetReceiver.getMaxPacketSize());
+
+        captureThread = new Thread(this::captureAudio, "AudioCaptureThread");
+        sendThread = new Thread(this::sendAudio, "AudioSendThread");
         recvThread = new Thread(this::receiveAudio, "AudioRecvThread");
+        playoutThread = new Thread(this::playoutAudio, "AudioPlayoutThread");
 
+        captureThread.start();
         sendThread.start();
         recvThread.start();
+        playoutThread.start();
     }
 
     // 停止实时音频
     public void stopAudio() {
         isStreaming = false;
 
+        // 先关闭通道：阻塞在接收上的线程立即返回，端口随即释放
+        MediaTransport t = transport;
+        transport = null;
+        if (t != null) {
+            try {
+                t.close();
+            } catch (IOException e) {
+                System.err.println("关闭音频通道失败: " + e.getMessage());
+            }
+        }
+
+        if (captureThread != null) captureThread.interrupt();
         if (sendThread != null) sendThread.interrupt();
         if (recvThread != null) recvThread.interrupt();
+        if (playoutThread != null) playoutThread.interrupt();
+
+        if (jitterBuffer != null) {
+            System.out.println("抖动缓冲区统计: " + jitterBuffer.getStatsText());
+            System.out.println("媒体流统计: " + getStreamStatsText());
+        }
+        if (qualityMonitor != null) {
+            writeQualitySummary();
+        }
     }
 
+    /**
+     * 当前通话的质量统计（实时更新），未通话时为 null
+     */
+    public QualityMonitor getQualityMonitor() {
+        return qualityMonitor;
+    }
 
-    // 实时音频发送（UDP）
-    private void sendAudio(String remoteIP, int udpPort) {
-        TargetDataLine line = null;
+    // 把本次通话的质量汇总追加到日志文件，便于事后判断通话质量差是否由网络引起
+    private void writeQualitySummary() {
+        String line = new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new java.util.Date())
+                + " 对端 " + callRemoteIP + " | " + qualityMonitor.getSummaryText()
+                + (driftCompensator != null ? String.format(" | 时钟漂移 %+.0f ppm", driftCompensator.getDriftPpm()) : "");
+        System.out.println("通话质量汇总: " + line);
+
+        try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(QUALITY_LOG_FILE, true), "UTF-8"))) {
+            writer.println(line);
+        } catch (IOException e) {
+            System.err.println("写入通话质量日志失败: " + e.getMessage());
+        }
+    }
 
-        try {
-            AudioFormat format = audioModel.getAudioFormat();
-            DataLine.Info info = new DataLine.Info(TargetDataLine.class, format);
-            line = (TargetDataLine) AudioSystem.getLine(info);
+    /**
+     * 接收端序号统计（期望/收到/丢失）
+     */
+    public SequenceTracker getSequenceTracker() {
+        return sequenceTracker;
+    }
 
-            line.open(format);
-            line.start();
+    public long getInvalidPackets() {
+        return packetReceiver != null ? packetReceiver.getInvalidPackets() : 0;
+    }
 
-            InetAddress remoteAddr = InetAddress.getByName(remoteIP);
-            byte[] buffer = new byte[1024];
+    public long getForeignPackets() {
+        return packetReceiver != null ? packetReceiver.getForeignPackets() : 0;
+    }
+
+    public int getFrameMs() {
+        return frameMs;
+    }
+
+    /** 当前通话的线上采样率 */
+    public int getSampleRate() {
+        return wireRate;
+    }
+
+    /** 当前通话声卡使用的采样率（与线上不同时表示正在重采样） */
+    public int getDeviceSampleRate() {
+        return deviceRate;
+    }
+
+    /** 当前通话是否启用了静音停发 */
+    public boolean isDtxEnabled() {
+        return dtxEnabled;
+    }
+
+    /** 因静音而未发送的帧数 */
+    public long getSuppressedFrames() {
+        return capturePipeline != null ? capturePipeline.getSuppressedFrames() : 0;
+    }
+
+    /** 已发送的静音描述帧（SID）数 */
+    public long getSidPackets() {
+        return capturePipeline != null ? capturePipeline.getSidPackets() : 0;
+    }
+
+    /** 当前冗余等级（每包携带的前帧数） */
+    public int getRedundancyLevel() {
+        return redEnabled ? redundancyPolicy.getLevel() : 0;
+    }
+
+    /** 播放端做了丢包隐藏的帧数 */
+    public long getConcealedFrames() {
+        return playoutPipeline != null ? playoutPipeline.getConcealedFrames() : 0;
+    }
+
+    /** 通话开始以来的平均发送包率（包/秒） */
+    public double getSendPacketRate() {
+        return rate(sentPackets);
+    }
+
+    /** 通话开始以来的平均接收包率（包/秒） */
+    public double getReceivePacketRate() {
+        return rate(packetReceiver != null ? packetReceiver.getReceivedPackets() : 0);
+    }
+
+    private double rate(long packets) {
+        long elapsed = System.currentTimeMillis() - streamStartTime;
+        return elapsed > 0 ? packets * 1000.0 / elapsed : 0;
+    }
+
+    public String getStreamStatsText() {
+        return String.format("编码 %s/%d Hz, 打包 %d ms, 包率 发送 %.1f/s 接收 %.1f/s, 静音停发 %d 帧 (SID %d), 冗余等级 %d (对端丢包 %.1f%%), 期望 %d, 收到 %d, 丢失 %d, 隐藏 %d 帧, 非法包 %d, 非本通话包 %d, 回声消除 [%s], 降噪 [%s], 自动增益 [%s], 播放限幅 [%s], 漂移补偿 [%s], 采集环 [%s], 收包环 [%s]",
+                codecName, wireRate, frameMs, getSendPacketRate(), getReceivePacketRate(),
+                getSuppressedFrames(), getSidPackets(),
+                getRedundancyLevel(), redundancyPolicy.getLastFractionLost() * 100,
+                sequenceTracker.getExpected(), sequenceTracker.getReceived(), sequenceTracker.getLost(), getConcealedFrames(),
+                getInvalidPackets(), getForeignPackets(),
+                echoCanceller != null ? echoCanceller.getStatsText() : "关闭",
+                noiseSuppressor != null ? noiseSuppressor.getStatsText() : "关闭",
+                gainControl != null ? gainControl.getStatsText() : "关闭",
+                playoutLimiter != null ? playoutLimiter.getStatsText() : "关闭",
+                driftCompensator != null ? driftCompensator.getStatsText() : "关闭",
+                captureRing != null ? captureRing.getStatsText() : "--",
+                packetRing != null ? packetRing.getStatsText() : "--");
+    }
+
+    /** 当前通话的回声消除器（延迟估计、ERLE 等统计），未启用或未通话时为 null */
+    public EchoCanceller getEchoCanceller() {
+        return echoCanceller;
+    }
+
+    /** 当前通话的降噪器（噪声电平、衰减量），未启用或未通话时为 null */
+    public NoiseSuppressor getNoiseSuppressor() {
+        return noiseSuppressor;
+    }
+
+    /** 当前通话的自动增益控制（当前增益、增益历史），未启用或未通话时为 null */
+    public AutomaticGainControl getGainControl() {
+        return gainControl;
+    }
+
+    /** 当前通话的时钟漂移补偿（估计的 ppm、插入/删除的采样数），未启用或未通话时为 null */
+    public ClockDriftCompensator getDriftCompensator() {
+        return driftCompensator;
+    }
+
+    /** 采集线程 -> 发送线程的环（溢出表示发送跟不上采集），未通话时为 null */
+    public FrameRing getCaptureRing() {
+        return captureRing;
+    }
+
+    /** 接收线程 -> 播放线程的环（溢出表示播放跟不上接收），未通话时为 null */
+    public FrameRing getPacketRing() {
+        return packetRing;
+    }
+
+    /**
+     * 获取当前通话的抖动缓冲区（深度、迟到丢弃、欠载等统计），未通话时为 null
+     */
+    public JitterBuffer getJitterBuffer() {
+        return jitterBuffer;
+    }
+
+
+    // 麦克风采集：只负责把设备读到的帧直接写入采集环（见 MediaLoops.Capture），采集永不等待网络
+    private void captureAudio() {
+        AudioSource source = null;
+
+        try {
+            source = AudioDevices.createSource(audioModel.getCaptureDevice());
+            source.open(deviceFormat);
+
+            MediaLoops.Capture capture = new MediaLoops.Capture(source, captureRing, deviceFrameBytes);
 
             while (isStreaming && !Thread.currentThread().isInterrupted()) {
+                if (!capture.captureFrame()) {
+                    System.out.println("采集设备输入结束: " + source.getName());
+                    break;
+                }
+            }
 
-                if (!isMuted) {
-                    int len = line.read(buffer, 0, buffer.length);
-                    DatagramPacket packet = new DatagramPacket(buffer, len, remoteAddr, udpPort);
+        } catch (Exception e) {
+            if (isStreaming) System.err.println("音频采集错误: " + e.getMessage());
+        } finally {
+            if (source != null) source.close();
+        }
+    }
 
-                    DatagramSocket udp = networkModel.getUdpSocket();
-                    if (udp != null && !udp.isClosed()) {
-                        udp.send(packet);
-                    }
-                } else {
-                    Thread.sleep(10);
+    // 实时音频发送（UDP）：从采集环取帧编码打包后从媒体通道发出（见 MediaLoops.Send），
+    // 并定期向对端发送接收报告（旧版本对端不发）。稳态下每帧不分配对象
+    private void sendAudio() {
+        MediaLoops.Send send = null;
+
+        try {
+            CapturePipeline pipeline = capturePipeline;
+            boolean legacy = legacyMedia;
+            send = new MediaLoops.Send(pipeline, captureRing, transport, deviceFrameBytes, frameMs,
+                    deviceFormat.isBigEndian(), legacy);
+            long lastReportTime = System.currentTimeMillis();
+
+            while (isStreaming && !Thread.currentThread().isInterrupted()) {
+                // 采集停滞（超过两帧没有数据）时不出包，但照常发送报告
+                int level = redEnabled ? redundancyPolicy.getLevel() : 0;
+                int packetLen = send.encodeFrame(isMuted, level);
+                if (packetLen >= 0 && send.transmit()) {
+                    sentPackets++;
+                    sentOctets += packetLen - RtpPacket.HEADER_SIZE;
+                }
+
+                long now = System.currentTimeMillis();
+                if (!legacy && now - lastReportTime >= REPORT_INTERVAL_MS) {
+                    lastReportTime = now;
+                    send.sendReport(writeReport(send.getReportBuffer(), pipeline));
                 }
             }
 
         } catch (Exception e) {
-            System.err.println("音频发送错误: " + e.getMessage());
+            if (isStreaming) System.err.println("音频发送错误: " + e.getMessage());
         } finally {
-            if (line != null) {
-                line.stop();
-                line.close();
+            if (send != null) send.release();
+        }
+    }
+
+    // 生成 SR：附带本端的接收情况（丢包比例、累计丢包、抖动）及对端上次 SR 的回传时间，
+    // 同时更新本端方向的质量统计
+    private int writeReport(byte[] buf, CapturePipeline pipeline) {
+        long now = System.currentTimeMillis();
+        boolean withReport = sequenceTracker.isInitialized();
+        int len = RtcpPacket.writeSenderReport(buf, 0, pipeline.getSsrc(), now, pipeline.getTimestamp(),
+                sentPackets, sentOctets, withReport);
+
+        if (withReport) {
+            int fractionLost = sequenceTracker.nextFractionLost();
+            double jitterUnits = jitterBuffer.getJitterTimestampUnits();
+            long dlsr = lastSrNtp != 0 ? RtcpPacket.toNtpShort(now - lastSrArrival) : 0;
+            RtcpPacket.writeReportBlock(buf, RtcpPacket.getReportBlockOffset(buf, 0, len), packetReceiver.getRemoteSsrc(),
+                    fractionLost, sequenceTracker.getLost(), sequenceTracker.getExtendedHighest(),
+                    (long) jitterUnits, lastSrNtp, dlsr);
+
+            qualityMonitor.updateLocal(fractionLost / 256.0, jitterBuffer.getJitterMs(), jitterBuffer.getDepthMs());
+        }
+        return len;
+    }
+
+    // 处理对端发来的 SR/RR：记录 SR 时间用于回传，按报告块计算 RTT、更新对端方向质量并调整冗余等级
+    private void handleRtcp(byte[] buf, int len) {
+        long now = System.currentTimeMillis();
+        if (RtcpPacket.isSenderReport(buf, 0, len)) {
+            lastSrNtp = RtcpPacket.getSenderNtpMiddle(buf, 0);
+            lastSrArrival = now;
+        }
+
+        int block = RtcpPacket.getReportBlockOffset(buf, 0, len);
+        if (block < 0 || RtcpPacket.getReportSourceSsrc(buf, block) != localMedia.getSsrc()) return;
+        receiverReports++;
+
+        long lsr = RtcpPacket.getReportLsr(buf, block);
+        if (lsr != 0) {
+            long rtt = (RtcpPacket.ntpMiddle(now) - lsr - RtcpPacket.getReportDlsr(buf, block)) & 0xFFFFFFFFL;
+            // 两端时钟无关：回绕或异常大的值说明报告已过期，忽略
+            if (rtt < RtcpPacket.toNtpShort(10_000)) {
+                qualityMonitor.updateRtt(RtcpPacket.fromNtpShort(rtt));
             }
         }
+
+        double fractionLost = RtcpPacket.getReportFractionLost(buf, block) / 256.0;
+        double jitterMs = RtcpPacket.getReportJitter(buf, block) * 1000.0 / wireRate;
+        qualityMonitor.updateRemote(fractionLost, jitterMs, RtcpPacket.getReportCumulativeLost(buf, block));
+
+        if (!redEnabled) return;
+
+        int before = redundancyPolicy.getLevel();
+        int after = redundancyPolicy.onReport(fractionLost);
+        if (after != before) {
+            System.out.printf("对端丢包 %.1f%%，冗余等级 %d -> %d%n",
+                    redundancyPolicy.getLastFractionLost() * 100, before, after);
+        }
     }
 
     // ==========================================================
@@ -193,6 +708,18 @@ public class AudioController {
 //        }
 //    }
     public boolean startRecording() {
+        return startRecording(null);
+    }
+
+    /**
+     * 开始录制流式音频消息（边录边发）：录音同时逐帧编码发往 remoteIP，对方边收边播；
+     * 录音照常保存到本地文件，发送失败时可再用 sendAudioMessage 重发
+     */
+    public boolean startStreamingMessage(String remoteIP) {
+        return startRecording(remoteIP);
+    }
+
+    private boolean startRecording(String streamTo) {
         if (isRecording) {
             System.err.println("已经在录音中");
             return false;
@@ -208,26 +735,38 @@ public class AudioController {
             isRecording = true;
 
             AudioFormat format = audioModel.getAudioFormat();
-            DataLine.Info info = new DataLine.Info(TargetDataLine.class, format);
-
-            recordingLine = (TargetDataLine) AudioSystem.getLine(info);
-            recordingLine.open(format);
-            recordingLine.start();
+            recordingSource = AudioDevices.createSource(audioModel.getCaptureDevice());
+            recordingSource.open(format);
 
             System.out.println("麦克风已连接，开始录音...");
 
             // 临时文件
             currentRecordingFile = File.createTempFile("audio_message_", ".wav");
 
-            recordingStream = new AudioInputStream(recordingLine);
+            InputStream input = AudioDevices.asInputStream(recordingSource);
+            if (streamTo != null) {
+                String codec = audioModel.getMessageCodec();
+                StreamingTee tee = new StreamingTee(input, Codecs.create(codec),
+                        (int) format.getSampleRate() * STREAM_FRAME_MS / 1000, STREAM_QUEUE_FRAMES);
+                input = tee;
+                AudioMessageProtocol.Header header = AudioMessageProtocol.Header.stream(
+                        currentRecordingFile.getName(), codec, (int) format.getSampleRate());
+                streamingMessageFailed = false;
+                new Thread(() -> sendStreamingMessage(streamTo, header, tee), "AudioMessageStreamer").start();
+            }
+            AudioInputStream stream = new AudioInputStream(input, format, AudioSystem.NOT_SPECIFIED);
+            recordingStream = stream;
 
             // 异步写入文件
             new Thread(() -> {
                 try {
-                    AudioSystem.write(recordingStream, AudioFileFormat.Type.WAVE, currentRecordingFile);
+                    AudioSystem.write(stream, AudioFileFormat.Type.WAVE, currentRecordingFile);
                     System.out.println("录音文件已保存: " + currentRecordingFile.getAbsolutePath());
                 } catch (Exception e) {
                     System.err.println("保存录音文件失败: " + e.getMessage());
+                } finally {
+                    // 流式消息：关闭时发出结束标记
+                    try { stream.close(); } catch (IOException ignored) {}
                 }
             }, "AudioRecordingWriter").start();
 
@@ -244,14 +783,13 @@ public class AudioController {
     // 停止录音
     // ==========================================================
     public File stopRecording() {
-        if (!isRecording || recordingLine == null) return null;
+        if (!isRecording || recordingSource == null) return null;
 
         isRecording = false;
 
         try {
-            recordingLine.stop();
-            recordingLine.close();
-            recordingLine = null;
+            recordingSource.close();
+            recordingSource = null;
 
             Thread.sleep(100);
 
@@ -270,74 +808,309 @@ public class AudioController {
         return isRecording;
     }
 
+    /**
+     * 打开播放设备，边收边播流式音频消息；通话中或设备不可用时返回 null（只保存不播放）
+     */
+    public AudioSink openMessagePlayback(AudioFormat format) {
+        if (isStreaming) return null;
+        AudioSink sink = AudioDevices.createSink(audioModel.getPlaybackDevice());
+        try {
+            sink.open(format, (int) format.getFrameRate() * format.getFrameSize() * MESSAGE_PLAYBACK_BUFFER_MS / 1000);
+            return sink;
+        } catch (IOException e) {
+            System.err.println("无法播放音频消息: " + e.getMessage());
+            return null;
+        }
+    }
+
     public File getRecordedFile() {
         return currentRecordingFile;
     }
 
 
-    // 发送音频文件消息（TCP，端口 = tcpPort + 101，即 8182）
+    // 发送音频文件消息（TCP，端口 = tcpPort + 101，即 8182）；格式见 AudioMessageProtocol
     public void sendAudioMessage(String remoteIP, File audioFile) {
         new Thread(() -> {
 
-            Socket socket = null;
-            FileInputStream fis = null;
+            File sendFile = audioFile;
 
             try {
+                // ADPCM 模式：先把 PCM 录音转为 IMA ADPCM WAV（约 1/4 大小）再发送
+                if (ImaAdpcmCodec.NAME.equals(audioModel.getMessageCodec())) {
+                    sendFile = File.createTempFile("audio_message_adpcm_", ".wav");
+                    ImaAdpcmWav.encode(audioFile, sendFile);
+                    System.out.println("音频消息已压缩: " + audioFile.length() + " -> " + sendFile.length() + " 字节");
+                }
+
                 int msgPort = audioModel.getTcpPort() + 101; // 8081 + 101 = 8182
 
-                socket = new Socket(remoteIP, msgPort);
-                socket.setSoTimeout(30000);
+                try (FileChannel file = FileChannel.open(sendFile.toPath(), StandardOpenOption.READ)) {
+                    long size = file.size();
+                    int checksum = AudioMessageProtocol.checksum(file, size);
+                    AudioMessageProtocol.Header header = messageHeader(audioFile, sendFile != audioFile, size,
+                            AudioMessageProtocol.contentId(checksum, size));
+
+                    // 连接中断等失败时重试，对端保留已收到的部分，重试只发送其余内容
+                    for (int attempt = 1; ; attempt++) {
+                        try {
+                            transferAudioMessage(remoteIP, msgPort, file, header, checksum);
+                            break;
+                        } catch (IOException e) {
+                            if (attempt >= MESSAGE_SEND_ATTEMPTS) throw e;
+                            System.err.println("发送音频消息失败（第 " + attempt + " 次）: " + e.getMessage()
+                                    + "，" + MESSAGE_RETRY_DELAY_MS / 1000 + " 秒后重试");
+                            Thread.sleep(MESSAGE_RETRY_DELAY_MS);
+                        }
+                    }
+                }
 
-                OutputStream rawOut = socket.getOutputStream();
-                PrintWriter writer = new PrintWriter(new OutputStreamWriter(rawOut, "UTF-8"), true);
+            } catch (Exception e) {
+                System.err.println("发送音频消息失败: " + e.getMessage());
+            } finally {
+                if (sendFile != audioFile) sendFile.delete();
+            }
 
-                // 发送头信息
-                writer.println(audioFile.getName());
-                writer.println(audioFile.length());
-                writer.flush();
+        }, "AudioMessageSender").start();
+    }
 
-                // 发送二进制文件内容
-                fis = new FileInputStream(audioFile);
+    // 一次连接：发送头部，从对端已持有的位置起发送其余内容与校验和，等待对端存入收件目录
+    private void transferAudioMessage(String remoteIP, int port, FileChannel file, AudioMessageProtocol.Header header,
+                                      int checksum) throws IOException, InterruptedException {
+        try (SocketChannel channel = SocketChannel.open()) {
+            channel.socket().connect(new InetSocketAddress(remoteIP, port), 8000);
+            channel.socket().setSoTimeout(30000);
+
+            ByteBuffer head = header.encode();
+            while (head.hasRemaining()) channel.write(head);
+
+            DataInputStream in = new DataInputStream(channel.socket().getInputStream());
+            long size = header.getLength();
+            long offset = in.readLong();
+            if (offset < 0 || offset > size) throw new IOException("对端续传位置无效: " + offset);
+            if (offset > 0) System.out.println("音频消息续传: 对端已有 " + offset + "/" + size + " 字节");
+
+            // 发送文件内容：由内核直接从文件写入 socket（sendfile），不经用户态缓冲
+            long start = System.nanoTime();
+            transferPaced(file, offset, size, channel, audioModel.getMessageRateLimitKBps() * 1024L);
+            ByteBuffer trailer = ByteBuffer.allocate(AudioMessageProtocol.TRAILER_SIZE).putInt(checksum);
+            trailer.flip();
+            while (trailer.hasRemaining()) channel.write(trailer);
+
+            // 等待对端校验并存入收件目录
+            int status = in.read();
+            if (status != AudioMessageProtocol.STATUS_OK) {
+                throw new IOException("对端" + (status < 0 ? "未确认" : AudioMessageProtocol.statusText(status)));
+            }
+            long sent = size - offset;
+            long ms = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+            System.out.println("音频消息发送完成: " + sent + " 字节, " + ms + " ms ("
+                    + sent * 1000 / 1024 / ms + " KB/s)");
+        }
+    }
 
-                byte[] buf = new byte[4096];
-                int len;
+    // 流式消息的发送线程：连接对端、发送头部，逐帧发送直到结束标记，最后发送校验和并等待对端确认。
+    // 失败（含发送队列溢出）时停止分流并标记失败，不发结束标记，对端丢弃已收部分
+    private void sendStreamingMessage(String remoteIP, AudioMessageProtocol.Header header, StreamingTee tee) {
+        int msgPort = audioModel.getTcpPort() + 101; // 8081 + 101 = 8182
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(remoteIP, msgPort), 8000);
+            socket.setSoTimeout(30000);
+            socket.setTcpNoDelay(true);  // 每帧立即发出，对端才能边收边播
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+            ByteBuffer head = header.encode();
+            out.write(head.array(), 0, head.limit());
+            out.flush();
+            System.out.println("流式音频消息开始发送: " + remoteIP);
+
+            CRC32C crc = new CRC32C();
+            long bytes = 0;
+            while (true) {
+                byte[] frame = tee.next();
+                if (frame == null) throw new IOException("网络发送跟不上录音，积压超过 " + STREAM_QUEUE_FRAMES + " 帧");
+                out.writeShort(frame.length);
+                if (frame.length == 0) break;
+                out.write(frame);
+                crc.update(frame);
+                bytes += frame.length;
+                // 队列中没有积压时立即发出，有积压（网络卡顿后）时攒批发送
+                if (!tee.hasPending()) out.flush();
+            }
+            out.writeInt((int) crc.getValue());
+            out.flush();
 
-                while ((len = fis.read(buf)) != -1) {
-                    rawOut.write(buf, 0, len);
-                    rawOut.flush();
-                    Thread.sleep((10));
-                }
+            int status = socket.getInputStream().read();
+            if (status != AudioMessageProtocol.STATUS_OK) {
+                throw new IOException("对端" + (status < 0 ? "未确认" : AudioMessageProtocol.statusText(status)));
+            }
+            System.out.println("流式音频消息发送完成: " + bytes + " 字节");
+        } catch (Exception e) {
+            tee.stop();
+            streamingMessageFailed = true;
+            System.err.println("流式发送音频消息失败: " + e.getMessage() + "，录音已保存，可稍后重发");
+        }
+    }
 
-                rawOut.flush();
+    /** 最近一条流式消息是否已确定发送失败（录音仍会保存，可用 sendAudioMessage 重发） */
+    public boolean isStreamingMessageFailed() {
+        return streamingMessageFailed;
+    }
 
-                System.out.println("音频消息发送完成");
+    /**
+     * 流式消息的录音分流：录音写入本地文件的同时，按帧编码放入发送队列；录音结束时放入空帧作为结束标记。
+     * 由录音写入线程读取，队列由发送线程消费，网络卡顿不会阻塞录音。
+     * 队列有上限：积压满时停止分流（只影响发送，录音照常写入文件），发送线程随即结束
+     */
+    private static final class StreamingTee extends FilterInputStream {
+        // 停止分流后放入队列，唤醒等待中的发送线程
+        private static final byte[] STOPPED = new byte[0];
+
+        private final AudioCodec encoder;
+        private final BlockingQueue<byte[]> frames;
+        private final byte[] frame;     // 未满一帧的 PCM（16bit 大端）
+        private final short[] pcm;
+        private final byte[] encoded;
+        private int filled = 0;
+        private boolean ended = false;
+        private volatile boolean stopped = false;
+
+        StreamingTee(InputStream in, AudioCodec encoder, int frameSamples, int maxFrames) {
+            super(in);
+            this.encoder = encoder;
+            frames = new ArrayBlockingQueue<>(maxFrames + 1);
+            frame = new byte[frameSamples * 2];
+            pcm = new short[frameSamples];
+            encoded = new byte[encoder.getEncodedSize(frameSamples)];
+        }
 
-            } catch (Exception e) {
-                System.err.println("发送音频消息失败: " + e.getMessage());
-            } finally {
-                try { if (fis != null) fis.close(); } catch (Exception ignored) {}
-                try { if (socket != null) socket.close(); } catch (Exception ignored) {}
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n < 0) {
+                finish();
+                return -1;
             }
+            for (int i = 0; i < n; ) {
+                int k = Math.min(n - i, frame.length - filled);
+                System.arraycopy(b, off + i, frame, filled, k);
+                filled += k;
+                i += k;
+                if (filled == frame.length) emit();
+            }
+            return n;
+        }
 
-        }, "AudioMessageSender").start();
+        @Override
+        public void close() throws IOException {
+            finish();
+            super.close();
+        }
+
+        /**
+         * 发送线程取下一帧（阻塞），空帧为结束标记；分流已停止时返回 null
+         */
+        byte[] next() throws InterruptedException {
+            byte[] next = frames.take();
+            return next == STOPPED ? null : next;
+        }
+
+        boolean hasPending() {
+            return !frames.isEmpty();
+        }
+
+        /**
+         * 停止分流并丢弃积压的帧（发送失败或队列溢出），之后的录音只写入文件
+         */
+        void stop() {
+            stopped = true;
+            frames.clear();
+            frames.offer(STOPPED);
+        }
+
+        private void emit() {
+            int samples = filled / 2;
+            filled = 0;
+            if (stopped) return;
+            for (int i = 0; i < samples; i++) {
+                pcm[i] = (short) ((frame[2 * i] << 8) | (frame[2 * i + 1] & 0xFF));
+            }
+            int len = encoder.encode(pcm, 0, samples, encoded, 0);
+            enqueue(Arrays.copyOf(encoded, len));
+        }
+
+        // 队列留有一个空位给 STOPPED，积压达到上限即停止
+        private void enqueue(byte[] data) {
+            if (frames.remainingCapacity() <= 1 || !frames.offer(data)) stop();
+        }
+
+        // 录音结束：发出不足一帧的剩余部分和结束标记（只发一次）
+        private void finish() {
+            if (ended) return;
+            ended = true;
+            if (stopped) return;
+            if (filled >= 2) emit();
+            enqueue(new byte[0]);
+        }
+    }
+
+    // 音频消息头：编码、采样率、时长取自录音（PCM WAV），无法解析时填 0
+    private AudioMessageProtocol.Header messageHeader(File recording, boolean adpcm, long size, long contentId) {
+        int sampleRate = 0;
+        int durationMs = 0;
+        try {
+            AudioFileFormat format = AudioSystem.getAudioFileFormat(recording);
+            sampleRate = (int) format.getFormat().getSampleRate();
+            if (format.getFrameLength() > 0 && sampleRate > 0) {
+                durationMs = (int) (format.getFrameLength() * 1000L / sampleRate);
+            }
+        } catch (Exception e) {
+            System.err.println("无法读取音频消息格式: " + e.getMessage());
+        }
+        return new AudioMessageProtocol.Header(recording.getName(), adpcm ? ImaAdpcmCodec.NAME : L16Codec.NAME,
+                sampleRate, durationMs, size, contentId);
+    }
+
+    /**
+     * 把文件的 [position, size) 写入 socket；bytesPerSecond > 0 时按该速率限速：
+     * 每次传送约 50ms 的配额，发送超前于速率时等待，不超前则不等待
+     */
+    static void transferPaced(FileChannel file, long position, long size, WritableByteChannel out, long bytesPerSecond)
+            throws IOException, InterruptedException {
+        long chunk = bytesPerSecond > 0 ? Math.max(4096, bytesPerSecond / 20) : size;
+        long from = position;
+        long start = System.nanoTime();
+        while (position < size) {
+            long n = file.transferTo(position, Math.min(chunk, size - position), out);
+            if (n <= 0) throw new EOFException("文件在发送过程中被截断: " + position + "/" + size);
+            position += n;
+            if (bytesPerSecond > 0) {
+                long ahead = (position - from) * 1_000_000_000L / bytesPerSecond - (System.nanoTime() - start);
+                if (ahead > 0) TimeUnit.NANOSECONDS.sleep(ahead);
+            }
+        }
     }
     public boolean isMicrophoneAvailable() {
         if (isMicrophoneAvailable)      //增加变量判断
             return true;
         try {
             AudioFormat format = audioModel.getAudioFormat();
-            DataLine.Info info = new DataLine.Info(TargetDataLine.class, format);
+            AudioSource source = AudioDevices.createSource(audioModel.getCaptureDevice());
 
-            // 检查系统是否有可用的麦克风
-            if (!AudioSystem.isLineSupported(info)) {
+            // 检查采集设备是否支持当前格式
+            if (!source.isFormatSupported(format)) {
                 System.err.println("麦克风不支持当前音频格式");
                 return false;
             }
 
-            // 尝试打开麦克风线路
-            TargetDataLine line = (TargetDataLine) AudioSystem.getLine(info);
-            line.open(format);
-            line.close();
+            // 尝试打开采集设备
+            source.open(format);
+            source.close();
             isMicrophoneAvailable = true;
             return true;
 
@@ -421,59 +1194,74 @@ public class AudioController {
     }
 
 
-    // 实时音频接收方法，添加音频检测
+    // 实时音频接收方法：语音包连同到达时刻写入收包环（见 MediaLoops.Receive），RTCP 在此处理；
+    // 对端的第一个有效包到达后锁定其来源地址（对称 RTP，兼容 NAT；旧版本对端不锁定），稳态下每包不分配对象
     private void receiveAudio() {
-        SourceDataLine line = null;
+        MediaLoops.Receive receive = null;
 
         try {
-            AudioFormat format = audioModel.getAudioFormat();
-            DataLine.Info info = new DataLine.Info(SourceDataLine.class, format);
-            line = (SourceDataLine) AudioSystem.getLine(info);
-
-            line.open(format);
-            line.start();
+            PacketReceiver receiver = packetReceiver;
+            MediaTransport channel = transport;
+            receive = new MediaLoops.Receive(receiver, packetRing, channel);
 
-            byte[] buf = new byte[1024];
-            DatagramSocket udp = new DatagramSocket(9091);
-            DatagramPacket packet = new DatagramPacket(buf, buf.length);
             while (isStreaming && !Thread.currentThread().isInterrupted()) {
-                //DatagramSocket udp = networkModel.getUdpSocket();
-
-                if (udp == null || udp.isClosed()) {
-                    Thread.sleep(10);
+                int result = receive.receive();
+                if (result == PacketReceiver.INVALID) continue;
+                byte[] buf = receive.getPacket();
+                int len = receive.getLength();
+                if (result == PacketReceiver.RTCP) {
+                    handleRtcp(buf, len);
                     continue;
                 }
 
-                //DatagramPacket packet = new DatagramPacket(buf, buf.length);
-                udp.receive(packet);
-
-                // 检测音频数据
-                String remoteIP = packet.getAddress().getHostAddress();
-                detectAudioInPacket(packet.getData(), packet.getLength(), remoteIP);
-
-                line.write(packet.getData(), 0, packet.getLength());
+                InetSocketAddress signalled = channel.getRemoteAddress();
+                if (receive.latchPeer()) {
+                    InetSocketAddress remote = channel.getRemoteAddress();
+                    boolean nat = !remote.equals(signalled);
+                    remoteAudioIP = remote.getAddress().getHostAddress();
+                    System.out.println("音频对端地址: " + remoteAudioIP + ":" + remote.getPort()
+                            + (nat ? "（与信令地址不同，对端位于 NAT 之后）" : ""));
+                }
             }
-            udp.close();
 
         } catch (Exception e) {
-            System.err.println("音频接收错误: " + e.getMessage());
+            // 挂断时关闭通道会使阻塞的接收抛出异常，属正常退出
+            if (isStreaming) System.err.println("音频接收错误: " + e.getMessage());
         } finally {
-            if (line != null) {
-                line.stop();
-                line.close();
+            if (receive != null) receive.release();
+        }
+    }
+
+    // 实时音频播放：逐帧把收到的包放入抖动缓冲区、生成设备 PCM 写入扬声器（见 MediaLoops.Playout），
+    // 线路的阻塞写入即为播放时钟
+    private void playoutAudio() {
+        AudioSink sink = null;
+
+        try {
+            AudioFormat format = deviceFormat;
+            sink = AudioDevices.createSink(audioModel.getPlaybackDevice());
+            int minLineBytes = (int) (format.getSampleRate() * PLAYOUT_LINE_MIN_MS / 1000) * format.getFrameSize();
+            sink.open(format, Math.max(deviceFrameBytes * PLAYOUT_LINE_FRAMES, minLineBytes));
 
+            PlayoutPipeline pipeline = playoutPipeline;
+            MediaLoops.Playout playout = new MediaLoops.Playout(pipeline, packetReceiver, packetRing, jitterBuffer,
+                    format.isBigEndian());
+
+            while (isStreaming && !Thread.currentThread().isInterrupted()) {
+                if (playout.playFrame(sink) > 0 && pipeline.isSpeech()) {
+                    detectAudioInPacket(pipeline.getLevel(), remoteAudioIP);
+                }
             }
 
+        } catch (Exception e) {
+            System.err.println("音频播放错误: " + e.getMessage());
+        } finally {
+            if (sink != null) sink.close();
         }
     }
 
     // 音频检测逻辑
-    private void detectAudioInPacket(byte[] audioData, int length, String sourceIP) {
-        if (length == 0) return;
-
-        // 计算音频数据的平均音量
-        double audioLevel = calculateAudioLevel(audioData, length);
-
+    private void detectAudioInPacket(double audioLevel, String sourceIP) {
         // 设置音量阈值（根据实际情况调整）
         double threshold = 10.0;
 
@@ -500,21 +1288,6 @@ public class AudioController {
         }
     }
 
-    // 计算音频电平
-    private double calculateAudioLevel(byte[] audioData, int length) {
-        long sum = 0;
-        int sampleCount = length / 2; // 16-bit samples
-
-        for (int i = 0; i < length; i += 2) {
-            // 将两个byte组合成16-bit sample
-            int sample = (audioData[i + 1] << 8) | (audioData[i] & 0xFF);
-            sum += Math.abs(sample);
-        }
-
-        return sampleCount > 0 ? (double) sum / sampleCount : 0;
-    }
-
-
     // 重置音频检测状态
     public void resetAudioDetection() {
         isAudioDetected = false;
@@ -0,0 +1,190 @@
+package controller;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+/**
+ * 音频消息的传输格式（TCP，端口 = tcpPort + 101），发送端与接收端共用
+ *
+ * 头部（大端）: magic(4) | 版本(1) | 编码名长度(1) + 编码名(ASCII) | 采样率(4) | 时长 ms(4)
+ *             | 文件名长度(2) + 文件名(UTF-8) | 文件长度(8) | 内容标识(8，版本 2 起)
+ * 版本 2 起接收端收到头部后回复已持有的字节数(8)，发送端只发送其后的内容（断点续传）；
+ * 接收端仍在处理同一消息的上一次连接时改为回复一个字节的 STATUS_ERROR 并关闭，发送端稍后重试；
+ * 随后为文件内容，最后是覆盖整个文件的 CRC32C(4)；接收端边收边校验，
+ * 存入收件目录后回复一个字节的结果（STATUS_*），校验失败或连接中断的消息不会存入
+ *
+ * 流式消息（边录边发）的头部与上面相同，magic 为 STREAM_MAGIC，文件长度、时长、内容标识均为 0；
+ * 随后是逐帧的编码音频: 帧长(2) + 帧数据，帧长为 0 表示录音结束，之后是覆盖所有帧数据的 CRC32C(4)，
+ * 接收端同样回复一个字节的结果；接收端边收边解码，可在录音结束前开始播放
+ *
+ * 旧版本的格式为文件名、大小各一行，之后是文件内容（无校验、无回复）；
+ * magic 首字节 0x89 不会出现在 UTF-8 文件名的开头，接收端据此区分新旧格式
+ */
+public final class AudioMessageProtocol {
+
+    public static final int MAGIC = 0x89414D46;         // 0x89 'A' 'M' 'F'
+    public static final int STREAM_MAGIC = 0x89414D53;  // 0x89 'A' 'M' 'S'
+    public static final int VERSION = 2;
+    // 仍能接收的最低版本（版本 1 无内容标识，不能续传）
+    public static final int MIN_VERSION = 1;
+    public static final int OFFSET_SIZE = 8;
+    public static final int TRAILER_SIZE = 4;
+    // 流式消息的帧长字段与单帧最大长度；帧长为 0 表示录音结束
+    public static final int FRAME_LENGTH_SIZE = 2;
+    public static final int MAX_FRAME_BYTES = 0xFFFF;
+    // 头部的最大长度（含旧格式的两行文本）
+    public static final int MAX_HEADER_BYTES = 4096;
+    // 头部声明的采样率范围（录音与通话用到的 8kHz ~ 48kHz），超出范围的消息不接收
+    public static final int MIN_SAMPLE_RATE = 8000;
+    public static final int MAX_SAMPLE_RATE = 48000;
+
+    public static final int STATUS_OK = 0;
+    public static final int STATUS_BAD_CHECKSUM = 1;
+    public static final int STATUS_ERROR = 2;
+
+    // 计算文件校验和时每次映射的长度
+    private static final long CHECKSUM_WINDOW = 16 * 1024 * 1024;
+
+    private AudioMessageProtocol() {}
+
+    /**
+     * 缓冲区（读模式）中的数据是否为二进制格式；至少需要一个字节
+     */
+    public static boolean isBinary(ByteBuffer buf) {
+        return buf.get(buf.position()) == (byte) (MAGIC >>> 24);
+    }
+
+    public static String statusText(int status) {
+        switch (status) {
+            case STATUS_OK: return "成功";
+            case STATUS_BAD_CHECKSUM: return "校验失败";
+            default: return "接收失败";
+        }
+    }
+
+    /**
+     * 文件 [0, size) 的 CRC32C
+     */
+    public static int checksum(FileChannel file, long size) throws IOException {
+        CRC32C crc = new CRC32C();
+        update(crc, file, size);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * 把文件 [0, size) 累计到 crc（按窗口映射文件计算，不经 Java 堆）
+     */
+    public static void update(CRC32C crc, FileChannel file, long size) throws IOException {
+        for (long pos = 0; pos < size; pos += CHECKSUM_WINDOW) {
+            crc.update(file.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(CHECKSUM_WINDOW, size - pos)));
+        }
+    }
+
+    /**
+     * 内容标识：由文件的 CRC32C 与长度组成，同一文件重发时不变，接收端据此找到上次未收完的部分
+     */
+    public static long contentId(int checksum, long length) {
+        return ((long) checksum << 32) ^ length;
+    }
+
+    /**
+     * 消息头：文件名、编码、采样率、时长、文件长度与内容标识（0 表示不能续传）；流式消息只有前三项
+     */
+    public static final class Header {
+        private final String fileName;
+        private final String codec;
+        private final int sampleRate;
+        private final int durationMs;
+        private final long length;
+        private final long contentId;
+        private final boolean streaming;
+
+        public Header(String fileName, String codec, int sampleRate, int durationMs, long length, long contentId) {
+            this(fileName, codec, sampleRate, durationMs, length, contentId, false);
+        }
+
+        private Header(String fileName, String codec, int sampleRate, int durationMs, long length, long contentId,
+                       boolean streaming) {
+            this.fileName = fileName;
+            this.codec = codec;
+            this.sampleRate = sampleRate;
+            this.durationMs = durationMs;
+            this.length = length;
+            this.contentId = contentId;
+            this.streaming = streaming;
+        }
+
+        /** 流式消息的头部 */
+        public static Header stream(String fileName, String codec, int sampleRate) {
+            return new Header(fileName, codec, sampleRate, 0, 0, 0, true);
+        }
+
+        public String getFileName() { return fileName; }
+        public String getCodec() { return codec; }
+        public int getSampleRate() { return sampleRate; }
+        public int getDurationMs() { return durationMs; }
+        public long getLength() { return length; }
+        public long getContentId() { return contentId; }
+        public boolean isResumable() { return contentId != 0; }
+        public boolean isStreaming() { return streaming; }
+
+        /**
+         * 编码为头部字节（读模式）
+         */
+        public ByteBuffer encode() {
+            byte[] codecBytes = codec.getBytes(StandardCharsets.US_ASCII);
+            byte[] nameBytes = fileName.getBytes(StandardCharsets.UTF_8);
+            if (codecBytes.length > 0xFF || nameBytes.length > 0xFFFF) {
+                throw new IllegalArgumentException("编码名或文件名过长");
+            }
+            ByteBuffer buf = ByteBuffer.allocate(4 + 1 + 1 + codecBytes.length + 4 + 4 + 2 + nameBytes.length + 8 + 8);
+            buf.putInt(streaming ? STREAM_MAGIC : MAGIC).put((byte) VERSION);
+            buf.put((byte) codecBytes.length).put(codecBytes);
+            buf.putInt(sampleRate).putInt(durationMs);
+            buf.putShort((short) nameBytes.length).put(nameBytes);
+            buf.putLong(length).putLong(contentId);
+            buf.flip();
+            return buf;
+        }
+
+        /**
+         * 从缓冲区（读模式）解析头部；数据不足时返回 null 且不移动 position，需要补充数据后重试
+         * @throws IOException magic、版本、采样率或长度无效
+         */
+        public static Header decode(ByteBuffer buf) throws IOException {
+            int start = buf.position();
+            if (buf.remaining() < 6) return null;
+            int magic = buf.getInt(start);
+            if (magic != MAGIC && magic != STREAM_MAGIC) throw new IOException("不是音频消息头");
+            int version = buf.get(start + 4) & 0xFF;
+            if (version < MIN_VERSION || version > VERSION) throw new IOException("不支持的音频消息版本: " + version);
+
+            int codecLength = buf.get(start + 5) & 0xFF;
+            if (buf.remaining() < 6 + codecLength + 10) return null;
+            int nameLength = buf.getShort(start + 6 + codecLength + 8) & 0xFFFF;
+            int total = 6 + codecLength + 10 + nameLength + 8 + (version >= 2 ? 8 : 0);
+            if (buf.remaining() < total) return null;
+
+            byte[] codecBytes = new byte[codecLength];
+            byte[] nameBytes = new byte[nameLength];
+            buf.position(start + 6);
+            buf.get(codecBytes);
+            int sampleRate = buf.getInt();
+            int durationMs = buf.getInt();
+            buf.getShort();
+            buf.get(nameBytes);
+            long length = buf.getLong();
+            long contentId = version >= 2 ? buf.getLong() : 0;
+            if (length < 0) throw new IOException("文件长度无效: " + length);
+            if (sampleRate < MIN_SAMPLE_RATE || sampleRate > MAX_SAMPLE_RATE) {
+                throw new IOException("采样率无效: " + sampleRate);
+            }
+            return new Header(new String(nameBytes, StandardCharsets.UTF_8),
+                    new String(codecBytes, StandardCharsets.US_ASCII), sampleRate, durationMs, length, contentId,
+                    magic == STREAM_MAGIC);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package controller;
 
+import media.QualityMonitor;
 import model.*;
 import view.*;
 import util.*;
@@ -7,7 +8,6 @@ import util.*;
 import javax.swing.*;
 import java.awt.*;
 import java.io.*;
-import java.net.DatagramSocket;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
@@ -15,7 +15,7 @@ import java.net.SocketTimeoutException;
 /**
  * 完整版 CallController - 增加聊天功能
  */
-public class CallController implements ChatController.ChatRequestCallback {
+public class CallController implements ChatController.ChatRequestCallback, ServerController.CallHandler {
 
     private final CallModel callModel;
     private final NetworkModel networkModel;
@@ -62,7 +62,7 @@ public class CallController implements ChatController.ChatRequestCallback {
 
         // 初始化服务器并注册自己
         this.serverController = new ServerController(networkModel, callModel, audioController);
-        this.serverController.setCallController(this);
+        this.serverController.setCallHandler(this);
 
         // 设置音频检测监听器
         setupAudioDetection();
@@ -169,7 +169,20 @@ public class CallController implements ChatController.ChatRequestCallback {
         // 录音按钮
         mainView.addRecordButtonListener(e -> {
             if (!audioController.isRecording()) {
-                if (audioController.startRecording()) {
+                boolean started;
+                if (mainView.isStreamingMessage()) {
+                    // 边录边发：开始录音时即连接对方
+                    String ip = mainView.getRemoteIP();
+                    if (ip == null || ip.trim().isEmpty()) {
+                        mainView.showError("请输入对方的 IP 地址");
+                        return;
+                    }
+                    callModel.setRemoteIP(ip.trim());
+                    started = audioController.startStreamingMessage(ip.trim());
+                } else {
+                    started = audioController.startRecording();
+                }
+                if (started) {
                     mainView.setRecordingState(true, false);
                 } else {
                     mainView.showError("无法开始录音");
@@ -178,7 +191,13 @@ public class CallController implements ChatController.ChatRequestCallback {
                 File f = audioController.stopRecording();
                 mainView.setRecordingState(false, f != null);
 
-                if (f != null) {
+                if (f != null && mainView.isStreamingMessage() && audioController.isStreamingMessageFailed()) {
+                    // 边录边发中途失败（连接不上或网络跟不上录音），录音已完整保存
+                    mainView.setRecordingStatus("边录边发失败，请点击发送重发录音", Color.RED);
+                } else if (f != null && mainView.isStreamingMessage()) {
+                    // 录音已随录随发；对方未收到时仍可点击发送重发
+                    mainView.setRecordingStatus("已边录边发，对方未收到可点击发送重发", new Color(0, 100, 200));
+                } else if (f != null) {
                     mainView.showInfo("录音已保存: " + f.getName());
                 }
             }
@@ -418,22 +437,17 @@ public class CallController implements ChatController.ChatRequestCallback {
 
                 socket.setSoTimeout(20000);
 
-                PrintWriter out = new PrintWriter(
-                        new OutputStreamWriter(socket.getOutputStream(), "UTF-8"), true);
-                BufferedReader in = new BufferedReader(
-                        new InputStreamReader(socket.getInputStream(), "UTF-8"));
-
                 // 更新拨号状态
                 SwingUtilities.invokeLater(() ->
                         dialingView.setStatus("已连接，等待对方接听..."));
 
-                out.println("DIAL_REQUEST");
-                out.flush();
+                MediaDescription localMedia = audioController.createOffer();
+                localMedia.setPort(callModel.getUdpPort());
+                callModel.setLocalMedia(localMedia);
 
-                String resp = in.readLine();
-                System.out.println("收到对方响应: " + resp);
+                CallSignaling.DialResult result = CallSignaling.dial(socket, localMedia);
 
-                if (resp == null) {
+                if (result.getResponse() == null) {
                     SwingUtilities.invokeLater(() -> {
                         mainView.showInfo("对方无响应或已关闭连接");
                         cardLayout.show(mainPanel, "MAIN");
@@ -441,7 +455,8 @@ public class CallController implements ChatController.ChatRequestCallback {
                     return;
                 }
 
-                if (resp.trim().equals("DIAL_ACCEPT")) {
+                if (result.isAccepted()) {
+                    callModel.setRemoteMedia(result.getRemoteMedia());
                     networkModel.setTcpSocket(socket);
 
                     // 设置TCP socket超时
@@ -456,14 +471,14 @@ public class CallController implements ChatController.ChatRequestCallback {
                     // 建立UDP连接并启动音频
                     setupAudioConnection();
 
-                } else if (resp.trim().equals("DIAL_REJECT")) {
+                } else if (result.isRejected()) {
                     SwingUtilities.invokeLater(() -> {
                         mainView.showInfo("对方拒绝了通话");
                         cardLayout.show(mainPanel, "MAIN");
                     });
                 } else {
                     SwingUtilities.invokeLater(() -> {
-                        mainView.showInfo("收到未知响应: " + resp);
+                        mainView.showInfo("收到未知响应: " + result.getResponse());
                         cardLayout.show(mainPanel, "MAIN");
                     });
                 }
@@ -492,18 +507,17 @@ public class CallController implements ChatController.ChatRequestCallback {
             audioController.resetAudioDetection();
             callView.resetAudioStatus();
             callView.resetCallEndStatus();
+            callView.resetCallQuality();
             callView.clearMessages();
 
-            // 建立UDP套接字
-            DatagramSocket udp = new DatagramSocket();
-            networkModel.setUdpSocket(udp);
             callModel.setCalling(true);
 
             // 启动TCP监听线程
             startTcpListenerThread();
 
             // 启动音频流
-            audioController.startAudioStreaming(callModel.getRemoteIP(), callModel.getUdpPort());
+            audioController.startAudioStreaming(callModel.getRemoteIP(), callModel.getUdpPort(),
+                    callModel.getLocalMedia(), callModel.getRemoteMedia());
 
             // 启动音频检测定时器
             if (audioDetectionTimer != null) {
@@ -626,18 +640,8 @@ public class CallController implements ChatController.ChatRequestCallback {
             return; // 已经发送过或接收过结束信令
         }
 
-        try {
-            Socket tcpSocket = networkModel.getTcpSocket();
-            if (tcpSocket != null && !tcpSocket.isClosed()) {
-                PrintWriter out = new PrintWriter(
-                        new OutputStreamWriter(tcpSocket.getOutputStream(), "UTF-8"), true);
-                out.println("CALL_END");
-                out.flush();
-                System.out.println("已发送CALL_END信号");
-                isHangupNotified = true;
-            }
-        } catch (Exception e) {
-            System.err.println("发送CALL_END信号失败: " + e.getMessage());
+        if (CallSignaling.sendCallEnd(networkModel.getTcpSocket())) {
+            isHangupNotified = true;
         }
     }
 
@@ -666,13 +670,6 @@ public class CallController implements ChatController.ChatRequestCallback {
         // 重置音频检测状态
         audioController.resetAudioDetection();
 
-        try {
-            DatagramSocket udp = networkModel.getUdpSocket();
-            if (udp != null && !udp.isClosed()) {
-                udp.close();
-            }
-        } catch (Exception ignored) {}
-
         try {
             Socket s = networkModel.getTcpSocket();
             if (s != null && !s.isClosed()) {
@@ -681,12 +678,18 @@ public class CallController implements ChatController.ChatRequestCallback {
         } catch (Exception ignored) {}
 
         networkModel.setTcpSocket(null);
-        networkModel.setUdpSocket(null);
 
+        String streamStats = audioController.getStreamStatsText();
+        QualityMonitor quality = audioController.getQualityMonitor();
+        String qualitySummary = quality != null ? quality.getSummaryText() : null;
         audioController.stopAudio();
 
         SwingUtilities.invokeLater(() -> {
             callView.resetAudioStatus();
+            callView.appendMessage("系统", "通话统计: " + streamStats);
+            if (qualitySummary != null) {
+                callView.appendMessage("系统", "通话质量: " + qualitySummary);
+            }
             callView.appendMessage("系统", "通话结束");
             mainView.showInfo("通话已结束");
             cardLayout.show(mainPanel, "MAIN");
@@ -704,13 +707,20 @@ public class CallController implements ChatController.ChatRequestCallback {
             return;
         }
 
-        // 这里可以添加持续的音频状态监测逻辑
-        // 例如：检查当前说话者、音量等级等
+        // 刷新通话质量（本端/对端丢包、抖动、RTT、MOS）
+        QualityMonitor quality = audioController.getQualityMonitor();
+        if (quality != null) {
+            double mos = quality.getLocalMos();
+            double remoteMos = quality.getRemoteMos();
+            callView.updateCallQuality(quality.getStatsText(),
+                    remoteMos >= 0 && (mos < 0 || remoteMos < mos) ? remoteMos : mos);
+        }
     }
 
     /**
      * 被动接听方进入此流程
      */
+    @Override
     public void handleIncomingCallAccepted(Socket acceptedSocket, String remoteIP) {
         // 接听前检查麦克风
         if (!audioController.isMicrophoneAvailable()) {
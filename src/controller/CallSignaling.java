@@ -0,0 +1,134 @@
+package controller;
+
+import model.MediaDescription;
+
+import java.io.*;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+
+/**
+ * 通话信令（TCP 8081，每行一条命令）的收发：主叫拨号、挂断通知，以及被叫一侧对 DIAL_REQUEST 的解析
+ * 不涉及界面，CallController、ServerController 与无界面的压测（bench.LoopbackCallBenchmark）共用
+ *
+ * 与旧版本的兼容：旧版本的被叫只认整行的 "DIAL_REQUEST"，因此主叫的媒体参数放在紧随其后的单独一行
+ * （"MEDIA ..."），旧被叫会把它当作未知信令忽略；被叫只对带媒体参数的主叫在 DIAL_ACCEPT 行中附带本端参数，
+ * 旧主叫只认整行的 "DIAL_ACCEPT"。任一方向没有媒体参数时对端为旧版本，媒体改用旧的裸 PCM（见 AudioController）
+ */
+public final class CallSignaling {
+
+    public static final String DIAL_REQUEST = "DIAL_REQUEST";
+    public static final String DIAL_ACCEPT = "DIAL_ACCEPT";
+    public static final String MEDIA = "MEDIA";
+
+    // 新版本主叫与 DIAL_REQUEST 一起发出媒体参数行，超过该时间未到说明对端为旧版本
+    private static final int MEDIA_LINE_TIMEOUT_MS = 1000;
+
+    private CallSignaling() {}
+
+    /**
+     * 拨号结果：对端的应答行
+     */
+    public static class DialResult {
+        private final String response;
+        private final String command;
+        private final MediaDescription remoteMedia;
+
+        private DialResult(String response) {
+            this.response = response;
+            if (response == null) {
+                command = null;
+                remoteMedia = null;
+                return;
+            }
+            // 新版本的应答后面附带对端媒体参数，旧版本只有命令本身
+            String[] parts = response.trim().split("\\s+", 2);
+            command = parts[0];
+            remoteMedia = DIAL_ACCEPT.equals(command) && parts.length > 1 ? MediaDescription.parse(parts[1]) : null;
+        }
+
+        /** 对端的原始应答，对端关闭连接时为 null */
+        public String getResponse() { return response; }
+
+        /** 应答命令（DIAL_ACCEPT / DIAL_REJECT / 其他），对端关闭连接时为 null */
+        public String getCommand() { return command; }
+
+        public boolean isAccepted() { return DIAL_ACCEPT.equals(command); }
+
+        public boolean isRejected() { return "DIAL_REJECT".equals(command); }
+
+        /** 对端媒体参数，仅接通时有效；对端为旧版本（未附带参数）时为 null */
+        public MediaDescription getRemoteMedia() { return remoteMedia; }
+    }
+
+    public static boolean isDialRequest(String line) {
+        return line.equals(DIAL_REQUEST) || line.startsWith(DIAL_REQUEST + " ");
+    }
+
+    /**
+     * 解析一行媒体参数（"MEDIA ..."），不是媒体参数行时返回 null
+     */
+    public static MediaDescription parseMediaLine(String line) {
+        if (!line.equals(MEDIA) && !line.startsWith(MEDIA + " ")) return null;
+        return MediaDescription.parse(line.substring(MEDIA.length()));
+    }
+
+    /**
+     * 被叫：读取 DIAL_REQUEST（request 为已读到的命令行）附带的主叫媒体参数。
+     * 新版本在下一行发送；旧版本不发送，短暂等待后返回 null。读取后恢复 socket 原有的读超时
+     */
+    public static MediaDescription readDialMedia(String request, Socket socket, BufferedReader in) throws IOException {
+        if (request.length() > DIAL_REQUEST.length()) {
+            // 同一行内带参数的早期格式
+            return MediaDescription.parse(request.substring(DIAL_REQUEST.length()));
+        }
+        int timeout = socket.getSoTimeout();
+        socket.setSoTimeout(MEDIA_LINE_TIMEOUT_MS);
+        try {
+            String line = in.readLine();
+            return line != null ? parseMediaLine(line.trim()) : null;
+        } catch (SocketTimeoutException e) {
+            return null;
+        } finally {
+            socket.setSoTimeout(timeout);
+        }
+    }
+
+    /**
+     * 在已连接的信令 socket 上发送 DIAL_REQUEST 与本端媒体参数，并阻塞等待对端应答（受 socket 读超时限制）
+     */
+    public static DialResult dial(Socket socket, MediaDescription localMedia) throws IOException {
+        PrintWriter out = new PrintWriter(
+                new OutputStreamWriter(socket.getOutputStream(), "UTF-8"), true);
+        BufferedReader in = new BufferedReader(
+                new InputStreamReader(socket.getInputStream(), "UTF-8"));
+
+        // 两行一次写出，被叫无需等待即可读到媒体参数
+        out.print(DIAL_REQUEST + "\n" + MEDIA + " " + localMedia.format() + "\n");
+        out.flush();
+
+        String resp = in.readLine();
+        System.out.println("收到对方响应: " + resp);
+        return new DialResult(resp);
+    }
+
+    /**
+     * 在通话的信令 socket 上发送 CALL_END
+     *
+     * @return 是否已发出
+     */
+    public static boolean sendCallEnd(Socket socket) {
+        try {
+            if (socket != null && !socket.isClosed()) {
+                PrintWriter out = new PrintWriter(
+                        new OutputStreamWriter(socket.getOutputStream(), "UTF-8"), true);
+                out.println("CALL_END");
+                out.flush();
+                System.out.println("已发送CALL_END信号");
+                return true;
+            }
+        } catch (Exception e) {
+            System.err.println("发送CALL_END信号失败: " + e.getMessage());
+        }
+        return false;
+    }
+}
@@ -1,13 +1,34 @@
 package controller;
 
+import media.AudioCodec;
+import media.AudioSink;
+import media.Codecs;
+import media.DirectBufferPool;
+import model.AudioModel;
 import model.CallModel;
+import model.MediaDescription;
 import model.NetworkModel;
 
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
 import javax.swing.*;
 import java.io.*;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32C;
 
 /**
  * 服务器控制器
@@ -17,26 +38,77 @@ import java.util.Date;
 public class ServerController {
 
     private ServerSocket mainServerSocket;      // 8081 用于通话信令
-    private ServerSocket audioServerSocket;     // 8182 用于音频消息
-    private boolean running = false;
-
-    private CallController callController;
+    private ServerSocketChannel audioServerSocket;  // 8182 用于音频消息
+    private volatile boolean running = false;
+    // 自动接听：不弹出来电提示（无界面运行时使用）
+    private volatile boolean autoAnswer = false;
+    // 音频消息写完后落盘（fsync）再重命名，断电也不丢已确认收到的消息；默认交给操作系统回写
+    private volatile boolean syncAudioMessages = false;
+
+    private CallHandler callHandler;
+    private volatile AudioMessageListener audioMessageListener;
+    private final AudioController audioController;
     private final NetworkModel networkModel;
     private final CallModel callModel;
+    // 正在接收的可续传消息：内容标识 → 接收连接
+    private final ConcurrentHashMap<Long, Upload> uploads = new ConcurrentHashMap<>();
 
     private static final String AUDIO_DIR = "received_audio_messages";
+    // 接收中的文件后缀：写完后原子重命名为最终文件名，收件目录中不会出现写了一半的 WAV
+    private static final String PARTIAL_SUFFIX = ".part";
+    // 暂存目录（收件目录下，与之同一文件系统才能原子重命名）：接收中与中断待续传的消息
+    private static final String STAGING_DIR = ".incoming";
+    // 中断的消息在暂存目录中保留的时间（自最后一次写入起），过期后对端只能从头重发
+    private static final long STAGING_EXPIRY_MS = 24 * 60 * 60 * 1000L;
+    // 同一消息重连续传时，等待旧连接保存已收部分的最长时间
+    private static final long TAKEOVER_TIMEOUT_MS = 5000;
+    // 边收边播流式消息：攒够这么长的音频再开始播放，吸收网络抖动
+    private static final int STREAM_PREBUFFER_MS = 200;
+    // 接收缓冲区：直接缓冲区，socket 读入后直接写入文件通道，不经 Java 堆
+    private static final int RECEIVE_BUFFER_SIZE = 1024 * 1024;
 
     public ServerController(NetworkModel networkModel, CallModel callModel, AudioController audioController) {
         this.networkModel = networkModel;
         this.callModel = callModel;
+        this.audioController = audioController;
 
         File dir = new File(AUDIO_DIR);
         if (!dir.exists()) dir.mkdirs();
     }
 
-    public void setCallController(CallController callController) {
-        this.callController = callController;
-        System.out.println("ServerController: CallController 已设置");
+    /**
+     * 接听后建立通话的一方（界面运行时为 CallController）
+     */
+    public interface CallHandler {
+        /** 已向对端回复 DIAL_ACCEPT，双方媒体参数已写入 CallModel */
+        void handleIncomingCallAccepted(Socket socket, String remoteIP);
+    }
+
+    public void setCallHandler(CallHandler callHandler) {
+        this.callHandler = callHandler;
+        System.out.println("ServerController: CallHandler 已设置");
+    }
+
+    public void setAutoAnswer(boolean autoAnswer) {
+        this.autoAnswer = autoAnswer;
+    }
+
+    public void setSyncAudioMessages(boolean syncAudioMessages) {
+        this.syncAudioMessages = syncAudioMessages;
+    }
+
+    /**
+     * 音频消息接收完成的通知（未设置时弹窗提示）
+     */
+    public interface AudioMessageListener {
+        void onAudioMessageReceived(File file, String remoteIP);
+
+        /** 开始接收流式消息（边录边发），此时对方仍在录音 */
+        default void onAudioMessageStarted(String fileName, String remoteIP) {}
+    }
+
+    public void setAudioMessageListener(AudioMessageListener audioMessageListener) {
+        this.audioMessageListener = audioMessageListener;
     }
 
     /**
@@ -54,21 +126,23 @@ public class ServerController {
             mainServerSocket = new ServerSocket(port, 50, InetAddress.getByName("0.0.0.0"));
             System.out.println("主服务器（通话）监听端口: " + port);
 
-            new Thread(this::acceptLoopCall, "CallServerThread").start();
-
             // ==============================
             // ★ 2. 启动音频消息服务器 (port + 101)
             // ==============================
             int audioPort = port + 101;  // 8081 → 8182
-            audioServerSocket = new ServerSocket(audioPort, 50, InetAddress.getByName("0.0.0.0"));
+            audioServerSocket = ServerSocketChannel.open();
+            audioServerSocket.bind(new InetSocketAddress(InetAddress.getByName("0.0.0.0"), audioPort), 50);
             System.out.println("音频消息服务器监听端口: " + audioPort);
 
-            new Thread(() -> acceptLoopAudio(audioPort), "AudioMsgServerThread").start();
-
+            // 先置 running 再启动接收线程，否则线程可能在置位前检查循环条件后直接退出
             running = true;
+            new Thread(this::acceptLoopCall, "CallServerThread").start();
+            new Thread(() -> acceptLoopAudio(audioPort), "AudioMsgServerThread").start();
             return true;
 
         } catch (IOException e) {
+            try { if (mainServerSocket != null) mainServerSocket.close(); } catch (Exception ignored) {}
+            try { if (audioServerSocket != null) audioServerSocket.close(); } catch (Exception ignored) {}
             System.err.println("服务器启动失败: " + e.getMessage());
             return false;
         }
@@ -105,8 +179,8 @@ public class ServerController {
             command = command.trim();
             System.out.println("收到信令: " + command + " 来自: " + socket.getInetAddress().getHostAddress());
 
-            if ("DIAL_REQUEST".equals(command)) {
-                handleDialRequest(socket, in);
+            if (CallSignaling.isDialRequest(command)) {
+                handleDialRequest(socket, in, CallSignaling.readDialMedia(command, socket, in));
             } else if ("CALL_END".equals(command)) {
                 // 处理通话结束信令
                 System.out.println("收到通话结束信令，关闭连接");
@@ -134,7 +208,7 @@ public class ServerController {
     /**
      * 来电处理（弹出接听框）
      */
-    private void handleDialRequest(Socket socket, BufferedReader in) {
+    private void handleDialRequest(Socket socket, BufferedReader in, MediaDescription remoteMedia) {
 
         PrintWriter out;
         try {
@@ -147,6 +221,10 @@ public class ServerController {
 
         String remoteIP = socket.getInetAddress().getHostAddress();
         callModel.setRemoteIP(remoteIP);//增加
+        if (autoAnswer) {
+            acceptCall(socket, out, remoteIP, remoteMedia);
+            return;
+        }
         SwingUtilities.invokeLater(() -> {
             int choice = JOptionPane.showConfirmDialog(
                     null,
@@ -156,22 +234,7 @@ public class ServerController {
             );
 
             if (choice == JOptionPane.YES_OPTION) {
-                try {
-                    out.println("DIAL_ACCEPT");
-                    out.flush();
-
-                    // 设置socket为不超时模式，用于长连接
-                    socket.setSoTimeout(0);
-
-                } catch (Exception e) {
-                    System.out.println("发送接听响应失败：" + e.getMessage());
-                    try { socket.close(); } catch (Exception ignored) {}
-                    return;
-                }
-
-                // 把 socket 交给 CallController
-                callController.handleIncomingCallAccepted(socket, remoteIP);
-
+                acceptCall(socket, out, remoteIP, remoteMedia);
             } else {
                 try {
                     out.println("DIAL_REJECT");
@@ -184,6 +247,35 @@ public class ServerController {
         });
     }
 
+    /**
+     * 接听：回复 DIAL_ACCEPT 与本端媒体参数，再把 socket 交给 CallHandler
+     * 主叫为旧版本（remoteMedia 为 null）时只回复命令本身，按旧版本的默认格式应答
+     */
+    private void acceptCall(Socket socket, PrintWriter out, String remoteIP, MediaDescription remoteMedia) {
+        MediaDescription localMedia = audioController.createAnswer(
+                remoteMedia != null ? remoteMedia : MediaDescription.parse(""));
+        localMedia.setPort(callModel.getUdpPort());
+        callModel.setLocalMedia(localMedia);
+        callModel.setRemoteMedia(remoteMedia);
+
+        try {
+            out.println(remoteMedia != null ? CallSignaling.DIAL_ACCEPT + " " + localMedia.format()
+                    : CallSignaling.DIAL_ACCEPT);
+            out.flush();
+
+            // 设置socket为不超时模式，用于长连接
+            socket.setSoTimeout(0);
+
+        } catch (Exception e) {
+            System.out.println("发送接听响应失败：" + e.getMessage());
+            try { socket.close(); } catch (Exception ignored) {}
+            return;
+        }
+
+        // 把 socket 交给 CallHandler
+        callHandler.handleIncomingCallAccepted(socket, remoteIP);
+    }
+
 
     /**
      * ======================================================
@@ -193,75 +285,374 @@ public class ServerController {
     private void acceptLoopAudio(int audioPort) {
         while (running) {
             try {
-                Socket client = audioServerSocket.accept();
+                SocketChannel client = audioServerSocket.accept();
                 new Thread(() -> handleAudioMessage(client)).start();
             } catch (Exception ignored) {}
         }
     }
 
     /**
-     * 纯音频消息处理，不涉及拨号逻辑
+     * 纯音频消息处理，不涉及拨号逻辑；格式见 AudioMessageProtocol
      */
-    private void handleAudioMessage(Socket socket) {
-        String remoteIP = socket.getInetAddress().getHostAddress();
+    private void handleAudioMessage(SocketChannel channel) {
+        String remoteIP = channel.socket().getInetAddress().getHostAddress();
         System.out.println("收到音频消息连接来自: " + remoteIP);
 
+        ByteBuffer buf = DirectBufferPool.acquire(RECEIVE_BUFFER_SIZE);
+        File partial = null;
+        boolean keepPartial = false;
+        boolean binary = false;
+        long contentId = 0;
+        Upload upload = null;
+        int status = AudioMessageProtocol.STATUS_ERROR;
         try {
-            InputStream is = socket.getInputStream();
-            //BufferedReader in = new BufferedReader(new InputStreamReader(is, "UTF-8"));
-            DataInputStream dis = new DataInputStream(is);
-            // ★★★ 1. 接收文件名与大小
-            String fileName = dis.readLine();
-            String sizeStr = dis.readLine();
-
-            if (fileName == null || sizeStr == null) {
-                socket.close();
-                return;
+            // ★★★ 1. 接收头信息；头信息之后已读入缓冲区的字节属于文件内容
+            buf.flip();
+            if (!fill(channel, buf)) return;
+            binary = AudioMessageProtocol.isBinary(buf);
+
+            String fileName;
+            long size;
+            AudioMessageProtocol.Header header = null;
+            if (binary) {
+                while ((header = AudioMessageProtocol.Header.decode(buf)) == null) {
+                    if (buf.remaining() >= AudioMessageProtocol.MAX_HEADER_BYTES) throw new IOException("头信息过长");
+                    if (!fill(channel, buf)) return;
+                }
+                fileName = header.getFileName();
+                size = header.getLength();
+                contentId = header.getContentId();
+                System.out.println("收到音频消息头: " + fileName + ", " + header.getCodec() + " "
+                        + header.getSampleRate() + "Hz, " + header.getDurationMs() + " ms, " + size + " 字节");
+            } else {
+                // 旧版本：文件名、大小各一行，无校验
+                fileName = readLine(channel, buf);
+                String sizeStr = readLine(channel, buf);
+                if (fileName == null || sizeStr == null) {
+                    return;
+                }
+                size = Long.parseLong(sizeStr.trim());
+                if (size < 0) throw new IOException("文件大小无效: " + size);
+                System.out.println("收到大小" + sizeStr);
             }
 
-            long size = Long.parseLong(sizeStr);
-            System.out.println("收到大小" + sizeStr);
-
-            // ★★★ 2. 保存到文件
+            // ★★★ 2. 写入暂存文件，收完（并校验通过）后原子重命名到收件目录
             File dir = new File(AUDIO_DIR);
-            if (!dir.exists()) dir.mkdirs();
+            File staging = new File(dir, STAGING_DIR);
+            if (!staging.exists()) staging.mkdirs();
+            removeExpiredUploads(staging);
 
+            // 只取文件名部分，对端不能借路径写到收件目录之外
             String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
-            File output = new File(dir, timestamp + "_" + fileName);
-
-            FileOutputStream fos = new FileOutputStream(output);
-            //InputStream is = socket.getInputStream();
-            //DataInputStream dis = new DataInputStream(is);
-            byte[] buffer = new byte[4096];
-            long total = 0;
-            int len;
-
-            // while (total < size && (len = dis.read(buffer,0,(int)Math.min(buffer.length,size - total))) != -1) {
-            while (total < size && (len = is.read(buffer)) != -1){
-                //System.out.println(len);
-                fos.write(buffer, 0, len);
-                total += len;
+            File output = new File(dir, timestamp + "_" + new File(fileName).getName());
+
+            if (header != null && header.isStreaming()) {
+                status = receiveStreamingMessage(channel, buf, header, staging, output, remoteIP);
+                if (status != AudioMessageProtocol.STATUS_OK) throw new IOException("校验失败，已丢弃");
+                return;
+            }
+
+            // 可续传的消息按内容标识暂存，回复已持有的字节数，对端只发送其后的内容
+            long offset = 0;
+            if (contentId != 0) {
+                upload = takeOver(contentId, channel);
+                partial = new File(staging, String.format("%016x", contentId) + PARTIAL_SUFFIX);
+                offset = partial.exists() ? Math.min(partial.length(), size) : 0;
+                ByteBuffer reply = ByteBuffer.allocate(AudioMessageProtocol.OFFSET_SIZE).putLong(offset);
+                reply.flip();
+                while (reply.hasRemaining()) channel.write(reply);
+                if (offset > 0) System.out.println("断点续传: 已有 " + offset + "/" + size + " 字节");
+            } else {
+                partial = new File(staging, output.getName() + PARTIAL_SUFFIX);
             }
 
-            System.out.println("实际大小 " + total);
-            fos.close();
-            socket.close();
+            CRC32C crc = binary ? new CRC32C() : null;
+            try (FileChannel file = FileChannel.open(partial.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                if (offset == 0) file.truncate(0);
+                if (crc != null) AudioMessageProtocol.update(crc, file, offset);
+                // 按声明的大小先扩展文件，写入过程中不再逐次增长
+                if (size > 0) file.write(ByteBuffer.allocate(1), size - 1);
+                long total = offset + receiveBody(channel, buf, file, offset, size, crc);
+                System.out.println("实际大小 " + total);
+                if (total < size) {
+                    if (contentId != 0) {
+                        // 截掉预先扩展的部分，文件长度即已收到的字节数，下次从这里续传
+                        file.truncate(total);
+                        keepPartial = true;
+                    }
+                    throw new EOFException("连接中断: " + total + "/" + size + " 字节"
+                            + (keepPartial ? "，已保留待续传" : ""));
+                }
+
+                if (crc != null) {
+                    if (!ensure(channel, buf, AudioMessageProtocol.TRAILER_SIZE)) {
+                        throw new EOFException("连接提前关闭: 缺少校验和");
+                    }
+                    if (buf.getInt() != (int) crc.getValue()) {
+                        status = AudioMessageProtocol.STATUS_BAD_CHECKSUM;
+                        throw new IOException("校验失败，已丢弃");
+                    }
+                }
+                if (syncAudioMessages) file.force(true);
+            }
 
-            // ★★★ 3. 弹窗通知
-            SwingUtilities.invokeLater(() -> {
-                JOptionPane.showMessageDialog(
-                        null,
-                        "收到音频消息: " + output.getName() + "\n来自: " + remoteIP,
-                        "新音频消息",
-                        JOptionPane.INFORMATION_MESSAGE
-                );
-            });
+            Files.move(partial.toPath(), output.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            partial = null;
+            if (binary) reply(channel, AudioMessageProtocol.STATUS_OK);
 
-            System.out.println("音频消息接收完成: " + output.getAbsolutePath());
+            notifyAudioMessage(output, remoteIP);
 
         } catch (Exception e) {
             System.err.println("接收音频消息失败: " + e.getMessage());
+            if (binary) reply(channel, status);
+        } finally {
+            DirectBufferPool.release(buf);
+            try { channel.close(); } catch (IOException ignored) {}
+            if (partial != null && !keepPartial) partial.delete();
+            if (upload != null) uploads.remove(contentId, upload);
+        }
+    }
+
+    /**
+     * 流式消息（边录边发）：逐帧解码，PCM 写入暂存文件，不在通话中时同时播放；
+     * 收到结束标记且校验通过后转存为 WAV 并原子重命名到收件目录。中断的流式消息不保存（发送端保留了录音，可重发）
+     *
+     * @return STATUS_OK（已存入并回复对端）或 STATUS_BAD_CHECKSUM（已丢弃，由调用方回复）
+     */
+    private int receiveStreamingMessage(SocketChannel channel, ByteBuffer buf, AudioMessageProtocol.Header header,
+                                        File staging, File output, String remoteIP) throws IOException {
+        AudioCodec decoder = Codecs.create(header.getCodec());
+        AudioFormat format = AudioModel.createPcmFormat(header.getSampleRate());
+        File pcmFile = new File(staging, output.getName() + ".pcm" + PARTIAL_SUFFIX);
+        File wavFile = new File(staging, output.getName() + PARTIAL_SUFFIX);
+
+        AudioMessageListener listener = audioMessageListener;
+        if (listener != null) listener.onAudioMessageStarted(output.getName(), remoteIP);
+        AudioSink sink = audioController.openMessagePlayback(format);
+        if (sink != null) System.out.println("边收边播: " + sink.getName());
+
+        byte[] frame = new byte[AudioMessageProtocol.MAX_FRAME_BYTES];
+        // 单帧最多解出的采样数（IMA ADPCM 每字节两个采样）
+        short[] pcm = new short[AudioMessageProtocol.MAX_FRAME_BYTES * 2];
+        byte[] pcmBytes = new byte[pcm.length * 2];
+        // 开始播放前先攒够预缓冲，吸收网络抖动
+        ByteArrayOutputStream prebuffer = new ByteArrayOutputStream();
+        int prebufferBytes = header.getSampleRate() * 2 * STREAM_PREBUFFER_MS / 1000;
+        CRC32C crc = new CRC32C();
+        long samples = 0;
+        try {
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(pcmFile))) {
+                while (true) {
+                    if (!ensure(channel, buf, AudioMessageProtocol.FRAME_LENGTH_SIZE)) {
+                        throw new EOFException("流式消息中断");
+                    }
+                    int len = buf.getShort() & 0xFFFF;
+                    if (len == 0) break;
+                    if (!ensure(channel, buf, len)) throw new EOFException("流式消息中断");
+                    buf.get(frame, 0, len);
+                    crc.update(frame, 0, len);
+
+                    int n = decoder.decode(frame, 0, len, pcm, 0);
+                    for (int i = 0; i < n; i++) {
+                        pcmBytes[2 * i] = (byte) (pcm[i] >> 8);
+                        pcmBytes[2 * i + 1] = (byte) pcm[i];
+                    }
+                    out.write(pcmBytes, 0, n * 2);
+                    if (sink != null) {
+                        if (prebuffer != null) {
+                            prebuffer.write(pcmBytes, 0, n * 2);
+                            if (prebuffer.size() >= prebufferBytes) {
+                                sink = play(sink, prebuffer.toByteArray(), prebuffer.size());
+                                prebuffer = null;
+                            }
+                        } else {
+                            sink = play(sink, pcmBytes, n * 2);
+                        }
+                    }
+                    samples += n;
+                }
+            }
+            // 放完剩余部分（含不足预缓冲的短消息）
+            if (sink != null && prebuffer != null) sink = play(sink, prebuffer.toByteArray(), prebuffer.size());
+            if (sink != null) sink.drain();
+            if (!ensure(channel, buf, AudioMessageProtocol.TRAILER_SIZE)) {
+                throw new EOFException("连接提前关闭: 缺少校验和");
+            }
+            if (buf.getInt() != (int) crc.getValue()) {
+                return AudioMessageProtocol.STATUS_BAD_CHECKSUM;
+            }
+
+            try (AudioInputStream in = new AudioInputStream(
+                    new BufferedInputStream(new FileInputStream(pcmFile)), format, samples)) {
+                AudioSystem.write(in, AudioFileFormat.Type.WAVE, wavFile);
+            }
+            if (syncAudioMessages) {
+                try (FileChannel file = FileChannel.open(wavFile.toPath(), StandardOpenOption.WRITE)) {
+                    file.force(true);
+                }
+            }
+            Files.move(wavFile.toPath(), output.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            reply(channel, AudioMessageProtocol.STATUS_OK);
+            System.out.println("流式音频消息接收完成: " + output.getAbsolutePath() + ", "
+                    + samples * 1000 / header.getSampleRate() + " ms");
+        } finally {
+            if (sink != null) sink.close();
+            pcmFile.delete();
+            wavFile.delete();
+        }
+        notifyAudioMessage(output, remoteIP);
+        return AudioMessageProtocol.STATUS_OK;
+    }
+
+    // 写入播放设备；出错时关闭设备并返回 null，之后只保存不播放
+    private static AudioSink play(AudioSink sink, byte[] pcm, int len) {
+        try {
+            sink.write(pcm, 0, len);
+            return sink;
+        } catch (IOException e) {
+            System.err.println("音频消息播放失败: " + e.getMessage());
+            sink.close();
+            return null;
+        }
+    }
+
+    // 音频消息已存入收件目录：通知监听者，未设置时弹窗
+    private void notifyAudioMessage(File output, String remoteIP) {
+        System.out.println("音频消息接收完成: " + output.getAbsolutePath());
+
+        AudioMessageListener listener = audioMessageListener;
+        if (listener != null) {
+            listener.onAudioMessageReceived(output, remoteIP);
+            return;
+        }
+        SwingUtilities.invokeLater(() -> {
+            JOptionPane.showMessageDialog(
+                    null,
+                    "收到音频消息: " + output.getName() + "\n来自: " + remoteIP,
+                    "新音频消息",
+                    JOptionPane.INFORMATION_MESSAGE
+            );
+        });
+    }
+
+    /**
+     * 一条可续传消息的接收连接
+     */
+    private static final class Upload {
+        final SocketChannel channel;
+        final Thread thread = Thread.currentThread();
+
+        Upload(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    /**
+     * 登记当前连接为该消息的接收者。对端断线重连时旧连接往往还阻塞在读上（收不到断开通知），
+     * 先关闭旧连接并等它截断、保留已收部分，再按暂存文件续传。
+     * 旧连接超时仍未结束（例如卡在写盘）时不能与它共用暂存文件：恢复其登记并拒绝本次续传，由发送端稍后重试
+     *
+     * @throws IOException 旧连接仍在处理，调用方回复 STATUS_ERROR
+     */
+    private Upload takeOver(long contentId, SocketChannel channel) throws InterruptedException, IOException {
+        Upload upload = new Upload(channel);
+        Upload previous = uploads.put(contentId, upload);
+        if (previous != null) {
+            try { previous.channel.close(); } catch (IOException ignored) {}
+            previous.thread.join(TAKEOVER_TIMEOUT_MS);
+            if (previous.thread.isAlive()) {
+                uploads.replace(contentId, upload, previous);
+                throw new IOException("上一次连接仍在写入暂存文件，拒绝续传");
+            }
+        }
+        return upload;
+    }
+
+    // 删除暂存目录中过期的未完成消息
+    private static void removeExpiredUploads(File staging) {
+        File[] files = staging.listFiles((d, name) -> name.endsWith(PARTIAL_SUFFIX));
+        if (files == null) return;
+        long now = System.currentTimeMillis();
+        for (File f : files) {
+            if (now - f.lastModified() > STAGING_EXPIRY_MS && f.delete()) {
+                System.out.println("删除过期的未完成音频消息: " + f.getName());
+            }
+        }
+    }
+
+    // 向二进制格式的发送端回复结果；对端已断开时忽略
+    private static void reply(SocketChannel channel, int status) {
+        try {
+            ByteBuffer b = ByteBuffer.allocate(1).put((byte) status);
+            b.flip();
+            while (b.hasRemaining()) channel.write(b);
+        } catch (IOException ignored) {}
+    }
+
+    /**
+     * 从 socket 向 buf（读模式）补充数据；连接已关闭时返回 false
+     */
+    private static boolean fill(ReadableByteChannel in, ByteBuffer buf) throws IOException {
+        buf.compact();
+        int n = in.read(buf);
+        buf.flip();
+        return n >= 0;
+    }
+
+    /**
+     * 补充数据直到 buf（读模式）中至少有 n 字节；连接已关闭时返回 false
+     */
+    private static boolean ensure(ReadableByteChannel in, ByteBuffer buf, int n) throws IOException {
+        while (buf.remaining() < n) {
+            if (!fill(in, buf)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * 从 buf（读模式）中取出一行（UTF-8，去掉行尾的 \r\n 或 \n），不足一行时从 socket 补充；连接已关闭时返回 null
+     */
+    private static String readLine(ReadableByteChannel in, ByteBuffer buf) throws IOException {
+        while (true) {
+            for (int i = buf.position(); i < buf.limit(); i++) {
+                if (buf.get(i) == '\n') {
+                    int end = i > buf.position() && buf.get(i - 1) == '\r' ? i - 1 : i;
+                    byte[] line = new byte[end - buf.position()];
+                    buf.get(line);
+                    buf.position(i + 1);
+                    return new String(line, StandardCharsets.UTF_8);
+                }
+            }
+            if (buf.remaining() >= AudioMessageProtocol.MAX_HEADER_BYTES) throw new IOException("头信息过长");
+            if (!fill(in, buf)) return null;
+        }
+    }
+
+    /**
+     * 把 buf 中剩余的字节及 socket 后续数据写入文件的 [position, size)，直到写满或连接中断（关闭或读出错），
+     * 返回本次写入的字节数；crc 不为 null 时同时累计写入内容的校验和。超出部分留在 buf 中（二进制格式的校验和）
+     */
+    private static long receiveBody(ReadableByteChannel in, ByteBuffer buf, FileChannel file, long position, long size,
+                                    CRC32C crc) throws IOException {
+        long total = position;
+        while (total < size) {
+            if (!buf.hasRemaining()) {
+                try {
+                    if (!fill(in, buf)) break;
+                } catch (IOException e) {
+                    // 被重连的同一消息接管时为 AsynchronousCloseException，无消息文本
+                    System.err.println("音频消息连接中断: " + (e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName()));
+                    break;
+                }
+            }
+            int limit = buf.limit();
+            buf.limit(buf.position() + (int) Math.min(buf.remaining(), size - total));
+            if (crc != null) crc.update(buf.duplicate());
+            while (buf.hasRemaining()) total += file.write(buf, total);
+            buf.limit(limit);
         }
+        return total - position;
     }
 
     /**
@@ -0,0 +1,31 @@
+package media;
+
+/**
+ * 语音编解码器：在 16bit 线性 PCM（short[]）与线上负载字节之间转换。
+ * 实现类在编解码时不得分配对象；有状态的编码器/解码器各自使用独立实例。
+ */
+public interface AudioCodec {
+
+    /** 编码名称（用于信令协商，如 PCMU） */
+    String getName();
+
+    /** RTP 负载类型 */
+    int getPayloadType();
+
+    /** 编码 count 个采样所需的最大字节数 */
+    int getEncodedSize(int samples);
+
+    /**
+     * 编码
+     *
+     * @return 写入 out 的字节数
+     */
+    int encode(short[] pcm, int off, int count, byte[] out, int outOff);
+
+    /**
+     * 解码
+     *
+     * @return 写入 pcm 的采样数
+     */
+    int decode(byte[] in, int off, int len, short[] pcm, int pcmOff);
+}
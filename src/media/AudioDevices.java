@@ -0,0 +1,142 @@
+package media;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 采集/播放设备注册表：按设备描述创建实例（与 Codecs 按名称创建编解码器相同），供 AudioController 使用
+ *
+ * 采集设备：
+ * - sound                     声卡麦克风（默认）
+ * - wav:路径                  WAV 文件，循环播放
+ * - tone:频率[:电平dBFS]       单音，电平默认 -20 dBFS
+ * - noise[:电平dBFS]           白噪声，电平默认 -40 dBFS
+ * - silence                   全零
+ * 播放设备：
+ * - sound                     声卡扬声器（默认）
+ * - wav:路径                  写入 WAV 文件
+ * - null                      丢弃
+ *
+ * 非声卡设备都按实时速率节拍，整条媒体链路的时序与接声卡时一致，可在无声卡的机器上运行和长时间压测。
+ * 压测程序可用 registerSource() / registerSink() 以自定义名称注册自己的设备（优先于上面的描述）。
+ */
+public final class AudioDevices {
+
+    public static final String SOUND_CARD = "sound";
+    public static final String NULL_SINK = "null";
+
+    private static final double DEFAULT_TONE_DBFS = -20;
+    private static final double DEFAULT_NOISE_DBFS = -40;
+
+    private static final Map<String, Supplier<? extends AudioSource>> SOURCES = new ConcurrentHashMap<>();
+    private static final Map<String, Supplier<? extends AudioSink>> SINKS = new ConcurrentHashMap<>();
+
+    private AudioDevices() {}
+
+    /**
+     * 以 name 注册采集设备，之后 createSource(name) 每次调用 factory 创建实例
+     */
+    public static void registerSource(String name, Supplier<? extends AudioSource> factory) {
+        SOURCES.put(name, factory);
+    }
+
+    /**
+     * 以 name 注册播放设备，之后 createSink(name) 每次调用 factory 创建实例
+     */
+    public static void registerSink(String name, Supplier<? extends AudioSink> factory) {
+        SINKS.put(name, factory);
+    }
+
+    /**
+     * 按描述创建采集设备（尚未打开）
+     *
+     * @throws IllegalArgumentException 无法识别的描述
+     * @throws IOException              WAV 文件无法读取
+     */
+    public static AudioSource createSource(String spec) throws IOException {
+        Supplier<? extends AudioSource> registered = SOURCES.get(spec);
+        if (registered != null) return registered.get();
+        String[] parts = spec.split(":", 2);
+        String arg = parts.length > 1 ? parts[1] : "";
+        switch (parts[0]) {
+            case SOUND_CARD:
+                return new JavaSoundSource();
+            case "wav":
+                return new WavFileSource(new File(arg), true, true);
+            case "tone": {
+                String[] p = arg.split(":");
+                double level = p.length > 1 ? Double.parseDouble(p[1]) : DEFAULT_TONE_DBFS;
+                return new SyntheticSource(Double.parseDouble(p[0]), level, Double.NEGATIVE_INFINITY, true);
+            }
+            case "noise":
+                return new SyntheticSource(0, Double.NEGATIVE_INFINITY,
+                        arg.isEmpty() ? DEFAULT_NOISE_DBFS : Double.parseDouble(arg), true);
+            case "silence":
+                return new SyntheticSource(0, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, true);
+            default:
+                throw new IllegalArgumentException("无法识别的采集设备: " + spec);
+        }
+    }
+
+    /**
+     * 按描述创建播放设备（尚未打开）
+     *
+     * @throws IllegalArgumentException 无法识别的描述
+     */
+    public static AudioSink createSink(String spec) {
+        Supplier<? extends AudioSink> registered = SINKS.get(spec);
+        if (registered != null) return registered.get();
+        String[] parts = spec.split(":", 2);
+        switch (parts[0]) {
+            case SOUND_CARD:
+                return new JavaSoundSink();
+            case "wav":
+                return new WavFileSink(new File(parts.length > 1 ? parts[1] : ""), true);
+            case NULL_SINK:
+                return new MemorySink(0, true);
+            default:
+                throw new IllegalArgumentException("无法识别的播放设备: " + spec);
+        }
+    }
+
+    /**
+     * 把已打开的采集设备包装为输入流（供 AudioSystem.write 录音），设备关闭后流结束
+     */
+    public static InputStream asInputStream(AudioSource source) {
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                // AudioInputStream 按整帧读取，不会走到这里
+                throw new IOException("16bit PCM 须按采样读取");
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return len < 2 ? 0 : source.read(b, off, len & ~1);
+            }
+        };
+    }
+
+    /** 非声卡设备只支持本项目统一使用的 16bit 单声道有符号 PCM */
+    static boolean isPcm16Mono(AudioFormat format) {
+        return format.getEncoding() == AudioFormat.Encoding.PCM_SIGNED
+                && format.getSampleSizeInBits() == 16 && format.getChannels() == 1;
+    }
+
+    /** 一次性重采样整段 PCM（打开设备时使用） */
+    static short[] resample(short[] pcm, int fromRate, int toRate) {
+        int chunk = fromRate / 100;
+        Resampler resampler = new Resampler(fromRate, toRate, chunk);
+        short[] out = new short[(int) ((long) pcm.length * toRate / fromRate) + resampler.getOutputCapacity(chunk)];
+        int n = 0;
+        for (int off = 0; off < pcm.length; off += chunk) {
+            n += resampler.process(pcm, off, Math.min(chunk, pcm.length - off), out, n);
+        }
+        return java.util.Arrays.copyOf(out, n);
+    }
+}
@@ -0,0 +1,39 @@
+package media;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+
+/**
+ * 播放设备：实时通话的扬声器输出经由此接口写出 PCM
+ * - 实现见 AudioDevices：声卡（javax.sound）、WAV 文件、内存缓冲区（容量为 0 时即丢弃）
+ * - write() 按设备的播放时钟阻塞，播放线程以此为节拍；非声卡实现可选择按实时速率节拍或不等待
+ *
+ * open() 之后由一个线程调用 write()，close() 可从其他线程调用。
+ */
+public interface AudioSink {
+
+    /** 设备名称（用于日志） */
+    String getName();
+
+    /** 能否以该格式打开 */
+    boolean isFormatSupported(AudioFormat format);
+
+    /**
+     * 以指定格式打开并开始播放
+     *
+     * @param bufferBytes 设备缓冲区大小（字节），决定播放延迟与抗卡顿能力
+     * @throws IOException 设备不可用或不支持该格式
+     */
+    void open(AudioFormat format, int bufferBytes) throws IOException;
+
+    /**
+     * 写出 PCM，设备缓冲区满时阻塞
+     */
+    void write(byte[] buf, int off, int len) throws IOException;
+
+    /** 等待已写出的 PCM 播放完（用于播放有结尾的音频，如音频消息）；默认不等待 */
+    default void drain() {}
+
+    /** 停止播放并释放设备，可重复调用 */
+    void close();
+}
@@ -0,0 +1,37 @@
+package media;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+
+/**
+ * 采集设备：实时通话的麦克风采集和音频消息录音都经由此接口读取 PCM
+ * - 实现见 AudioDevices：声卡（javax.sound）、WAV 文件、合成信号（单音/噪声/静音）、内存缓冲区
+ * - read() 按设备的采样时钟阻塞；非声卡实现可选择按实时速率节拍或不等待（离线基准测试）
+ *
+ * open() 之后由一个线程调用 read()，close() 可从其他线程调用，使阻塞的 read() 返回 -1。
+ */
+public interface AudioSource {
+
+    /** 设备名称（用于日志） */
+    String getName();
+
+    /** 能否以该格式打开 */
+    boolean isFormatSupported(AudioFormat format);
+
+    /**
+     * 以指定格式打开并开始采集
+     *
+     * @throws IOException 设备不可用或不支持该格式
+     */
+    void open(AudioFormat format) throws IOException;
+
+    /**
+     * 读取 PCM，阻塞到 len 字节就绪
+     *
+     * @return 读到的字节数；输入已结束或设备已关闭时返回 -1
+     */
+    int read(byte[] buf, int off, int len) throws IOException;
+
+    /** 停止采集并释放设备，可重复调用 */
+    void close();
+}
@@ -0,0 +1,184 @@
+package media;
+
+/**
+ * 采集端自动增益控制（AGC），位于静音检测之后、编码之前，把不同麦克风的说话电平拉到同一目标
+ * - 电平估计只在 VAD 判为语音（不含 hangover）的帧上更新，停顿和底噪不会把增益越推越高
+ * - 增益降低较快（ATTACK），升高较慢（RELEASE），避免在字与字之间来回抽动
+ * - 单帧峰值乘以增益会超过限幅门限时，本帧立即压低增益，防止削波
+ * - 增益以 Q12 定点整数表示，逐采样的乘法与限幅均为整数运算；帧内增益升高时线性过渡，降低时立即生效
+ *
+ * 每通电话记录一份增益历史（每个区间内的平均增益），区间填满后两两合并、区间长度翻倍，
+ * 长通话也只占固定的空间。
+ * 只能由一个线程调用 process()，统计值可从其他线程读取（仅供显示，不保证与处理线程严格一致）。
+ * 所有缓冲区在构造时分配，不分配对象。
+ */
+public class AutomaticGainControl {
+
+    static final int UNITY = 1 << 12;
+
+    // 目标语音电平（RMS，约 -21 dBFS）
+    private static final int TARGET_RMS = 3000;
+    // 增益范围
+    private static final double MAX_GAIN_DB = 20;
+    private static final double MIN_GAIN_DB = -12;
+    // 增益每秒最多降低 / 升高的分贝数
+    private static final double ATTACK_DB_PER_SECOND = 30;
+    private static final double RELEASE_DB_PER_SECOND = 5;
+    // 限幅门限（约 -1 dBFS）
+    static final int LIMIT_PEAK = 29000;
+    // 增益历史：最多记录的区间数、初始区间长度
+    private static final int HISTORY_SIZE = 32;
+    private static final int HISTORY_INTERVAL_MS = 5000;
+
+    private final int maxGain;
+    private final int minGain;
+    private final int attackStep;
+    private final int releaseStep;
+
+    // 语音电平估计（RMS），0 表示还没有语音帧
+    private int level = 0;
+    // 稳态增益，以及上一帧实际使用的增益（含限幅）
+    private int gain = UNITY;
+    private int applied = UNITY;
+
+    private final int frameMs;
+    private final float[] history = new float[HISTORY_SIZE];
+    private volatile int historyCount = 0;
+    private volatile int historyIntervalMs = HISTORY_INTERVAL_MS;
+    private long intervalGainSum = 0;
+    private int intervalFrames = 0;
+    private long totalGainSum = 0;
+    private long totalFrames = 0;
+
+    private volatile int currentGain = UNITY;
+    private volatile int lowestGain = Integer.MAX_VALUE;
+    private volatile int highestGain = 0;
+    private volatile long limitedFrames = 0;
+    private volatile double averageGainDb = 0;
+
+    /**
+     * @param frameMs 每次 process() 输入的帧长（毫秒）
+     */
+    public AutomaticGainControl(int frameMs) {
+        this.frameMs = frameMs;
+        maxGain = toGain(MAX_GAIN_DB);
+        minGain = toGain(MIN_GAIN_DB);
+        attackStep = toGain(-ATTACK_DB_PER_SECOND * frameMs / 1000);
+        releaseStep = toGain(RELEASE_DB_PER_SECOND * frameMs / 1000);
+    }
+
+    /**
+     * 原地调整一帧 PCM 的电平
+     *
+     * @param speech 本帧是否为语音（VAD 的即时判决，不含 hangover）
+     */
+    public void process(short[] pcm, int off, int count, boolean speech) {
+        if (count <= 0) return;
+        int peak = 0;
+        long sum = 0;
+        for (int i = off; i < off + count; i++) {
+            int s = pcm[i];
+            sum += s * s;
+            int a = s < 0 ? -s : s;
+            if (a > peak) peak = a;
+        }
+
+        if (speech) {
+            int rms = (int) Math.sqrt((double) sum / count);
+            // 电平上升快跟随，下降慢跟随
+            if (level == 0) {
+                level = rms;
+            } else if (rms > level) {
+                level += (rms - level) >> 2;
+            } else {
+                level -= (level - rms) >> 4;
+            }
+            int desired = level > 0 ? (int) Math.min(maxGain, (long) TARGET_RMS * UNITY / level) : maxGain;
+            desired = Math.max(minGain, desired);
+            if (desired < gain) {
+                gain = Math.max(desired, (int) ((long) gain * attackStep >> 12));
+            } else if (desired > gain) {
+                gain = Math.min(desired, (int) ((long) gain * releaseStep >> 12));
+            }
+        }
+
+        int target = gain;
+        if ((long) peak * target > (long) LIMIT_PEAK * UNITY) {
+            target = (int) ((long) LIMIT_PEAK * UNITY / peak);
+            limitedFrames++;
+        }
+        applyGain(pcm, off, count, target < applied ? target : applied, target);
+        applied = target;
+        record(target);
+    }
+
+    /**
+     * 整数增益：from 到 to（Q12）在帧内线性过渡，结果限制在 16bit 范围内
+     */
+    static void applyGain(short[] pcm, int off, int count, int from, int to) {
+        if (from == UNITY && to == UNITY) return;
+        int delta = to - from;
+        for (int i = 0; i < count; i++) {
+            int g = from + (int) ((long) delta * i / count);
+            int v = (pcm[off + i] * g + (UNITY >> 1)) >> 12;
+            pcm[off + i] = (short) (v > Short.MAX_VALUE ? Short.MAX_VALUE : Math.max(v, Short.MIN_VALUE));
+        }
+    }
+
+    static int toGain(double db) {
+        return (int) Math.round(UNITY * Math.pow(10, db / 20));
+    }
+
+    static double toDb(double gain) {
+        return 20 * Math.log10(Math.max(gain, 1) / UNITY);
+    }
+
+    private void record(int g) {
+        currentGain = g;
+        if (g < lowestGain) lowestGain = g;
+        if (g > highestGain) highestGain = g;
+        totalGainSum += g;
+        totalFrames++;
+        intervalGainSum += g;
+        if (++intervalFrames * frameMs < historyIntervalMs) return;
+
+        averageGainDb = toDb((double) totalGainSum / totalFrames);
+        float db = (float) toDb((double) intervalGainSum / intervalFrames);
+        intervalGainSum = 0;
+        intervalFrames = 0;
+        int n = historyCount;
+        if (n == HISTORY_SIZE) {
+            // 两两合并，区间长度翻倍
+            for (int i = 0; i < HISTORY_SIZE / 2; i++) {
+                history[i] = (history[2 * i] + history[2 * i + 1]) / 2;
+            }
+            n = HISTORY_SIZE / 2;
+            historyIntervalMs *= 2;
+        }
+        history[n] = db;
+        historyCount = n + 1;
+    }
+
+    /** 当前增益（线性倍数，含限幅） */
+    public double getGain() { return (double) currentGain / UNITY; }
+
+    /** 当前增益（dB，含限幅） */
+    public double getGainDb() { return toDb(currentGain); }
+
+    /** 因峰值超过门限而压低增益的帧数 */
+    public long getLimitedFrames() { return limitedFrames; }
+
+    public String getStatsText() {
+        if (highestGain == 0) return "--";
+        StringBuilder sb = new StringBuilder(String.format("当前 %+.1f dB, 平均 %+.1f dB, 范围 %+.1f~%+.1f dB, 限幅 %d 帧",
+                getGainDb(), averageGainDb, toDb(lowestGain), toDb(highestGain), limitedFrames));
+        int n = historyCount;
+        if (n > 0) {
+            sb.append(", 历史(每 ").append(historyIntervalMs / 1000).append("s)");
+            for (int i = 0; i < n; i++) {
+                sb.append(String.format(" %+.0f", history[i]));
+            }
+        }
+        return sb.toString();
+    }
+}
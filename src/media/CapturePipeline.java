@@ -0,0 +1,213 @@
+package media;
+
+/**
+ * 发送端的逐帧处理：设备 PCM -> 重采样 -> 回声消除 -> 降噪 -> 静音检测 -> 自动增益 -> 编码 -> 冗余 -> RTP 包
+ * - 启用 DTX 时静音帧不出包，只在语音段结束、到达保活间隔或噪声电平明显变化时出 SID
+ * - 冗余等级大于 0 时输出 RED 负载，附带前几帧的编码副本
+ * - 静音（闭麦）期间照常推进时间戳，保持与采样时钟一致
+ * - 设置了回声消除器时，每帧（含闭麦帧）都先经回声消除，保持与播放参考信号的对齐
+ * - 设置了降噪器时，回声消除后的每帧（含闭麦帧）都经降噪，噪声估计不因闭麦中断，VAD 看到的是降噪后的信号
+ * - 设置了自动增益时，VAD 在增益之前判决（增益变化不影响噪声底跟踪），SID 电平按当前增益折算
+ *
+ * 所有缓冲区在构造时分配，稳态下每帧不分配对象（见 bench.AllocationBenchmark）。
+ * 只能由一个线程调用 process()，统计值可从其他线程读取。
+ */
+public class CapturePipeline {
+
+    // 静音期间发送 SID 的间隔（兼作保活），噪声电平变化超过门限时立即发送
+    private static final int SID_INTERVAL_MS = 500;
+    private static final int SID_LEVEL_CHANGE_DB = 3;
+
+    private final AudioCodec encoder;
+    private final Resampler resampler;
+    private final VoiceActivityDetector vad;
+    private final RedundancyEncoder redundancy;
+    private final boolean dtx;
+    private final long ssrc;
+    private final int frameSamples;
+    private EchoCanceller echoCanceller;
+    private NoiseSuppressor noiseSuppressor;
+    private AutomaticGainControl gainControl;
+
+    private final short[] devicePcm;
+    private final short[] pcm;
+    private final byte[] encoded;
+    private final int maxPacketSize;
+
+    private final int sidIntervalFrames;
+    private int framesSinceSid = 0;
+    private int lastSidLevel = -1;
+    private boolean talking = true;
+    private boolean marker = true;
+
+    private int seq;
+    private long timestamp;
+
+    private volatile long suppressedFrames = 0;
+    private volatile long sidPackets = 0;
+
+    /**
+     * @param deviceRate 采集设备的采样率
+     * @param wireRate   线上（编码）采样率
+     * @param dtx        是否启用静音停发
+     */
+    public CapturePipeline(String codec, int deviceRate, int wireRate, int frameMs, long ssrc, boolean dtx) {
+        this.encoder = Codecs.create(codec);
+        this.ssrc = ssrc;
+        this.dtx = dtx;
+
+        frameSamples = wireRate * frameMs / 1000;
+        int deviceFrameSamples = deviceRate * frameMs / 1000;
+        resampler = deviceRate != wireRate ? new Resampler(deviceRate, wireRate, deviceFrameSamples) : null;
+        devicePcm = new short[deviceFrameSamples];
+        pcm = new short[resampler != null
+                ? Math.max(frameSamples, resampler.getOutputCapacity(deviceFrameSamples)) : frameSamples];
+
+        int maxEncoded = encoder.getEncodedSize(pcm.length);
+        encoded = new byte[maxEncoded];
+        redundancy = new RedundancyEncoder(maxEncoded);
+        maxPacketSize = RtpPacket.HEADER_SIZE + RedPayload.getMaxSize(maxEncoded);
+
+        vad = new VoiceActivityDetector(frameMs);
+        sidIntervalFrames = Math.max(1, SID_INTERVAL_MS / frameMs);
+
+        seq = (int) (Math.random() * 0x10000);
+        timestamp = (long) (Math.random() * 0x100000000L);
+    }
+
+    /**
+     * 设置回声消除器（须在第一次 process() 之前，同一实例交给 PlayoutPipeline 作为参考）
+     */
+    public void setEchoCanceller(EchoCanceller echoCanceller) {
+        this.echoCanceller = echoCanceller;
+    }
+
+    /**
+     * 设置降噪器（须在第一次 process() 之前）
+     */
+    public void setNoiseSuppressor(NoiseSuppressor noiseSuppressor) {
+        this.noiseSuppressor = noiseSuppressor;
+    }
+
+    /**
+     * 设置自动增益控制（须在第一次 process() 之前）
+     */
+    public void setGainControl(AutomaticGainControl gainControl) {
+        this.gainControl = gainControl;
+    }
+
+    /**
+     * 处理一帧采集数据
+     *
+     * @param capture   设备格式的 16bit PCM
+     * @param muted     是否闭麦
+     * @param redLevel  冗余等级（附带的前帧数，0 表示不冗余）
+     * @param packet    输出缓冲区，至少 getMaxPacketSize() 字节
+     * @return RTP 包长度；本帧不需要发送时返回 -1
+     */
+    public int process(byte[] capture, int off, int len, boolean bigEndian, boolean muted,
+                       int redLevel, byte[] packet, int packetOff) {
+        int samples;
+        if (resampler != null) {
+            int n = Pcm.toShorts(capture, off, len, bigEndian, devicePcm, 0);
+            samples = resampler.process(devicePcm, 0, n, pcm, 0);
+        } else {
+            samples = Pcm.toShorts(capture, off, len, bigEndian, pcm, 0);
+        }
+        if (echoCanceller != null) {
+            echoCanceller.process(pcm, 0, samples);
+        }
+        if (noiseSuppressor != null) {
+            noiseSuppressor.process(pcm, 0, samples);
+        }
+
+        int packetLen = -1;
+        if (!muted && samples > 0) {
+            boolean voice = (dtx || gainControl != null) && vad.process(pcm, 0, samples);
+            if (gainControl != null) {
+                gainControl.process(pcm, 0, samples, vad.isActive());
+            }
+            boolean speech = !dtx || voice;
+            if (speech) {
+                packetLen = encodeSpeech(samples, redLevel, packet, packetOff);
+            } else {
+                packetLen = encodeSilence(packet, packetOff);
+            }
+        } else {
+            // 静音结束后的第一个包标记为新的语音段
+            marker = true;
+            talking = true;
+            redundancy.reset();
+        }
+
+        if (packetLen >= 0) seq = (seq + 1) & 0xFFFF;
+        timestamp = (timestamp + samples) & 0xFFFFFFFFL;
+        return packetLen;
+    }
+
+    /**
+     * 跳过未能处理的采集帧（如采集环溢出时丢弃的帧）：时间戳照常前进，下一包作为新语音段开始
+     */
+    public void skipFrames(int frames) {
+        timestamp = (timestamp + (long) frames * frameSamples) & 0xFFFFFFFFL;
+        if (echoCanceller != null) echoCanceller.skip(frames * frameSamples);
+        marker = true;
+        talking = true;
+        redundancy.reset();
+    }
+
+    private int encodeSpeech(int samples, int redLevel, byte[] packet, int off) {
+        int encodedLen = encoder.encode(pcm, 0, samples, encoded, 0);
+        int payloadLen;
+        if (redLevel > 0) {
+            RtpPacket.writeHeader(packet, off, RedPayload.PAYLOAD_TYPE, marker, seq, timestamp, ssrc);
+            payloadLen = redundancy.encode(packet, off + RtpPacket.HEADER_SIZE, redLevel,
+                    encoder.getPayloadType(), timestamp, encoded, 0, encodedLen);
+        } else {
+            RtpPacket.writeHeader(packet, off, encoder.getPayloadType(), marker, seq, timestamp, ssrc);
+            System.arraycopy(encoded, 0, packet, off + RtpPacket.HEADER_SIZE, encodedLen);
+            payloadLen = encodedLen;
+            redundancy.remember(timestamp, encoded, 0, encodedLen);
+        }
+        marker = false;
+        talking = true;
+        return RtpPacket.HEADER_SIZE + payloadLen;
+    }
+
+    // 语音段结束、到达保活间隔或背景噪声明显变化时发送 SID，其余静音帧不发送
+    private int encodeSilence(byte[] packet, int off) {
+        int packetLen = -1;
+        double noiseRms = vad.getNoiseRms() * (gainControl != null ? gainControl.getGain() : 1);
+        int level = ComfortNoise.toLevel(noiseRms);
+        framesSinceSid++;
+        if (talking || framesSinceSid >= sidIntervalFrames
+                || Math.abs(level - lastSidLevel) >= SID_LEVEL_CHANGE_DB) {
+            RtpPacket.writeHeader(packet, off, ComfortNoise.PAYLOAD_TYPE, false, seq, timestamp, ssrc);
+            packetLen = RtpPacket.HEADER_SIZE + ComfortNoise.writeSid(level, packet, off + RtpPacket.HEADER_SIZE);
+            lastSidLevel = level;
+            framesSinceSid = 0;
+            sidPackets++;
+        } else {
+            suppressedFrames++;
+        }
+        // 下一个语音包是新语音段的开始，前帧不再连续
+        marker = true;
+        talking = false;
+        redundancy.reset();
+        return packetLen;
+    }
+
+    /** 输出包的最大长度（含 RTP 头和最多冗余帧） */
+    public int getMaxPacketSize() { return maxPacketSize; }
+
+    public long getSsrc() { return ssrc; }
+
+    /** 下一帧的 RTP 时间戳 */
+    public long getTimestamp() { return timestamp; }
+
+    /** 因静音而未发送的帧数 */
+    public long getSuppressedFrames() { return suppressedFrames; }
+
+    /** 已发送的静音描述帧（SID）数 */
+    public long getSidPackets() { return sidPackets; }
+}
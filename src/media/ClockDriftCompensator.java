@@ -0,0 +1,126 @@
+package media;
+
+/**
+ * 播放端时钟漂移补偿：两端声卡的采样时钟有几十到几百 ppm 的偏差，长时间连续播放时
+ * 抖动缓冲区会慢慢堆积（延迟变大）或被取空（周期性欠载）
+ * - 每个连续播放的帧记录一次抖动缓冲区深度（按媒体时间戳计的帧数），做指数平滑后与目标深度比较
+ * - PI 控制器把深度误差换算为播放速率修正（ppm），积分项即为估计的时钟漂移
+ * - 修正量按采样累积，满一个采样时把当前帧线性拉伸或压缩一个采样（首尾采样不变，帧间连续），
+ *   对端时钟偏快（缓冲堆积）时删除采样，偏慢时插入采样；每帧最多调整一个采样
+ * - 缓冲区预缓冲、对端停发（DTX）期间暂停估计，积分项跨语音段保留
+ *
+ * 只能由一个线程调用 update()/process()，统计值可从其他线程读取。不分配对象。
+ */
+public class ClockDriftCompensator {
+
+    // 深度平滑的时间常数
+    private static final double DEPTH_SMOOTHING_MS = 5000;
+    // PI 控制系数：每毫秒深度误差的比例修正（ppm），以及每毫秒·秒的积分修正（ppm）
+    private static final double KP_PPM_PER_MS = 50;
+    private static final double KI_PPM_PER_MS_SECOND = 0.6;
+    // 速率修正上限：0.1%，16kHz 下每秒最多 16 个采样
+    private static final double MAX_PPM = 1000;
+
+    private final int frameMs;
+    private final double depthAlpha;
+
+    private boolean tracking = false;
+    private double depthMs = 0;
+    private double integralPpm = 0;
+    private double ratePpm = 0;
+    private double pending = 0;
+
+    private volatile double driftPpm = 0;
+    private volatile double errorMs = 0;
+    private volatile long inserted = 0;
+    private volatile long deleted = 0;
+
+    /**
+     * @param frameMs 帧长（毫秒）
+     */
+    public ClockDriftCompensator(int frameMs) {
+        this.frameMs = frameMs;
+        depthAlpha = 1 - Math.exp(-frameMs / DEPTH_SMOOTHING_MS);
+    }
+
+    /**
+     * 连续播放的帧取出后调用一次
+     *
+     * @param depth       取帧后抖动缓冲区的深度（帧）
+     * @param targetDepth 抖动缓冲区的目标深度（帧）
+     */
+    public void update(int depth, int targetDepth) {
+        // 取帧后的深度在 target-1 与 target 之间来回，平均约为 target-0.5
+        double error = (depth - targetDepth + 0.5) * frameMs;
+        if (!tracking) {
+            tracking = true;
+            depthMs = error;
+        } else {
+            depthMs += (error - depthMs) * depthAlpha;
+        }
+        errorMs = depthMs;
+
+        integralPpm += KI_PPM_PER_MS_SECOND * depthMs * frameMs / 1000;
+        integralPpm = Math.max(-MAX_PPM, Math.min(MAX_PPM, integralPpm));
+        ratePpm = Math.max(-MAX_PPM, Math.min(MAX_PPM, integralPpm + KP_PPM_PER_MS * depthMs));
+        driftPpm = integralPpm;
+    }
+
+    /**
+     * 预缓冲或对端停发期间调用：深度不再连续，下次 update() 重新开始平滑
+     */
+    public void pause() {
+        tracking = false;
+    }
+
+    /**
+     * 按当前速率修正一帧：输出 count、count-1 或 count+1 个采样
+     *
+     * @param out 至少 count + 1 个采样
+     * @return 写入 out 的采样数
+     */
+    public int process(short[] in, int off, int count, short[] out) {
+        if (tracking) {
+            pending += ratePpm * 1e-6 * count;
+        }
+        int outCount = count;
+        if (pending >= 1 && count > 2) {
+            outCount = count - 1;
+            pending -= 1;
+            deleted++;
+        } else if (pending <= -1 && count > 1) {
+            outCount = count + 1;
+            pending += 1;
+            inserted++;
+        }
+
+        if (outCount == count) {
+            System.arraycopy(in, off, out, 0, count);
+            return count;
+        }
+        // 线性插值拉伸到 outCount 个采样（Q16 定点位置），首尾采样保持不变
+        long step = ((long) (count - 1) << 16) / (outCount - 1);
+        for (int j = 0; j < outCount; j++) {
+            long pos = j * step;
+            int i = (int) (pos >> 16);
+            int frac = (int) (pos & 0xFFFF);
+            int a = in[off + i];
+            int b = i + 1 < count ? in[off + i + 1] : a;
+            out[j] = (short) (a + (((long) (b - a) * frac + 0x8000) >> 16));
+        }
+        out[outCount - 1] = in[off + count - 1];
+        return outCount;
+    }
+
+    /** 估计的时钟漂移（ppm），正值表示对端时钟偏快 */
+    public double getDriftPpm() { return driftPpm; }
+
+    /** 插入 / 删除的采样数 */
+    public long getInserted() { return inserted; }
+    public long getDeleted() { return deleted; }
+
+    public String getStatsText() {
+        return String.format("漂移 %+.0f ppm, 深度偏差 %+.1f ms, 插入 %d / 删除 %d 采样",
+                driftPpm, errorMs, inserted, deleted);
+    }
+}
@@ -0,0 +1,42 @@
+package media;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 编解码器注册表：按名称创建实例，提供本端支持的编码列表
+ */
+public final class Codecs {
+
+    /** 本端支持的编码，按默认优先级排列 */
+    public static final List<String> SUPPORTED = Collections.unmodifiableList(Arrays.asList(
+            G711Codec.PCMU, G711Codec.PCMA, ImaAdpcmCodec.NAME, L16Codec.NAME));
+
+    private Codecs() {}
+
+    public static boolean isSupported(String name) {
+        return SUPPORTED.contains(name);
+    }
+
+    /**
+     * 编码能否用于该采样率：G.711 只定义了 8kHz，IMA ADPCM（DVI4）有 8kHz 与 16kHz 两种，
+     * 线性 PCM 不限采样率（48kHz 只能用它）
+     */
+    public static boolean supportsSampleRate(String name, int rate) {
+        if (G711Codec.PCMU.equals(name) || G711Codec.PCMA.equals(name)) return rate == 8000;
+        if (ImaAdpcmCodec.NAME.equals(name)) return rate == 8000 || rate == 16000;
+        return L16Codec.NAME.equals(name);
+    }
+
+    /**
+     * 创建编解码器实例（有状态的编码器和解码器需分别创建）
+     */
+    public static AudioCodec create(String name) {
+        if (G711Codec.PCMU.equals(name)) return new G711Codec(true);
+        if (G711Codec.PCMA.equals(name)) return new G711Codec(false);
+        if (ImaAdpcmCodec.NAME.equals(name)) return new ImaAdpcmCodec();
+        if (L16Codec.NAME.equals(name)) return new L16Codec();
+        throw new IllegalArgumentException("不支持的编码: " + name);
+    }
+}
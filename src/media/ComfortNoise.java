@@ -0,0 +1,73 @@
+package media;
+
+/**
+ * 舒适噪声（RFC 3389，载荷类型 13）
+ * - 静音期间发送端只偶尔发送静音描述帧（SID），负载为 1 字节噪声电平（-dBov，0~127）
+ * - 接收端按该电平生成白噪声填充静音，避免对方听到“断线”般的绝对安静
+ *
+ * 生成器在目标电平变化时逐采样平滑过渡，避免咔哒声。
+ */
+public class ComfortNoise {
+
+    public static final String NAME = "CN";
+    public static final int PAYLOAD_TYPE = 13;
+    /** SID 负载长度（仅噪声电平，不含频谱参数） */
+    public static final int SID_SIZE = 1;
+
+    private static final double FULL_SCALE = 32768.0;
+    private static final int MAX_LEVEL = 127;
+    // 均匀分布噪声幅度与 RMS 之比
+    private static final double UNIFORM_PEAK = Math.sqrt(3.0);
+    // 增益平滑系数（每采样）
+    private static final double GAIN_SMOOTH = 0.002;
+
+    private int seed = 0x1234567;
+    private double gain = 0;
+    private double targetGain = 0;
+
+    /** 噪声 RMS 转换为 SID 电平（-dBov） */
+    public static int toLevel(double rms) {
+        if (rms <= 0) return MAX_LEVEL;
+        int level = (int) Math.round(-20 * Math.log10(rms / FULL_SCALE));
+        return Math.max(0, Math.min(MAX_LEVEL, level));
+    }
+
+    /** SID 电平（-dBov）转换为噪声 RMS */
+    public static double toRms(int level) {
+        return FULL_SCALE * Math.pow(10, -level / 20.0);
+    }
+
+    /** 写入 SID 负载，返回长度 */
+    public static int writeSid(int level, byte[] out, int off) {
+        out[off] = (byte) (level & 0x7F);
+        return SID_SIZE;
+    }
+
+    /** 读取 SID 负载中的噪声电平 */
+    public static int readSid(byte[] in, int off, int len) {
+        return len > 0 ? in[off] & 0x7F : MAX_LEVEL;
+    }
+
+    /** 设置生成噪声的电平（-dBov） */
+    public void setLevel(int level) {
+        targetGain = toRms(level) * UNIFORM_PEAK;
+    }
+
+    /** 生成 count 个采样的舒适噪声 */
+    public void generate(short[] out, int off, int count) {
+        for (int i = off; i < off + count; i++) {
+            gain += (targetGain - gain) * GAIN_SMOOTH;
+            // xorshift 伪随机数，映射到 [-1, 1)
+            seed ^= seed << 13;
+            seed ^= seed >>> 17;
+            seed ^= seed << 5;
+            double value = seed / 2147483648.0 * gain;
+            out[i] = (short) Math.max(-32768, Math.min(32767, Math.round(value)));
+        }
+    }
+
+    public void reset() {
+        gain = 0;
+        targetGain = 0;
+    }
+}
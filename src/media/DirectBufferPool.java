@@ -0,0 +1,48 @@
+package media;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * 直接缓冲区池：媒体线程在通话开始时取出、结束时归还，跨通话复用。
+ * 直接缓冲区分配慢且由 GC 延迟释放，频繁建立/挂断通话时不应每次重新分配。
+ *
+ * 谁取出谁归还：缓冲区由使用它的线程在退出前归还，避免关闭通道时仍被旧线程写入。
+ */
+public final class DirectBufferPool {
+
+    // 池中最多保留的缓冲区个数（每通电话收发各一个，留出余量）
+    private static final int MAX_POOLED = 8;
+
+    private static final ArrayDeque<ByteBuffer> POOL = new ArrayDeque<>();
+
+    private DirectBufferPool() {}
+
+    /**
+     * 取出容量不小于 capacity 的直接缓冲区（已 clear）
+     */
+    public static ByteBuffer acquire(int capacity) {
+        synchronized (POOL) {
+            Iterator<ByteBuffer> it = POOL.iterator();
+            while (it.hasNext()) {
+                ByteBuffer buf = it.next();
+                if (buf.capacity() >= capacity) {
+                    it.remove();
+                    buf.clear();
+                    return buf;
+                }
+            }
+        }
+        return ByteBuffer.allocateDirect(capacity);
+    }
+
+    public static void release(ByteBuffer buf) {
+        if (buf == null || !buf.isDirect()) return;
+        synchronized (POOL) {
+            if (POOL.size() < MAX_POOLED) {
+                POOL.push(buf);
+            }
+        }
+    }
+}
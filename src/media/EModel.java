@@ -0,0 +1,56 @@
+package media;
+
+/**
+ * 简化 E-model（ITU-T G.107）通话质量估计
+ * R = 93.2 - Id(时延损伤) - Ie_eff(编码与丢包损伤)，再按 G.107 附录 B 换算为 MOS（1~4.5）
+ *
+ * 编码参数取自 G.113 附录 I；DVI4 按 32kbit/s ADPCM（G.726）取值，其丢包稳健性为估计值。
+ */
+public final class EModel {
+
+    private static final double R0 = 93.2;
+    // 时延损伤的拐点（毫秒）
+    private static final double DELAY_KNEE_MS = 177.3;
+
+    private EModel() {}
+
+    /**
+     * @param codec          编码名称
+     * @param lossFraction   丢包比例（0~1）
+     * @param oneWayDelayMs  口到耳单向时延
+     * @param concealment    接收端是否做丢包隐藏
+     */
+    public static double rFactor(String codec, double lossFraction, double oneWayDelayMs, boolean concealment) {
+        double d = Math.max(0, oneWayDelayMs);
+        double id = 0.024 * d + (d > DELAY_KNEE_MS ? 0.11 * (d - DELAY_KNEE_MS) : 0);
+
+        double ie = equipmentImpairment(codec);
+        double bpl = lossRobustness(codec, concealment);
+        double ppl = Math.max(0, Math.min(1, lossFraction)) * 100;
+        double ieEff = ie + (95 - ie) * ppl / (ppl + bpl);
+
+        return R0 - id - ieEff;
+    }
+
+    /** R 值换算为 MOS */
+    public static double toMos(double r) {
+        if (r <= 0) return 1.0;
+        if (r >= 100) return 4.5;
+        return 1 + 0.035 * r + 7e-6 * r * (r - 60) * (100 - r);
+    }
+
+    public static double mos(String codec, double lossFraction, double oneWayDelayMs, boolean concealment) {
+        return toMos(rFactor(codec, lossFraction, oneWayDelayMs, concealment));
+    }
+
+    private static double equipmentImpairment(String codec) {
+        if (ImaAdpcmCodec.NAME.equals(codec)) return 7;
+        return 0;
+    }
+
+    private static double lossRobustness(String codec, boolean concealment) {
+        if (!concealment) return 4.3;
+        if (ImaAdpcmCodec.NAME.equals(codec)) return 20;
+        return 25.1;
+    }
+}
@@ -0,0 +1,436 @@
+package media;
+
+import java.util.Arrays;
+
+/**
+ * 时域 NLMS 回声消除（AEC），工作在线上采样率，位于采集重采样之后、静音检测和编码之前
+ * - 参考信号：播放线程每输出一帧（解码/舒适噪声/隐藏帧，重采样前）调用 render()，经无锁环交给采集侧
+ * - 延迟估计：远端/近端按 2ms 分块求幅度包络，周期性做归一化互相关，找出扬声器到麦克风的整体延迟
+ *   （声卡缓冲 + 声学路径），多次估计一致后才采用；延迟变化时平移滤波器系数，不必重新收敛
+ * - 自适应滤波：在估计延迟处放置 TAIL_MS 长的 NLMS 滤波器，减去估计的回声
+ * - 双滤波器：后台滤波器持续自适应，前台滤波器负责输出；每帧比较两者的残差，后台明显更好时拷贝到前台，
+ *   明显更差时（近端说话把后台带偏）退回前台系数，双讲时输出不受自适应发散影响
+ * - 双讲检测（Geigel）：近端幅度超过对齐窗口内远端最大幅度时冻结自适应
+ *
+ * 远端与近端按采样计数对齐：首个参考帧到达时把远端计数锚定到当前近端位置，之后两侧各自按采样数推进。
+ * render() 只由播放线程调用，其余方法只由采集（发送）线程调用；统计值可从任意线程读取。
+ * 所有缓冲区在构造时分配，每帧不分配对象。未做残余回声抑制（非线性处理）。
+ */
+public class EchoCanceller {
+
+    // 滤波器覆盖的回声尾长
+    private static final int TAIL_MS = 32;
+    // 延迟搜索范围（声卡缓冲较深时整体延迟可达数百毫秒）
+    private static final int MAX_DELAY_MS = 500;
+    // 滤波器起点比估计延迟提前的量，容纳估计误差
+    private static final int PRE_MS = 4;
+    // 包络分块长度与互相关窗口
+    private static final int BLOCK_MS = 2;
+    private static final int WINDOW_BLOCKS = 512;
+    private static final int ESTIMATE_INTERVAL_BLOCKS = 250;
+    private static final int ENV_RING_BLOCKS = 4096;
+    // 采用延迟估计的最小相关系数；首次估计超过 CONFIDENT_CORRELATION 时不必等待第二次确认，
+    // 已有延迟时须连续 CHANGE_CONFIRMATIONS 次估计一致才调整
+    private static final double MIN_CORRELATION = 0.5;
+    private static final double CONFIDENT_CORRELATION = 0.8;
+    private static final int CHANGE_CONFIRMATIONS = 3;
+    // ERLE 高于此值时认为当前延迟可用，不再根据新的估计调整
+    private static final double GOOD_ERLE_DB = 10;
+    // 参考环的帧数（播放与采集线程之间的缓冲）
+    private static final int RENDER_RING_FRAMES = 16;
+
+    // NLMS 步长与正则项（按每个采样 RMS 10 计）
+    private static final float STEP = 0.1f;
+    private static final double REGULARIZATION_RMS = 10;
+    // Geigel 双讲门限（近端峰值 / 远端峰值）及检测到后的保持帧数
+    private static final double DOUBLE_TALK_RATIO = 1.0;
+    private static final int DOUBLE_TALK_HANGOVER_MS = 60;
+    // 远端峰值低于此值时视为远端无声，不自适应
+    private static final double MIN_FAR_PEAK = 200;
+    // 远端包络（每采样平均幅度）的标准差低于此值时不做延迟估计
+    private static final double MIN_FAR_ENV_STD = 20;
+    // 后台残差能量低于前台的该比例时采用后台系数，高于该倍数时退回前台系数
+    private static final double ADOPT_RATIO = 0.5;
+    private static final double REVERT_RATIO = 4;
+    // 采用后台系数时其残差/输入能量比的上限：不超过 ADOPT_MAX_RESIDUAL（至少消除 6dB），
+    // 也不超过单讲时达到过的残差比的 ADOPT_MARGIN 倍；此上限每秒放宽 ADOPT_RELAX_DB，回声路径变差后仍能重新采用
+    private static final double ADOPT_MAX_RESIDUAL = 0.25;
+    private static final double ADOPT_MARGIN = 8;
+    private static final double ADOPT_RELAX_DB = 2;
+    // ERLE 的平滑系数（每帧）
+    private static final double ERLE_SMOOTHING = 0.05;
+
+    private final int sampleRate;
+    private final int frameSamples;
+    private final int taps;
+    private final int preSamples;
+    private final int block;
+    private final int maxLagBlocks;
+    private final int hangoverFrames;
+    private final double regularization;
+    private final double adoptRelax;
+
+    // 远端历史：长度 2N 的镜像缓冲区（每个采样同时写在 p 和 p+N），任意 taps 长窗口都是连续的
+    private final float[] history;
+    private final int historyMask;
+    // 滤波器系数，按时间正序存放（[u] 对应窗口中的第 u 个采样）：
+    // 后台滤波器持续自适应，前台滤波器用于输出，只在后台明显更好时从后台拷贝
+    private final float[] foreground;
+    private final float[] background;
+
+    private final FrameRing renderRing;
+    private final byte[] renderBytes;
+    private final short[] renderPcm;
+    private long renderOverflowsSeen = 0;
+
+    private final float[] farEnv = new float[ENV_RING_BLOCKS];
+    private final float[] nearEnv = new float[ENV_RING_BLOCKS];
+    private float farBlockSum = 0;
+    private float nearBlockSum = 0;
+
+    private long nearCount = 0;
+    private long farCount = 0;
+    private boolean anchored = false;
+    private long blocksSinceEstimate = 0;
+    private int candidateLag = -1;
+    private int candidateCount = 0;
+    private long doubleTalkAtEstimate = 0;
+
+    // 当前采用的整体延迟（采样数），-1 表示尚未估计出
+    private int delay = -1;
+    private int doubleTalkHold = 0;
+    private double adoptLimit = ADOPT_MAX_RESIDUAL;
+    private double nearPower = 0;
+    private double errorPower = 0;
+
+    private volatile int delayMs = -1;
+    private volatile double erleDb = 0;
+    private volatile long doubleTalkFrames = 0;
+    private volatile long reverts = 0;
+
+    /**
+     * @param sampleRate   线上采样率
+     * @param frameSamples 每帧采样数（采集与播放相同）
+     */
+    public EchoCanceller(int sampleRate, int frameSamples) {
+        this.sampleRate = sampleRate;
+        this.frameSamples = frameSamples;
+        taps = sampleRate * TAIL_MS / 1000;
+        preSamples = sampleRate * PRE_MS / 1000;
+        block = sampleRate * BLOCK_MS / 1000;
+        maxLagBlocks = MAX_DELAY_MS / BLOCK_MS;
+        hangoverFrames = Math.max(1, DOUBLE_TALK_HANGOVER_MS * sampleRate / 1000 / frameSamples);
+        regularization = taps * REGULARIZATION_RMS * REGULARIZATION_RMS;
+        adoptRelax = Math.pow(10, ADOPT_RELAX_DB / 10 * frameSamples / sampleRate);
+
+        int span = sampleRate * MAX_DELAY_MS / 1000 + taps + RENDER_RING_FRAMES * frameSamples * 2;
+        int size = Integer.highestOneBit(span - 1) << 1;
+        history = new float[size * 2];
+        historyMask = size - 1;
+        foreground = new float[taps];
+        background = new float[taps];
+
+        // 播放端做漂移补偿时一帧可能多一个采样
+        renderRing = new FrameRing(RENDER_RING_FRAMES, (frameSamples + 1) * 2);
+        renderBytes = new byte[(frameSamples + 1) * 2];
+        renderPcm = new short[frameSamples + 1];
+    }
+
+    // ===================== 播放线程 =====================
+
+    /**
+     * 送入一帧即将播放的远端信号（线上采样率）；采集侧来不及取走时丢弃
+     */
+    public void render(short[] pcm, int off, int count) {
+        byte[] slot = renderRing.claim();
+        if (slot == null) return;
+        int n = Math.min(count, frameSamples + 1);
+        Pcm.toBytes(pcm, off, n, false, slot, 0);
+        renderRing.publish(n * 2, 0);
+    }
+
+    /**
+     * 本帧播放的是静音（没有可播放的数据），同样计入参考信号以保持对齐
+     */
+    public void renderSilence(int count) {
+        byte[] slot = renderRing.claim();
+        if (slot == null) return;
+        int n = Math.min(count, frameSamples);
+        Arrays.fill(slot, 0, n * 2, (byte) 0);
+        renderRing.publish(n * 2, 0);
+    }
+
+    // ===================== 采集线程 =====================
+
+    /**
+     * 对一帧近端（麦克风）信号做回声消除，原地输出
+     */
+    public void process(short[] pcm, int off, int count) {
+        drainRender();
+
+        // 包络取回声消除前的输入，与远端的相关性不受滤波器状态影响
+        for (int i = off; i < off + count; i++) {
+            nearBlockSum += Math.abs(pcm[i]);
+            if ((nearCount + 1 + i - off) % block == 0) {
+                nearEnv[(int) ((nearCount + i - off) / block) & (ENV_RING_BLOCKS - 1)] = nearBlockSum;
+                nearBlockSum = 0;
+                if (++blocksSinceEstimate >= ESTIMATE_INTERVAL_BLOCKS) {
+                    blocksSinceEstimate = 0;
+                    estimateDelay((nearCount + 1 + i - off) / block);
+                }
+            }
+        }
+
+        if (delay >= 0 && isAvailable(count)) {
+            cancel(pcm, off, count);
+        }
+        nearCount += count;
+    }
+
+    /**
+     * 跳过未处理的近端采样（采集环溢出丢弃的帧），保持与远端的对齐
+     */
+    public void skip(int samples) {
+        long first = nearCount / block;
+        nearCount += samples;
+        long last = nearCount / block;
+        for (long b = first; b < last && b - first < ENV_RING_BLOCKS; b++) {
+            nearEnv[(int) b & (ENV_RING_BLOCKS - 1)] = 0;
+        }
+        nearBlockSum = 0;
+    }
+
+    // 取出播放线程送来的参考帧，追加到远端历史；参考环溢出丢掉的帧按静音补齐
+    private void drainRender() {
+        long overflows = renderRing.getOverflows();
+        if (!anchored) {
+            if (renderRing.isEmpty()) return;
+            anchored = true;
+            farCount = nearCount;
+            renderOverflowsSeen = overflows;
+        }
+        for (; renderOverflowsSeen < overflows; renderOverflowsSeen++) {
+            appendFar(null, frameSamples);
+        }
+        while (!renderRing.isEmpty()) {
+            int len = renderRing.poll(renderBytes, 0);
+            int n = Pcm.toShorts(renderBytes, 0, len, false, renderPcm, 0);
+            appendFar(renderPcm, n);
+        }
+    }
+
+    private void appendFar(short[] pcm, int count) {
+        int size = historyMask + 1;
+        for (int i = 0; i < count; i++) {
+            float v = pcm != null ? pcm[i] : 0;
+            int p = (int) farCount & historyMask;
+            history[p] = v;
+            history[p + size] = v;
+            farBlockSum += Math.abs(v);
+            farCount++;
+            if (farCount % block == 0) {
+                farEnv[(int) (farCount / block - 1) & (ENV_RING_BLOCKS - 1)] = farBlockSum;
+                farBlockSum = 0;
+            }
+        }
+    }
+
+    // 本帧需要的远端采样是否都已到达且未被覆盖
+    private boolean isAvailable(int count) {
+        long start = filterStart();
+        long newest = nearCount + count - 1 - start;
+        long oldest = nearCount - start - taps;
+        return newest < farCount && oldest > farCount - (historyMask + 1);
+    }
+
+    private int filterStart() {
+        return Math.max(0, delay - preSamples);
+    }
+
+    private void cancel(short[] pcm, int off, int count) {
+        long first = nearCount - filterStart();   // 第一个近端采样对齐的最新远端采样
+
+        // 对齐窗口内的远端能量与峰值，近端峰值
+        double power = 0;
+        float farPeak = 0;
+        for (long a = first - taps + 1; a <= first; a++) {
+            float v = history[(int) a & historyMask];
+            power += v * v;
+        }
+        for (long a = first - taps + 1; a < first + count; a++) {
+            farPeak = Math.max(farPeak, Math.abs(history[(int) a & historyMask]));
+        }
+        int nearPeak = 0;
+        for (int i = off; i < off + count; i++) {
+            nearPeak = Math.max(nearPeak, Math.abs(pcm[i]));
+        }
+
+        boolean farActive = farPeak >= MIN_FAR_PEAK;
+        if (farActive && nearPeak > farPeak * DOUBLE_TALK_RATIO) {
+            doubleTalkHold = hangoverFrames;
+            doubleTalkFrames++;
+        } else if (doubleTalkHold > 0) {
+            doubleTalkHold--;
+        }
+        boolean adapt = farActive && doubleTalkHold == 0;
+
+        double inEnergy = 0;
+        double outEnergy = 0;
+        double backgroundEnergy = 0;
+        for (int i = 0; i < count; i++) {
+            long a = first + i;
+            int s = (int) (a - taps + 1) & historyMask;
+            float yf = 0;
+            float yb = 0;
+            for (int u = 0; u < taps; u++) {
+                float x = history[s + u];
+                yf += foreground[u] * x;
+                yb += background[u] * x;
+            }
+            float d = pcm[off + i];
+            float e = d - yf;
+            float eb = d - yb;
+            if (adapt) {
+                float g = (float) (STEP * eb / (power + regularization));
+                for (int u = 0; u < taps; u++) {
+                    background[u] += g * history[s + u];
+                }
+            }
+            // 窗口右移一个采样
+            float in = history[(int) (a + 1) & historyMask];
+            float out = history[s];
+            power = Math.max(0, power + in * in - out * out);
+
+            inEnergy += d * d;
+            outEnergy += e * e;
+            backgroundEnergy += eb * eb;
+            int v = Math.round(e);
+            pcm[off + i] = (short) (v > Short.MAX_VALUE ? Short.MAX_VALUE : Math.max(v, Short.MIN_VALUE));
+        }
+
+        // 后台滤波器明显更好、且残差与最近一次采用时相当时（收敛或回声路径变化后重新收敛）采用为前台；
+        // 双讲时后台消不掉近端语音，残差比例比单讲时高出一个量级，不会被采用；明显更差时退回前台系数
+        double residual = backgroundEnergy / (inEnergy + 1);
+        if (backgroundEnergy < outEnergy * ADOPT_RATIO && residual < adoptLimit) {
+            System.arraycopy(background, 0, foreground, 0, taps);
+            adoptLimit = Math.min(adoptLimit, residual * ADOPT_MARGIN);
+        } else {
+            adoptLimit = Math.min(ADOPT_MAX_RESIDUAL, adoptLimit * adoptRelax);
+        }
+        if (backgroundEnergy > outEnergy * REVERT_RATIO + count * REGULARIZATION_RMS * REGULARIZATION_RMS) {
+            System.arraycopy(foreground, 0, background, 0, taps);
+            reverts++;
+        }
+
+        if (farActive && doubleTalkHold == 0) {
+            nearPower += (inEnergy - nearPower) * ERLE_SMOOTHING;
+            errorPower += (outEnergy - errorPower) * ERLE_SMOOTHING;
+            erleDb = 10 * Math.log10((nearPower + 1) / (errorPower + 1));
+        }
+    }
+
+    // 近端最近 WINDOW_BLOCKS 个块与远端包络做归一化互相关，在 [0, MAX_DELAY_MS] 中找峰值
+    private void estimateDelay(long nearBlocks) {
+        long farBlocks = farCount / block;
+        // 窗口内有双讲时近端包络混入了近端语音，跳过本次估计
+        long doubleTalk = doubleTalkFrames - doubleTalkAtEstimate;
+        doubleTalkAtEstimate = doubleTalkFrames;
+        if (!anchored || nearBlocks < WINDOW_BLOCKS || doubleTalk > 0) return;
+        int mask = ENV_RING_BLOCKS - 1;
+
+        double sy = 0, syy = 0;
+        for (long j = nearBlocks - WINDOW_BLOCKS; j < nearBlocks; j++) {
+            double y = nearEnv[(int) j & mask];
+            sy += y;
+            syy += y * y;
+        }
+        double n = WINDOW_BLOCKS;
+        double varY = n * syy - sy * sy;
+        double minFarVariance = n * n * block * block * MIN_FAR_ENV_STD * MIN_FAR_ENV_STD;
+        if (varY <= 0) return;
+
+        double best = 0;
+        int bestLag = -1;
+        for (int lag = 0; lag <= maxLagBlocks; lag++) {
+            // 远端尚未到达窗口末尾对应的块
+            if (nearBlocks - 1 - lag >= farBlocks) continue;
+            double sx = 0, sxx = 0, sxy = 0;
+            for (long j = nearBlocks - WINDOW_BLOCKS; j < nearBlocks; j++) {
+                double x = farEnv[(int) (j - lag) & mask];
+                double y = nearEnv[(int) j & mask];
+                sx += x;
+                sxx += x * x;
+                sxy += x * y;
+            }
+            double varX = n * sxx - sx * sx;
+            // 远端在窗口内基本无声，无法判断
+            if (varX <= minFarVariance) continue;
+            double r = (n * sxy - sx * sy) / Math.sqrt(varX * varY);
+            if (r > best) {
+                best = r;
+                bestLag = lag;
+            }
+        }
+        if (bestLag < 0 || best < MIN_CORRELATION) {
+            candidateLag = -1;
+            candidateCount = 0;
+            return;
+        }
+
+        candidateCount = candidateLag >= 0 && Math.abs(bestLag - candidateLag) <= 1 ? candidateCount + 1 : 1;
+        candidateLag = bestLag;
+        int samples = bestLag * block;
+        if (delay < 0) {
+            if (best >= CONFIDENT_CORRELATION || candidateCount >= 2) setDelay(samples);
+        } else if (candidateCount >= CHANGE_CONFIRMATIONS && erleDb < GOOD_ERLE_DB
+                && Math.abs(samples - delay) >= block * 2) {
+            // 包络相关的精度有限（约数毫秒），且双讲刚结束时的估计不可靠：
+            // 只在滤波器消不掉回声、且连续多次估计一致时才挪动
+            setDelay(samples);
+        }
+    }
+
+    // 采用新的整体延迟；变化时平移系数，使已收敛的回声路径保持不变
+    private void setDelay(int samples) {
+        if (delay >= 0) {
+            // 同一远端采样在新窗口中的位置向后移动 shift
+            int shift = Math.max(0, samples - preSamples) - filterStart();
+            shift(foreground, shift);
+            shift(background, shift);
+        }
+        delay = samples;
+        delayMs = samples * 1000 / sampleRate;
+    }
+
+    private void shift(float[] w, int shift) {
+        if (shift >= taps || -shift >= taps) {
+            Arrays.fill(w, 0);
+        } else if (shift > 0) {
+            System.arraycopy(w, 0, w, shift, taps - shift);
+            Arrays.fill(w, 0, shift, 0);
+        } else if (shift < 0) {
+            System.arraycopy(w, -shift, w, 0, taps + shift);
+            Arrays.fill(w, taps + shift, taps, 0);
+        }
+    }
+
+    /** 估计出的整体回声延迟（毫秒），尚未估计出时为 -1 */
+    public int getDelayMs() { return delayMs; }
+
+    /** 回声返回损耗增强（ERLE，dB），只统计远端有声、无双讲的帧 */
+    public double getErleDb() { return erleDb; }
+
+    /** 检测到双讲的帧数 */
+    public long getDoubleTalkFrames() { return doubleTalkFrames; }
+
+    /** 后台滤波器发散后退回前台系数的次数 */
+    public long getReverts() { return reverts; }
+
+    /** 采集侧来不及取走而丢弃的参考帧数 */
+    public long getRenderOverflows() { return renderRing.getOverflows(); }
+
+    public String getStatsText() {
+        return "延迟 " + (delayMs >= 0 ? delayMs + " ms" : "估计中") + ", ERLE "
+                + String.format("%.1f dB", erleDb) + ", 双讲 " + doubleTalkFrames + " 帧, 回退 " + reverts;
+    }
+}
@@ -0,0 +1,84 @@
+package media;
+
+/**
+ * 原地基 2 复数 FFT（长度为 2 的幂）
+ * - 旋转因子和位反转表在构造时生成，transform()/inverse() 不分配对象
+ * - 实部、虚部分两个 float 数组存放，只使用前 getSize() 个元素
+ *
+ * 实例本身无状态，但不同线程应各自持有实例以免争用数组缓存。
+ */
+public final class Fft {
+
+    private final int size;
+    private final int[] reverse;
+    private final float[] cos;
+    private final float[] sin;
+
+    /**
+     * @param size 变换长度，必须为 2 的幂
+     */
+    public Fft(int size) {
+        if (size < 2 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("FFT 长度必须为 2 的幂: " + size);
+        }
+        this.size = size;
+        int bits = Integer.numberOfTrailingZeros(size);
+        reverse = new int[size];
+        for (int i = 0; i < size; i++) {
+            reverse[i] = Integer.reverse(i) >>> (32 - bits);
+        }
+        cos = new float[size / 2];
+        sin = new float[size / 2];
+        for (int i = 0; i < size / 2; i++) {
+            double a = -2 * Math.PI * i / size;
+            cos[i] = (float) Math.cos(a);
+            sin[i] = (float) Math.sin(a);
+        }
+    }
+
+    public int getSize() { return size; }
+
+    /**
+     * 正变换 X[k] = sum x[n]·e^(-2πikn/N)
+     */
+    public void transform(float[] re, float[] im) {
+        for (int i = 0; i < size; i++) {
+            int j = reverse[i];
+            if (j > i) {
+                float t = re[i]; re[i] = re[j]; re[j] = t;
+                t = im[i]; im[i] = im[j]; im[j] = t;
+            }
+        }
+        for (int len = 2; len <= size; len <<= 1) {
+            int half = len >> 1;
+            int step = size / len;
+            for (int start = 0; start < size; start += len) {
+                for (int k = 0; k < half; k++) {
+                    float wr = cos[k * step];
+                    float wi = sin[k * step];
+                    int a = start + k;
+                    int b = a + half;
+                    float xr = re[b] * wr - im[b] * wi;
+                    float xi = re[b] * wi + im[b] * wr;
+                    re[b] = re[a] - xr;
+                    im[b] = im[a] - xi;
+                    re[a] += xr;
+                    im[a] += xi;
+                }
+            }
+        }
+    }
+
+    /**
+     * 逆变换（含 1/N 缩放），利用共轭关系复用正变换
+     */
+    public void inverse(float[] re, float[] im) {
+        for (int i = 0; i < size; i++) im[i] = -im[i];
+        transform(re, im);
+        float scale = 1.0f / size;
+        for (int i = 0; i < size; i++) {
+            re[i] *= scale;
+            im[i] = -im[i] * scale;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package media;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 单生产者单消费者的无锁环形缓冲区，用于媒体线程之间传递帧或包
+ * - 槽位在构造时预分配，生产者可直接写入槽位（claim/publish），也可拷贝写入（offer）
+ * - 环满时丢弃新帧并计入溢出，生产者永不阻塞
+ * - 消费者可非阻塞读取（poll），也可等待到超时（take），生产者发布时唤醒等待的消费者
+ * - 欠载指该有帧时没有帧：take() 超时自动计入；poll() 为空只是轮询时尚无新帧，单独计数，
+ *   由消费者判断确实缺帧时调用 countUnderrun()
+ * - 每个槽位附带一个 long 标记（如到达时刻），随帧一起传递
+ *
+ * 只允许一个线程写、一个线程读；统计值可从任意线程读取。
+ */
+public class FrameRing {
+
+    private final byte[][] slots;
+    private final int[] lengths;
+    private final long[] stamps;
+    private final int mask;
+
+    // 下一个读位置（只由消费者推进）与下一个写位置（只由生产者推进）
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private volatile Thread waiter;
+
+    private long lastStamp;
+    private volatile long overflows = 0;
+    private volatile long underruns = 0;
+    private volatile long emptyPolls = 0;
+    private volatile int maxDepth = 0;
+
+    /**
+     * @param capacity  槽位数（向上取为 2 的幂）
+     * @param slotBytes 每个槽位的字节数
+     */
+    public FrameRing(int capacity, int slotBytes) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        slots = new byte[size][slotBytes];
+        lengths = new int[size];
+        stamps = new long[size];
+        mask = size - 1;
+    }
+
+    // ===================== 生产者 =====================
+
+    /**
+     * 取得下一个可写槽位；环满时返回 null 并计入溢出
+     */
+    public byte[] claim() {
+        long t = tail.get();
+        if (t - head.get() > mask) {
+            overflows++;
+            return null;
+        }
+        return slots[(int) t & mask];
+    }
+
+    /**
+     * 发布 claim() 取得的槽位
+     */
+    public void publish(int len, long stamp) {
+        long t = tail.get();
+        int i = (int) t & mask;
+        lengths[i] = len;
+        stamps[i] = stamp;
+        // volatile 写：与消费者对 waiter 的写、对 tail 的读配合，保证不丢唤醒
+        tail.set(t + 1);
+
+        int depth = (int) (t + 1 - head.get());
+        if (depth > maxDepth) maxDepth = depth;
+
+        Thread w = waiter;
+        if (w != null) LockSupport.unpark(w);
+    }
+
+    /**
+     * 拷贝写入一帧；环满时丢弃并返回 false
+     */
+    public boolean offer(byte[] data, int off, int len, long stamp) {
+        byte[] slot = claim();
+        if (slot == null) return false;
+        System.arraycopy(data, off, slot, 0, len);
+        publish(len, stamp);
+        return true;
+    }
+
+    // ===================== 消费者 =====================
+
+    /**
+     * 非阻塞读取一帧
+     *
+     * @return 帧长度；环为空时返回 -1 并计入空轮询（不算欠载）
+     */
+    public int poll(byte[] out, int off) {
+        long h = head.get();
+        if (h == tail.get()) {
+            emptyPolls++;
+            return -1;
+        }
+        return read(h, out, off);
+    }
+
+    /**
+     * 读取一帧，环为空时最多等待 timeoutNanos
+     *
+     * @return 帧长度；超时返回 -1 并计入欠载
+     */
+    public int take(byte[] out, int off, long timeoutNanos) {
+        long h = head.get();
+        if (h == tail.get()) {
+            long deadline = System.nanoTime() + timeoutNanos;
+            waiter = Thread.currentThread();
+            try {
+                while (h == tail.get()) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 || Thread.currentThread().isInterrupted()) {
+                        underruns++;
+                        return -1;
+                    }
+                    LockSupport.parkNanos(this, remaining);
+                }
+            } finally {
+                waiter = null;
+            }
+        }
+        return read(h, out, off);
+    }
+
+    /**
+     * 消费者到了取帧的时刻却没有可用的帧（poll() 为空且没有其他来源可以替代）时调用，计入欠载
+     */
+    public void countUnderrun() {
+        underruns++;
+    }
+
+    private int read(long h, byte[] out, int off) {
+        int i = (int) h & mask;
+        int len = lengths[i];
+        System.arraycopy(slots[i], 0, out, off, len);
+        lastStamp = stamps[i];
+        head.lazySet(h + 1);
+        return len;
+    }
+
+    /** 最近读出的一帧的标记（只在消费者线程调用） */
+    public long getLastStamp() { return lastStamp; }
+
+    public boolean isEmpty() { return head.get() == tail.get(); }
+
+    public int size() { return (int) (tail.get() - head.get()); }
+
+    public int getCapacity() { return mask + 1; }
+
+    /** 环满而丢弃的帧数 */
+    public long getOverflows() { return overflows; }
+
+    /** 该有帧时没有帧的次数：take() 超时，或消费者以 countUnderrun() 报告 */
+    public long getUnderruns() { return underruns; }
+
+    /** poll() 时环为空的次数，只是轮询比生产者快，不算欠载 */
+    public long getEmptyPolls() { return emptyPolls; }
+
+    /** 出现过的最大积压帧数 */
+    public int getMaxDepth() { return maxDepth; }
+
+    public String getStatsText() {
+        return "积压 " + size() + "/" + getCapacity() + " (最大 " + maxDepth + "), 溢出 " + overflows + ", 欠载 " + underruns;
+    }
+}
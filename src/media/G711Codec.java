@@ -0,0 +1,151 @@
+package media;
+
+/**
+ * G.711 µ-law / A-law 编解码（ITU-T G.711，纯查表实现）
+ * - 每个采样压缩为 1 字节，8kHz 下 64 kbit/s，为线性 PCM 的一半
+ * - 编码表按 14bit(µ-law) / 13bit(A-law) 量化后的线性值索引，解码表 256 项
+ * - 表在类加载时生成一次，编解码过程只做数组访问
+ */
+public class G711Codec implements AudioCodec {
+
+    public static final String PCMU = "PCMU";
+    public static final String PCMA = "PCMA";
+
+    public static final int PAYLOAD_PCMU = 0;
+    public static final int PAYLOAD_PCMA = 8;
+
+    private static final int ULAW_BIAS = 0x84;
+    private static final int ULAW_CLIP = 8159;
+    private static final int[] ULAW_SEG_END = {0x3F, 0x7F, 0xFF, 0x1FF, 0x3FF, 0x7FF, 0xFFF, 0x1FFF};
+    private static final int[] ALAW_SEG_END = {0x1F, 0x3F, 0x7F, 0xFF, 0x1FF, 0x3FF, 0x7FF, 0xFFF};
+
+    private static final byte[] ULAW_ENCODE = new byte[1 << 14];
+    private static final byte[] ALAW_ENCODE = new byte[1 << 13];
+    private static final short[] ULAW_DECODE = new short[256];
+    private static final short[] ALAW_DECODE = new short[256];
+
+    static {
+        for (int i = 0; i < ULAW_ENCODE.length; i++) {
+            ULAW_ENCODE[i] = (byte) linearToUlaw(i - (1 << 13));
+        }
+        for (int i = 0; i < ALAW_ENCODE.length; i++) {
+            ALAW_ENCODE[i] = (byte) linearToAlaw(i - (1 << 12));
+        }
+        for (int i = 0; i < 256; i++) {
+            ULAW_DECODE[i] = (short) ulawToLinear(i);
+            ALAW_DECODE[i] = (short) alawToLinear(i);
+        }
+    }
+
+    private final boolean ulaw;
+
+    /**
+     * @param ulaw true 为 µ-law（PCMU），false 为 A-law（PCMA）
+     */
+    public G711Codec(boolean ulaw) {
+        this.ulaw = ulaw;
+    }
+
+    @Override
+    public String getName() { return ulaw ? PCMU : PCMA; }
+
+    @Override
+    public int getPayloadType() { return ulaw ? PAYLOAD_PCMU : PAYLOAD_PCMA; }
+
+    @Override
+    public int getEncodedSize(int samples) { return samples; }
+
+    @Override
+    public int encode(short[] pcm, int off, int count, byte[] out, int outOff) {
+        if (ulaw) {
+            for (int i = 0; i < count; i++) {
+                out[outOff + i] = ULAW_ENCODE[(pcm[off + i] >> 2) + (1 << 13)];
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                out[outOff + i] = ALAW_ENCODE[(pcm[off + i] >> 3) + (1 << 12)];
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int decode(byte[] in, int off, int len, short[] pcm, int pcmOff) {
+        short[] table = ulaw ? ULAW_DECODE : ALAW_DECODE;
+        for (int i = 0; i < len; i++) {
+            pcm[pcmOff + i] = table[in[off + i] & 0xFF];
+        }
+        return len;
+    }
+
+    // ============================
+    // 参考算法（仅用于生成查找表）
+    // ============================
+
+    // 输入为右移 2 位后的 14bit 线性值
+    private static int linearToUlaw(int pcm) {
+        int mask;
+        if (pcm < 0) {
+            pcm = -pcm;
+            mask = 0x7F;
+        } else {
+            mask = 0xFF;
+        }
+        if (pcm > ULAW_CLIP) pcm = ULAW_CLIP;
+        pcm += ULAW_BIAS >> 2;
+
+        int seg = segment(pcm, ULAW_SEG_END);
+        if (seg >= 8) return 0x7F ^ mask;
+        return ((seg << 4) | ((pcm >> (seg + 1)) & 0x0F)) ^ mask;
+    }
+
+    private static int ulawToLinear(int u) {
+        u = ~u;
+        int t = ((u & 0x0F) << 3) + ULAW_BIAS;
+        t <<= (u & 0x70) >> 4;
+        return (u & 0x80) != 0 ? ULAW_BIAS - t : t - ULAW_BIAS;
+    }
+
+    // 输入为右移 3 位后的 13bit 线性值
+    private static int linearToAlaw(int pcm) {
+        int mask;
+        if (pcm >= 0) {
+            mask = 0xD5;
+        } else {
+            mask = 0x55;
+            pcm = -pcm - 1;
+        }
+
+        int seg = segment(pcm, ALAW_SEG_END);
+        if (seg >= 8) return 0x7F ^ mask;
+
+        int aval = seg << 4;
+        aval |= seg < 2 ? (pcm >> 1) & 0x0F : (pcm >> seg) & 0x0F;
+        return aval ^ mask;
+    }
+
+    private static int alawToLinear(int a) {
+        a ^= 0x55;
+        int t = (a & 0x0F) << 4;
+        int seg = (a & 0x70) >> 4;
+        switch (seg) {
+            case 0:
+                t += 8;
+                break;
+            case 1:
+                t += 0x108;
+                break;
+            default:
+                t += 0x108;
+                t <<= seg - 1;
+        }
+        return (a & 0x80) != 0 ? t : -t;
+    }
+
+    private static int segment(int value, int[] table) {
+        for (int i = 0; i < table.length; i++) {
+            if (value <= table[i]) return i;
+        }
+        return table.length;
+    }
+}
@@ -0,0 +1,63 @@
+package media;
+
+/**
+ * IMA/DVI ADPCM 实时语音编码（RTP DVI4 负载格式，RFC 3551 4.5.1）
+ * - 每个采样 4bit，8kHz 下约 32 kbit/s，为线性 PCM 的 1/4
+ * - 每帧前 4 字节为编码器状态：预测值(16bit) + 步长索引(8bit) + 保留(8bit)，
+ *   因此每个包都能独立解码，丢包不会让后续帧失真
+ * - 编码器状态跨帧延续（流式），编解码过程不分配对象
+ */
+public class ImaAdpcmCodec implements AudioCodec {
+
+    public static final String NAME = "DVI4";
+    public static final int PAYLOAD_DVI4 = 5;
+
+    private static final int HEADER_SIZE = 4;
+
+    private final ImaAdpcmState state = new ImaAdpcmState();
+
+    @Override
+    public String getName() { return NAME; }
+
+    @Override
+    public int getPayloadType() { return PAYLOAD_DVI4; }
+
+    @Override
+    public int getEncodedSize(int samples) {
+        return HEADER_SIZE + (samples + 1) / 2;
+    }
+
+    @Override
+    public int encode(short[] pcm, int off, int count, byte[] out, int outOff) {
+        int p = state.predictor;
+        out[outOff] = (byte) (p >> 8);
+        out[outOff + 1] = (byte) p;
+        out[outOff + 2] = (byte) state.index;
+        out[outOff + 3] = 0;
+
+        int pos = outOff + HEADER_SIZE;
+        for (int i = 0; i < count; i += 2) {
+            // 第一个采样放在高 4 位
+            int hi = state.encode(pcm[off + i]);
+            int lo = i + 1 < count ? state.encode(pcm[off + i + 1]) : 0;
+            out[pos++] = (byte) ((hi << 4) | lo);
+        }
+        return pos - outOff;
+    }
+
+    @Override
+    public int decode(byte[] in, int off, int len, short[] pcm, int pcmOff) {
+        if (len < HEADER_SIZE) return 0;
+
+        int predictor = (short) ((in[off] << 8) | (in[off + 1] & 0xFF));
+        state.set(predictor, in[off + 2] & 0xFF);
+
+        int n = 0;
+        for (int i = off + HEADER_SIZE; i < off + len; i++) {
+            int b = in[i] & 0xFF;
+            pcm[pcmOff + n++] = (short) state.decode(b >> 4);
+            pcm[pcmOff + n++] = (short) state.decode(b & 0x0F);
+        }
+        return n;
+    }
+}
@@ -0,0 +1,104 @@
+package media;
+
+/**
+ * IMA/DVI ADPCM 单通道编解码状态（预测值 + 步长索引）
+ * 每个采样压缩为 4bit，编码器与解码器各持有一个实例。
+ */
+final class ImaAdpcmState {
+
+    private static final int[] INDEX_TABLE = {
+            -1, -1, -1, -1, 2, 4, 6, 8,
+            -1, -1, -1, -1, 2, 4, 6, 8
+    };
+
+    private static final int[] STEP_TABLE = {
+            7, 8, 9, 10, 11, 12, 13, 14, 16, 17,
+            19, 21, 23, 25, 28, 31, 34, 37, 41, 45,
+            50, 55, 60, 66, 73, 80, 88, 97, 107, 118,
+            130, 143, 157, 173, 190, 209, 230, 253, 279, 307,
+            337, 371, 408, 449, 494, 544, 598, 658, 724, 796,
+            876, 963, 1060, 1166, 1282, 1411, 1552, 1707, 1878, 2066,
+            2272, 2499, 2749, 3024, 3327, 3660, 4026, 4428, 4871, 5358,
+            5894, 6484, 7132, 7845, 8630, 9493, 10442, 11487, 12635, 13899,
+            15289, 16818, 18500, 20350, 22385, 24623, 27086, 29794, 32767
+    };
+
+    int predictor;
+    int index;
+
+    void reset() {
+        predictor = 0;
+        index = 0;
+    }
+
+    void set(int predictor, int index) {
+        this.predictor = predictor;
+        this.index = Math.max(0, Math.min(88, index));
+    }
+
+    /**
+     * 编码一个采样
+     *
+     * @return 4bit 码字
+     */
+    int encode(int sample) {
+        int step = STEP_TABLE[index];
+        int diff = sample - predictor;
+        int nibble = 0;
+        if (diff < 0) {
+            nibble = 8;
+            diff = -diff;
+        }
+
+        int vpdiff = step >> 3;
+        if (diff >= step) {
+            nibble |= 4;
+            diff -= step;
+            vpdiff += step;
+        }
+        step >>= 1;
+        if (diff >= step) {
+            nibble |= 2;
+            diff -= step;
+            vpdiff += step;
+        }
+        step >>= 1;
+        if (diff >= step) {
+            nibble |= 1;
+            vpdiff += step;
+        }
+
+        update(nibble, vpdiff);
+        return nibble;
+    }
+
+    /**
+     * 解码一个 4bit 码字
+     *
+     * @return 16bit 采样
+     */
+    int decode(int nibble) {
+        int step = STEP_TABLE[index];
+        int vpdiff = step >> 3;
+        if ((nibble & 4) != 0) vpdiff += step;
+        if ((nibble & 2) != 0) vpdiff += step >> 1;
+        if ((nibble & 1) != 0) vpdiff += step >> 2;
+
+        update(nibble, vpdiff);
+        return predictor;
+    }
+
+    private void update(int nibble, int vpdiff) {
+        if ((nibble & 8) != 0) {
+            predictor -= vpdiff;
+            if (predictor < -32768) predictor = -32768;
+        } else {
+            predictor += vpdiff;
+            if (predictor > 32767) predictor = 32767;
+        }
+
+        index += INDEX_TABLE[nibble];
+        if (index < 0) index = 0;
+        else if (index > 88) index = 88;
+    }
+}
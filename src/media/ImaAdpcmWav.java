@@ -0,0 +1,139 @@
+package media;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.*;
+
+/**
+ * 把 PCM WAV 转为 IMA ADPCM WAV（WAVE_FORMAT_IMA_ADPCM = 0x0011）
+ * 用于音频消息：文件大小约为 16bit PCM 的 1/4，常见播放器均可直接播放。
+ *
+ * 块格式（每声道）：首采样(16bit LE) + 步长索引(8bit) + 保留(8bit)，
+ * 随后每字节两个采样，低 4 位在前。按固定大小的块流式处理，不分配逐帧对象。
+ */
+public final class ImaAdpcmWav {
+
+    public static final int FORMAT_IMA_ADPCM = 0x0011;
+
+    // 8kHz 单声道常用块大小：256 字节 = 505 个采样
+    private static final int BLOCK_ALIGN = 256;
+    private static final int SAMPLES_PER_BLOCK = (BLOCK_ALIGN - 4) * 2 + 1;
+    private static final int HEADER_SIZE = 60;
+
+    private ImaAdpcmWav() {}
+
+    /**
+     * 转码
+     *
+     * @param pcmWav 16bit PCM WAV（单声道）
+     * @param out    输出的 ADPCM WAV
+     */
+    public static void encode(File pcmWav, File out) throws Exception {
+        try (AudioInputStream source = AudioSystem.getAudioInputStream(pcmWav)) {
+            AudioFormat src = source.getFormat();
+            AudioFormat pcmFormat = new AudioFormat(src.getSampleRate(), 16, 1, true, false);
+            AudioInputStream pcm = src.matches(pcmFormat) ? source : AudioSystem.getAudioInputStream(pcmFormat, source);
+            encode(pcm, (int) src.getSampleRate(), out);
+        }
+    }
+
+    /**
+     * 转码 16bit 小端单声道 PCM 流
+     */
+    public static void encode(InputStream pcm, int sampleRate, File out) throws IOException {
+        byte[] inBlock = new byte[SAMPLES_PER_BLOCK * 2];
+        short[] samples = new short[SAMPLES_PER_BLOCK];
+        byte[] outBlock = new byte[BLOCK_ALIGN];
+        ImaAdpcmState state = new ImaAdpcmState();
+
+        try (RandomAccessFile raf = new RandomAccessFile(out, "rw")) {
+            raf.setLength(0);
+            raf.write(new byte[HEADER_SIZE]);
+
+            long totalSamples = 0;
+            long dataBytes = 0;
+            int n;
+            while ((n = readFully(pcm, inBlock)) > 0) {
+                int count = Pcm.toShorts(inBlock, 0, n, false, samples, 0);
+                encodeBlock(state, samples, count, outBlock);
+                raf.write(outBlock);
+                totalSamples += count;
+                dataBytes += BLOCK_ALIGN;
+            }
+
+            raf.seek(0);
+            raf.write(header(sampleRate, totalSamples, dataBytes));
+        }
+    }
+
+    private static void encodeBlock(ImaAdpcmState state, short[] samples, int count, byte[] out) {
+        // 块首采样原样保存，同时作为预测值
+        int first = samples[0];
+        state.set(first, state.index);
+        out[0] = (byte) first;
+        out[1] = (byte) (first >> 8);
+        out[2] = (byte) state.index;
+        out[3] = 0;
+
+        int pos = 4;
+        for (int i = 1; i < SAMPLES_PER_BLOCK; i += 2) {
+            int lo = state.encode(i < count ? samples[i] : 0);
+            int hi = state.encode(i + 1 < count ? samples[i + 1] : 0);
+            out[pos++] = (byte) (lo | (hi << 4));
+        }
+    }
+
+    private static byte[] header(int sampleRate, long totalSamples, long dataBytes) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(HEADER_SIZE);
+        DataOutputStream out = new DataOutputStream(bos);
+        try {
+            out.writeBytes("RIFF");
+            writeIntLE(out, (int) (HEADER_SIZE - 8 + dataBytes));
+            out.writeBytes("WAVE");
+
+            out.writeBytes("fmt ");
+            writeIntLE(out, 20);
+            writeShortLE(out, FORMAT_IMA_ADPCM);
+            writeShortLE(out, 1);
+            writeIntLE(out, sampleRate);
+            writeIntLE(out, sampleRate * BLOCK_ALIGN / SAMPLES_PER_BLOCK);
+            writeShortLE(out, BLOCK_ALIGN);
+            writeShortLE(out, 4);
+            writeShortLE(out, 2);
+            writeShortLE(out, SAMPLES_PER_BLOCK);
+
+            out.writeBytes("fact");
+            writeIntLE(out, 4);
+            writeIntLE(out, (int) totalSamples);
+
+            out.writeBytes("data");
+            writeIntLE(out, (int) dataBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bos.toByteArray();
+    }
+
+    private static int readFully(InputStream in, byte[] buf) throws IOException {
+        int total = 0;
+        while (total < buf.length) {
+            int n = in.read(buf, total, buf.length - total);
+            if (n < 0) break;
+            total += n;
+        }
+        return total & ~1;
+    }
+
+    private static void writeIntLE(DataOutputStream out, int v) throws IOException {
+        out.write(v);
+        out.write(v >> 8);
+        out.write(v >> 16);
+        out.write(v >> 24);
+    }
+
+    private static void writeShortLE(DataOutputStream out, int v) throws IOException {
+        out.write(v);
+        out.write(v >> 8);
+    }
+}
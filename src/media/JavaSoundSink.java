@@ -0,0 +1,59 @@
+package media;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import java.io.IOException;
+
+/**
+ * 声卡播放（javax.sound 的 SourceDataLine），write() 的阻塞即为播放时钟
+ */
+public class JavaSoundSink implements AudioSink {
+
+    private volatile SourceDataLine line;
+
+    @Override
+    public String getName() { return AudioDevices.SOUND_CARD; }
+
+    @Override
+    public boolean isFormatSupported(AudioFormat format) {
+        return AudioSystem.isLineSupported(new DataLine.Info(SourceDataLine.class, format));
+    }
+
+    @Override
+    public void open(AudioFormat format, int bufferBytes) throws IOException {
+        try {
+            SourceDataLine l = (SourceDataLine) AudioSystem.getLine(new DataLine.Info(SourceDataLine.class, format));
+            l.open(format, bufferBytes);
+            l.start();
+            line = l;
+        } catch (LineUnavailableException | IllegalArgumentException e) {
+            throw new IOException("扬声器不可用: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void write(byte[] buf, int off, int len) throws IOException {
+        SourceDataLine l = line;
+        if (l == null) throw new IOException("扬声器已关闭");
+        l.write(buf, off, len);
+    }
+
+    @Override
+    public void drain() {
+        SourceDataLine l = line;
+        if (l != null) l.drain();
+    }
+
+    @Override
+    public void close() {
+        SourceDataLine l = line;
+        line = null;
+        if (l != null) {
+            l.stop();
+            l.close();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package media;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.TargetDataLine;
+import java.io.IOException;
+
+/**
+ * 声卡采集（javax.sound 的 TargetDataLine），read() 由声卡的采样时钟驱动
+ */
+public class JavaSoundSource implements AudioSource {
+
+    private volatile TargetDataLine line;
+
+    @Override
+    public String getName() { return AudioDevices.SOUND_CARD; }
+
+    @Override
+    public boolean isFormatSupported(AudioFormat format) {
+        return AudioSystem.isLineSupported(new DataLine.Info(TargetDataLine.class, format));
+    }
+
+    @Override
+    public void open(AudioFormat format) throws IOException {
+        try {
+            TargetDataLine l = (TargetDataLine) AudioSystem.getLine(new DataLine.Info(TargetDataLine.class, format));
+            l.open(format);
+            l.start();
+            line = l;
+        } catch (LineUnavailableException | IllegalArgumentException e) {
+            throw new IOException("麦克风不可用: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public int read(byte[] buf, int off, int len) {
+        TargetDataLine l = line;
+        if (l == null || !l.isOpen()) return -1;
+        int n = l.read(buf, off, len);
+        // 关闭线路会使阻塞中的读取提前返回
+        return n > 0 || l.isOpen() ? n : -1;
+    }
+
+    @Override
+    public void close() {
+        TargetDataLine l = line;
+        line = null;
+        if (l != null) {
+            l.stop();
+            l.close();
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package media;
+
+/**
+ * 自适应抖动缓冲区（位于 UDP 接收与扬声器播放之间）
+ * - 按序号保存语音帧，乱序到达的包在这里重新排好
+ * - 迟到（已错过播放时刻）和重复的包直接丢弃并计数
+ * - 按 RFC 3550 的到达间隔抖动估计动态调整目标深度
+ * - 静音期间丢弃多余的帧，把口到耳延迟压回目标值
+ * - 支持静音描述帧（DTX）：SID 之后缓冲区变空属于正常停发，不计为欠载，
+ *   下一个语音段的首包重新预缓冲
+ * - 支持冗余恢复（FEC）：后续包携带的前帧副本可补上尚未播放的缺失帧
+ *
+ * 接收线程调用 put()，播放线程调用 poll()，两者通过对象锁同步。
+ */
+public class JitterBuffer {
+
+    /** poll 返回值：当前序号的帧缺失（丢包或迟到），播放位置已前进 */
+    public static final int MISSING = -1;
+    /** poll 返回值：缓冲区为空或正在预缓冲，播放位置未前进 */
+    public static final int EMPTY = -2;
+
+    // 抖动估计的平滑系数（RFC 3550：1/16）
+    private static final int JITTER_SHIFT = 4;
+    // 目标延迟 = 抖动估计 * 该倍数（与突发峰值取大）
+    private static final double JITTER_FACTOR = 3.0;
+    // 峰值抖动每收到一个包的衰减比例
+    private static final double PEAK_DECAY = 0.995;
+
+    private final int capacity;
+    private final int clockRate;
+    private final int minDelayMs;
+    private final int maxDelayMs;
+
+    private final byte[][] slots;
+    private final int[] lengths;
+    private final long[] seqs;
+    private final boolean[] comfortNoise;
+
+    private int count = 0;
+    private long playoutSeq = -1;
+    private long highestSeq = -1;
+    private boolean playing = false;
+    private boolean synced = false;
+    // 最近取出的帧是否为静音描述帧；为 true 时对端处于停发状态
+    private boolean lastComfortNoise = false;
+    private boolean inSilence = false;
+
+    // 抖动估计（时间戳单位）；时间戳为 32bit 且从随机值开始，只取相邻两包的差值（有符号 32bit），回绕不影响
+    private long lastArrival = Long.MIN_VALUE;
+    private double jitter = 0;
+    private double peakJitter = 0;
+    private long lastTimestamp = -1;
+    private long lastSeq = -1;
+    private boolean lastPutComfortNoise = false;
+    private int frameMs = 20;
+    private int targetDepth = 1;
+    // 冗余恢复需要的最小深度（缺失帧在后续包到达前不能已被播放）
+    private int minDepth = 1;
+
+    // 统计计数
+    private long received = 0;
+    private long lateDrops = 0;
+    private long duplicates = 0;
+    private long missing = 0;
+    private long underruns = 0;
+    private long drained = 0;
+    private long resyncs = 0;
+    private long silencePauses = 0;
+    private long recovered = 0;
+
+    /**
+     * @param capacity      最多缓存的帧数
+     * @param maxFrameBytes 单帧最大字节数
+     * @param clockRate     时间戳时钟频率（每秒采样数）
+     * @param minDelayMs    目标延迟下限
+     * @param maxDelayMs    目标延迟上限
+     */
+    public JitterBuffer(int capacity, int maxFrameBytes, int clockRate, int minDelayMs, int maxDelayMs) {
+        this.capacity = capacity;
+        this.clockRate = clockRate;
+        this.minDelayMs = minDelayMs;
+        this.maxDelayMs = maxDelayMs;
+
+        slots = new byte[capacity][maxFrameBytes];
+        lengths = new int[capacity];
+        seqs = new long[capacity];
+        comfortNoise = new boolean[capacity];
+        java.util.Arrays.fill(seqs, -1);
+        updateTarget();
+    }
+
+    /**
+     * 放入一帧
+     *
+     * @param seq       扩展序号（单调递增，不回绕）
+     * @param timestamp 媒体时间戳（采样数，32bit，可回绕）
+     * @param arrivalMs 到达时刻（毫秒）
+     */
+    public void put(long seq, long timestamp, byte[] data, int off, int len, long arrivalMs) {
+        put(seq, timestamp, false, data, off, len, arrivalMs);
+    }
+
+    /**
+     * 放入一帧
+     *
+     * @param isComfortNoise 该帧是静音描述帧（SID）而不是编码后的语音
+     */
+    public synchronized void put(long seq, long timestamp, boolean isComfortNoise,
+                                 byte[] data, int off, int len, long arrivalMs) {
+        received++;
+        updateJitter(seq, timestamp, isComfortNoise, arrivalMs);
+
+        if (synced && seq < playoutSeq) {
+            lateDrops++;
+            return;
+        }
+
+        if (count == 0 && !playing) {
+            // 首包或欠载后的第一个包：从这里开始播放（欠载期间错过的帧不再补放）
+            playoutSeq = seq;
+            highestSeq = seq;
+        } else if (seq - playoutSeq >= capacity || highestSeq - seq >= capacity) {
+            // 序号跳变过大（对端重启或长时间中断），清空后重新同步
+            resync(seq);
+        } else if (!playing && seq < playoutSeq) {
+            // 预缓冲阶段收到更早的帧，把播放起点前移
+            playoutSeq = seq;
+        }
+
+        int idx = index(seq);
+        if (seqs[idx] == seq) {
+            duplicates++;
+            return;
+        }
+
+        int n = Math.min(len, slots[idx].length);
+        System.arraycopy(data, off, slots[idx], 0, n);
+        lengths[idx] = n;
+        seqs[idx] = seq;
+        comfortNoise[idx] = isComfortNoise;
+        count++;
+        if (seq > highestSeq) highestSeq = seq;
+    }
+
+    /**
+     * 放入由冗余数据恢复的帧：只填补已同步、尚未播放的空位，不参与抖动估计
+     *
+     * @return true 表示确实补上了一个缺失帧
+     */
+    public synchronized boolean putRecovered(long seq, byte[] data, int off, int len) {
+        if (!synced || seq < playoutSeq || seq > highestSeq) return false;
+
+        int idx = index(seq);
+        if (seqs[idx] == seq) return false;
+
+        int n = Math.min(len, slots[idx].length);
+        System.arraycopy(data, off, slots[idx], 0, n);
+        lengths[idx] = n;
+        seqs[idx] = seq;
+        comfortNoise[idx] = false;
+        count++;
+        recovered++;
+        return true;
+    }
+
+    /**
+     * 设置最小缓冲深度（帧），对端携带 n 个冗余帧时应设为 n + 1
+     */
+    public synchronized void setMinDepth(int frames) {
+        minDepth = Math.max(1, Math.min(capacity - 1, frames));
+        updateTarget();
+    }
+
+    /**
+     * 取出下一帧
+     *
+     * @return 帧长度；MISSING 表示该帧缺失；EMPTY 表示暂无可播放的帧
+     */
+    public synchronized int poll(byte[] out) {
+        if (!playing) {
+            if (count == 0 || depth() < targetDepth) return EMPTY;
+            playing = true;
+            synced = true;
+        }
+
+        if (count == 0) {
+            // 播放追上了接收：欠载，重新预缓冲到目标深度；对端处于 DTX 停发时不算欠载
+            if (lastComfortNoise) {
+                silencePauses++;
+                inSilence = true;
+            } else {
+                underruns++;
+            }
+            playing = false;
+            return EMPTY;
+        }
+
+        int idx = index(playoutSeq);
+        playoutSeq++;
+
+        if (seqs[idx] != playoutSeq - 1) {
+            missing++;
+            return MISSING;
+        }
+
+        int len = lengths[idx];
+        System.arraycopy(slots[idx], 0, out, 0, len);
+        seqs[idx] = -1;
+        count--;
+        lastComfortNoise = comfortNoise[idx];
+        inSilence = lastComfortNoise;
+        return len;
+    }
+
+    /** 最近一次 poll() 返回的帧是否为静音描述帧（SID） */
+    public synchronized boolean isComfortNoise() {
+        return lastComfortNoise;
+    }
+
+    /** 对端当前是否处于静音停发（DTX）状态，播放端应继续输出舒适噪声 */
+    public synchronized boolean isInSilence() {
+        return inSilence;
+    }
+
+    /**
+     * 刚取出的是静音帧时调用：若当前深度超过目标则丢弃它（不送往扬声器）
+     *
+     * @return true 表示调用方应丢弃该帧
+     */
+    public synchronized boolean tryDrainSilence() {
+        if (playing && count > 0 && depth() > targetDepth) {
+            drained++;
+            return true;
+        }
+        return false;
+    }
+
+    /** 清空缓冲区与统计，开始新的通话 */
+    public synchronized void reset() {
+        java.util.Arrays.fill(seqs, -1);
+        count = 0;
+        playoutSeq = -1;
+        highestSeq = -1;
+        playing = false;
+        synced = false;
+        lastComfortNoise = false;
+        inSilence = false;
+        lastArrival = Long.MIN_VALUE;
+        lastTimestamp = -1;
+        lastSeq = -1;
+        lastPutComfortNoise = false;
+        jitter = 0;
+        peakJitter = 0;
+        received = lateDrops = duplicates = missing = underruns = drained = resyncs = silencePauses = recovered = 0;
+        minDepth = 1;
+        updateTarget();
+    }
+
+    private void resync(long seq) {
+        java.util.Arrays.fill(seqs, -1);
+        count = 0;
+        playoutSeq = seq;
+        highestSeq = seq;
+        playing = false;
+        synced = false;
+        resyncs++;
+    }
+
+    private int index(long seq) {
+        return (int) (seq % capacity);
+    }
+
+    // 当前缓存跨越的帧数（包含中间缺失的帧）
+    private int depth() {
+        return count == 0 ? 0 : (int) (highestSeq - playoutSeq + 1);
+    }
+
+    private void updateJitter(long seq, long timestamp, boolean isComfortNoise, long arrivalMs) {
+        long arrival = arrivalMs * clockRate / 1000;
+        // 与上一包的时间戳差（有符号 32bit，跨越回绕时仍为一帧的采样数）
+        int step = (int) (timestamp - lastTimestamp);
+
+        if (lastArrival != Long.MIN_VALUE) {
+            // 两包传输时间之差 D(i-1, i) = (到达差) - (时间戳差)
+            long d = Math.abs((arrival - lastArrival) - step);
+            jitter += (d - jitter) / (1 << JITTER_SHIFT);
+            peakJitter = Math.max(peakJitter * PEAK_DECAY, d);
+        }
+        lastArrival = arrival;
+
+        // 帧长只从相邻的两个语音帧推算（SID 前后的时间戳跨越了整段静音）
+        if (lastTimestamp >= 0 && step > 0 && seq == lastSeq + 1
+                && !isComfortNoise && !lastPutComfortNoise) {
+            int ms = (int) ((long) step * 1000 / clockRate);
+            if (ms > 0 && ms <= 200) frameMs = ms;
+        }
+        lastTimestamp = timestamp;
+        lastSeq = seq;
+        lastPutComfortNoise = isComfortNoise;
+
+        updateTarget();
+    }
+
+    private void updateTarget() {
+        double jitterMs = Math.max(jitter * JITTER_FACTOR, peakJitter) * 1000.0 / clockRate;
+        int delayMs = (int) Math.min(maxDelayMs, Math.max(minDelayMs, frameMs + jitterMs));
+        targetDepth = Math.max(minDepth, Math.min(capacity - 1, (delayMs + frameMs - 1) / frameMs));
+    }
+
+    // ============================
+    // 统计信息
+    // ============================
+    public synchronized int getDepth() { return depth(); }
+    public synchronized int getTargetDepth() { return targetDepth; }
+    public synchronized int getDepthMs() { return depth() * frameMs; }
+    public synchronized double getJitterMs() { return jitter * 1000.0 / clockRate; }
+    public synchronized long getReceived() { return received; }
+    public synchronized long getLateDrops() { return lateDrops; }
+    public synchronized long getDuplicates() { return duplicates; }
+    public synchronized long getMissing() { return missing; }
+    public synchronized long getUnderruns() { return underruns; }
+    public synchronized long getDrained() { return drained; }
+    public synchronized long getResyncs() { return resyncs; }
+    public synchronized long getSilencePauses() { return silencePauses; }
+    public synchronized long getRecovered() { return recovered; }
+    public synchronized double getJitterTimestampUnits() { return jitter; }
+
+    public synchronized String getStatsText() {
+        return String.format("深度 %d/%d 帧 (%d ms), 抖动 %.1f ms, 迟到 %d, 重复 %d, 缺失 %d, 欠载 %d, 静音丢弃 %d, 静音停发 %d, FEC 恢复 %d",
+                depth(), targetDepth, depth() * frameMs, jitter * 1000.0 / clockRate,
+                lateDrops, duplicates, missing, underruns, drained, silencePauses, recovered);
+    }
+}
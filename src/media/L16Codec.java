@@ -0,0 +1,28 @@
+package media;
+
+/**
+ * 16bit 线性 PCM（网络字节序），即未压缩的原始格式
+ */
+public class L16Codec implements AudioCodec {
+
+    public static final String NAME = "L16";
+
+    @Override
+    public String getName() { return NAME; }
+
+    @Override
+    public int getPayloadType() { return RtpPacket.PAYLOAD_L16; }
+
+    @Override
+    public int getEncodedSize(int samples) { return samples * 2; }
+
+    @Override
+    public int encode(short[] pcm, int off, int count, byte[] out, int outOff) {
+        return Pcm.toBytes(pcm, off, count, true, out, outOff);
+    }
+
+    @Override
+    public int decode(byte[] in, int off, int len, short[] pcm, int pcmOff) {
+        return Pcm.toShorts(in, off, len, true, pcm, pcmOff);
+    }
+}
@@ -0,0 +1,56 @@
+package media;
+
+/**
+ * 播放端限幅器：只衰减不放大，防止过响的对端、丢包隐藏或舒适噪声在扬声器上削波
+ * - 单帧峰值超过门限时本帧立即把增益压到刚好不超限，之后按 RELEASE 缓慢恢复到 0 dB
+ * - 与 AutomaticGainControl 共用 Q12 定点整数增益和逐采样的整数乘法
+ *
+ * 只能由一个线程调用 process()，统计值可从其他线程读取。不分配对象。
+ */
+public class Limiter {
+
+    // 增益每秒最多恢复的分贝数
+    private static final double RELEASE_DB_PER_SECOND = 10;
+
+    private final int releaseStep;
+    private int gain = AutomaticGainControl.UNITY;
+
+    private volatile long limitedFrames = 0;
+    private volatile int lowestGain = AutomaticGainControl.UNITY;
+
+    /**
+     * @param frameMs 每次 process() 输入的帧长（毫秒）
+     */
+    public Limiter(int frameMs) {
+        releaseStep = AutomaticGainControl.toGain(RELEASE_DB_PER_SECOND * frameMs / 1000);
+    }
+
+    /**
+     * 原地限幅一帧 PCM
+     */
+    public void process(short[] pcm, int off, int count) {
+        if (count <= 0) return;
+        int peak = 0;
+        for (int i = off; i < off + count; i++) {
+            int a = Math.abs(pcm[i]);
+            if (a > peak) peak = a;
+        }
+
+        int previous = gain;
+        int target = Math.min(AutomaticGainControl.UNITY, (int) ((long) gain * releaseStep >> 12));
+        if ((long) peak * target > (long) AutomaticGainControl.LIMIT_PEAK * AutomaticGainControl.UNITY) {
+            target = (int) ((long) AutomaticGainControl.LIMIT_PEAK * AutomaticGainControl.UNITY / peak);
+            limitedFrames++;
+            if (target < lowestGain) lowestGain = target;
+        }
+        AutomaticGainControl.applyGain(pcm, off, count, Math.min(previous, target), target);
+        gain = target;
+    }
+
+    /** 触发限幅的帧数 */
+    public long getLimitedFrames() { return limitedFrames; }
+
+    public String getStatsText() {
+        return String.format("限幅 %d 帧, 最大衰减 %.1f dB", limitedFrames, -AutomaticGainControl.toDb(lowestGain));
+    }
+}
@@ -0,0 +1,245 @@
+package media;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 通话四个媒体线程（采集 / 发送 / 接收 / 播放）每次循环所做的处理，线程之间经 FrameRing 传递帧或包。
+ * 每个线程持有一个实例，缓冲区在构造时分配，稳态下每次调用不分配对象。
+ * 线程的启停、统计与界面相关的部分留在 AudioController；bench.AllocationBenchmark 直接驱动这些方法检查内存分配。
+ */
+public final class MediaLoops {
+
+    private MediaLoops() {}
+
+    /**
+     * 采集线程：只负责把设备读到的帧直接写入采集环，不做任何可能阻塞的处理；
+     * 发送线程跟不上时丢弃新帧（计入溢出），采集永不等待网络
+     */
+    public static final class Capture {
+        private final AudioSource source;
+        private final FrameRing ring;
+        private final int frameBytes;
+        private final byte[] discard;
+
+        public Capture(AudioSource source, FrameRing ring, int frameBytes) {
+            this.source = source;
+            this.ring = ring;
+            this.frameBytes = frameBytes;
+            discard = new byte[frameBytes];
+        }
+
+        /**
+         * 从设备读一帧（阻塞）写入采集环；环满时照常读出并丢弃，保持设备不溢出
+         *
+         * @return 设备输入已结束时返回 false
+         */
+        public boolean captureFrame() throws IOException {
+            byte[] slot = ring.claim();
+            if (slot == null) {
+                return source.read(discard, 0, frameBytes) >= 0;
+            }
+            int len = source.read(slot, 0, frameBytes);
+            if (len < 0) return false;
+            ring.publish(len, 0);
+            return true;
+        }
+    }
+
+    /**
+     * 发送线程：从采集环取帧，经 CapturePipeline 编码打包（DTX、SID、冗余均在其中处理）后从媒体通道发出，
+     * RTCP 报告经同一通道发出。旧版本对端只认裸 PCM，发送时去掉 RTP 包头
+     */
+    public static final class Send {
+        private final CapturePipeline pipeline;
+        private final FrameRing ring;
+        private final MediaTransport channel;
+        private final boolean bigEndian;
+        private final boolean legacy;
+        // 等待采集帧的超时：超过两帧没有数据说明采集停滞，计入欠载
+        private final long waitNanos;
+        private final byte[] capture;
+        private final byte[] buffer;
+        private final byte[] report;
+        private final ByteBuffer out;
+        private long dropped = 0;
+        private int packetLength = -1;
+
+        public Send(CapturePipeline pipeline, FrameRing ring, MediaTransport channel, int deviceFrameBytes,
+                    int frameMs, boolean bigEndian, boolean legacy) {
+            this.pipeline = pipeline;
+            this.ring = ring;
+            this.channel = channel;
+            this.bigEndian = bigEndian;
+            this.legacy = legacy;
+            waitNanos = 2L * frameMs * 1_000_000L;
+            capture = new byte[deviceFrameBytes];
+            buffer = new byte[pipeline.getMaxPacketSize()];
+            report = new byte[RtcpPacket.MAX_SIZE];
+            out = DirectBufferPool.acquire(Math.max(buffer.length, report.length));
+        }
+
+        /**
+         * 从采集环取一帧（最多等待两帧时长）编码打包，包留在内部缓冲区，由 transmit() 发出
+         *
+         * @return 包长（含 RTP 包头）；没有取到帧，或静音停发期间不出包时返回 -1
+         */
+        public int encodeFrame(boolean muted, int redLevel) {
+            packetLength = -1;
+            int len = ring.take(capture, 0, waitNanos);
+            if (len < 0) return -1;
+            // 采集环溢出丢掉的帧：时间戳照常前进，保持与采样时钟一致
+            long overflows = ring.getOverflows();
+            if (overflows != dropped) {
+                pipeline.skipFrames((int) (overflows - dropped));
+                dropped = overflows;
+            }
+            packetLength = pipeline.process(capture, 0, len, bigEndian, muted, redLevel, buffer, 0);
+            return packetLength;
+        }
+
+        /**
+         * 发出 encodeFrame() 生成的包
+         *
+         * @return 是否已发出（没有待发的包或对端端口不可达时为 false）
+         */
+        public boolean transmit() throws IOException {
+            if (packetLength < 0) return false;
+            int offset = legacy ? RtpPacket.HEADER_SIZE : 0;
+            return send(buffer, offset, packetLength - offset);
+        }
+
+        /** RTCP 报告的缓冲区，写入后用 sendReport() 发出 */
+        public byte[] getReportBuffer() { return report; }
+
+        public boolean sendReport(int len) throws IOException {
+            return send(report, 0, len);
+        }
+
+        /** 线程结束时归还直接缓冲区 */
+        public void release() {
+            DirectBufferPool.release(out);
+        }
+
+        // 经直接缓冲区发出一个包
+        private boolean send(byte[] data, int off, int len) throws IOException {
+            out.clear();
+            out.put(data, off, len);
+            out.flip();
+            return channel.send(out);
+        }
+    }
+
+    /**
+     * 接收线程：语音包连同到达时刻写入收包环，由播放线程放入抖动缓冲区；
+     * RTCP 包不入环，交给调用方处理。播放线程跟不上时丢弃新包（计入溢出），接收永不等待扬声器
+     */
+    public static final class Receive {
+        private final PacketReceiver receiver;
+        private final FrameRing ring;
+        private final MediaTransport channel;
+        private final byte[] buf;
+        private final ByteBuffer in;
+        private int length = 0;
+
+        public Receive(PacketReceiver receiver, FrameRing ring, MediaTransport channel) {
+            this.receiver = receiver;
+            this.ring = ring;
+            this.channel = channel;
+            buf = new byte[receiver.getMaxPacketSize()];
+            in = DirectBufferPool.acquire(buf.length);
+        }
+
+        /**
+         * 接收一个包（阻塞）
+         *
+         * @return PacketReceiver.ACCEPTED（已写入收包环）、RTCP（内容见 getPacket()）或 INVALID（超长，已丢弃）
+         */
+        public int receive() throws IOException {
+            length = channel.receive(in);
+            if (length > buf.length) return PacketReceiver.INVALID;
+            in.get(buf, 0, length);
+
+            // 旧版本的裸 PCM 可能恰好形似 RTCP，不做判断
+            if (!receiver.isLegacy() && RtcpPacket.isRtcp(buf, 0, length)) {
+                return PacketReceiver.RTCP;
+            }
+            ring.offer(buf, 0, length, System.currentTimeMillis());
+            return PacketReceiver.ACCEPTED;
+        }
+
+        /**
+         * 最近收到的包来自本通话的对端时，锁定其来源地址（对称 RTP）。
+         * 旧版本对端从临时端口发送、只在信令中的端口接收，锁定后声音会发往无人接收的端口，因此从不锁定
+         *
+         * @return 本次是否完成锁定
+         */
+        public boolean latchPeer() throws IOException {
+            if (channel.isLatched() || receiver.isLegacy() || !receiver.accepts(buf, length)) return false;
+            channel.latch();
+            return channel.isLatched();
+        }
+
+        /** 最近收到的包 */
+        public byte[] getPacket() { return buf; }
+
+        public int getLength() { return length; }
+
+        /** 线程结束时归还直接缓冲区 */
+        public void release() {
+            DirectBufferPool.release(in);
+        }
+    }
+
+    /**
+     * 播放线程：先把收包环中的包交给 PacketReceiver 放入抖动缓冲区，再由 PlayoutPipeline 取帧
+     * 生成设备 PCM（解码、舒适噪声、丢包隐藏、重采样）写入播放设备，设备的阻塞写入即为播放时钟
+     */
+    public static final class Playout {
+        private final PlayoutPipeline pipeline;
+        private final PacketReceiver receiver;
+        private final FrameRing ring;
+        private final JitterBuffer jitterBuffer;
+        private final boolean bigEndian;
+        private final byte[] frame;
+        private final byte[] packet;
+        private long bufferUnderruns;
+
+        public Playout(PlayoutPipeline pipeline, PacketReceiver receiver, FrameRing ring, JitterBuffer jitterBuffer,
+                       boolean bigEndian) {
+            this.pipeline = pipeline;
+            this.receiver = receiver;
+            this.ring = ring;
+            this.jitterBuffer = jitterBuffer;
+            this.bigEndian = bigEndian;
+            frame = new byte[pipeline.getMaxFrameBytes()];
+            packet = new byte[receiver.getMaxPacketSize()];
+            bufferUnderruns = jitterBuffer.getUnderruns();
+        }
+
+        /**
+         * 播放一帧
+         *
+         * @return 写入播放设备的字节数；静音帧因缓冲过深被丢弃时返回 0，调用方应立即再取下一帧
+         */
+        public int playFrame(AudioSink sink) throws IOException {
+            // 把上一帧以来收到的包放入抖动缓冲区（按接收线程记录的到达时刻估计抖动）
+            int len = ring.poll(packet, 0);
+            boolean received = len >= 0;
+            while (len >= 0) {
+                receiver.handle(packet, len, ring.getLastStamp());
+                len = ring.isEmpty() ? -1 : ring.poll(packet, 0);
+            }
+
+            int bytes = pipeline.next(frame, 0, bigEndian);
+
+            // 每轮都取一次环，环为空很正常；只有该播放的帧既不在环里、抖动缓冲区也取不出时才算环的欠载
+            long underruns = jitterBuffer.getUnderruns();
+            if (!received && underruns != bufferUnderruns) ring.countUnderrun();
+            bufferUnderruns = underruns;
+
+            if (bytes > 0) sink.write(frame, 0, bytes);
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package media;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * 一通电话的 UDP 媒体通道：一个 DatagramChannel，RTP/RTCP 收发共用（对称 RTP，RFC 4961）
+ * - 绑定本端媒体端口，发送也从该端口发出，NAT 后的一方发出的包即可为对端打开映射
+ * - 先向信令中的地址发送；接收方确认对端的第一个有效包后调用 latch()，
+ *   锁定其实际来源地址（经 NAT 转换后的地址/端口）并 connect，此后只收发该地址的包
+ * - close() 立即唤醒阻塞在接收上的线程，端口随之释放，下一通电话可马上重新绑定
+ *
+ * 发送只由一个线程调用，接收（及 latch）只由另一个线程调用。
+ * connect 之后收发都走 read/write，不再分配对象。
+ */
+public class MediaTransport implements Closeable {
+
+    private final DatagramChannel channel;
+    private final Object sendLock = new Object();
+    private volatile InetSocketAddress remote;
+    private volatile boolean latched = false;
+    private SocketAddress lastSource;
+
+    private MediaTransport(DatagramChannel channel, InetSocketAddress remote) {
+        this.channel = channel;
+        this.remote = remote;
+    }
+
+    /**
+     * 绑定本端媒体端口（0 表示任选）并准备向信令中的对端地址发送
+     */
+    public static MediaTransport open(int localPort, InetSocketAddress remote) throws IOException {
+        DatagramChannel channel = DatagramChannel.open();
+        try {
+            channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            channel.bind(new InetSocketAddress(localPort));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new MediaTransport(channel, remote);
+    }
+
+    /**
+     * 发送 buf 中 position 到 limit 的数据
+     *
+     * @return 是否已发出（对端端口不可达时返回 false，通话继续）
+     */
+    public boolean send(ByteBuffer buf) throws IOException {
+        synchronized (sendLock) {
+            try {
+                if (latched) {
+                    channel.write(buf);
+                } else {
+                    channel.send(buf, remote);
+                }
+                return true;
+            } catch (PortUnreachableException e) {
+                // 对端尚未打开或已关闭媒体端口（ICMP 不可达），丢弃本包
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 阻塞接收一个包，写入 buf（先 clear，返回后已 flip）
+     *
+     * @return 包长度
+     */
+    public int receive(ByteBuffer buf) throws IOException {
+        while (true) {
+            buf.clear();
+            try {
+                if (latched) {
+                    channel.read(buf);
+                } else {
+                    lastSource = channel.receive(buf);
+                }
+                buf.flip();
+                return buf.remaining();
+            } catch (PortUnreachableException e) {
+                // 之前发出的包被对端拒收，忽略后继续接收
+            }
+        }
+    }
+
+    /**
+     * 把最近一个包的来源锁定为对端地址（由接收线程在确认其属于本通话后调用）
+     *
+     * @return 锁定的地址与信令中的不同时返回 true（对端位于 NAT 之后）
+     */
+    public boolean latch() throws IOException {
+        if (latched || lastSource == null) return false;
+        InetSocketAddress source = (InetSocketAddress) lastSource;
+        boolean changed = !source.equals(remote);
+        synchronized (sendLock) {
+            channel.connect(source);
+            remote = source;
+            latched = true;
+        }
+        return changed;
+    }
+
+    public boolean isLatched() { return latched; }
+
+    /** 当前的对端地址（锁定前为信令中的地址） */
+    public InetSocketAddress getRemoteAddress() { return remote; }
+
+    public int getLocalPort() throws IOException {
+        return ((InetSocketAddress) channel.getLocalAddress()).getPort();
+    }
+
+    public boolean isOpen() { return channel.isOpen(); }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,69 @@
+package media;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+
+/**
+ * 内存缓冲区作为播放设备：保存最先写入的 capacity 字节，之后的数据只计数不保存；
+ * 容量为 0 时即为丢弃所有输出的空设备
+ * - realTime 为 true 时按设备采样率节拍（与声卡一样为播放线程提供时钟），为 false 时不等待
+ */
+public class MemorySink implements AudioSink {
+
+    private final byte[] data;
+    private final boolean realTime;
+
+    private Pacer pacer;
+    private volatile int length = 0;
+    private volatile long written = 0;
+    private volatile boolean open = false;
+
+    /**
+     * @param capacity 保存的最大字节数
+     * @param realTime 是否按实时速率节拍
+     */
+    public MemorySink(int capacity, boolean realTime) {
+        this.data = new byte[capacity];
+        this.realTime = realTime;
+    }
+
+    @Override
+    public String getName() { return data.length > 0 ? "memory" : AudioDevices.NULL_SINK; }
+
+    @Override
+    public boolean isFormatSupported(AudioFormat format) {
+        return AudioDevices.isPcm16Mono(format);
+    }
+
+    @Override
+    public void open(AudioFormat format, int bufferBytes) throws IOException {
+        if (!isFormatSupported(format)) throw new IOException("不支持的格式: " + format);
+        pacer = realTime ? new Pacer((int) format.getSampleRate(), 2) : null;
+        open = true;
+    }
+
+    @Override
+    public void write(byte[] buf, int off, int len) throws IOException {
+        if (!open) throw new IOException("播放设备已关闭");
+        int n = Math.min(len, data.length - length);
+        if (n > 0) {
+            System.arraycopy(buf, off, data, length, n);
+            length += n;
+        }
+        written += len;
+        if (pacer != null) pacer.advance(len);
+    }
+
+    @Override
+    public void close() {
+        open = false;
+    }
+
+    /** 已保存的数据（前 getLength() 字节有效） */
+    public byte[] getData() { return data; }
+
+    public int getLength() { return length; }
+
+    /** 累计写入的字节数（含未保存的部分） */
+    public long getWritten() { return written; }
+}
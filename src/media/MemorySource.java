@@ -0,0 +1,80 @@
+package media;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+
+/**
+ * 内存中的 PCM 作为采集设备：用于基准测试和自动化测试
+ * - 打开时若设备采样率与素材不同，用 Resampler 一次性转换
+ * - 可循环播放（长时间压力测试），否则读完后返回 -1
+ * - realTime 为 true 时按设备采样率节拍，为 false 时不等待（离线跑满 CPU）
+ */
+public class MemorySource implements AudioSource {
+
+    private final short[] pcm;
+    private final int sampleRate;
+    private final boolean loop;
+    private final boolean realTime;
+
+    private short[] samples;
+    private boolean bigEndian;
+    private Pacer pacer;
+    private int position;
+    private volatile boolean open = false;
+
+    /**
+     * @param pcm        16bit 单声道采样
+     * @param sampleRate 素材的采样率
+     * @param loop       读完后是否从头循环
+     * @param realTime   是否按实时速率节拍
+     */
+    public MemorySource(short[] pcm, int sampleRate, boolean loop, boolean realTime) {
+        this.pcm = pcm;
+        this.sampleRate = sampleRate;
+        this.loop = loop;
+        this.realTime = realTime;
+    }
+
+    @Override
+    public String getName() { return "memory"; }
+
+    @Override
+    public boolean isFormatSupported(AudioFormat format) {
+        return AudioDevices.isPcm16Mono(format);
+    }
+
+    @Override
+    public void open(AudioFormat format) throws IOException {
+        if (!isFormatSupported(format)) throw new IOException("不支持的格式: " + format);
+        int rate = (int) format.getSampleRate();
+        samples = rate == sampleRate ? pcm : AudioDevices.resample(pcm, sampleRate, rate);
+        bigEndian = format.isBigEndian();
+        pacer = realTime ? new Pacer(rate, 2) : null;
+        position = 0;
+        open = true;
+    }
+
+    @Override
+    public int read(byte[] buf, int off, int len) {
+        if (!open || (!loop && position >= samples.length) || samples.length == 0) return -1;
+        int want = len / 2;
+        int done = 0;
+        while (done < want) {
+            if (position >= samples.length) {
+                if (!loop) break;
+                position = 0;
+            }
+            int n = Math.min(want - done, samples.length - position);
+            Pcm.toBytes(samples, position, n, bigEndian, buf, off + done * 2);
+            position += n;
+            done += n;
+        }
+        if (pacer != null) pacer.advance(done * 2);
+        return open ? done * 2 : -1;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+    }
+}
@@ -0,0 +1,173 @@
+package media;
+
+/**
+ * 频域降噪（维纳滤波 + 判决引导先验信噪比），工作在线上采样率，位于回声消除之后、静音检测之前
+ * - 分析/合成：10ms 帧移、20ms sqrt-Hann 窗、50% 重叠相加，补零到 2 的幂做 FFT，引入两个帧移（20ms）的延迟
+ * - 噪声估计：逐频点跟踪平滑功率谱的下包络，低于当前估计时逐步跟随，高于时按固定速率缓慢上升，
+ *   与 VoiceActivityDetector 的噪声底跟踪方式一致；持续的稳态噪声（空调、风扇、办公室底噪）几秒内即被学到
+ * - 增益：先验信噪比按 Ephraim-Malah 判决引导法估计，维纳增益 prio/(1+prio)，下限 MIN_GAIN_DB 以减轻音乐噪声
+ *
+ * 输入可为任意长度，内部按帧移缓冲，输出与输入等长（整体延后两个帧移）。
+ * 只能由一个线程调用 process()，统计值可从其他线程读取。所有缓冲区在构造时分配，不分配对象。
+ */
+public class NoiseSuppressor {
+
+    private static final int HOP_MS = 10;
+    // 增益下限：噪声最多衰减 15dB，再低残余噪声会出现明显的音乐噪声
+    private static final double MIN_GAIN_DB = -15;
+    // 判决引导法的平滑系数
+    private static final float DD_ALPHA = 0.98f;
+    // 功率谱的时间平滑（上一帧的权重）
+    private static final float POWER_SMOOTHING = 0.6f;
+    // 噪声估计：低于当前估计时的跟随系数、每秒最多上升的分贝数、开头直接取平均的帧数
+    // 跟随过快会把噪声谱的随机凹陷当成噪声底，残余噪声忽大忽小，反而让 VAD 在停顿中误判为语音
+    private static final float NOISE_FALL = 0.05f;
+    private static final double NOISE_RISE_DB_PER_SECOND = 3;
+    private static final int INIT_BLOCKS = 20;
+    // 下包络相对于噪声平均功率的偏低量，估计值乘以该系数补偿
+    private static final float NOISE_BIAS = 2.5f;
+    // 衰减统计的平滑系数（每帧移）
+    private static final double STATS_SMOOTHING = 0.02;
+
+    private final int hop;
+    private final int bins;
+    private final Fft fft;
+    private final float[] window;
+    private final float[] re;
+    private final float[] im;
+    private final float[] input;     // 上一帧移 + 当前帧移的输入
+    private final float[] overlap;   // 上一块合成输出的后半
+    private final float[] output;    // 已合成、等待输出的一个帧移
+    private int fill = 0;
+
+    private final float[] power;
+    private final float[] noise;
+    private final float[] prevGain;
+    private final float[] prevPost;
+    private final float minGain;
+    private final float noiseRise;
+    private long blocks = 0;
+
+    private double inEnergy = 0;
+    private double outEnergy = 0;
+    private volatile double attenuationDb = 0;
+    private volatile double noiseDb = 0;
+
+    /**
+     * @param sampleRate 线上采样率
+     */
+    public NoiseSuppressor(int sampleRate) {
+        hop = sampleRate * HOP_MS / 1000;
+        int length = hop * 2;
+        int size = Integer.highestOneBit(length - 1) << 1;
+        fft = new Fft(size);
+        bins = size / 2 + 1;
+
+        window = new float[length];
+        for (int i = 0; i < length; i++) {
+            window[i] = (float) Math.sqrt(0.5 - 0.5 * Math.cos(2 * Math.PI * i / length));
+        }
+        re = new float[size];
+        im = new float[size];
+        input = new float[length];
+        overlap = new float[hop];
+        output = new float[hop];
+
+        power = new float[bins];
+        noise = new float[bins];
+        prevGain = new float[bins];
+        prevPost = new float[bins];
+        minGain = (float) Math.pow(10, MIN_GAIN_DB / 20);
+        noiseRise = (float) Math.pow(10, NOISE_RISE_DB_PER_SECOND * HOP_MS / 1000.0 / 10);
+    }
+
+    /**
+     * 原地处理一段 PCM（输出延后两个帧移）
+     */
+    public void process(short[] pcm, int off, int count) {
+        for (int i = off; i < off + count; i++) {
+            input[hop + fill] = pcm[i];
+            int v = Math.round(output[fill]);
+            pcm[i] = (short) (v > Short.MAX_VALUE ? Short.MAX_VALUE : Math.max(v, Short.MIN_VALUE));
+            if (++fill == hop) {
+                processBlock();
+                fill = 0;
+            }
+        }
+    }
+
+    private void processBlock() {
+        int length = hop * 2;
+        int size = fft.getSize();
+        for (int i = 0; i < length; i++) {
+            re[i] = input[i] * window[i];
+            im[i] = 0;
+        }
+        for (int i = length; i < size; i++) {
+            re[i] = 0;
+            im[i] = 0;
+        }
+        fft.transform(re, im);
+
+        boolean init = blocks < INIT_BLOCKS;
+        double noiseSum = 0;
+        for (int k = 0; k < bins; k++) {
+            float p = re[k] * re[k] + im[k] * im[k];
+            float s = blocks == 0 ? p : power[k] * POWER_SMOOTHING + p * (1 - POWER_SMOOTHING);
+            power[k] = s;
+
+            float n = noise[k];
+            if (init) {
+                n += (s - n) / (blocks + 1);
+            } else if (s < n) {
+                n += (s - n) * NOISE_FALL;
+            } else {
+                n *= noiseRise;
+            }
+            noise[k] = n;
+            noiseSum += n;
+
+            float floor = n * NOISE_BIAS + 1e-3f;
+            float post = p / floor;
+            float prio = DD_ALPHA * prevGain[k] * prevGain[k] * prevPost[k] + (1 - DD_ALPHA) * Math.max(post - 1, 0);
+            float gain = Math.max(prio / (1 + prio), minGain);
+            prevGain[k] = gain;
+            prevPost[k] = post;
+
+            re[k] *= gain;
+            im[k] *= gain;
+            if (k > 0 && k < size / 2) {
+                re[size - k] *= gain;
+                im[size - k] *= gain;
+            }
+        }
+        fft.inverse(re, im);
+
+        double in = 0, out = 0;
+        for (int i = 0; i < hop; i++) {
+            float x = input[hop + i];
+            output[i] = overlap[i] + re[i] * window[i];
+            overlap[i] = re[hop + i] * window[hop + i];
+            in += x * x;
+            out += output[i] * output[i];
+        }
+        System.arraycopy(input, hop, input, 0, hop);
+        blocks++;
+
+        inEnergy += (in - inEnergy) * STATS_SMOOTHING;
+        outEnergy += (out - outEnergy) * STATS_SMOOTHING;
+        attenuationDb = 10 * Math.log10((inEnergy + 1) / (outEnergy + 1));
+        // 噪声估计换算为每采样功率的 dBFS：全频谱能量 = 2 * 半谱，Parseval 除以 N，窗能量为 hop
+        noiseDb = 10 * Math.log10(2 * noiseSum * NOISE_BIAS / size / (hop * 32768.0 * 32768.0) + 1e-12);
+    }
+
+    /** 输入相对输出的平均能量比（dB），即当前的平均衰减量 */
+    public double getAttenuationDb() { return attenuationDb; }
+
+    /** 估计的噪声电平（dBFS） */
+    public double getNoiseDb() { return noiseDb; }
+
+    public String getStatsText() {
+        return String.format("噪声 %.0f dBFS, 衰减 %.1f dB", noiseDb, attenuationDb);
+    }
+}
@@ -0,0 +1,37 @@
+package media;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 模拟设备时钟：按字节数推算应到达的时刻，提前时挂起到该时刻，使文件/合成/内存设备与声卡的节奏一致。
+ * 落后超过一秒（如调试暂停）时不追赶，从当前时刻重新计时。
+ */
+final class Pacer {
+
+    private static final long MAX_LAG_NANOS = 1_000_000_000L;
+
+    private final double nanosPerByte;
+    private long start = -1;
+    private long bytes = 0;
+
+    Pacer(int sampleRate, int frameSize) {
+        nanosPerByte = 1e9 / ((double) sampleRate * frameSize);
+    }
+
+    /** 设备处理了 n 字节：阻塞到这些数据按实时速率应当处理完的时刻 */
+    void advance(int n) {
+        long now = System.nanoTime();
+        if (start < 0) start = now;
+        bytes += n;
+        long due = start + (long) (bytes * nanosPerByte);
+        if (now - due > MAX_LAG_NANOS) {
+            start = now;
+            bytes = 0;
+            return;
+        }
+        while (due - System.nanoTime() > 0) {
+            LockSupport.parkNanos(due - System.nanoTime());
+            if (Thread.currentThread().isInterrupted()) return;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package media;
+
+/**
+ * 丢包隐藏（PLC），位于抖动缓冲区与扬声器之间
+ * - 正常帧：调用 receive() 记入历史；若上一帧是隐藏帧，帧首与隐藏信号交叉淡化，避免跳变
+ * - 缺失帧：调用 conceal() 生成替代帧
+ *
+ * 可选策略（用于比较效果，见 bench.PlcBenchmark）：
+ * - SILENCE：填静音（旧行为）
+ * - REPEAT ：重复上一帧
+ * - PITCH  ：估计基音周期后按周期重复最后一段波形（参考 G.711 附录 I）
+ * 后两种策略在连续丢失 10ms 后开始线性衰减，再过 50ms 完全静音，避免长时间的机械音。
+ *
+ * 所有缓冲区在构造时分配，处理过程不分配对象。
+ */
+public class PacketLossConcealer {
+
+    public enum Strategy { SILENCE, REPEAT, PITCH }
+
+    // 基音搜索范围
+    private static final int MIN_PITCH_HZ = 66;
+    private static final int MAX_PITCH_HZ = 400;
+    // 丢失多久后开始衰减、衰减到静音用多久
+    private static final int FADE_START_MS = 10;
+    private static final int FADE_MS = 50;
+    // 恢复时的交叉淡化长度
+    private static final int OVERLAP_MS = 3;
+
+    private final Strategy strategy;
+    private final int frameSamples;
+    private final int minLag;
+    private final int maxLag;
+    private final int fadeStart;
+    private final int fadeLength;
+    private final int overlap;
+
+    // 最近播放的采样，history[historyLen - 1] 为最新
+    private final short[] history;
+    private int historyLen = 0;
+
+    // 当前用于重复的周期波形
+    private final short[] period;
+    private int periodLen = 0;
+    private int periodPos = 0;
+
+    private boolean concealing = false;
+    private int lostSamples = 0;
+    private long concealedFrames = 0;
+
+    /**
+     * @param sampleRate   采样率
+     * @param frameSamples 每帧采样数
+     */
+    public PacketLossConcealer(Strategy strategy, int sampleRate, int frameSamples) {
+        this.strategy = strategy;
+        this.frameSamples = frameSamples;
+        minLag = sampleRate / MAX_PITCH_HZ;
+        maxLag = sampleRate / MIN_PITCH_HZ;
+        fadeStart = sampleRate * FADE_START_MS / 1000;
+        fadeLength = sampleRate * FADE_MS / 1000;
+        overlap = sampleRate * OVERLAP_MS / 1000;
+
+        history = new short[Math.max(2 * maxLag, frameSamples)];
+        period = new short[Math.max(maxLag, frameSamples)];
+    }
+
+    /**
+     * 正常收到的一帧（原地修改：刚结束隐藏时对帧首做交叉淡化）
+     */
+    public void receive(short[] pcm, int off, int count) {
+        if (concealing) {
+            if (strategy != Strategy.SILENCE) {
+                int n = Math.min(overlap, count);
+                for (int i = 0; i < n; i++) {
+                    double w = (i + 1.0) / (n + 1.0);
+                    int concealed = nextConcealedSample();
+                    pcm[off + i] = clip(concealed * (1 - w) + pcm[off + i] * w);
+                }
+            }
+            concealing = false;
+        }
+        append(pcm, off, count);
+    }
+
+    /**
+     * 为缺失的一帧生成替代信号
+     *
+     * @return 生成的采样数（即 count）
+     */
+    public int conceal(short[] out, int off, int count) {
+        if (!concealing) {
+            concealing = true;
+            lostSamples = 0;
+            startConcealment();
+        }
+
+        for (int i = 0; i < count; i++) {
+            out[off + i] = (short) nextConcealedSample();
+        }
+        concealedFrames++;
+
+        // 隐藏信号也写入历史，连续丢包时基音周期保持不变，只是继续衰减
+        append(out, off, count);
+        return count;
+    }
+
+    public void reset() {
+        historyLen = 0;
+        periodLen = 0;
+        periodPos = 0;
+        concealing = false;
+        lostSamples = 0;
+        concealedFrames = 0;
+    }
+
+    public Strategy getStrategy() { return strategy; }
+
+    public long getConcealedFrames() { return concealedFrames; }
+
+    private void startConcealment() {
+        periodPos = 0;
+        if (strategy == Strategy.SILENCE || historyLen == 0) {
+            periodLen = 0;
+            return;
+        }
+
+        int len;
+        if (strategy == Strategy.PITCH && historyLen >= 2 * maxLag) {
+            len = estimatePitch();
+        } else {
+            len = Math.min(frameSamples, historyLen);
+        }
+        periodLen = len;
+        System.arraycopy(history, historyLen - len, period, 0, len);
+    }
+
+    private int nextConcealedSample() {
+        if (periodLen == 0) return 0;
+
+        double gain;
+        if (lostSamples < fadeStart) {
+            gain = 1.0;
+        } else {
+            gain = Math.max(0.0, 1.0 - (double) (lostSamples - fadeStart) / fadeLength);
+        }
+        lostSamples++;
+
+        int value = (int) (period[periodPos] * gain);
+        periodPos++;
+        if (periodPos == periodLen) periodPos = 0;
+        return value;
+    }
+
+    // 在 [minLag, maxLag] 内找与最近一段波形归一化互相关最大的延迟
+    private int estimatePitch() {
+        int end = historyLen;
+        int window = maxLag;
+        int bestLag = minLag;
+        double best = -1;
+
+        for (int lag = minLag; lag <= maxLag; lag++) {
+            double xy = 0, yy = 0;
+            for (int i = end - window; i < end; i++) {
+                int y = history[i - lag];
+                xy += history[i] * y;
+                yy += y * y;
+            }
+            double score = yy > 0 ? xy / Math.sqrt(yy) : 0;
+            if (score > best) {
+                best = score;
+                bestLag = lag;
+            }
+        }
+        return bestLag;
+    }
+
+    private void append(short[] pcm, int off, int count) {
+        int cap = history.length;
+        if (count >= cap) {
+            System.arraycopy(pcm, off + count - cap, history, 0, cap);
+            historyLen = cap;
+            return;
+        }
+        int keep = Math.min(historyLen, cap - count);
+        System.arraycopy(history, historyLen - keep, history, 0, keep);
+        System.arraycopy(pcm, off, history, keep, count);
+        historyLen = keep + count;
+    }
+
+    private static short clip(double v) {
+        return (short) Math.max(-32768, Math.min(32767, Math.round(v)));
+    }
+}
@@ -0,0 +1,179 @@
+package media;
+
+/**
+ * 接收端的逐包处理：校验 RTP 头，过滤非本通话的流，把编码负载放入抖动缓冲区
+ * - SID（启用 DTX 时）作为舒适噪声帧放入
+ * - RED（启用冗余时）先放主块，再用前帧副本补上尚未播放的缺失帧
+ * - RTCP 包不在这里处理，返回 RTCP 交给调用方
+ *
+ * 旧版本的对端（信令中不带媒体参数）发送无包头的裸 PCM（8kHz 16bit 大端，每包至多 1024 字节），
+ * 由 legacy() 创建的实例按帧切分后依次编号放入抖动缓冲区
+ *
+ * 稳态下每包不分配对象。只能由一个线程调用 handle()（拥有抖动缓冲区写端的线程），统计值可从其他线程读取。
+ */
+public class PacketReceiver {
+
+    /** handle() 的返回值 */
+    public static final int ACCEPTED = 0;
+    public static final int RTCP = 1;
+    public static final int INVALID = 2;
+    public static final int FOREIGN = 3;
+
+    /** 旧版本每个 UDP 包的最大长度 */
+    public static final int LEGACY_MAX_DATAGRAM = 1024;
+
+    private final JitterBuffer jitterBuffer;
+    private final SequenceTracker sequenceTracker;
+    private final int payloadType;
+    private final boolean dtx;
+    private final boolean red;
+    private final RedPayload redPayload = new RedPayload();
+    private final int maxPacketSize;
+    // 旧版本裸 PCM：未满一帧的数据及下一帧的序号
+    private final boolean legacy;
+    private final byte[] pending;
+    private int pendingBytes = 0;
+    private long legacySeq = 0;
+
+    private volatile long remoteSsrc;
+    private volatile long invalidPackets = 0;
+    private volatile long foreignPackets = 0;
+    private volatile long receivedPackets = 0;
+
+    /**
+     * @param remoteSsrc 对端在信令中声明的 SSRC，0 表示锁定首个到达的流
+     */
+    public PacketReceiver(String codec, int frameSamples, JitterBuffer jitterBuffer,
+                          SequenceTracker sequenceTracker, boolean dtx, boolean red, long remoteSsrc) {
+        this(codec, frameSamples, jitterBuffer, sequenceTracker, dtx, red, remoteSsrc, false);
+    }
+
+    private PacketReceiver(String codec, int frameSamples, JitterBuffer jitterBuffer,
+                           SequenceTracker sequenceTracker, boolean dtx, boolean red, long remoteSsrc,
+                           boolean legacy) {
+        this.jitterBuffer = jitterBuffer;
+        this.sequenceTracker = sequenceTracker;
+        this.payloadType = Codecs.create(codec).getPayloadType();
+        this.dtx = dtx;
+        this.red = red;
+        this.remoteSsrc = remoteSsrc;
+        this.legacy = legacy;
+        pending = legacy ? new byte[frameSamples * 2] : null;
+        // 按最大的编码（线性 PCM）加最多冗余帧计算，可容纳任意已协商编码的一包
+        int max = RtpPacket.HEADER_SIZE + RedPayload.getMaxSize(frameSamples * 2);
+        maxPacketSize = legacy ? Math.max(max, LEGACY_MAX_DATAGRAM) : max;
+    }
+
+    /**
+     * 接收旧版本对端的裸 PCM（L16，帧长 frameSamples），不做 RTP 校验与 SSRC 过滤
+     */
+    public static PacketReceiver legacy(int frameSamples, JitterBuffer jitterBuffer, SequenceTracker sequenceTracker) {
+        return new PacketReceiver(L16Codec.NAME, frameSamples, jitterBuffer, sequenceTracker, false, false, 0, true);
+    }
+
+    /** 是否接收旧版本的裸 PCM（没有 RTP/RTCP 包头） */
+    public boolean isLegacy() { return legacy; }
+
+    /**
+     * 处理收到的一个 UDP 包
+     *
+     * @return ACCEPTED / RTCP / INVALID / FOREIGN
+     */
+    public int handle(byte[] buf, int len, long now) {
+        if (legacy) return handleLegacy(buf, len, now);
+        if (RtcpPacket.isRtcp(buf, 0, len)) {
+            return RTCP;
+        }
+        if (!RtpPacket.isValid(buf, 0, len)) {
+            invalidPackets++;
+            return INVALID;
+        }
+        int pt = RtpPacket.getPayloadType(buf, 0);
+        boolean sid = dtx && pt == ComfortNoise.PAYLOAD_TYPE;
+        boolean redundant = red && pt == RedPayload.PAYLOAD_TYPE;
+        if (pt != payloadType && !sid && !redundant) {
+            invalidPackets++;
+            return INVALID;
+        }
+
+        // 丢弃上一通话残留或其他来源的流
+        long ssrc = RtpPacket.getSsrc(buf, 0);
+        if (remoteSsrc == 0) {
+            remoteSsrc = ssrc;
+        } else if (ssrc != remoteSsrc) {
+            foreignPackets++;
+            return FOREIGN;
+        }
+        long seq = sequenceTracker.extend(RtpPacket.getSequence(buf, 0));
+        if (seq == SequenceTracker.REJECTED) {
+            // 序号大跳变的单个包（迷途或重复的旧包），等下一个包确认前不放入缓冲区
+            invalidPackets++;
+            return INVALID;
+        }
+        receivedPackets++;
+        int headerLen = RtpPacket.getHeaderLength(buf, 0);
+        long timestamp = RtpPacket.getTimestamp(buf, 0);
+
+        if (!redundant) {
+            jitterBuffer.put(seq, timestamp, sid, buf, headerLen, len - headerLen, now);
+            if (red && !sid) jitterBuffer.setMinDepth(1);
+            return ACCEPTED;
+        }
+
+        int blocks = redPayload.parse(buf, headerLen, len - headerLen);
+        if (blocks <= 0 || redPayload.getPayloadType(blocks - 1) != payloadType) {
+            invalidPackets++;
+            return INVALID;
+        }
+        jitterBuffer.put(seq, timestamp, buf, redPayload.getOffset(blocks - 1), redPayload.getLength(blocks - 1), now);
+        jitterBuffer.setMinDepth(blocks);
+        for (int i = blocks - 2; i >= 0; i--) {
+            if (redPayload.getPayloadType(i) != payloadType) continue;
+            long recoveredSeq = seq - (blocks - 1 - i);
+            jitterBuffer.putRecovered(recoveredSeq, buf, redPayload.getOffset(i), redPayload.getLength(i));
+        }
+        return ACCEPTED;
+    }
+
+    // 旧版本的裸 PCM：按帧切分，不足一帧的部分留到下一包；时间戳按采样数连续编号
+    private int handleLegacy(byte[] buf, int len, long now) {
+        receivedPackets++;
+        int frameBytes = pending.length;
+        for (int off = 0; off < len; ) {
+            int n = Math.min(len - off, frameBytes - pendingBytes);
+            System.arraycopy(buf, off, pending, pendingBytes, n);
+            pendingBytes += n;
+            off += n;
+            if (pendingBytes == frameBytes) {
+                long seq = sequenceTracker.extend((int) (legacySeq & 0xFFFF));
+                jitterBuffer.put(seq, (legacySeq * (frameBytes / 2)) & 0xFFFFFFFFL, pending, 0, frameBytes, now);
+                legacySeq++;
+                pendingBytes = 0;
+            }
+        }
+        return ACCEPTED;
+    }
+
+    /**
+     * 快速判断一个包是否来自本通话的对端（合法 RTP 且 SSRC 与已知的对端一致），不修改任何状态，
+     * 可在 handle() 之外的线程调用。旧版本对端的裸 PCM 无从判断，总是返回 false
+     */
+    public boolean accepts(byte[] buf, int len) {
+        if (legacy) return false;
+        if (!RtpPacket.isValid(buf, 0, len)) return false;
+        long known = remoteSsrc;
+        return known == 0 || RtpPacket.getSsrc(buf, 0) == known;
+    }
+
+    /** 接收缓冲区需要的大小 */
+    public int getMaxPacketSize() { return maxPacketSize; }
+
+    /** 当前锁定的对端 SSRC（0 表示尚未收到） */
+    public long getRemoteSsrc() { return remoteSsrc; }
+
+    public long getInvalidPackets() { return invalidPackets; }
+
+    public long getForeignPackets() { return foreignPackets; }
+
+    public long getReceivedPackets() { return receivedPackets; }
+}
@@ -0,0 +1,52 @@
+package media;
+
+/**
+ * 16bit PCM 字节与采样之间的转换
+ */
+public final class Pcm {
+
+    private Pcm() {}
+
+    /**
+     * 字节 → 采样
+     *
+     * @return 采样数
+     */
+    public static int toShorts(byte[] in, int off, int len, boolean bigEndian, short[] out, int outOff) {
+        int n = len / 2;
+        if (bigEndian) {
+            for (int i = 0; i < n; i++) {
+                int b = off + i * 2;
+                out[outOff + i] = (short) ((in[b] << 8) | (in[b + 1] & 0xFF));
+            }
+        } else {
+            for (int i = 0; i < n; i++) {
+                int b = off + i * 2;
+                out[outOff + i] = (short) ((in[b + 1] << 8) | (in[b] & 0xFF));
+            }
+        }
+        return n;
+    }
+
+    /**
+     * 采样 → 字节
+     *
+     * @return 字节数
+     */
+    public static int toBytes(short[] in, int off, int count, boolean bigEndian, byte[] out, int outOff) {
+        if (bigEndian) {
+            for (int i = 0; i < count; i++) {
+                int s = in[off + i];
+                out[outOff + i * 2] = (byte) (s >> 8);
+                out[outOff + i * 2 + 1] = (byte) s;
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                int s = in[off + i];
+                out[outOff + i * 2] = (byte) s;
+                out[outOff + i * 2 + 1] = (byte) (s >> 8);
+            }
+        }
+        return count * 2;
+    }
+}
@@ -0,0 +1,196 @@
+package media;
+
+import java.util.Arrays;
+
+/**
+ * 播放端的逐帧处理：抖动缓冲区 -> 解码 / 舒适噪声 / 丢包隐藏 -> 限幅 -> 漂移补偿 -> 重采样 -> 设备 PCM
+ * - SID 帧及对端停发期间输出按电平生成的舒适噪声
+ * - 丢包或欠载时由 PLC 生成替代信号，持续缺失时逐渐衰减为静音
+ * - 解码出的静音帧在缓冲过深时直接丢弃，逐步回落到目标延迟
+ * - 设置了限幅器时，每个输出帧在送往回声消除和扬声器之前限幅
+ * - 设置了漂移补偿时，按抖动缓冲区深度的长期偏差逐帧插入或删除一个采样，一帧最多多出一个采样
+ * - 设置了回声消除器时，每个播放出去的帧（重采样前）都作为回声参考送给它
+ *
+ * 所有缓冲区在构造时分配，稳态下每帧不分配对象（见 bench.AllocationBenchmark）。
+ * 只能由一个线程调用 next()，统计值可从其他线程读取。
+ */
+public class PlayoutPipeline {
+
+    private final JitterBuffer jitterBuffer;
+    private final AudioCodec decoder;
+    private final Resampler resampler;
+    private final ComfortNoise comfortNoise = new ComfortNoise();
+    private final VoiceActivityDetector vad;
+    private final PacketLossConcealer plc;
+    private final int frameSamples;
+    private EchoCanceller echoCanceller;
+    private Limiter limiter;
+    private ClockDriftCompensator driftCompensator;
+
+    private final byte[] payload;
+    private final short[] pcm;
+    private final short[] noise;
+    private final short[] adjusted;
+    private final short[] devicePcm;
+    private final int maxFrameBytes;
+    private int lastLen;
+
+    // 最近一帧是否为解码出的语音，及其平均绝对幅度
+    private boolean speech = false;
+    private double level = 0;
+
+    private volatile long concealedFrames = 0;
+
+    /**
+     * @param wireRate   线上（解码）采样率
+     * @param deviceRate 播放设备的采样率
+     */
+    public PlayoutPipeline(String codec, JitterBuffer jitterBuffer, int wireRate, int deviceRate, int frameMs,
+                           PacketLossConcealer.Strategy plcStrategy) {
+        this.jitterBuffer = jitterBuffer;
+        this.decoder = Codecs.create(codec);
+
+        frameSamples = wireRate * frameMs / 1000;
+        int deviceFrameSamples = deviceRate * frameMs / 1000;
+        resampler = deviceRate != wireRate ? new Resampler(wireRate, deviceRate, frameSamples + 1) : null;
+
+        payload = new byte[decoder.getEncodedSize(frameSamples)];
+        pcm = new short[frameSamples];
+        noise = new short[frameSamples];
+        adjusted = new short[frameSamples + 1];
+        vad = new VoiceActivityDetector(frameMs);
+        plc = new PacketLossConcealer(plcStrategy, wireRate, frameSamples);
+        devicePcm = new short[resampler != null
+                ? Math.max(deviceFrameSamples, resampler.getOutputCapacity(frameSamples + 1)) : 0];
+        maxFrameBytes = Math.max(deviceFrameSamples + 1, devicePcm.length) * 2;
+        lastLen = deviceFrameSamples * 2;
+    }
+
+    /**
+     * 设置回声消除器（须在第一次 next() 之前，与 CapturePipeline 共用同一实例）
+     */
+    public void setEchoCanceller(EchoCanceller echoCanceller) {
+        this.echoCanceller = echoCanceller;
+    }
+
+    /**
+     * 设置限幅器（须在第一次 next() 之前）
+     */
+    public void setLimiter(Limiter limiter) {
+        this.limiter = limiter;
+    }
+
+    /**
+     * 设置时钟漂移补偿（须在第一次 next() 之前）
+     */
+    public void setDriftCompensator(ClockDriftCompensator driftCompensator) {
+        this.driftCompensator = driftCompensator;
+    }
+
+    /**
+     * 生成下一帧设备格式的 16bit PCM
+     *
+     * @param frame 输出缓冲区，至少 getMaxFrameBytes() 字节
+     * @return 写入的字节数；静音帧因缓冲过深被丢弃时返回 0，调用方应立即再取下一帧
+     */
+    public int next(byte[] frame, int off, boolean bigEndian) {
+        int len = jitterBuffer.poll(payload);
+
+        short[] out = null;
+        int samples = 0;
+        boolean concealed = false;
+        speech = false;
+
+        if (len >= 0 && jitterBuffer.isComfortNoise()) {
+            comfortNoise.setLevel(ComfortNoise.readSid(payload, 0, len));
+            comfortNoise.generate(noise, 0, frameSamples);
+            out = noise;
+            samples = frameSamples;
+        } else if (len > 0) {
+            samples = decoder.decode(payload, 0, len, pcm, 0);
+            speech = vad.process(pcm, 0, samples);
+
+            // 静音帧且缓冲过深时直接丢弃，逐步回落到目标延迟
+            if (!speech && jitterBuffer.tryDrainSilence()) {
+                return 0;
+            }
+            if (speech) {
+                level = averageLevel(pcm, samples);
+            }
+            out = pcm;
+        } else if (len == JitterBuffer.EMPTY && jitterBuffer.isInSilence()) {
+            // 对端停发期间持续填充舒适噪声
+            comfortNoise.generate(noise, 0, frameSamples);
+            out = noise;
+            samples = frameSamples;
+        } else if (len == JitterBuffer.MISSING || len == JitterBuffer.EMPTY) {
+            // 丢包或欠载：按上一段波形生成替代帧
+            samples = plc.conceal(pcm, 0, frameSamples);
+            out = pcm;
+            concealed = true;
+            if (len == JitterBuffer.MISSING) concealedFrames++;
+        }
+
+        if (driftCompensator != null) {
+            // 只有连续播放的帧（解码出的语音或丢包）反映缓冲区深度的长期趋势
+            if ((len > 0 && !jitterBuffer.isComfortNoise()) || len == JitterBuffer.MISSING) {
+                driftCompensator.update(jitterBuffer.getDepth(), jitterBuffer.getTargetDepth());
+            } else {
+                driftCompensator.pause();
+            }
+        }
+
+        if (out == null) {
+            // 补一帧静音，保持线路不断流
+            Arrays.fill(frame, off, off + lastLen, (byte) 0);
+            if (echoCanceller != null) echoCanceller.renderSilence(frameSamples);
+            return lastLen;
+        }
+
+        if (!concealed) {
+            plc.receive(out, 0, samples);
+        }
+        if (limiter != null) {
+            limiter.process(out, 0, samples);
+        }
+        if (driftCompensator != null) {
+            samples = driftCompensator.process(out, 0, samples, adjusted);
+            out = adjusted;
+        }
+        if (echoCanceller != null) {
+            echoCanceller.render(out, 0, samples);
+        }
+        int bytes;
+        if (resampler != null) {
+            int n = resampler.process(out, 0, samples, devicePcm, 0);
+            bytes = Pcm.toBytes(devicePcm, 0, n, bigEndian, frame, off);
+        } else {
+            bytes = Pcm.toBytes(out, 0, samples, bigEndian, frame, off);
+        }
+        if (bytes > 0) lastLen = bytes;
+        return bytes;
+    }
+
+    /**
+     * 解码后 16-bit 采样的平均绝对幅度（AudioController 的音频检测按此判断对端是否在说话）
+     */
+    public static double averageLevel(short[] pcm, int count) {
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += Math.abs(pcm[i]);
+        }
+        return count > 0 ? (double) sum / count : 0;
+    }
+
+    /** 输出缓冲区需要的大小 */
+    public int getMaxFrameBytes() { return maxFrameBytes; }
+
+    /** 最近一次 next() 输出的是否为解码出的语音 */
+    public boolean isSpeech() { return speech; }
+
+    /** 最近一个语音帧的平均绝对幅度 */
+    public double getLevel() { return level; }
+
+    /** 做了丢包隐藏的帧数（只计缺失帧，不计欠载） */
+    public long getConcealedFrames() { return concealedFrames; }
+}
@@ -0,0 +1,158 @@
+package media;
+
+/**
+ * 通话质量统计：汇总本端接收情况与对端接收报告，估计双向 MOS，并保留整通电话的汇总
+ * - 本端方向：本端收到对端语音的丢包、抖动、缓冲时延
+ * - 对端方向：对端在接收报告中反馈的丢包、抖动
+ * - RTT 由 SR/RR 中的 LSR、DLSR 计算，单向时延按 RTT/2 估计
+ *
+ * 每秒更新一次，由发送线程和接收线程分别写入，界面线程读取，通过对象锁同步。
+ */
+public class QualityMonitor {
+
+    private final String codec;
+    private final int frameMs;
+    private final boolean concealment;
+    private final long startTime = System.currentTimeMillis();
+
+    // 最新值（-1 表示尚无数据）
+    private double localLoss = -1;
+    private double localJitterMs = -1;
+    private double localBufferMs = 0;
+    private double remoteLoss = -1;
+    private double remoteJitterMs = -1;
+    private double rttMs = -1;
+    private long remoteCumulativeLost = 0;
+
+    // 整通电话的汇总
+    private int localSamples = 0;
+    private double localLossSum = 0;
+    private double localLossMax = 0;
+    private double localJitterSum = 0;
+    private double localMosSum = 0;
+    private double localMosMin = 5;
+    private int remoteSamples = 0;
+    private double remoteLossSum = 0;
+    private double remoteLossMax = 0;
+    private double remoteMosSum = 0;
+    private double remoteMosMin = 5;
+    private int rttSamples = 0;
+    private double rttSum = 0;
+    private double rttMax = 0;
+
+    /**
+     * @param concealment 接收端是否做丢包隐藏（影响 E-model 的丢包稳健性）
+     */
+    public QualityMonitor(String codec, int frameMs, boolean concealment) {
+        this.codec = codec;
+        this.frameMs = frameMs;
+        this.concealment = concealment;
+    }
+
+    /**
+     * 本端接收统计（每个报告间隔一次）
+     *
+     * @param lossFraction 该间隔内的丢包比例
+     * @param bufferMs     抖动缓冲区当前时延
+     */
+    public synchronized void updateLocal(double lossFraction, double jitterMs, double bufferMs) {
+        localLoss = lossFraction;
+        localJitterMs = jitterMs;
+        localBufferMs = bufferMs;
+
+        double mos = getLocalMos();
+        localSamples++;
+        localLossSum += lossFraction;
+        localLossMax = Math.max(localLossMax, lossFraction);
+        localJitterSum += jitterMs;
+        localMosSum += mos;
+        localMosMin = Math.min(localMosMin, mos);
+    }
+
+    /**
+     * 对端接收报告
+     */
+    public synchronized void updateRemote(double lossFraction, double jitterMs, long cumulativeLost) {
+        remoteLoss = lossFraction;
+        remoteJitterMs = jitterMs;
+        remoteCumulativeLost = cumulativeLost;
+
+        double mos = getRemoteMos();
+        remoteSamples++;
+        remoteLossSum += lossFraction;
+        remoteLossMax = Math.max(remoteLossMax, lossFraction);
+        remoteMosSum += mos;
+        remoteMosMin = Math.min(remoteMosMin, mos);
+    }
+
+    public synchronized void updateRtt(double ms) {
+        rttMs = ms;
+        rttSamples++;
+        rttSum += ms;
+        rttMax = Math.max(rttMax, ms);
+    }
+
+    /** 本端听到的语音质量估计 */
+    public synchronized double getLocalMos() {
+        if (localLoss < 0) return -1;
+        return EModel.mos(codec, localLoss, oneWayDelay(localBufferMs), concealment);
+    }
+
+    /** 对端听到的语音质量估计（对端缓冲时延未知，按其抖动的 3 倍估计） */
+    public synchronized double getRemoteMos() {
+        if (remoteLoss < 0) return -1;
+        return EModel.mos(codec, remoteLoss, oneWayDelay(Math.max(frameMs, 3 * remoteJitterMs)), concealment);
+    }
+
+    // 单向时延 = 网络（RTT/2）+ 打包 + 接收缓冲
+    private double oneWayDelay(double bufferMs) {
+        return Math.max(0, rttMs) / 2 + frameMs + bufferMs;
+    }
+
+    public synchronized double getRttMs() { return rttMs; }
+    public synchronized double getLocalLoss() { return localLoss; }
+    public synchronized double getLocalJitterMs() { return localJitterMs; }
+    public synchronized double getRemoteLoss() { return remoteLoss; }
+    public synchronized double getRemoteJitterMs() { return remoteJitterMs; }
+    public synchronized long getRemoteCumulativeLost() { return remoteCumulativeLost; }
+
+    /** 实时显示用的一行文字 */
+    public synchronized String getStatsText() {
+        return "丢包 " + percent(localLoss) + "/" + percent(remoteLoss)
+                + "  抖动 " + millis(localJitterMs) + "/" + millis(remoteJitterMs)
+                + "  RTT " + millis(rttMs)
+                + "  MOS " + score(getLocalMos()) + "/" + score(getRemoteMos());
+    }
+
+    /** 整通电话的汇总（写入通话质量日志） */
+    public synchronized String getSummaryText() {
+        long seconds = (System.currentTimeMillis() - startTime) / 1000;
+        return String.format("时长 %d s, 编码 %s/%d ms | 本端接收: 平均丢包 %s, 最大 %s, 平均抖动 %s, 平均 MOS %s, 最低 %s"
+                        + " | 对端接收: 平均丢包 %s, 最大 %s, 平均 MOS %s, 最低 %s, 累计丢包 %d"
+                        + " | RTT 平均 %s, 最大 %s",
+                seconds, codec, frameMs,
+                percent(avg(localLossSum, localSamples)), percent(localSamples > 0 ? localLossMax : -1),
+                millis(avg(localJitterSum, localSamples)),
+                score(avg(localMosSum, localSamples)), score(localSamples > 0 ? localMosMin : -1),
+                percent(avg(remoteLossSum, remoteSamples)), percent(remoteSamples > 0 ? remoteLossMax : -1),
+                score(avg(remoteMosSum, remoteSamples)), score(remoteSamples > 0 ? remoteMosMin : -1),
+                remoteCumulativeLost,
+                millis(avg(rttSum, rttSamples)), millis(rttSamples > 0 ? rttMax : -1));
+    }
+
+    private static double avg(double sum, int n) {
+        return n > 0 ? sum / n : -1;
+    }
+
+    private static String percent(double fraction) {
+        return fraction < 0 ? "--" : String.format("%.1f%%", fraction * 100);
+    }
+
+    private static String millis(double ms) {
+        return ms < 0 ? "--" : String.format("%.0f ms", ms);
+    }
+
+    private static String score(double mos) {
+        return mos < 0 ? "--" : String.format("%.2f", mos);
+    }
+}
@@ -0,0 +1,103 @@
+package media;
+
+/**
+ * 冗余音频负载（RFC 2198）
+ *
+ * 每个冗余块前有 4 字节头，主块前有 1 字节头，数据按头部顺序依次排列（最旧的冗余块在前）：
+ *  0                   1                   2                   3
+ *  0 1 2 3 4 5 6 7 8 9 0 1 2 3 4 5 6 7 8 9 0 1 2 3 4 5 6 7 8 9 0 1
+ * +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+ * |F|   block PT  |  timestamp offset         |   block length    |
+ * +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+ * |0|   block PT  |
+ * +-+-+-+-+-+-+-+-+
+ *
+ * 本项目的发送端只携带紧邻的前几帧（序号连续），因此倒数第 k 个冗余块对应主块序号减 k。
+ * parse() 结果保存在实例数组中，解析过程不分配对象。
+ */
+public class RedPayload {
+
+    /** 冗余负载的动态负载类型 */
+    public static final int PAYLOAD_TYPE = 100;
+    /** 最多携带的冗余帧数 */
+    public static final int MAX_REDUNDANCY = 2;
+
+    public static final int REDUNDANT_HEADER_SIZE = 4;
+    public static final int PRIMARY_HEADER_SIZE = 1;
+    // 头部字段宽度限制
+    public static final int MAX_BLOCK_LENGTH = 0x3FF;
+    public static final int MAX_TIMESTAMP_OFFSET = 0x3FFF;
+
+    private final int[] payloadTypes = new int[MAX_REDUNDANCY + 1];
+    private final int[] timestampOffsets = new int[MAX_REDUNDANCY + 1];
+    private final int[] offsets = new int[MAX_REDUNDANCY + 1];
+    private final int[] lengths = new int[MAX_REDUNDANCY + 1];
+    private int count = 0;
+
+    /** 一帧编码数据在冗余负载中可能占用的最大字节数 */
+    public static int getMaxSize(int frameBytes) {
+        return (MAX_REDUNDANCY + 1) * (frameBytes + REDUNDANT_HEADER_SIZE);
+    }
+
+    /** 写入冗余块头 */
+    public static int writeRedundantHeader(byte[] buf, int off, int payloadType, int timestampOffset, int length) {
+        buf[off] = (byte) (0x80 | (payloadType & 0x7F));
+        int v = (timestampOffset << 10) | length;
+        buf[off + 1] = (byte) (v >> 16);
+        buf[off + 2] = (byte) (v >> 8);
+        buf[off + 3] = (byte) v;
+        return REDUNDANT_HEADER_SIZE;
+    }
+
+    /** 写入主块头 */
+    public static int writePrimaryHeader(byte[] buf, int off, int payloadType) {
+        buf[off] = (byte) (payloadType & 0x7F);
+        return PRIMARY_HEADER_SIZE;
+    }
+
+    /**
+     * 解析冗余负载
+     *
+     * @return 块数（最后一块为主块），格式错误时返回 -1
+     */
+    public int parse(byte[] buf, int off, int len) {
+        int end = off + len;
+        int pos = off;
+        count = 0;
+
+        // 头部
+        while (true) {
+            if (pos >= end || count > MAX_REDUNDANCY) return count = -1;
+            int b = buf[pos] & 0xFF;
+            payloadTypes[count] = b & 0x7F;
+            if ((b & 0x80) == 0) {
+                pos += PRIMARY_HEADER_SIZE;
+                count++;
+                break;
+            }
+            if (pos + REDUNDANT_HEADER_SIZE > end) return count = -1;
+            int v = ((buf[pos + 1] & 0xFF) << 16) | ((buf[pos + 2] & 0xFF) << 8) | (buf[pos + 3] & 0xFF);
+            timestampOffsets[count] = v >>> 10;
+            lengths[count] = v & MAX_BLOCK_LENGTH;
+            pos += REDUNDANT_HEADER_SIZE;
+            count++;
+        }
+
+        // 数据：冗余块长度已知，主块占用剩余部分
+        for (int i = 0; i < count - 1; i++) {
+            offsets[i] = pos;
+            pos += lengths[i];
+            if (pos > end) return count = -1;
+        }
+        offsets[count - 1] = pos;
+        lengths[count - 1] = end - pos;
+        timestampOffsets[count - 1] = 0;
+        return count;
+    }
+
+    public int getBlockCount() { return count; }
+    public int getPayloadType(int block) { return payloadTypes[block]; }
+    public int getTimestampOffset(int block) { return timestampOffsets[block]; }
+    public int getOffset(int block) { return offsets[block]; }
+    public int getLength(int block) { return lengths[block]; }
+}
@@ -0,0 +1,85 @@
+package media;
+
+/**
+ * 发送端冗余编码（RFC 2198）：保留最近几帧已编码的数据，按需附加在新帧之前
+ * - 只附加序号连续的前几帧；静音停发等造成中断时调用 reset()
+ * - 超出头部字段范围（块长 1023 字节、时间戳差 16383）的旧帧不附加
+ */
+public class RedundancyEncoder {
+
+    private final byte[][] frames;
+    private final int[] lengths;
+    private final long[] timestamps;
+    // 环形缓冲中的有效帧数，newest 指向最新一帧
+    private int stored = 0;
+    private int newest = -1;
+
+    /**
+     * @param maxFrameBytes 单帧编码后的最大字节数
+     */
+    public RedundancyEncoder(int maxFrameBytes) {
+        frames = new byte[RedPayload.MAX_REDUNDANCY][maxFrameBytes];
+        lengths = new int[RedPayload.MAX_REDUNDANCY];
+        timestamps = new long[RedPayload.MAX_REDUNDANCY];
+    }
+
+    /**
+     * 写入冗余负载：最多 level 个前帧 + 当前帧，并把当前帧记入历史
+     *
+     * @return 负载长度
+     */
+    public int encode(byte[] out, int off, int level, int payloadType, long timestamp,
+                      byte[] primary, int primaryOff, int primaryLen) {
+        // 从最旧的一帧开始，跳过超出头部字段范围的帧
+        int first = Math.min(level, stored);
+        for (int k = first; k >= 1; k--) {
+            int idx = slot(k);
+            long tsOffset = (timestamp - timestamps[idx]) & 0xFFFFFFFFL;
+            if (lengths[idx] <= RedPayload.MAX_BLOCK_LENGTH && tsOffset <= RedPayload.MAX_TIMESTAMP_OFFSET) {
+                break;
+            }
+            first = k - 1;
+        }
+
+        int pos = off;
+        for (int k = first; k >= 1; k--) {
+            int idx = slot(k);
+            int tsOffset = (int) ((timestamp - timestamps[idx]) & 0xFFFFFFFFL);
+            pos += RedPayload.writeRedundantHeader(out, pos, payloadType, tsOffset, lengths[idx]);
+        }
+        pos += RedPayload.writePrimaryHeader(out, pos, payloadType);
+        for (int k = first; k >= 1; k--) {
+            int idx = slot(k);
+            System.arraycopy(frames[idx], 0, out, pos, lengths[idx]);
+            pos += lengths[idx];
+        }
+        System.arraycopy(primary, primaryOff, out, pos, primaryLen);
+        pos += primaryLen;
+
+        remember(timestamp, primary, primaryOff, primaryLen);
+        return pos - off;
+    }
+
+    /**
+     * 不加冗余发送时也要记录当前帧，冗余开启后第一包即可携带前帧
+     */
+    public void remember(long timestamp, byte[] data, int off, int len) {
+        newest = (newest + 1) % frames.length;
+        int n = Math.min(len, frames[newest].length);
+        System.arraycopy(data, off, frames[newest], 0, n);
+        lengths[newest] = n;
+        timestamps[newest] = timestamp;
+        if (stored < frames.length) stored++;
+    }
+
+    /** 序号中断（静音停发、静音开关），丢弃历史 */
+    public void reset() {
+        stored = 0;
+        newest = -1;
+    }
+
+    // 往前第 k 帧（k = 1 为上一帧）
+    private int slot(int k) {
+        return (newest - (k - 1) + frames.length) % frames.length;
+    }
+}
@@ -0,0 +1,64 @@
+package media;
+
+/**
+ * 根据对端接收报告中的丢包比例决定冗余等级（携带几个前帧）
+ * - 丢包上升时立即提高等级
+ * - 连续几次报告都低于门限才降一级，避免在门限附近来回切换
+ */
+public class RedundancyPolicy {
+
+    // 达到该丢包比例时使用对应等级（下标即等级）
+    private static final double[] LEVEL_LOSS = {0.0, 0.01, 0.05};
+    // 降级前需要连续满足条件的报告数
+    private static final int QUIET_REPORTS = 3;
+
+    private int level = 0;
+    private int quietReports = 0;
+    private double lastFractionLost = 0;
+
+    /**
+     * 收到一次接收报告
+     *
+     * @param fractionLost 报告间隔内的丢包比例（0~1）
+     * @return 新的冗余等级
+     */
+    public synchronized int onReport(double fractionLost) {
+        lastFractionLost = fractionLost;
+
+        int desired = 0;
+        for (int i = LEVEL_LOSS.length - 1; i > 0; i--) {
+            if (fractionLost >= LEVEL_LOSS[i]) {
+                desired = i;
+                break;
+            }
+        }
+        desired = Math.min(desired, RedPayload.MAX_REDUNDANCY);
+
+        if (desired > level) {
+            level = desired;
+            quietReports = 0;
+        } else if (desired < level) {
+            if (++quietReports >= QUIET_REPORTS) {
+                level--;
+                quietReports = 0;
+            }
+        } else {
+            quietReports = 0;
+        }
+        return level;
+    }
+
+    public synchronized int getLevel() {
+        return level;
+    }
+
+    public synchronized double getLastFractionLost() {
+        return lastFractionLost;
+    }
+
+    public synchronized void reset() {
+        level = 0;
+        quietReports = 0;
+        lastFractionLost = 0;
+    }
+}
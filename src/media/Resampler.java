@@ -0,0 +1,131 @@
+package media;
+
+/**
+ * 有理数比例的多相 FIR 重采样器（L/M，窗函数 sinc 低通）
+ * - 用于声卡不支持协商采样率时，在设备采样率与线上采样率之间转换
+ * - 流式处理：滤波器历史跨帧保留，输入帧长为 10ms 整数倍时每帧输出长度固定
+ * - 滤波器系数在构造时生成，process() 不分配对象
+ */
+public class Resampler {
+
+    // 每侧保留的 sinc 过零点数，决定阻带衰减与延迟
+    private static final int ZERO_CROSSINGS = 8;
+    // 截止频率相对于奈奎斯特频率的比例，留出过渡带
+    private static final double CUTOFF = 0.92;
+
+    private final int inputRate;
+    private final int outputRate;
+    private final int up;
+    private final int down;
+    private final int taps;
+    private final float[] coeffs;   // [phase * taps + k]
+    private final float[] buf;      // 前 taps-1 个为历史采样，其后为当前输入
+    private final int maxInput;
+
+    // 下一个输出采样在高采样率（输入 * up）时间轴上的位置，相对当前输入起点
+    private long time = 0;
+
+    /**
+     * @param inputRate  输入采样率
+     * @param outputRate 输出采样率
+     * @param maxInput   单次 process 的最大输入采样数
+     */
+    public Resampler(int inputRate, int outputRate, int maxInput) {
+        this.inputRate = inputRate;
+        this.outputRate = outputRate;
+        int g = gcd(inputRate, outputRate);
+        this.up = outputRate / g;
+        this.down = inputRate / g;
+        this.maxInput = maxInput;
+
+        int factor = Math.max(up, down);
+        this.taps = Math.max(2, (2 * ZERO_CROSSINGS * factor + up - 1) / up);
+        this.coeffs = designFilter(up, taps, 0.5 * CUTOFF / factor);
+        this.buf = new float[taps - 1 + maxInput];
+    }
+
+    public int getInputRate() { return inputRate; }
+    public int getOutputRate() { return outputRate; }
+
+    /** 输入 n 个采样时最多产生的输出采样数 */
+    public int getOutputCapacity(int n) {
+        return (int) (((long) n * up + down - 1) / down) + 1;
+    }
+
+    /**
+     * 重采样一段连续的输入
+     *
+     * @return 写入 out 的采样数
+     */
+    public int process(short[] in, int off, int n, short[] out, int outOff) {
+        if (n > maxInput) {
+            throw new IllegalArgumentException("输入长度超过 " + maxInput);
+        }
+
+        int hist = taps - 1;
+        for (int i = 0; i < n; i++) {
+            buf[hist + i] = in[off + i];
+        }
+
+        int count = 0;
+        long end = (long) n * up;
+        while (time < end) {
+            int base = (int) (time / up);
+            int phase = (int) (time % up);
+            int c = phase * taps;
+            int x = hist + base;
+
+            float acc = 0;
+            for (int k = 0; k < taps; k++) {
+                acc += coeffs[c + k] * buf[x - k];
+            }
+
+            int v = Math.round(acc);
+            if (v > 32767) v = 32767;
+            else if (v < -32768) v = -32768;
+            out[outOff + count++] = (short) v;
+
+            time += down;
+        }
+        time -= end;
+
+        // 保留最后 taps-1 个采样作为下一段的历史
+        System.arraycopy(buf, n, buf, 0, hist);
+        return count;
+    }
+
+    public void reset() {
+        java.util.Arrays.fill(buf, 0);
+        time = 0;
+    }
+
+    // Blackman 窗 sinc 低通，按多相结构重排；cutoff 以高采样率下的周期/采样计
+    private static float[] designFilter(int phases, int taps, double cutoff) {
+        int length = phases * taps;
+        double center = (length - 1) / 2.0;
+        float[] h = new float[length];
+
+        for (int n = 0; n < length; n++) {
+            double t = n - center;
+            double sinc = t == 0 ? 2 * cutoff : Math.sin(2 * Math.PI * cutoff * t) / (Math.PI * t);
+            double w = 0.42 - 0.5 * Math.cos(2 * Math.PI * n / (length - 1))
+                    + 0.08 * Math.cos(4 * Math.PI * n / (length - 1));
+            // 插零上采样后需要乘以 phases 恢复幅度
+            double v = sinc * w * phases;
+
+            int phase = n % phases;
+            int k = n / phases;
+            h[phase * taps + k] = (float) v;
+        }
+        return h;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
@@ -0,0 +1,223 @@
+package media;
+
+/**
+ * RTCP 发送/接收报告（RFC 3550 第 6.4 节），与语音包复用同一个 UDP 端口（RFC 5761）
+ *
+ * 发送报告（SR）= 8 字节头 + 20 字节发送者信息 + 报告块；
+ * 接收报告（RR）= 8 字节头 + 报告块。本项目每包最多一个报告块：
+ *
+ *  0                   1                   2                   3
+ *  0 1 2 3 4 5 6 7 8 9 0 1 2 3 4 5 6 7 8 9 0 1 2 3 4 5 6 7 8 9 0 1
+ * +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+ * |V=2|P|   RC    |  PT=SR=200    |             length            |
+ * +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+ * |                     SSRC of packet sender                     |
+ * +=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+
+ * |              NTP timestamp, most significant word             |  仅 SR
+ * |             NTP timestamp, least significant word             |
+ * |                         RTP timestamp                         |
+ * |                     sender's packet count                     |
+ * |                      sender's octet count                     |
+ * +=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+
+ * |                 SSRC of source being reported                 |  报告块
+ * | fraction lost |       cumulative number of packets lost       |
+ * |           extended highest sequence number received           |
+ * |                      interarrival jitter                      |
+ * |                         last SR (LSR)                         |
+ * |                   delay since last SR (DLSR)                  |
+ * +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+ *
+ * 往返时延 RTT = 收到报告的时刻 - LSR - DLSR（单位 1/65536 秒）。
+ * 与 RtpPacket 一样只提供静态读写，报告块读取方法的参数为报告块的起始位置。
+ */
+public final class RtcpPacket {
+
+    public static final int PT_SR = 200;
+    public static final int PT_RR = 201;
+
+    public static final int HEADER_SIZE = 8;
+    public static final int SENDER_INFO_SIZE = 20;
+    public static final int REPORT_BLOCK_SIZE = 24;
+    /** 含一个报告块的 SR 最大长度 */
+    public static final int MAX_SIZE = HEADER_SIZE + SENDER_INFO_SIZE + REPORT_BLOCK_SIZE;
+    /** 含一个报告块的 RR 长度 */
+    public static final int RR_SIZE = HEADER_SIZE + REPORT_BLOCK_SIZE;
+
+    // RTCP 包类型范围（RFC 5761：与 RTP 复用时据此区分）
+    private static final int PT_MIN = 200;
+    private static final int PT_MAX = 204;
+
+    // NTP 纪元（1900 年）与 Unix 纪元之间的秒数
+    private static final long NTP_EPOCH_OFFSET = 2208988800L;
+
+    private RtcpPacket() {}
+
+    /**
+     * 判断数据报是否为 RTCP（而不是语音包）
+     */
+    public static boolean isRtcp(byte[] buf, int off, int len) {
+        if (len < HEADER_SIZE) return false;
+        if (((buf[off] >> 6) & 0x03) != RtpPacket.VERSION) return false;
+        int pt = buf[off + 1] & 0xFF;
+        return pt >= PT_MIN && pt <= PT_MAX;
+    }
+
+    public static int getPacketType(byte[] buf, int off) {
+        return buf[off + 1] & 0xFF;
+    }
+
+    public static long getSenderSsrc(byte[] buf, int off) {
+        return readInt(buf, off + 4);
+    }
+
+    /**
+     * 写入发送报告
+     *
+     * @param ntpMs       当前时刻（毫秒，Unix 纪元）
+     * @param rtpTimestamp 与 ntpMs 对应的媒体时间戳
+     * @param withReport   是否附带一个报告块（尚未收到对端语音时不附带）
+     * @return 包长度
+     */
+    public static int writeSenderReport(byte[] buf, int off, long ssrc, long ntpMs, long rtpTimestamp,
+                                        long packetCount, long octetCount, boolean withReport) {
+        int len = HEADER_SIZE + SENDER_INFO_SIZE + (withReport ? REPORT_BLOCK_SIZE : 0);
+        writeHeader(buf, off, PT_SR, withReport ? 1 : 0, len, ssrc);
+
+        long seconds = ntpMs / 1000 + NTP_EPOCH_OFFSET;
+        long fraction = ((ntpMs % 1000) << 32) / 1000;
+        writeInt(buf, off + 8, seconds);
+        writeInt(buf, off + 12, fraction);
+        writeInt(buf, off + 16, rtpTimestamp);
+        writeInt(buf, off + 20, packetCount);
+        writeInt(buf, off + 24, octetCount);
+        return len;
+    }
+
+    /**
+     * 写入只含一个报告块的接收报告（块内容随后用 writeReportBlock 填写）
+     *
+     * @return 包长度
+     */
+    public static int writeReceiverReport(byte[] buf, int off, long ssrc) {
+        writeHeader(buf, off, PT_RR, 1, RR_SIZE, ssrc);
+        return RR_SIZE;
+    }
+
+    /**
+     * 写入报告块
+     *
+     * @param blockOff       报告块起始位置，见 getReportBlockOffset
+     * @param fractionLost   上一报告间隔内的丢包比例（8bit 定点，/256）
+     * @param cumulativeLost 累计丢包数
+     * @param jitter         到达间隔抖动（时间戳单位）
+     * @param lsr            最近收到的 SR 中 NTP 时间的中间 32 位，未收到时为 0
+     * @param dlsr           收到该 SR 至今的时长（1/65536 秒）
+     */
+    public static void writeReportBlock(byte[] buf, int blockOff, long sourceSsrc,
+                                        int fractionLost, long cumulativeLost, long extHighestSeq,
+                                        long jitter, long lsr, long dlsr) {
+        writeInt(buf, blockOff, sourceSsrc);
+        long lost = Math.min(cumulativeLost, 0x7FFFFF);
+        writeInt(buf, blockOff + 4, ((long) (fractionLost & 0xFF) << 24) | lost);
+        writeInt(buf, blockOff + 8, extHighestSeq);
+        writeInt(buf, blockOff + 12, jitter);
+        writeInt(buf, blockOff + 16, lsr);
+        writeInt(buf, blockOff + 20, dlsr);
+    }
+
+    /**
+     * 第一个报告块的位置；包内没有报告块时返回 -1
+     */
+    public static int getReportBlockOffset(byte[] buf, int off, int len) {
+        int pt = getPacketType(buf, off);
+        int count = buf[off] & 0x1F;
+        int blockOff;
+        if (pt == PT_SR) {
+            blockOff = off + HEADER_SIZE + SENDER_INFO_SIZE;
+        } else if (pt == PT_RR) {
+            blockOff = off + HEADER_SIZE;
+        } else {
+            return -1;
+        }
+        if (count < 1 || blockOff + REPORT_BLOCK_SIZE > off + len) return -1;
+        return blockOff;
+    }
+
+    /** 是否为发送报告 */
+    public static boolean isSenderReport(byte[] buf, int off, int len) {
+        return len >= HEADER_SIZE + SENDER_INFO_SIZE && getPacketType(buf, off) == PT_SR;
+    }
+
+    /** SR 中 NTP 时间的中间 32 位，接收方在报告块中原样回传为 LSR */
+    public static long getSenderNtpMiddle(byte[] buf, int off) {
+        return ((readInt(buf, off + 8) & 0xFFFF) << 16) | (readInt(buf, off + 12) >>> 16);
+    }
+
+    public static long getReportSourceSsrc(byte[] buf, int blockOff) {
+        return readInt(buf, blockOff);
+    }
+
+    public static int getReportFractionLost(byte[] buf, int blockOff) {
+        return buf[blockOff + 4] & 0xFF;
+    }
+
+    public static long getReportCumulativeLost(byte[] buf, int blockOff) {
+        return readInt(buf, blockOff + 4) & 0xFFFFFF;
+    }
+
+    public static long getReportHighestSeq(byte[] buf, int blockOff) {
+        return readInt(buf, blockOff + 8);
+    }
+
+    public static long getReportJitter(byte[] buf, int blockOff) {
+        return readInt(buf, blockOff + 12);
+    }
+
+    public static long getReportLsr(byte[] buf, int blockOff) {
+        return readInt(buf, blockOff + 16);
+    }
+
+    public static long getReportDlsr(byte[] buf, int blockOff) {
+        return readInt(buf, blockOff + 20);
+    }
+
+    /** 当前时刻对应的 NTP 中间 32 位（1/65536 秒为单位），用于计算 RTT */
+    public static long ntpMiddle(long ms) {
+        long seconds = ms / 1000 + NTP_EPOCH_OFFSET;
+        long fraction = ((ms % 1000) << 32) / 1000;
+        return ((seconds & 0xFFFF) << 16) | (fraction >>> 16);
+    }
+
+    /** 毫秒转换为 1/65536 秒 */
+    public static long toNtpShort(long ms) {
+        return (ms << 16) / 1000;
+    }
+
+    /** 1/65536 秒转换为毫秒 */
+    public static double fromNtpShort(long units) {
+        return units * 1000.0 / 65536;
+    }
+
+    private static void writeHeader(byte[] buf, int off, int pt, int count, int len, long ssrc) {
+        buf[off] = (byte) ((RtpPacket.VERSION << 6) | count);
+        buf[off + 1] = (byte) pt;
+        int words = len / 4 - 1;
+        buf[off + 2] = (byte) (words >> 8);
+        buf[off + 3] = (byte) words;
+        writeInt(buf, off + 4, ssrc);
+    }
+
+    private static void writeInt(byte[] buf, int off, long v) {
+        buf[off] = (byte) (v >> 24);
+        buf[off + 1] = (byte) (v >> 16);
+        buf[off + 2] = (byte) (v >> 8);
+        buf[off + 3] = (byte) v;
+    }
+
+    private static long readInt(byte[] buf, int off) {
+        return ((long) (buf[off] & 0xFF) << 24)
+                | ((buf[off + 1] & 0xFF) << 16)
+                | ((buf[off + 2] & 0xFF) << 8)
+                | (buf[off + 3] & 0xFF);
+    }
+}
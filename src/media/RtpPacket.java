@@ -0,0 +1,94 @@
+package media;
+
+/**
+ * RTP 风格的语音包头（RFC 3550 固定头部，12 字节）
+ *
+ *  0                   1                   2                   3
+ *  0 1 2 3 4 5 6 7 8 9 0 1 2 3 4 5 6 7 8 9 0 1 2 3 4 5 6 7 8 9 0 1
+ * +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+ * |V=2|P|X|  CC   |M|     PT      |       sequence number         |
+ * +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+ * |                           timestamp                           |
+ * +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+ * |                             SSRC                              |
+ * +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+ *
+ * 只提供对字节数组的静态读写，收发路径上不产生任何对象。
+ */
+public final class RtpPacket {
+
+    public static final int HEADER_SIZE = 12;
+    public static final int VERSION = 2;
+
+    /** 16bit 线性 PCM（动态负载类型） */
+    public static final int PAYLOAD_L16 = 96;
+
+    private RtpPacket() {}
+
+    /**
+     * 写入固定头部
+     *
+     * @return 头部长度
+     */
+    public static int writeHeader(byte[] buf, int off, int payloadType, boolean marker,
+                                  int seq, long timestamp, long ssrc) {
+        buf[off] = (byte) (VERSION << 6);
+        buf[off + 1] = (byte) ((marker ? 0x80 : 0) | (payloadType & 0x7F));
+        buf[off + 2] = (byte) (seq >> 8);
+        buf[off + 3] = (byte) seq;
+        writeInt(buf, off + 4, timestamp);
+        writeInt(buf, off + 8, ssrc);
+        return HEADER_SIZE;
+    }
+
+    /**
+     * 检查版本号与长度，过滤掉不是本协议的数据报
+     */
+    public static boolean isValid(byte[] buf, int off, int len) {
+        if (len < HEADER_SIZE) return false;
+        if (((buf[off] >> 6) & 0x03) != VERSION) return false;
+        return getHeaderLength(buf, off) <= len;
+    }
+
+    /**
+     * 头部总长度（含 CSRC 列表，不支持扩展头时按固定部分计算）
+     */
+    public static int getHeaderLength(byte[] buf, int off) {
+        int cc = buf[off] & 0x0F;
+        return HEADER_SIZE + cc * 4;
+    }
+
+    public static boolean getMarker(byte[] buf, int off) {
+        return (buf[off + 1] & 0x80) != 0;
+    }
+
+    public static int getPayloadType(byte[] buf, int off) {
+        return buf[off + 1] & 0x7F;
+    }
+
+    public static int getSequence(byte[] buf, int off) {
+        return ((buf[off + 2] & 0xFF) << 8) | (buf[off + 3] & 0xFF);
+    }
+
+    public static long getTimestamp(byte[] buf, int off) {
+        return readInt(buf, off + 4);
+    }
+
+    public static long getSsrc(byte[] buf, int off) {
+        return readInt(buf, off + 8);
+    }
+
+    private static void writeInt(byte[] buf, int off, long v) {
+        buf[off] = (byte) (v >> 24);
+        buf[off + 1] = (byte) (v >> 16);
+        buf[off + 2] = (byte) (v >> 8);
+        buf[off + 3] = (byte) v;
+    }
+
+    private static long readInt(byte[] buf, int off) {
+        return ((long) (buf[off] & 0xFF) << 24)
+                | ((buf[off + 1] & 0xFF) << 16)
+                | ((buf[off + 2] & 0xFF) << 8)
+                | (buf[off + 3] & 0xFF);
+    }
+}
@@ -0,0 +1,134 @@
+package media;
+
+/**
+ * RTP 序号跟踪（参考 RFC 3550 附录 A.1）
+ * - 把 16bit 序号扩展为单调递增的 long，处理回绕
+ * - 统计期望包数、实际收到包数和累计丢包
+ * - 计算接收报告中“上一间隔内的丢包比例”（附录 A.3）
+ * - 序号大跳变的包先视为无效，紧接着的下一个包连续时才认定对端重新开始发送（附录 A.1 的 bad_seq），
+ *   单个迷途或重复的旧包不会使扩展序号跳变
+ */
+public class SequenceTracker {
+
+    /** extend() 的返回值：序号大跳变、待确认的包，调用方应丢弃 */
+    public static final long REJECTED = -1;
+
+    private static final int SEQ_MOD = 1 << 16;
+    // 超过该跨度的跳变视为对端重新开始发送
+    private static final int MAX_DROPOUT = 3000;
+    private static final int MAX_MISORDER = 100;
+
+    private boolean initialized = false;
+    private int maxSeq;
+    // 大跳变后期望的下一个序号（-1 表示没有待确认的跳变）
+    private int badSeq = -1;
+    private long cycles;
+    private long baseSeq;
+    private long received;
+    private long restarts;
+    // 上一次生成接收报告时的期望/收到包数
+    private long expectedPrior;
+    private long receivedPrior;
+
+    /**
+     * 扩展序号
+     *
+     * @param seq 包头中的 16bit 序号
+     * @return 扩展序号；大跳变待确认时返回 REJECTED（不计入收到的包）
+     */
+    public synchronized long extend(int seq) {
+        if (!initialized) {
+            received++;
+            initialized = true;
+            maxSeq = seq;
+            cycles = 0;
+            baseSeq = seq;
+            return seq;
+        }
+
+        int delta = (seq - maxSeq + SEQ_MOD) % SEQ_MOD;
+
+        if (delta < MAX_DROPOUT) {
+            // 正常前进（允许中间有丢包）
+            received++;
+            badSeq = -1;
+            if (seq < maxSeq) cycles += SEQ_MOD;
+            maxSeq = seq;
+            return cycles + seq;
+        }
+
+        if (delta >= SEQ_MOD - MAX_MISORDER) {
+            // 乱序或重复的旧包
+            received++;
+            long ext = cycles + seq;
+            if (seq > maxSeq) ext -= SEQ_MOD;
+            return ext;
+        }
+
+        if (seq != badSeq) {
+            // 大跳变：先记下，等下一个包确认
+            badSeq = (seq + 1) % SEQ_MOD;
+            return REJECTED;
+        }
+
+        // 连续两个包都在新位置：对端重新开始发送，以该序号为起点
+        received++;
+        badSeq = -1;
+        restarts++;
+        cycles += SEQ_MOD;
+        maxSeq = seq;
+        baseSeq = cycles + seq - (received - 1);
+        return cycles + seq;
+    }
+
+    public synchronized void reset() {
+        initialized = false;
+        badSeq = -1;
+        received = 0;
+        restarts = 0;
+        expectedPrior = 0;
+        receivedPrior = 0;
+    }
+
+    /**
+     * 自上次调用以来的丢包比例（8bit 定点，/256），用于接收报告
+     */
+    public synchronized int nextFractionLost() {
+        long expected = getExpected();
+        long expectedInterval = expected - expectedPrior;
+        long receivedInterval = received - receivedPrior;
+        expectedPrior = expected;
+        receivedPrior = received;
+
+        long lostInterval = expectedInterval - receivedInterval;
+        if (expectedInterval <= 0 || lostInterval <= 0) return 0;
+        return (int) Math.min(255, (lostInterval << 8) / expectedInterval);
+    }
+
+    /** 收到的最大扩展序号（低 32 位） */
+    public synchronized long getExtendedHighest() {
+        return (cycles + maxSeq) & 0xFFFFFFFFL;
+    }
+
+    public synchronized boolean isInitialized() {
+        return initialized;
+    }
+
+    /** 期望收到的包数 */
+    public synchronized long getExpected() {
+        return initialized ? cycles + maxSeq - baseSeq + 1 : 0;
+    }
+
+    public synchronized long getReceived() {
+        return received;
+    }
+
+    /** 累计丢包数（重复包可能使其暂时偏小，不会小于 0） */
+    public synchronized long getLost() {
+        return Math.max(0, getExpected() - received);
+    }
+
+    public synchronized long getRestarts() {
+        return restarts;
+    }
+}
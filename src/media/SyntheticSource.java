@@ -0,0 +1,91 @@
+package media;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * 合成信号作为采集设备：单音、白噪声或二者叠加（频率为 0 时只有噪声，两者电平都为静音时输出全零），
+ * 用于没有麦克风的机器上跑通整条媒体链路
+ * - 电平以 dBFS（相对满幅正弦 / 满幅 RMS）给出
+ * - realTime 为 true 时按设备采样率节拍
+ */
+public class SyntheticSource implements AudioSource {
+
+    private final double frequency;
+    private final double toneDbfs;
+    private final double noiseDbfs;
+    private final boolean realTime;
+    private final Random random = new Random(1);
+
+    private double step;
+    private double phase;
+    private double toneAmplitude;
+    private double noiseRms;
+    private boolean bigEndian;
+    private Pacer pacer;
+    private volatile boolean open = false;
+
+    /**
+     * @param frequency 单音频率（Hz），0 表示没有单音
+     * @param toneDbfs  单音电平，负无穷表示没有单音
+     * @param noiseDbfs 白噪声电平，负无穷表示没有噪声
+     */
+    public SyntheticSource(double frequency, double toneDbfs, double noiseDbfs, boolean realTime) {
+        this.frequency = frequency;
+        this.toneDbfs = toneDbfs;
+        this.noiseDbfs = noiseDbfs;
+        this.realTime = realTime;
+    }
+
+    @Override
+    public String getName() {
+        return String.format("synthetic(%.0f Hz %.0f dBFS, 噪声 %.0f dBFS)", frequency, toneDbfs, noiseDbfs);
+    }
+
+    @Override
+    public boolean isFormatSupported(AudioFormat format) {
+        return AudioDevices.isPcm16Mono(format);
+    }
+
+    @Override
+    public void open(AudioFormat format) throws IOException {
+        if (!isFormatSupported(format)) throw new IOException("不支持的格式: " + format);
+        int rate = (int) format.getSampleRate();
+        step = 2 * Math.PI * frequency / rate;
+        phase = 0;
+        toneAmplitude = frequency > 0 ? 32767 * Math.pow(10, toneDbfs / 20) : 0;
+        noiseRms = 32767 * Math.pow(10, noiseDbfs / 20);
+        bigEndian = format.isBigEndian();
+        pacer = realTime ? new Pacer(rate, 2) : null;
+        open = true;
+    }
+
+    @Override
+    public int read(byte[] buf, int off, int len) {
+        if (!open) return -1;
+        int n = len / 2;
+        for (int i = 0; i < n; i++) {
+            double v = toneAmplitude * Math.sin(phase);
+            if (noiseRms > 0) v += random.nextGaussian() * noiseRms;
+            phase += step;
+            if (phase > 2 * Math.PI) phase -= 2 * Math.PI;
+            int s = (int) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(v)));
+            int b = off + i * 2;
+            if (bigEndian) {
+                buf[b] = (byte) (s >> 8);
+                buf[b + 1] = (byte) s;
+            } else {
+                buf[b] = (byte) s;
+                buf[b + 1] = (byte) (s >> 8);
+            }
+        }
+        if (pacer != null) pacer.advance(n * 2);
+        return open ? n * 2 : -1;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+    }
+}
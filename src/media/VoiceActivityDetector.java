@@ -0,0 +1,95 @@
+package media;
+
+/**
+ * 基于能量的语音活动检测（VAD）
+ * - 自适应噪声底：低于当前噪声底时快速跟随，高于时按固定速率缓慢上升，
+ *   因此环境噪声变大后几秒内即被视为新的静音
+ * - 帧能量高出噪声底一定比例（且超过绝对下限）判为语音
+ * - 语音结束后保持若干帧（hangover），避免切掉词尾和字间短停顿
+ *
+ * 每帧调用一次 process()，不分配对象。
+ */
+public class VoiceActivityDetector {
+
+    // 语音判决门限：高于噪声底约 9.5dB
+    private static final double SPEECH_RATIO = 3.0;
+    // 绝对门限（RMS），低于此值一律视为静音
+    private static final double MIN_SPEECH_RMS = 60.0;
+    // 噪声底范围（RMS）
+    private static final double MIN_NOISE_RMS = 4.0;
+    private static final double INITIAL_NOISE_RMS = 100.0;
+    // 噪声底下降时的跟随系数
+    private static final double FALL_RATE = 0.3;
+    // 噪声底每秒最多上升的分贝数
+    private static final double RISE_DB_PER_SECOND = 5.0;
+    // 语音结束后的保持时间
+    private static final int HANGOVER_MS = 240;
+
+    private final double riseFactor;
+    private final int hangoverFrames;
+
+    private double noiseRms = INITIAL_NOISE_RMS;
+    private double frameRms = 0;
+    private int hangover = 0;
+    private boolean active = false;
+    private boolean speech = false;
+
+    /**
+     * @param frameMs 每次 process() 输入的帧长（毫秒）
+     */
+    public VoiceActivityDetector(int frameMs) {
+        riseFactor = Math.pow(10, RISE_DB_PER_SECOND * frameMs / 1000.0 / 20.0);
+        hangoverFrames = Math.max(1, (HANGOVER_MS + frameMs - 1) / frameMs);
+    }
+
+    /**
+     * 输入一帧 PCM
+     *
+     * @return true 表示该帧应作为语音处理（含 hangover）
+     */
+    public boolean process(short[] pcm, int off, int count) {
+        double sum = 0;
+        for (int i = off; i < off + count; i++) {
+            sum += (double) pcm[i] * pcm[i];
+        }
+        frameRms = count > 0 ? Math.sqrt(sum / count) : 0;
+
+        active = frameRms > MIN_SPEECH_RMS && frameRms > noiseRms * SPEECH_RATIO;
+
+        // 噪声底跟踪：语音帧只允许缓慢上升，静音帧可快速下降
+        if (frameRms < noiseRms) {
+            noiseRms += (frameRms - noiseRms) * FALL_RATE;
+        } else {
+            noiseRms *= riseFactor;
+        }
+        if (noiseRms < MIN_NOISE_RMS) noiseRms = MIN_NOISE_RMS;
+
+        if (active) {
+            hangover = hangoverFrames;
+        } else if (hangover > 0) {
+            hangover--;
+        }
+        speech = active || hangover > 0;
+        return speech;
+    }
+
+    public void reset() {
+        noiseRms = INITIAL_NOISE_RMS;
+        frameRms = 0;
+        hangover = 0;
+        active = false;
+        speech = false;
+    }
+
+    /** 最近一次判决结果 */
+    public boolean isSpeech() { return speech; }
+
+    /** 最近一帧本身是否高于门限（不含 hangover） */
+    public boolean isActive() { return active; }
+
+    /** 最近一帧的 RMS */
+    public double getFrameRms() { return frameRms; }
+
+    /** 当前估计的背景噪声 RMS（用于舒适噪声电平） */
+    public double getNoiseRms() { return noiseRms; }
+}
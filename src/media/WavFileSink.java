@@ -0,0 +1,115 @@
+package media;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+
+/**
+ * WAV 文件作为播放设备：边播放边写入 16bit 单声道 PCM WAV，关闭时回填文件头中的长度，
+ * 用于无声卡机器上保存收到的语音以便事后试听或比对
+ * - realTime 为 true 时按设备采样率节拍，为 false 时不等待
+ */
+public class WavFileSink implements AudioSink {
+
+    private static final int HEADER_SIZE = 44;
+
+    private final File file;
+    private final boolean realTime;
+
+    private OutputStream out;
+    private boolean bigEndian;
+    private Pacer pacer;
+    private long dataBytes;
+
+    public WavFileSink(File file, boolean realTime) {
+        this.file = file;
+        this.realTime = realTime;
+    }
+
+    @Override
+    public String getName() { return "wav:" + file.getPath(); }
+
+    @Override
+    public boolean isFormatSupported(AudioFormat format) {
+        return AudioDevices.isPcm16Mono(format);
+    }
+
+    @Override
+    public synchronized void open(AudioFormat format, int bufferBytes) throws IOException {
+        if (!isFormatSupported(format)) throw new IOException("不支持的格式: " + format);
+        int rate = (int) format.getSampleRate();
+        out = new BufferedOutputStream(new FileOutputStream(file), 64 * 1024);
+        writeHeader(out, rate, 0);
+        bigEndian = format.isBigEndian();
+        pacer = realTime ? new Pacer(rate, 2) : null;
+        dataBytes = 0;
+    }
+
+    @Override
+    public void write(byte[] buf, int off, int len) throws IOException {
+        synchronized (this) {
+            if (out == null) throw new IOException("播放设备已关闭");
+            int n = len & ~1;
+            if (bigEndian) {
+                // WAV 为小端，逐采样交换字节写入缓冲流（不分配临时数组）
+                for (int i = off; i < off + n; i += 2) {
+                    out.write(buf[i + 1]);
+                    out.write(buf[i]);
+                }
+            } else {
+                out.write(buf, off, n);
+            }
+            dataBytes += n;
+        }
+        if (pacer != null) pacer.advance(len);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (out == null) return;
+        try {
+            out.close();
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.seek(4);
+                raf.writeInt(Integer.reverseBytes((int) Math.min(0xFFFFFFFFL, dataBytes + HEADER_SIZE - 8)));
+                raf.seek(40);
+                raf.writeInt(Integer.reverseBytes((int) Math.min(0xFFFFFFFFL, dataBytes)));
+            }
+        } catch (IOException e) {
+            System.err.println("写入 WAV 文件失败 " + file + ": " + e.getMessage());
+        } finally {
+            out = null;
+        }
+    }
+
+    private static void writeHeader(OutputStream out, int rate, int dataBytes) throws IOException {
+        out.write(new byte[]{'R', 'I', 'F', 'F'});
+        writeLe32(out, dataBytes + HEADER_SIZE - 8);
+        out.write(new byte[]{'W', 'A', 'V', 'E', 'f', 'm', 't', ' '});
+        writeLe32(out, 16);
+        writeLe16(out, 1);          // PCM
+        writeLe16(out, 1);          // 单声道
+        writeLe32(out, rate);
+        writeLe32(out, rate * 2);   // 字节率
+        writeLe16(out, 2);          // 块对齐
+        writeLe16(out, 16);         // 位深
+        out.write(new byte[]{'d', 'a', 't', 'a'});
+        writeLe32(out, dataBytes);
+    }
+
+    private static void writeLe32(OutputStream out, int v) throws IOException {
+        out.write(v);
+        out.write(v >> 8);
+        out.write(v >> 16);
+        out.write(v >> 24);
+    }
+
+    private static void writeLe16(OutputStream out, int v) throws IOException {
+        out.write(v);
+        out.write(v >> 8);
+    }
+}
@@ -0,0 +1,59 @@
+package media;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * WAV 文件作为采集设备：构造时把整个文件解码为 16bit 单声道读入内存（测试素材通常只有几十秒），
+ * 之后与 MemorySource 相同，可循环、可按实时速率节拍
+ */
+public class WavFileSource extends MemorySource {
+
+    private final File file;
+
+    public WavFileSource(File file, boolean loop, boolean realTime) throws IOException {
+        this(file, load(file), loop, realTime);
+    }
+
+    private WavFileSource(File file, Loaded loaded, boolean loop, boolean realTime) {
+        super(loaded.pcm, loaded.sampleRate, loop, realTime);
+        this.file = file;
+    }
+
+    @Override
+    public String getName() { return "wav:" + file.getPath(); }
+
+    private static final class Loaded {
+        final short[] pcm;
+        final int sampleRate;
+
+        Loaded(short[] pcm, int sampleRate) {
+            this.pcm = pcm;
+            this.sampleRate = sampleRate;
+        }
+    }
+
+    private static Loaded load(File file) throws IOException {
+        try (AudioInputStream in = AudioSystem.getAudioInputStream(file)) {
+            int rate = (int) in.getFormat().getSampleRate();
+            AudioFormat target = new AudioFormat(rate, 16, 1, true, true);
+            try (AudioInputStream pcm = in.getFormat().matches(target) ? in : AudioSystem.getAudioInputStream(target, in)) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                byte[] buf = new byte[8192];
+                int n;
+                while ((n = pcm.read(buf)) > 0) bytes.write(buf, 0, n);
+                byte[] data = bytes.toByteArray();
+                short[] samples = new short[data.length / 2];
+                Pcm.toShorts(data, 0, samples.length * 2, true, samples, 0);
+                return new Loaded(samples, rate);
+            }
+        } catch (UnsupportedAudioFileException | IllegalArgumentException e) {
+            throw new IOException("无法读取音频文件 " + file + ": " + e.getMessage(), e);
+        }
+    }
+}
@@ -1,18 +1,69 @@
 package model;
 
+import media.AudioDevices;
+import media.Codecs;
+import media.ImaAdpcmCodec;
+import media.PacketLossConcealer;
+
 import javax.sound.sampled.AudioFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 public class AudioModel {
     private AudioFormat audioFormat;
     private boolean isAudioEnabled = false;
     private int tcpPort = 8081;  // 添加TCP端口
 
+    // 抖动缓冲区参数（按现场网络情况调整）
+    private int jitterMinDelayMs = 20;
+    private int jitterMaxDelayMs = 300;
+
+    // 通话编码优先级（信令协商时按此顺序提供）
+    private List<String> codecPreference = new ArrayList<>(Codecs.SUPPORTED);
+    // 通话采样率优先级（宽带优先）；声卡不支持的采样率通过重采样实现
+    // 48kHz 只能用线性 PCM（768 kbit/s），仅在对端只有 48kHz 时使用
+    private List<Integer> sampleRatePreference = new ArrayList<>(Arrays.asList(16000, 8000, 48000));
+    // 打包间隔（10/20/30/40 ms）：越短延迟越低，越长包率越低
+    private int frameMs = MediaDescription.DEFAULT_FRAME_MS;
+    // 静音停发：检测到静音时只发送稀疏的舒适噪声描述帧（需双方都支持）
+    private boolean dtxEnabled = true;
+    // 冗余帧（FEC）：按对端报告的丢包率自动携带 0~2 个前帧（需双方都支持）
+    private boolean fecEnabled = true;
+    // 回声消除：用扬声器外放通话时消除对端从麦克风听到的自己的回声（每通电话开始时读取）
+    private boolean echoCancellationEnabled = true;
+    // 降噪：抑制空调、风扇、办公室底噪等稳态噪声，静音检测也更准确（每通电话开始时读取）
+    private boolean noiseSuppressionEnabled = true;
+    // 自动增益：把不同麦克风的说话电平调整到同一水平，过响时压低防止削波（每通电话开始时读取）
+    private boolean gainControlEnabled = true;
+    // 播放限幅：对端声音过响时在扬声器前压低峰值（每通电话开始时读取）
+    private boolean playoutLimiterEnabled = true;
+    // 时钟漂移补偿：两端声卡时钟不一致时微调播放速率，长通话中延迟不漂移、不周期性欠载（每通电话开始时读取）
+    private boolean driftCompensationEnabled = true;
+    // 丢包隐藏策略
+    private PacketLossConcealer.Strategy plcStrategy = PacketLossConcealer.Strategy.PITCH;
+    // 采集/播放设备（见 AudioDevices）：默认为声卡，无声卡的机器可用 -Daudio.capture=tone:440 -Daudio.playback=null 运行
+    private String captureDevice = System.getProperty("audio.capture", AudioDevices.SOUND_CARD);
+    private String playbackDevice = System.getProperty("audio.playback", AudioDevices.SOUND_CARD);
+    // 音频消息的存储/传输编码：DVI4 为 IMA ADPCM（约 1/4 大小），L16 为原始 PCM
+    private String messageCodec = ImaAdpcmCodec.NAME;
+    // 音频消息发送限速（KB/s），0 为不限速；与通话共用窄带上行时可限速，避免挤占语音
+    private int messageRateLimitKBps = 0;
+
     public AudioModel() {
         initializeAudioFormat();
     }
 
+    // 音频消息录制使用的格式；实时通话的格式在信令中协商
     private void initializeAudioFormat() {
-        audioFormat = new AudioFormat(8000.0f, 16, 1, true, true);
+        audioFormat = createPcmFormat(8000);
+    }
+
+    /**
+     * 本项目统一使用的 PCM 格式：16bit、单声道、有符号、大端
+     */
+    public static AudioFormat createPcmFormat(int sampleRate) {
+        return new AudioFormat(sampleRate, 16, 1, true, true);
     }
 
     // Getters and Setters
@@ -24,6 +75,68 @@ public class AudioModel {
 
     public int getTcpPort() { return tcpPort; }
     public void setTcpPort(int tcpPort) { this.tcpPort = tcpPort; }
+
+    public int getJitterMinDelayMs() { return jitterMinDelayMs; }
+    public void setJitterMinDelayMs(int jitterMinDelayMs) { this.jitterMinDelayMs = jitterMinDelayMs; }
+
+    public int getJitterMaxDelayMs() { return jitterMaxDelayMs; }
+    public void setJitterMaxDelayMs(int jitterMaxDelayMs) { this.jitterMaxDelayMs = jitterMaxDelayMs; }
+
+    public List<String> getCodecPreference() { return codecPreference; }
+    public void setCodecPreference(List<String> codecPreference) { this.codecPreference = new ArrayList<>(codecPreference); }
+
+    public List<Integer> getSampleRatePreference() { return sampleRatePreference; }
+    public void setSampleRatePreference(List<Integer> sampleRatePreference) { this.sampleRatePreference = new ArrayList<>(sampleRatePreference); }
+
+    public int getFrameMs() { return frameMs; }
+    public void setFrameMs(int frameMs) {
+        if (!MediaDescription.isSupportedFrameMs(frameMs)) {
+            throw new IllegalArgumentException("不支持的打包间隔: " + frameMs + " ms");
+        }
+        this.frameMs = frameMs;
+    }
+
+    public boolean isDtxEnabled() { return dtxEnabled; }
+    public void setDtxEnabled(boolean dtxEnabled) { this.dtxEnabled = dtxEnabled; }
+
+    public boolean isFecEnabled() { return fecEnabled; }
+    public void setFecEnabled(boolean fecEnabled) { this.fecEnabled = fecEnabled; }
+
+    public boolean isEchoCancellationEnabled() { return echoCancellationEnabled; }
+    public void setEchoCancellationEnabled(boolean echoCancellationEnabled) { this.echoCancellationEnabled = echoCancellationEnabled; }
+
+    public boolean isNoiseSuppressionEnabled() { return noiseSuppressionEnabled; }
+    public void setNoiseSuppressionEnabled(boolean noiseSuppressionEnabled) { this.noiseSuppressionEnabled = noiseSuppressionEnabled; }
+
+    public boolean isGainControlEnabled() { return gainControlEnabled; }
+    public void setGainControlEnabled(boolean gainControlEnabled) { this.gainControlEnabled = gainControlEnabled; }
+
+    public boolean isPlayoutLimiterEnabled() { return playoutLimiterEnabled; }
+    public void setPlayoutLimiterEnabled(boolean playoutLimiterEnabled) { this.playoutLimiterEnabled = playoutLimiterEnabled; }
+
+    public boolean isDriftCompensationEnabled() { return driftCompensationEnabled; }
+    public void setDriftCompensationEnabled(boolean driftCompensationEnabled) { this.driftCompensationEnabled = driftCompensationEnabled; }
+
+    public String getCaptureDevice() { return captureDevice; }
+    public void setCaptureDevice(String captureDevice) { this.captureDevice = captureDevice; }
+
+    public String getPlaybackDevice() { return playbackDevice; }
+    public void setPlaybackDevice(String playbackDevice) { this.playbackDevice = playbackDevice; }
+
+    public PacketLossConcealer.Strategy getPlcStrategy() { return plcStrategy; }
+    public void setPlcStrategy(PacketLossConcealer.Strategy plcStrategy) { this.plcStrategy = plcStrategy; }
+
+    public String getMessageCodec() { return messageCodec; }
+    public void setMessageCodec(String messageCodec) { this.messageCodec = messageCodec; }
+
+    public int getMessageRateLimitKBps() { return messageRateLimitKBps; }
+    public void setMessageRateLimitKBps(int messageRateLimitKBps) {
+        if (messageRateLimitKBps < 0) {
+            throw new IllegalArgumentException("限速不能为负: " + messageRateLimitKBps);
+        }
+        this.messageRateLimitKBps = messageRateLimitKBps;
+    }
+
     public int getAudioMessagePort() {
         return tcpPort + 1;  // 8082
     }
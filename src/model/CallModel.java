@@ -7,6 +7,8 @@ public class CallModel {
     private boolean isCalling = false;
     private boolean isMuted = false;
     private boolean remoteDisconnected = false; // 新增：对方是否已断开连接
+    private MediaDescription localMedia;   // 本端媒体参数
+    private MediaDescription remoteMedia;  // 对端媒体参数（来自信令）
 
     // Getters and Setters
     public String getRemoteIP() { return remoteIP; }
@@ -30,10 +32,18 @@ public class CallModel {
         this.remoteDisconnected = remoteDisconnected;
     }
 
+    public MediaDescription getLocalMedia() { return localMedia; }
+    public void setLocalMedia(MediaDescription localMedia) { this.localMedia = localMedia; }
+
+    public MediaDescription getRemoteMedia() { return remoteMedia; }
+    public void setRemoteMedia(MediaDescription remoteMedia) { this.remoteMedia = remoteMedia; }
+
     // 重置所有状态
     public void resetAll() {
         isCalling = false;
         isMuted = false;
         remoteDisconnected = false;
+        localMedia = null;
+        remoteMedia = null;
     }
 }
\ No newline at end of file
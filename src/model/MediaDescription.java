@@ -0,0 +1,273 @@
+package model;
+
+import media.Codecs;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 通话媒体参数，随 DIAL_REQUEST / DIAL_ACCEPT 信令一起交换（与旧版本的兼容方式见 CallSignaling）。
+ * 线上格式为同一行内以空格分隔的 key=value，主叫放在 DIAL_REQUEST 之后的单独一行，被叫附在 DIAL_ACCEPT 行内，例如：
+ *     DIAL_REQUEST
+ *     MEDIA ssrc=5f3a09c1 codecs=PCMU,PCMA,DVI4,L16 rates=16000,8000,48000 ptime=20 dtx=1 red=1 port=9091
+ *     DIAL_ACCEPT ssrc=0b77e102 codecs=DVI4 rates=16000 ptime=20 dtx=1 red=1 port=9091
+ * 主叫（offer）按优先级列出本端支持的编码和采样率（声卡原生支持的排在前面），
+ * 被叫（answer）各只回复选中的一个，编码与采样率成对选择（G.711 只能用 8kHz，见 Codecs.supportsSampleRate）。
+ * 打包间隔（ptime）双方各自声明，取较大值，即以包率较低的一方为准。
+ * 静音停发（dtx）只有双方都声明时才启用，旧版本收不到语音包会当作断流。
+ * 冗余帧（red）同样需要双方声明，旧版本无法解析冗余负载。
+ * 媒体端口（port）为声明方接收 RTP 的 UDP 端口；旧版本不声明，按双方相同的默认端口发送。
+ * 未识别的键直接忽略；没有的键取默认值。
+ */
+public class MediaDescription {
+
+    /** 旧版本只会发送 16bit 线性 PCM */
+    public static final String DEFAULT_CODEC = "L16";
+
+    /** 可选的打包间隔（毫秒） */
+    public static final int[] SUPPORTED_FRAME_MS = {10, 20, 30, 40};
+    public static final int DEFAULT_FRAME_MS = 20;
+
+    /** 旧版本固定使用 8kHz */
+    public static final int DEFAULT_SAMPLE_RATE = 8000;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    // 本端发送流的标识（0 表示未知，由接收方锁定首个到达的流）
+    private long ssrc = 0;
+    // 编码列表（offer 为优先级顺序，answer 为选中的编码）
+    private List<String> codecs = new ArrayList<>();
+    // 采样率列表（offer 为优先级顺序，answer 为选中的采样率）
+    private List<Integer> sampleRates = new ArrayList<>();
+    // 打包间隔（0 表示对端未声明）
+    private int frameMs = 0;
+    // 是否支持静音停发与舒适噪声（RFC 3389）
+    private boolean dtx = false;
+    // 是否支持冗余音频负载（RFC 2198）
+    private boolean red = false;
+    // 本端接收媒体的 UDP 端口（0 表示未声明）
+    private int port = 0;
+
+    /**
+     * 主叫方：生成本端参数
+     *
+     * @param supportedCodecs 本端支持的编码，按优先级排列
+     * @param sampleRates     本端可用的采样率，声卡原生支持的在前；没有任何编码可用的采样率不列出
+     */
+    public static MediaDescription createOffer(List<String> supportedCodecs, List<Integer> sampleRates, int frameMs) {
+        MediaDescription desc = new MediaDescription();
+        desc.ssrc = randomSsrc();
+        desc.codecs.addAll(supportedCodecs);
+        for (Integer rate : sampleRates) {
+            if (pickCodec(supportedCodecs, supportedCodecs, rate) != null) desc.sampleRates.add(rate);
+        }
+        desc.frameMs = frameMs;
+        return desc;
+    }
+
+    /**
+     * 被叫方：根据对方的 offer 生成应答
+     * - 采样率：按对方列表的顺序，先找本端声卡原生支持的，都不行时再找可重采样得到的
+     * - 编码：对方列表中第一个本端也支持、且能用于该采样率的；没有这样的编码时换下一个采样率
+     * 双方没有可用的组合时回退到旧版本的 L16 / 8kHz
+     *
+     * @param nativeRates    本端声卡原生支持的采样率
+     * @param supportedRates 本端可用（含重采样）的采样率
+     */
+    public static MediaDescription createAnswer(MediaDescription offer, List<String> supportedCodecs,
+                                                List<Integer> nativeRates, List<Integer> supportedRates,
+                                                int frameMs) {
+        MediaDescription desc = new MediaDescription();
+        desc.ssrc = randomSsrc();
+        String codec = null;
+        int rate = DEFAULT_SAMPLE_RATE;
+        for (List<Integer> usable : Arrays.asList(nativeRates, supportedRates)) {
+            for (Integer offered : offer.sampleRates) {
+                if (!usable.contains(offered)) continue;
+                codec = pickCodec(offer.codecs, supportedCodecs, offered);
+                if (codec != null) {
+                    rate = offered;
+                    break;
+                }
+            }
+            if (codec != null) break;
+        }
+        desc.codecs.add(codec != null ? codec : DEFAULT_CODEC);
+        desc.sampleRates.add(rate);
+
+        desc.frameMs = frameMs;
+        return desc;
+    }
+
+    /**
+     * 双方统一的编码选择规则：取对端列表中第一个本端也列出的编码。
+     * 被叫方的应答只含一个编码，因此主叫、被叫两侧得到相同结果。
+     */
+    public static String selectCodec(MediaDescription local, MediaDescription remote) {
+        if (local == null || remote == null) return DEFAULT_CODEC;
+        return pickFirstCommon(remote.codecs, local.codecs);
+    }
+
+    /**
+     * 双方统一的采样率，规则与 selectCodec 相同
+     */
+    public static int selectSampleRate(MediaDescription local, MediaDescription remote) {
+        if (local == null || remote == null) return DEFAULT_SAMPLE_RATE;
+        return pickFirstCommon(remote.sampleRates, local.sampleRates, DEFAULT_SAMPLE_RATE);
+    }
+
+    /**
+     * 双方统一的打包间隔：取两端声明值中较大的一个（未声明的一方不参与）
+     */
+    public static int selectFrameMs(MediaDescription local, MediaDescription remote) {
+        int ms = Math.max(local != null ? local.frameMs : 0, remote != null ? remote.frameMs : 0);
+        return isSupportedFrameMs(ms) ? ms : DEFAULT_FRAME_MS;
+    }
+
+    /**
+     * 双方都声明支持时才启用静音停发
+     */
+    public static boolean selectDtx(MediaDescription local, MediaDescription remote) {
+        return local != null && remote != null && local.dtx && remote.dtx;
+    }
+
+    /**
+     * 双方都声明支持时才启用冗余帧
+     */
+    public static boolean selectRed(MediaDescription local, MediaDescription remote) {
+        return local != null && remote != null && local.red && remote.red;
+    }
+
+    public static boolean isSupportedFrameMs(int ms) {
+        for (int supported : SUPPORTED_FRAME_MS) {
+            if (supported == ms) return true;
+        }
+        return false;
+    }
+
+    private static String pickCodec(List<String> preferred, List<String> available, int rate) {
+        for (String codec : preferred) {
+            if (available.contains(codec) && Codecs.supportsSampleRate(codec, rate)) return codec;
+        }
+        return null;
+    }
+
+    private static String pickFirstCommon(List<String> preferred, List<String> available) {
+        for (String codec : preferred) {
+            if (available.contains(codec)) return codec;
+        }
+        return DEFAULT_CODEC;
+    }
+
+    private static int pickFirstCommon(List<Integer> preferred, List<Integer> available, int fallback) {
+        for (Integer rate : preferred) {
+            if (available.contains(rate)) return rate;
+        }
+        return fallback;
+    }
+
+    private static long randomSsrc() {
+        long ssrc;
+        do {
+            ssrc = RANDOM.nextInt() & 0xFFFFFFFFL;
+        } while (ssrc == 0);
+        return ssrc;
+    }
+
+    /**
+     * 解析信令命令之后的参数部分
+     */
+    public static MediaDescription parse(String params) {
+        MediaDescription desc = new MediaDescription();
+        if (params == null) return desc;
+
+        for (String token : params.trim().split("\\s+")) {
+            int eq = token.indexOf('=');
+            if (eq <= 0) continue;
+
+            String key = token.substring(0, eq);
+            String value = token.substring(eq + 1);
+            try {
+                if ("ssrc".equals(key)) {
+                    desc.ssrc = Long.parseLong(value, 16) & 0xFFFFFFFFL;
+                } else if ("codecs".equals(key)) {
+                    desc.codecs = new ArrayList<>(Arrays.asList(value.split(",")));
+                } else if ("rates".equals(key)) {
+                    desc.sampleRates = new ArrayList<>();
+                    for (String rate : value.split(",")) {
+                        desc.sampleRates.add(Integer.parseInt(rate));
+                    }
+                } else if ("ptime".equals(key)) {
+                    int ms = Integer.parseInt(value);
+                    if (isSupportedFrameMs(ms)) desc.frameMs = ms;
+                } else if ("dtx".equals(key)) {
+                    desc.dtx = "1".equals(value);
+                } else if ("red".equals(key)) {
+                    desc.red = "1".equals(value);
+                } else if ("port".equals(key)) {
+                    int port = Integer.parseInt(value);
+                    if (port > 0 && port < 65536) desc.port = port;
+                }
+            } catch (NumberFormatException e) {
+                System.err.println("忽略无效的媒体参数: " + token);
+            }
+        }
+
+        if (desc.codecs.isEmpty()) {
+            desc.codecs.add(DEFAULT_CODEC);
+        }
+        if (desc.sampleRates.isEmpty()) {
+            desc.sampleRates.add(DEFAULT_SAMPLE_RATE);
+        }
+        return desc;
+    }
+
+    /**
+     * 生成线上格式（不含命令本身）
+     */
+    public String format() {
+        String text = "ssrc=" + Long.toHexString(ssrc)
+                + " codecs=" + String.join(",", codecs);
+        if (!sampleRates.isEmpty()) {
+            StringBuilder rates = new StringBuilder();
+            for (Integer rate : sampleRates) {
+                if (rates.length() > 0) rates.append(',');
+                rates.append(rate);
+            }
+            text += " rates=" + rates;
+        }
+        if (frameMs > 0) text += " ptime=" + frameMs;
+        if (dtx) text += " dtx=1";
+        if (red) text += " red=1";
+        if (port > 0) text += " port=" + port;
+        return text;
+    }
+
+    public long getSsrc() { return ssrc; }
+    public void setSsrc(long ssrc) { this.ssrc = ssrc; }
+
+    public List<String> getCodecs() { return codecs; }
+    public void setCodecs(List<String> codecs) { this.codecs = new ArrayList<>(codecs); }
+
+    public List<Integer> getSampleRates() { return sampleRates; }
+    public void setSampleRates(List<Integer> sampleRates) { this.sampleRates = new ArrayList<>(sampleRates); }
+
+    public int getFrameMs() { return frameMs; }
+    public void setFrameMs(int frameMs) { this.frameMs = frameMs; }
+
+    public boolean isDtx() { return dtx; }
+    public void setDtx(boolean dtx) { this.dtx = dtx; }
+
+    public boolean isRed() { return red; }
+    public void setRed(boolean red) { this.red = red; }
+
+    public int getPort() { return port; }
+    public void setPort(int port) { this.port = port; }
+
+    @Override
+    public String toString() {
+        return format();
+    }
+}
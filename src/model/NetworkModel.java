@@ -55,7 +55,6 @@
 package model;
 
 import java.net.Socket;
-import java.net.DatagramSocket;
 import java.net.ServerSocket;
 import java.net.InetAddress;
 import java.net.NetworkInterface;
@@ -64,7 +63,6 @@ import java.util.Enumeration;
 
 public class NetworkModel {
     private Socket tcpSocket;
-    private DatagramSocket udpSocket;
     private ServerSocket serverSocket;
     private String localIP;
     private boolean isServerRunning = false;
@@ -126,9 +124,6 @@ public class NetworkModel {
     public Socket getTcpSocket() { return tcpSocket; }
     public void setTcpSocket(Socket tcpSocket) { this.tcpSocket = tcpSocket; }
 
-    public DatagramSocket getUdpSocket() { return udpSocket; }
-    public void setUdpSocket(DatagramSocket udpSocket) { this.udpSocket = udpSocket; }
-
     public ServerSocket getServerSocket() { return serverSocket; }
     public void setServerSocket(ServerSocket serverSocket) { this.serverSocket = serverSocket; }
 
@@ -17,6 +17,7 @@ public class CallView extends BackgroundPanel {
     private javax.swing.Timer audioDetectionTimer;
     private JLabel callEndLabel;
     private JLabel connectionStatusLabel;
+    private JLabel qualityLabel;
 
     // 舒适的字体
     private Font titleFont;
@@ -54,6 +55,13 @@ public class CallView extends BackgroundPanel {
         titleLabel.setForeground(new Color(40, 90, 160));
         topPanel.add(titleLabel, BorderLayout.CENTER);
 
+        // 通话质量（本端/对端）：丢包、抖动、RTT、MOS
+        qualityLabel = new JLabel("通话质量: 等待统计...", JLabel.CENTER);
+        qualityLabel.setFont(smallFont);
+        qualityLabel.setForeground(new Color(100, 100, 100));
+        qualityLabel.setBorder(BorderFactory.createEmptyBorder(8, 0, 0, 0));
+        topPanel.add(qualityLabel, BorderLayout.SOUTH);
+
         add(topPanel, BorderLayout.NORTH);
 
         // 中心面板：状态 + 音频状态 + 消息区域
@@ -231,6 +239,30 @@ public class CallView extends BackgroundPanel {
         });
     }
 
+    // 新增：更新通话质量显示（mos < 0 表示尚无数据）
+    public void updateCallQuality(String text, double mos) {
+        SwingUtilities.invokeLater(() -> {
+            qualityLabel.setText("通话质量（本端/对端）: " + text);
+            if (mos < 0) {
+                qualityLabel.setForeground(new Color(100, 100, 100));
+            } else if (mos >= 4.0) {
+                qualityLabel.setForeground(new Color(40, 160, 60));
+            } else if (mos >= 3.6) {
+                qualityLabel.setForeground(new Color(200, 140, 20));
+            } else {
+                qualityLabel.setForeground(Color.RED);
+            }
+        });
+    }
+
+    // 新增：重置通话质量显示
+    public void resetCallQuality() {
+        SwingUtilities.invokeLater(() -> {
+            qualityLabel.setText("通话质量: 等待统计...");
+            qualityLabel.setForeground(new Color(100, 100, 100));
+        });
+    }
+
     // 新增：清空消息区域
     public void clearMessages() {
         SwingUtilities.invokeLater(() -> {
@@ -17,6 +17,7 @@ public class MainView extends BackgroundPanel {
     private JLabel localIPLabel;
     private JButton recordButton;
     private JLabel recordingStatusLabel;
+    private JCheckBox streamCheckBox;
     private JButton serverToggleButton;
     private JLabel serverStatusLabel;
     private JTextArea messageArea;
@@ -245,6 +246,16 @@ public class MainView extends BackgroundPanel {
         recordingStatusLabel.setForeground(Color.RED);
         controlPanel.add(recordingStatusLabel, gbc);
 
+        // 流式消息：录音时即发给对方，对方边收边听
+        gbc.gridx = 1;
+        gbc.gridy = 4;
+        streamCheckBox = new JCheckBox("边录边发（对方边收边听）");
+        streamCheckBox.setFont(normalFont);
+        streamCheckBox.setForeground(new Color(50, 50, 50));
+        streamCheckBox.setOpaque(false);
+        streamCheckBox.setVisible(false);
+        controlPanel.add(streamCheckBox, gbc);
+
         return controlPanel;
     }
 
@@ -320,10 +331,12 @@ public class MainView extends BackgroundPanel {
         String selectedMode = getSelectedMode();
         if ("音频消息".equals(selectedMode)) {
             recordButton.setVisible(true);
+            streamCheckBox.setVisible(true);
             connectButton.setText("发送消息");
             recordingStatusLabel.setText("点击开始录音");
         } else {
             recordButton.setVisible(false);
+            streamCheckBox.setVisible(false);
             connectButton.setText("连接");
             recordingStatusLabel.setText("");
             isRecording = false;
@@ -335,6 +348,7 @@ public class MainView extends BackgroundPanel {
     public void setRecordingState(boolean recording, boolean hasRecordedAudio) {
         isRecording = recording;
         hasRecorded = hasRecordedAudio;
+        streamCheckBox.setEnabled(!recording);
 
         if (isRecording) {
             recordButton.setText("停止录音");
@@ -382,6 +396,10 @@ public class MainView extends BackgroundPanel {
         return isRecording;
     }
 
+    public boolean isStreamingMessage() {
+        return streamCheckBox.isSelected();
+    }
+
     public boolean isServerRunning() {
         return isServerRunning;
     }